@@ -0,0 +1,340 @@
+package nablarch.core;
+
+/**
+ * {@link ThreadContext}の任意のキーの値を保持する、不変のMap。
+ * <p/>
+ * 値を変更するメソッドは、自身を変更せずに変更後の内容を持つ新たなインスタンスを返す。
+ * 内部構造はハッシュ値の5ビットごとに32分岐するトライ木(Hash Array Mapped Trie)であり、
+ * 変更時には変更された経路上のノードのみを複製し、それ以外のノードは変更前のインスタンスと共有する。
+ * このため、参照及び変更はエントリ数によらずほぼ一定時間で完了し、
+ * 変更前のインスタンスを複数のスレッドで共有し続けることができる。
+ * <p/>
+ * 本クラスのインスタンスは不変であり、スレッドセーフである。
+ */
+final class ContextMap {
+
+    /** エントリを持たないMap */
+    static final ContextMap EMPTY = new ContextMap(null);
+
+    /** ハッシュ値の分岐に使用するビット数 */
+    private static final int BITS = 5;
+
+    /** ハッシュ値から分岐位置を取り出すマスク */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** ルートノード(エントリを持たない場合はnull) */
+    private final Node root;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param root ルートノード
+     */
+    private ContextMap(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * キーに対応する値を取得する。
+     *
+     * @param key キー
+     * @return 値。存在しない場合はnull
+     */
+    Object get(String key) {
+        return root == null ? null : root.find(0, key.hashCode(), key);
+    }
+
+    /**
+     * キーに値を対応付けたMapを返す。
+     * <p/>
+     * 値がnullの場合は、キーを削除したMapを返す。
+     * 内容が変わらない場合は自身を返す。
+     *
+     * @param key キー
+     * @param value 値
+     * @return 変更後のMap
+     */
+    ContextMap put(String key, Object value) {
+        final int hash = key.hashCode();
+        final Node newRoot;
+        if (value == null) {
+            newRoot = root == null ? null : root.without(0, hash, key);
+        } else {
+            newRoot = (root == null ? BitmapNode.EMPTY : root).assoc(0, hash, key, value);
+        }
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? EMPTY : new ContextMap(newRoot);
+    }
+
+    /**
+     * トライ木のノード。
+     */
+    private abstract static class Node {
+
+        /**
+         * キーに対応する値を検索する。
+         *
+         * @param shift ハッシュ値のシフト量
+         * @param hash キーのハッシュ値
+         * @param key キー
+         * @return 値。存在しない場合はnull
+         */
+        abstract Object find(int shift, int hash, String key);
+
+        /**
+         * キーに値を対応付けたノードを返す。
+         *
+         * @param shift ハッシュ値のシフト量
+         * @param hash キーのハッシュ値
+         * @param key キー
+         * @param value 値(nullでないこと)
+         * @return 変更後のノード。内容が変わらない場合は自身
+         */
+        abstract Node assoc(int shift, int hash, String key, Object value);
+
+        /**
+         * キーを削除したノードを返す。
+         *
+         * @param shift ハッシュ値のシフト量
+         * @param hash キーのハッシュ値
+         * @param key キー
+         * @return 変更後のノード。内容が変わらない場合は自身、エントリが無くなった場合はnull
+         */
+        abstract Node without(int shift, int hash, String key);
+    }
+
+    /**
+     * 分岐位置のビットマップと、存在する分岐のみを詰めた配列で構成されるノード。
+     * <p/>
+     * 配列にはキーと値を交互に格納する。キーがnullの場合、対応する値は下位のノードである。
+     */
+    private static final class BitmapNode extends Node {
+
+        /** エントリを持たないノード */
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        /** 存在する分岐位置のビットマップ */
+        private final int bitmap;
+
+        /** キーと値(もしくはnullと下位のノード)を交互に格納した配列 */
+        private final Object[] array;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param bitmap 存在する分岐位置のビットマップ
+         * @param array キーと値を交互に格納した配列
+         */
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            final int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final int index = indexOf(bit);
+            final Object k = array[index];
+            final Object v = array[index + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? v : null;
+        }
+
+        @Override
+        Node assoc(int shift, int hash, String key, Object value) {
+            final int bit = bitOf(hash, shift);
+            final int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            final Object k = array[index];
+            final Object v = array[index + 1];
+            if (k == null) {
+                final Node child = ((Node) v).assoc(shift + BITS, hash, key, value);
+                return child == v ? this : replace(index, null, child);
+            }
+            if (key.equals(k)) {
+                return v == value ? this : replace(index, k, value);
+            }
+            final Node child = createNode(shift + BITS, (String) k, v, hash, key, value);
+            return replace(index, null, child);
+        }
+
+        @Override
+        Node without(int shift, int hash, String key) {
+            final int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int index = indexOf(bit);
+            final Object k = array[index];
+            final Object v = array[index + 1];
+            if (k == null) {
+                final Node child = ((Node) v).without(shift + BITS, hash, key);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return replace(index, null, child);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        /**
+         * 指定された位置のキーと値を置き換えたノードを返す。
+         *
+         * @param index キーの位置
+         * @param key キー
+         * @param value 値
+         * @return 置き換えたノード
+         */
+        private BitmapNode replace(int index, Object key, Object value) {
+            final Object[] newArray = array.clone();
+            newArray[index] = key;
+            newArray[index + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        /**
+         * 分岐位置に対応するキーの、配列上の位置を返す。
+         *
+         * @param bit 分岐位置のビット
+         * @return 配列上の位置
+         */
+        private int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1)) * 2;
+        }
+    }
+
+    /**
+     * ハッシュ値が同じキーを格納するノード。
+     */
+    private static final class CollisionNode extends Node {
+
+        /** キーのハッシュ値 */
+        private final int hash;
+
+        /** キーと値を交互に格納した配列 */
+        private final Object[] array;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param hash キーのハッシュ値
+         * @param array キーと値を交互に格納した配列
+         */
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            final int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node assoc(int shift, int hash, String key, Object value) {
+            if (hash != this.hash) {
+                return new BitmapNode(bitOf(this.hash, shift), new Object[] {null, this})
+                        .assoc(shift, hash, key, value);
+            }
+            final int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                final Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            final Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node without(int shift, int hash, String key) {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(hash, newArray);
+        }
+
+        /**
+         * キーの配列上の位置を返す。
+         *
+         * @param key キー
+         * @return 配列上の位置。存在しない場合は-1
+         */
+        private int indexOf(String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 2つのエントリを格納したノードを作成する。
+     *
+     * @param shift ハッシュ値のシフト量
+     * @param key1 1つ目のキー
+     * @param value1 1つ目の値
+     * @param hash2 2つ目のキーのハッシュ値
+     * @param key2 2つ目のキー
+     * @param value2 2つ目の値
+     * @return ノード
+     */
+    private static Node createNode(int shift, String key1, Object value1, int hash2, String key2, Object value2) {
+        final int hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        }
+        return BitmapNode.EMPTY.assoc(shift, hash1, key1, value1).assoc(shift, hash2, key2, value2);
+    }
+
+    /**
+     * ハッシュ値の分岐位置に対応するビットを返す。
+     *
+     * @param hash ハッシュ値
+     * @param shift ハッシュ値のシフト量
+     * @return 分岐位置に対応するビット
+     */
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+}
@@ -1,9 +1,9 @@
 package nablarch.core;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 import nablarch.core.util.annotation.Published;
 
@@ -15,6 +15,11 @@ import nablarch.core.util.annotation.Published;
  * このため、子スレッドでは個別に値を設定することなく、親スレッドで設定した値を使用することが出来る。
  * また、子スレッドで個別に値を変更することも出来るが、ThreadLocalに格納したオブジェクトは各スレッドで共有され、
  * 別スレッドの動作に影響を与える危険があるので、イミュータブルな値とスレッドセーフな値のみを格納すること。
+ * <p/>
+ * スレッドコンテキストの内容は不変の{@link Snapshot}として保持し、値の設定時には新たな{@link Snapshot}に置き換える。
+ * 組み込みのキー(言語、タイムゾーン、ユーザID等)の値は固定のスロットに、
+ * それ以外のキーの値は変更前の構造を共有する不変のMapに格納する。
+ * このため、子スレッドへの引き継ぎ及び{@link #capture()}は内容を複製せずに一定時間で完了する。
  *
  * @author Koichi Asano
  */
@@ -42,17 +47,44 @@ public final class ThreadContext {
     /** 並行実行スレッド数のキー。 */
     public static final String CONCURRENT_NUMBER_KEY = "CONCURRENT_NUMBER_KEY";
     
+    /** 言語のスロット */
+    private static final int LANG_SLOT = 0;
+
+    /** タイムゾーンのスロット */
+    private static final int TIME_ZONE_SLOT = 1;
+
+    /** ユーザIDのスロット */
+    private static final int USER_ID_SLOT = 2;
+
+    /** リクエストIDのスロット */
+    private static final int REQUEST_ID_SLOT = 3;
+
+    /** 内部リクエストIDのスロット */
+    private static final int INTERNAL_REQUEST_ID_SLOT = 4;
+
+    /** 実行時IDのスロット */
+    private static final int EXECUTION_ID_SLOT = 5;
+
+    /** 並行実行スレッド数のスロット */
+    private static final int CONCURRENT_NUMBER_SLOT = 6;
+
+    /** キーがnullのオブジェクトのスロット */
+    private static final int NULL_KEY_SLOT = 7;
+
+    /** スロット数 */
+    private static final int SLOT_COUNT = 8;
+
     /** スレッド内で共有するオブジェクトを保持するThreadLocal。 */
-    private static ThreadLocal<Map<String, Object>> genericObjects = new InheritableThreadLocal<Map<String, Object>>() {
+    private static ThreadLocal<Snapshot> genericObjects = new InheritableThreadLocal<Snapshot>() {
         @Override
-        protected Map<String, Object> initialValue() {
-            return new HashMap<String, Object>();
+        protected Snapshot initialValue() {
+            return Snapshot.EMPTY;
         }
 
         @Override
-        protected Map<String, Object> childValue(
-                Map<String, Object> parentValue) {
-            return new HashMap<String, Object>(parentValue);
+        protected Snapshot childValue(Snapshot parentValue) {
+            // 不変であるため複製せずに引き継ぐ。
+            return parentValue;
         }
     };
 
@@ -66,7 +98,7 @@ public final class ThreadContext {
      */
     @Published
     public static Locale getLanguage() {
-        return (Locale) genericObjects.get().get(LANG_KEY);
+        return (Locale) getSlot(LANG_SLOT);
     }
 
     /**
@@ -74,7 +106,7 @@ public final class ThreadContext {
      * @param locale 言語
      */
     public static void setLanguage(Locale locale) {
-        genericObjects.get().put(LANG_KEY, locale);
+        setSlot(LANG_SLOT, locale);
     }
     
     /**
@@ -83,7 +115,7 @@ public final class ThreadContext {
      */
     @Published
     public static TimeZone getTimeZone() {
-        return (TimeZone) genericObjects.get().get(TIME_ZONE_KEY);
+        return (TimeZone) getSlot(TIME_ZONE_SLOT);
     }
     
     /**
@@ -91,7 +123,7 @@ public final class ThreadContext {
      * @param timeZone タイムゾーン
      */
     public static void setTimeZone(TimeZone timeZone) {
-        genericObjects.get().put(TIME_ZONE_KEY, timeZone);
+        setSlot(TIME_ZONE_SLOT, timeZone);
     }
     
     /**
@@ -100,7 +132,7 @@ public final class ThreadContext {
      */
     @Published
     public static String getUserId() {
-        return (String) getObject(USER_ID_KEY);
+        return (String) getSlot(USER_ID_SLOT);
     }
 
     /**
@@ -108,7 +140,7 @@ public final class ThreadContext {
      * @param userId ユーザID
      */
     public static void setUserId(String userId) {
-        setObject(USER_ID_KEY, userId);
+        setSlot(USER_ID_SLOT, userId);
     }
     
     /**
@@ -117,7 +149,7 @@ public final class ThreadContext {
      */
     @Published
     public static String getRequestId() {
-        return (String) getObject(REQUEST_ID_KEY);
+        return (String) getSlot(REQUEST_ID_SLOT);
     }
 
     /**
@@ -125,7 +157,7 @@ public final class ThreadContext {
      * @param requestId リクエストID
      */
     public static void setRequestId(String requestId) {
-        setObject(REQUEST_ID_KEY, requestId);
+        setSlot(REQUEST_ID_SLOT, requestId);
     }
     
     /**
@@ -134,7 +166,7 @@ public final class ThreadContext {
      */
     @Published
     public static String getInternalRequestId() {
-        return (String) getObject(INTERNAL_REQUEST_ID_KEY);
+        return (String) getSlot(INTERNAL_REQUEST_ID_SLOT);
     }
 
     /**
@@ -142,7 +174,7 @@ public final class ThreadContext {
      * @param requestId 内部リクエストID
      */
     public static void setInternalRequestId(String requestId) {
-        setObject(INTERNAL_REQUEST_ID_KEY, requestId);
+        setSlot(INTERNAL_REQUEST_ID_SLOT, requestId);
     }
     
     
@@ -152,7 +184,7 @@ public final class ThreadContext {
      */
     @Published
     public static String getExecutionId() {
-        return (String) getObject(EXECUTION_ID_KEY);
+        return (String) getSlot(EXECUTION_ID_SLOT);
     }
 
     /**
@@ -160,7 +192,7 @@ public final class ThreadContext {
      * @param executionId 実行時ID
      */
     public static void setExecutionId(String executionId) {
-        setObject(EXECUTION_ID_KEY, executionId);
+        setSlot(EXECUTION_ID_SLOT, executionId);
     }
     
     /**
@@ -170,7 +202,16 @@ public final class ThreadContext {
      * @param object 設定するオブジェクト
      */
     public static void setObject(String key, Object object) {
-        ThreadContext.genericObjects.get().put(key, object);
+        final int slot = slotOf(key);
+        if (slot >= 0) {
+            setSlot(slot, object);
+        } else {
+            final Snapshot current = genericObjects.get();
+            final Snapshot updated = current.withObject(key, object);
+            if (updated != current) {
+                genericObjects.set(updated);
+            }
+        }
     }
 
     /**
@@ -180,7 +221,11 @@ public final class ThreadContext {
      * @return 取得したオブジェクト
      */
     public static Object getObject(String key) {
-        return ThreadContext.genericObjects.get().get(key);
+        final int slot = slotOf(key);
+        if (slot >= 0) {
+            return getSlot(slot);
+        }
+        return genericObjects.get().objects.get(key);
     }
 
     /**
@@ -195,7 +240,7 @@ public final class ThreadContext {
      * @return 並行実行スレッド数
      */
     public static int getConcurrentNumber() {
-        Integer concurrentNumber = (Integer) ThreadContext.genericObjects.get().get(CONCURRENT_NUMBER_KEY);
+        Integer concurrentNumber = (Integer) getSlot(CONCURRENT_NUMBER_SLOT);
         if (concurrentNumber == null) {
             return 1;
         }
@@ -208,7 +253,190 @@ public final class ThreadContext {
      * @param value 並行実行スレッド数
      */
     public static void setConcurrentNumber(int value) {
-        ThreadContext.genericObjects.get().put(CONCURRENT_NUMBER_KEY, value);
+        setSlot(CONCURRENT_NUMBER_SLOT, value);
+    }
+
+    /**
+     * 現在のスレッドのスレッドコンテキストの内容を取得する。
+     * <p/>
+     * 取得した内容は、{@link #runWith(Snapshot, Callable)}により別スレッドで処理を実行する際に使用する。
+     * 取得後にこのスレッドのスレッドコンテキストを変更しても、取得した内容には反映されない。
+     * スレッドコンテキストの内容は不変であるため、本メソッドは内容を複製せずに一定時間で完了する。
+     *
+     * @return スレッドコンテキストの内容
+     */
+    public static Snapshot capture() {
+        return genericObjects.get();
+    }
+
+    /**
+     * スレッドコンテキストの内容を指定されたものに置き換えて処理を実行する。
+     * <p/>
+     * 処理の終了後は、スレッドコンテキストの内容を実行前の状態に戻す。
+     * 処理中にスレッドコンテキストを変更しても、指定された内容には反映されない。
+     * <p/>
+     * スレッドプールやスレッドの継承を使用しない実行基盤(仮想スレッド等)で、
+     * 呼び出し元のスレッドコンテキストを明示的に引き継ぐために使用する。
+     *
+     * @param <T> 処理結果の型
+     * @param snapshot スレッドコンテキストの内容
+     * @param task 処理
+     * @return 処理結果
+     * @throws Exception 処理で例外が発生した場合
+     */
+    public static <T> T runWith(Snapshot snapshot, Callable<T> task) throws Exception {
+        final Snapshot previous = genericObjects.get();
+        genericObjects.set(snapshot);
+        try {
+            return task.call();
+        } finally {
+            genericObjects.set(previous);
+        }
+    }
+
+    /**
+     * スレッドコンテキストの内容を指定されたものに置き換えて処理を実行する。
+     *
+     * @param snapshot スレッドコンテキストの内容
+     * @param task 処理
+     * @see #runWith(Snapshot, Callable)
+     */
+    public static void runWith(Snapshot snapshot, Runnable task) {
+        final Snapshot previous = genericObjects.get();
+        genericObjects.set(snapshot);
+        try {
+            task.run();
+        } finally {
+            genericObjects.set(previous);
+        }
+    }
+
+    /**
+     * スレッドコンテキストの内容を指定されたものに置き換えて、値を返す処理を実行する。
+     * <p/>
+     * 処理結果を受け渡すためのオブジェクトを生成せずに{@link Supplier}の結果を返すために使用する。
+     *
+     * @param <T> 処理結果の型
+     * @param snapshot スレッドコンテキストの内容
+     * @param task 処理
+     * @return 処理結果
+     * @see #runWith(Snapshot, Callable)
+     */
+    static <T> T supplyWith(Snapshot snapshot, Supplier<T> task) {
+        final Snapshot previous = genericObjects.get();
+        genericObjects.set(snapshot);
+        try {
+            return task.get();
+        } finally {
+            genericObjects.set(previous);
+        }
+    }
+
+    /**
+     * スロットから値を取得する。
+     *
+     * @param slot スロット
+     * @return 値
+     */
+    private static Object getSlot(int slot) {
+        return genericObjects.get().slots[slot];
     }
 
+    /**
+     * スロットに値を設定する。
+     *
+     * @param slot スロット
+     * @param value 値
+     */
+    private static void setSlot(int slot, Object value) {
+        final Snapshot current = genericObjects.get();
+        if (current.slots[slot] != value) {
+            genericObjects.set(current.withSlot(slot, value));
+        }
+    }
+
+    /**
+     * キーに対応するスロットを取得する。
+     *
+     * @param key キー
+     * @return スロット。組み込みのキーでない場合は-1
+     */
+    private static int slotOf(String key) {
+        if (key == null) {
+            return NULL_KEY_SLOT;
+        }
+        switch (key) {
+            case LANG_KEY:
+                return LANG_SLOT;
+            case TIME_ZONE_KEY:
+                return TIME_ZONE_SLOT;
+            case USER_ID_KEY:
+                return USER_ID_SLOT;
+            case REQUEST_ID_KEY:
+                return REQUEST_ID_SLOT;
+            case INTERNAL_REQUEST_ID_KEY:
+                return INTERNAL_REQUEST_ID_SLOT;
+            case EXECUTION_ID_KEY:
+                return EXECUTION_ID_SLOT;
+            case CONCURRENT_NUMBER_KEY:
+                return CONCURRENT_NUMBER_SLOT;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * スレッドコンテキストの内容。
+     * <p/>
+     * {@link #capture()}により取得し、{@link #runWith(Snapshot, Callable)}に指定して使用する。
+     * 本クラスのインスタンスは不変であり、複数のスレッドで共有できる。
+     */
+    @Published(tag = "architect")
+    public static final class Snapshot {
+
+        /** 値が設定されていない内容 */
+        private static final Snapshot EMPTY = new Snapshot(new Object[SLOT_COUNT], ContextMap.EMPTY);
+
+        /** 組み込みのキーの値 */
+        private final Object[] slots;
+
+        /** 組み込みのキー以外のキーの値 */
+        private final ContextMap objects;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param slots 組み込みのキーの値
+         * @param objects 組み込みのキー以外のキーの値
+         */
+        private Snapshot(Object[] slots, ContextMap objects) {
+            this.slots = slots;
+            this.objects = objects;
+        }
+
+        /**
+         * スロットの値を置き換えた内容を返す。
+         *
+         * @param slot スロット
+         * @param value 値
+         * @return 置き換えた内容
+         */
+        private Snapshot withSlot(int slot, Object value) {
+            final Object[] newSlots = slots.clone();
+            newSlots[slot] = value;
+            return new Snapshot(newSlots, objects);
+        }
+
+        /**
+         * 組み込みのキー以外のキーの値を置き換えた内容を返す。
+         *
+         * @param key キー
+         * @param value 値
+         * @return 置き換えた内容。内容が変わらない場合は自身
+         */
+        private Snapshot withObject(String key, Object value) {
+            final ContextMap newObjects = objects.put(key, value);
+            return newObjects == objects ? this : new Snapshot(slots, newObjects);
+        }
+    }
 }
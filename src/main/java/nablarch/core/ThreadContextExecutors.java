@@ -0,0 +1,301 @@
+package nablarch.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 処理の投入時点の{@link ThreadContext}の内容を、処理を実行するスレッドに引き継ぐユーティリティ。
+ * <p/>
+ * {@link ThreadContext}は{@link InheritableThreadLocal}を使用しているため、
+ * スレッドプールのスレッドにはスレッドの生成時点の内容が引き継がれ、処理の投入時点の内容は引き継がれない。
+ * 本クラスが返す{@link Executor}等は、処理の投入時に{@link ThreadContext#capture()}で内容を取得し、
+ * 処理の実行中のみ{@link ThreadContext#runWith(ThreadContext.Snapshot, Callable)}でその内容を設定する。
+ * 処理の終了後は、スレッドプールのスレッドの内容を実行前の状態に戻す。
+ * <p/>
+ * これにより、別スレッドで実行する処理でも、{@link nablarch.core.message.Message#formatMessage()}や
+ * {@link nablarch.core.date.SystemTimeUtil}等が投入元のスレッドと同じ言語やタイムゾーンを参照できる。
+ *
+ * <pre>
+ * ExecutorService executor = ThreadContextExecutors.wrap(Executors.newFixedThreadPool(4));
+ * Future&lt;String&gt; future = executor.submit(task);
+ *
+ * CompletableFuture&lt;String&gt; cf = ThreadContextExecutors.supplyAsync(supplier, executor);
+ * </pre>
+ */
+@Published(tag = "architect")
+public final class ThreadContextExecutors {
+
+    /** 隠蔽コンストラクタ。 */
+    private ThreadContextExecutors() {
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで処理を実行する{@link Runnable}を返す。
+     * <p/>
+     * スレッドコンテキストの内容は、本メソッドの呼び出し時点のものとなる。
+     *
+     * @param task 処理
+     * @return スレッドコンテキストを引き継ぐ処理
+     */
+    public static Runnable wrap(final Runnable task) {
+        final ThreadContext.Snapshot snapshot = ThreadContext.capture();
+        return new Runnable() {
+            @Override
+            public void run() {
+                ThreadContext.runWith(snapshot, task);
+            }
+        };
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで処理を実行する{@link Callable}を返す。
+     * <p/>
+     * スレッドコンテキストの内容は、本メソッドの呼び出し時点のものとなる。
+     *
+     * @param <T> 処理結果の型
+     * @param task 処理
+     * @return スレッドコンテキストを引き継ぐ処理
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final ThreadContext.Snapshot snapshot = ThreadContext.capture();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return ThreadContext.runWith(snapshot, task);
+            }
+        };
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで処理を実行する{@link Supplier}を返す。
+     * <p/>
+     * スレッドコンテキストの内容は、本メソッドの呼び出し時点のものとなる。
+     *
+     * @param <T> 処理結果の型
+     * @param task 処理
+     * @return スレッドコンテキストを引き継ぐ処理
+     */
+    public static <T> Supplier<T> wrap(final Supplier<T> task) {
+        final ThreadContext.Snapshot snapshot = ThreadContext.capture();
+        return new Supplier<T>() {
+            @Override
+            public T get() {
+                return ThreadContext.supplyWith(snapshot, task);
+            }
+        };
+    }
+
+    /**
+     * 処理の投入時点のスレッドコンテキストを引き継ぐ{@link Executor}を返す。
+     *
+     * @param executor 委譲先の{@link Executor}
+     * @return スレッドコンテキストを引き継ぐ{@link Executor}
+     */
+    public static Executor wrap(final Executor executor) {
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        if (executor instanceof ContextExecutor) {
+            return executor;
+        }
+        return new ContextExecutor(executor);
+    }
+
+    /**
+     * 処理の投入時点のスレッドコンテキストを引き継ぐ{@link ExecutorService}を返す。
+     *
+     * @param executor 委譲先の{@link ExecutorService}
+     * @return スレッドコンテキストを引き継ぐ{@link ExecutorService}
+     */
+    public static ExecutorService wrap(final ExecutorService executor) {
+        if (executor instanceof ContextExecutorService) {
+            return executor;
+        }
+        return new ContextExecutorService(executor);
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで、{@link ForkJoinPool#commonPool()}で処理を非同期に実行する。
+     *
+     * @param task 処理
+     * @return 処理の完了を表す{@link CompletableFuture}
+     * @see CompletableFuture#runAsync(Runnable)
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(wrap(task));
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで、指定された{@link Executor}で処理を非同期に実行する。
+     *
+     * @param task 処理
+     * @param executor 処理を実行する{@link Executor}
+     * @return 処理の完了を表す{@link CompletableFuture}
+     * @see CompletableFuture#runAsync(Runnable, Executor)
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrap(task), executor);
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで、{@link ForkJoinPool#commonPool()}で処理を非同期に実行する。
+     *
+     * @param <T> 処理結果の型
+     * @param task 処理
+     * @return 処理結果を表す{@link CompletableFuture}
+     * @see CompletableFuture#supplyAsync(Supplier)
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(wrap(task));
+    }
+
+    /**
+     * 現在のスレッドコンテキストを引き継いで、指定された{@link Executor}で処理を非同期に実行する。
+     *
+     * @param <T> 処理結果の型
+     * @param task 処理
+     * @param executor 処理を実行する{@link Executor}
+     * @return 処理結果を表す{@link CompletableFuture}
+     * @see CompletableFuture#supplyAsync(Supplier, Executor)
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        return CompletableFuture.supplyAsync(wrap(task), executor);
+    }
+
+    /**
+     * 処理のコレクションの各要素を、スレッドコンテキストを引き継ぐ処理に変換する。
+     *
+     * @param <T> 処理結果の型
+     * @param tasks 処理のコレクション
+     * @return 変換した処理のリスト
+     */
+    private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        final List<Callable<T>> wrapped = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrapped.add(wrap(task));
+        }
+        return wrapped;
+    }
+
+    /**
+     * 処理の投入時点のスレッドコンテキストを引き継ぐ{@link Executor}。
+     */
+    private static final class ContextExecutor implements Executor {
+
+        /** 委譲先の{@link Executor} */
+        private final Executor delegate;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param delegate 委譲先の{@link Executor}
+         */
+        private ContextExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+    }
+
+    /**
+     * 処理の投入時点のスレッドコンテキストを引き継ぐ{@link ExecutorService}。
+     */
+    private static final class ContextExecutorService implements ExecutorService {
+
+        /** 委譲先の{@link ExecutorService} */
+        private final ExecutorService delegate;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param delegate 委譲先の{@link ExecutorService}
+         */
+        private ContextExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrap(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package nablarch.core.log;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ログの出力項目を、文字列を生成せずにバッファに追加できる{@link LogItem}。
+ * <p/>
+ * {@link LogUtil#formatMessage(LogItem[], Object)}等は、本インタフェースを実装した出力項目に対しては
+ * {@link #appendTo(StringBuilder, Object)}を、それ以外の出力項目に対しては{@link #get(Object)}を使用する。
+ * 出力項目ごとの文字列の生成と複製を避けたい場合に実装する。
+ * <p/>
+ * {@link #appendTo(StringBuilder, Object)}でバッファに追加する内容は、{@link #get(Object)}の戻り値と同じにすること。
+ * なお、本インタフェースの実装クラスを継承して{@link #get(Object)}のみをオーバーライドしたクラスは、
+ * オーバーライドした{@link #get(Object)}の戻り値を出力するため、{@link #get(Object)}を使用する。
+ * @param <CTX> ログ出力項目の取得に使用するコンテキストの型
+ */
+@Published(tag = "architect")
+public interface AppendableLogItem<CTX> extends LogItem<CTX> {
+    /**
+     * ログの出力項目をバッファに追加する。
+     * @param buffer 出力項目を追加するバッファ
+     * @param context ログの出力項目の取得に使用するコンテキスト
+     */
+    void appendTo(StringBuilder buffer, CTX context);
+}
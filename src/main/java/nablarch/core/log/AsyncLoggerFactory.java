@@ -0,0 +1,692 @@
+package nablarch.core.log;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.ObjectUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ログの出力を別スレッドで非同期に行う{@link LoggerFactory}。
+ * <p/>
+ * 本クラスは、設定で指定された{@link LoggerFactory}(委譲先)が生成する{@link Logger}をラップする。
+ * ラップした{@link Logger}は、ログの出力要求をリングバッファに格納するのみで、すぐに呼び出し元に戻る。
+ * 出力スレッドは、リングバッファから出力要求をまとめて取り出し、委譲先の{@link Logger}でログを出力する。
+ * 委譲先の{@link LoggerFactory}が{@link Flushable}を実装している場合は、取り出した出力要求を全て出力した後に
+ * {@link Flushable#flush()}を呼び出す。これにより、出力先への書き出しを複数のログでまとめて行うことができる。
+ * <p/>
+ * ラップした{@link Logger}のログレベルの判定は、{@link EffectiveLogLevel}を使用して呼び出し元のスレッドで行う。
+ * 委譲先が{@link LevelAwareLoggerFactory}を実装している場合は委譲先の{@link EffectiveLogLevel}を共有し、
+ * それ以外の場合は委譲先の{@link Logger}から求めたログレベルを保持して{@link #reload(LogSettings)}の都度求め直す。
+ * <p/>
+ * {@link ThreadContext}の内容、日時、スレッド名は出力要求の時点で取得し、
+ * 出力スレッドで委譲先の{@link Logger}を呼び出す間のみ設定する。
+ * オプション情報の配列は出力要求の時点で複製するが、配列の要素は複製しないため、出力要求後に変更しないこと。
+ * <p/>
+ * 日時とスレッド名は、委譲先が{@link LogEvent}を生成してフォーマットする場合にのみ出力要求の時点のものとなる。
+ * 委譲先が出力時に{@link java.util.Date}や{@link Thread#currentThread()}から独自に取得する場合は、
+ * 出力スレッドのもの(スレッド名は"nablarch-async-logger")となる。
+ * <p/>
+ * 設定は{@link LogSettings}から下記のプロパティを取得する。
+ * <pre>
+ * asyncLogger.loggerFactory.className
+ *     委譲先の{@link LoggerFactory}のクラス名。必須。
+ * asyncLogger.bufferSize
+ *     リングバッファの容量。2のべき乗に切り上げる。デフォルトは8192。
+ * asyncLogger.batchSize
+ *     出力スレッドが一度に取り出す出力要求の最大数。デフォルトは256。
+ * asyncLogger.overflowPolicy
+ *     リングバッファに空きがない場合の動作。{@link OverflowPolicy}の名前を指定する。デフォルトはBLOCK。
+ * asyncLogger.degradeLevel
+ *     overflowPolicyにDEGRADEを指定した場合に、空きを待機するログレベル。
+ *     このレベルより低いログは破棄する。デフォルトはWARN。
+ * asyncLogger.shutdownTimeout
+ *     終了処理で出力要求を出力し終えるまで待機する最大時間(ミリ秒)。デフォルトは10000。
+ * </pre>
+ * {@link #terminate()}では、リングバッファに残っている出力要求を全て出力した後に、委譲先の終了処理を行う。
+ * {@link LoggerManager#terminate()}から呼び出されるため、アプリケーションの終了時に出力要求が失われることはない。
+ * ただし、待機する時間が設定値を超えた場合は、出力スレッドを停止させ、残りの出力要求を破棄した数に含める。
+ * 出力スレッドが委譲先の{@link Logger}での出力から戻らない場合は、出力中の委譲先を終了させないよう、
+ * 委譲先の終了処理を行わない。
+ * <p/>
+ * 委譲先の{@link Logger}での出力や書き出しに失敗した場合は、失敗した数を{@link #getFailureCount()}で取得できる。
+ * 破棄した数と失敗した数は、出力スレッドが委譲先の{@link Logger}で警告ログとして出力する。
+ */
+@Published(tag = "architect")
+public class AsyncLoggerFactory implements ReloadableLoggerFactory, LevelAwareLoggerFactory {
+
+    /** 設定のプロパティ名のプレフィックス */
+    private static final String PROPS_PREFIX = "asyncLogger.";
+
+    /** リングバッファの容量のデフォルト値 */
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** 一度に取り出す出力要求の最大数のデフォルト値 */
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** 終了処理で待機する最大時間(ミリ秒)のデフォルト値 */
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT = 10000L;
+
+    /** 出力要求が無い場合に出力スレッドが待機する時間(ナノ秒) */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** リングバッファの空きを待機する間隔(ナノ秒) */
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * リングバッファに空きがない場合の動作。
+     */
+    @Published(tag = "architect")
+    public enum OverflowPolicy {
+        /** 空きができるまで出力要求を行ったスレッドを待機させる。 */
+        BLOCK,
+        /** 出力要求を破棄する。 */
+        DROP,
+        /** 指定されたレベル以上のログは空きを待機し、それより低いログは破棄する。 */
+        DEGRADE
+    }
+
+    /** 委譲先の{@link LoggerFactory} */
+    private LoggerFactory delegate;
+
+    /** リングバッファ */
+    private LogRingBuffer<LogRequest> buffer;
+
+    /** 一度に取り出す出力要求の最大数 */
+    private int batchSize;
+
+    /** リングバッファに空きがない場合の動作 */
+    private OverflowPolicy overflowPolicy;
+
+    /** 空きを待機するログレベル */
+    private LogLevel degradeLevel;
+
+    /** 終了処理で待機する最大時間(ミリ秒) */
+    private long shutdownTimeout;
+
+    /** 出力スレッド */
+    private Thread writerThread;
+
+    /** 出力スレッドが待機中か否か */
+    private volatile boolean writerWaiting;
+
+    /** 終了処理中か否か */
+    private volatile boolean stopping;
+
+    /** 出力スレッドが停止したか否か(停止後の出力要求は同期的に出力する) */
+    private volatile boolean writerStopped;
+
+    /** 終了処理の待機時間を超えたために、出力スレッドの処理を打ち切ったか否か */
+    private volatile boolean abandoned;
+
+    /** 出力スレッドの停止に関わる排他制御に使用するロック */
+    private final Object stopLock = new Object();
+
+    /** 破棄した出力要求の数 */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /** 出力もしくは書き出しに失敗した数 */
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /** 生成した{@link Logger} */
+    private final ConcurrentHashMap<String, AsyncLogger> loggers = new ConcurrentHashMap<String, AsyncLogger>();
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link LoggerFactory}を生成して初期化し、出力スレッドを開始する。
+     */
+    public void initialize(LogSettings settings) {
+        final Map<String, String> props = settings.getProps();
+        final int bufferSize = getInt(props, "bufferSize", DEFAULT_BUFFER_SIZE);
+        batchSize = getInt(props, "batchSize", DEFAULT_BATCH_SIZE);
+        shutdownTimeout = getInt(props, "shutdownTimeout", (int) DEFAULT_SHUTDOWN_TIMEOUT);
+        overflowPolicy = OverflowPolicy.valueOf(getString(props, "overflowPolicy", OverflowPolicy.BLOCK.name()));
+        degradeLevel = LogLevel.valueOf(getString(props, "degradeLevel", LogLevel.WARN.name()));
+
+        delegate = ObjectUtil.createInstance(settings.getRequiredProp(PROPS_PREFIX + "loggerFactory.className"));
+        LogSettingsWatcher.validateReloadable(settings, delegate);
+        delegate.initialize(settings);
+        buffer = new LogRingBuffer<LogRequest>(bufferSize);
+
+        writerThread = createWriterThread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        });
+        writerThread.start();
+    }
+
+    /**
+     * 出力スレッドを生成する。
+     * <p/>
+     * デフォルト実装では、"nablarch-async-logger"という名前のデーモンスレッドを生成する。
+     *
+     * @param task 出力スレッドで実行する処理
+     * @return 出力スレッド(開始前のもの)
+     */
+    protected Thread createWriterThread(Runnable task) {
+        final Thread thread = new Thread(task, "nablarch-async-logger");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        return thread;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * リングバッファに残っている出力要求を全て出力した後に、委譲先の終了処理を行う。
+     * 待機する時間が設定値を超えた場合は、出力スレッドの処理を打ち切り、
+     * 残りの出力要求を破棄した数に含めてから委譲先の終了処理を行う。
+     * 打ち切った後も、出力スレッドが出力中の出力要求から戻るまで同じ時間だけ待機し、
+     * 戻らない場合は委譲先の終了処理を行わない。
+     */
+    public void terminate() {
+        stopping = true;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(shutdownTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int rest = 0;
+        synchronized (stopLock) {
+            if (!writerStopped) {
+                abandoned = writerThread != null;
+                writerStopped = true;
+                if (buffer != null) {
+                    rest = buffer.drainTo(new ArrayList<LogRequest>(), Integer.MAX_VALUE);
+                    droppedCount.addAndGet(rest);
+                }
+            }
+        }
+        if (delegate != null) {
+            if (abandoned) {
+                final Logger reporter = delegate.get(AsyncLoggerFactory.class.getName());
+                report(reporter,
+                        "log events were dropped because the writer did not finish within the shutdown timeout. count = "
+                                + rest);
+                if (!awaitWriter()) {
+                    report(reporter, "the delegate logger factory was not terminated because the writer is still writing.");
+                    return;
+                }
+            }
+            delegate.terminate();
+        }
+    }
+
+    /**
+     * 処理を打ち切った出力スレッドが、出力中の出力要求から戻って終了するまで待機する。
+     *
+     * @return 出力スレッドが終了した場合は{@code true}
+     */
+    private boolean awaitWriter() {
+        try {
+            writerThread.join(shutdownTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !writerThread.isAlive();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link LoggerFactory}が{@link ReloadableLoggerFactory}を実装している場合は、委譲先に再読み込みさせ、
+     * 生成済みの{@link Logger}のログレベルを求め直す。
+     * リングバッファの容量等、本クラスの設定は変更しない。
+     */
+    public void reload(LogSettings settings) {
+        if (delegate instanceof ReloadableLoggerFactory) {
+            ((ReloadableLoggerFactory) delegate).reload(settings);
+            for (AsyncLogger logger : loggers.values()) {
+                logger.refreshLevel();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link LoggerFactory}から取得した{@link Logger}をラップして返す。
+     */
+    public Logger get(String name) {
+        return getAsyncLogger(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * ラップした{@link Logger}が判定に使用する{@link EffectiveLogLevel}を返す。
+     */
+    public EffectiveLogLevel getEffectiveLevel(String name) {
+        return getAsyncLogger(name).getEffectiveLevel();
+    }
+
+    /**
+     * 委譲先の{@link LoggerFactory}から取得した{@link Logger}をラップした{@link AsyncLogger}を取得する。
+     *
+     * @param name ロガー名
+     * @return {@link AsyncLogger}
+     */
+    private AsyncLogger getAsyncLogger(String name) {
+        AsyncLogger logger = loggers.get(name);
+        if (logger == null) {
+            final AsyncLogger created = new AsyncLogger(name, delegate.get(name));
+            logger = loggers.putIfAbsent(name, created);
+            if (logger == null) {
+                logger = created;
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * リングバッファに空きがないために破棄した出力要求の数を取得する。
+     *
+     * @return 破棄した出力要求の数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 委譲先での出力もしくは書き出しに失敗した数を取得する。
+     *
+     * @return 失敗した数
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * 出力要求をリングバッファに格納する。
+     * <p/>
+     * 出力スレッドから呼び出された場合、及び出力スレッドの停止後に呼び出された場合は、
+     * リングバッファを経由せずに委譲先の{@link Logger}で出力する。
+     * 終了処理の開始後、出力スレッドが停止するまでの間は、出力順序を保つためリングバッファに格納する。
+     *
+     * @param event 出力要求
+     */
+    private void enqueue(LogRequest event) {
+        if (writerStopped || Thread.currentThread() == writerThread) {
+            write(event);
+            return;
+        }
+        if (stopping) {
+            enqueueWhileStopping(event);
+            return;
+        }
+        while (!buffer.offer(event)) {
+            if (!waitsForSpace(event.level)) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            if (stopping) {
+                enqueueWhileStopping(event);
+                return;
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+        if (stopping) {
+            // 格納する前に出力スレッドが停止した場合は、残った出力要求を出力する。
+            writeRestIfWriterStopped();
+        } else if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * 終了処理の開始後に、出力要求をリングバッファに格納する。
+     * <p/>
+     * 出力スレッドの停止と排他制御を行い、停止した場合は同期的に出力する。
+     * リングバッファに空きがない場合は、空きができるか出力スレッドが停止するまで待機する。
+     *
+     * @param event 出力要求
+     */
+    private void enqueueWhileStopping(LogRequest event) {
+        while (true) {
+            synchronized (stopLock) {
+                if (!writerStopped) {
+                    if (buffer.offer(event)) {
+                        return;
+                    }
+                } else {
+                    write(event);
+                    return;
+                }
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * 出力スレッドが停止している場合に、リングバッファに残っている出力要求を同期的に出力する。
+     */
+    private void writeRestIfWriterStopped() {
+        synchronized (stopLock) {
+            if (!writerStopped) {
+                return;
+            }
+            final List<LogRequest> rest = new ArrayList<LogRequest>();
+            buffer.drainTo(rest, Integer.MAX_VALUE);
+            for (LogRequest event : rest) {
+                write(event);
+            }
+        }
+    }
+
+    /**
+     * 出力要求を委譲先の{@link Logger}で出力する。
+     * <p/>
+     * 出力時に発生した実行時例外は、他の出力要求の出力を継続するため失敗した数に含める。
+     *
+     * @param event 出力要求
+     */
+    private void write(LogRequest event) {
+        try {
+            event.write();
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * リングバッファに空きがない場合に、空きを待機するか否かを判定する。
+     *
+     * @param level ログレベル
+     * @return 待機する場合は{@code true}。破棄する場合は{@code false}
+     */
+    private boolean waitsForSpace(LogLevel level) {
+        switch (overflowPolicy) {
+            case DROP:
+                return false;
+            case DEGRADE:
+                return level.getValue() <= degradeLevel.getValue();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 出力スレッドの処理。
+     * <p/>
+     * 終了処理が開始され、リングバッファが空になるまで出力要求の取り出しと出力を繰り返す。
+     * 終了処理で処理を打ち切られた場合は、取り出し済みの出力要求を破棄して終了する。
+     * <p/>
+     * リングバッファからの取り出しは、終了処理及び出力スレッドの停止後の出力と排他制御を行う。
+     */
+    private void writeLoop() {
+        final List<LogRequest> batch = new ArrayList<LogRequest>(batchSize);
+        final Logger reporter = delegate.get(AsyncLoggerFactory.class.getName());
+        long reportedDroppedCount = 0;
+        long reportedFailureCount = 0;
+        while (true) {
+            final int count;
+            synchronized (stopLock) {
+                if (abandoned) {
+                    return;
+                }
+                count = buffer.drainTo(batch, batchSize);
+                if (count == 0 && stopping && buffer.isEmpty()) {
+                    writerStopped = true;
+                    return;
+                }
+            }
+            if (count > 0) {
+                for (LogRequest event : batch) {
+                    if (abandoned) {
+                        droppedCount.incrementAndGet();
+                    } else {
+                        write(event);
+                    }
+                }
+                batch.clear();
+                if (abandoned) {
+                    return;
+                }
+                final long dropped = droppedCount.get();
+                if (dropped != reportedDroppedCount) {
+                    report(reporter, "log events were dropped because the buffer was full. count = "
+                            + (dropped - reportedDroppedCount));
+                    reportedDroppedCount = dropped;
+                }
+                final long failed = failureCount.get();
+                if (failed != reportedFailureCount) {
+                    report(reporter, "failed to write log events. count = " + (failed - reportedFailureCount));
+                    reportedFailureCount = failureCount.get();
+                }
+                flush();
+                continue;
+            }
+            writerWaiting = true;
+            if (buffer.isEmpty() && !stopping) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                // 追加中の出力要求の書き込みが完了するまで待機する。
+                Thread.yield();
+            }
+            writerWaiting = false;
+        }
+    }
+
+    /**
+     * 委譲先の{@link LoggerFactory}が{@link Flushable}を実装している場合に、書き出しを行う。
+     */
+    private void flush() {
+        if (delegate instanceof Flushable) {
+            try {
+                ((Flushable) delegate).flush();
+            } catch (IOException e) {
+                failureCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                failureCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 破棄や失敗の件数を委譲先の{@link Logger}で警告ログとして出力する。
+     * <p/>
+     * 出力に失敗した場合は、失敗した数に含める。
+     *
+     * @param reporter 出力先の{@link Logger}
+     * @param message メッセージ
+     */
+    private void report(Logger reporter, String message) {
+        try {
+            reporter.logWarn(message);
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 設定から文字列を取得する。
+     *
+     * @param props 設定
+     * @param name プロパティ名(プレフィックスを除く)
+     * @param defaultValue 指定がない場合の値
+     * @return 設定値
+     */
+    private static String getString(Map<String, String> props, String name, String defaultValue) {
+        final String value = props.get(PROPS_PREFIX + name);
+        return value == null || value.length() == 0 ? defaultValue : value;
+    }
+
+    /**
+     * 設定から正の整数を取得する。
+     *
+     * @param props 設定
+     * @param name プロパティ名(プレフィックスを除く)
+     * @param defaultValue 指定がない場合の値
+     * @return 設定値
+     * @throws IllegalArgumentException 正の整数でない場合
+     */
+    private static int getInt(Map<String, String> props, String name, int defaultValue) {
+        final String value = getString(props, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        final int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "'" + PROPS_PREFIX + name + "' must be an integer. value = [" + value + "]", e);
+        }
+        if (result <= 0) {
+            throw new IllegalArgumentException(
+                    "'" + PROPS_PREFIX + name + "' must be greater than 0. value = [" + value + "]");
+        }
+        return result;
+    }
+
+    /**
+     * ログの出力要求。
+     */
+    private static final class LogRequest {
+
+        /** 出力先の{@link Logger} */
+        private final Logger logger;
+
+        /** ログレベル */
+        private final LogLevel level;
+
+        /** メッセージ */
+        private final String message;
+
+        /** エラー情報 */
+        private final Throwable error;
+
+        /** オプション情報 */
+        private final Object[] options;
+
+        /** 出力要求の時点のスレッドコンテキスト */
+        private final ThreadContext.Snapshot context;
+
+        /** 出力要求の時点の日時(エポックミリ秒) */
+        private final long time;
+
+        /** 出力要求を行ったスレッドの名前 */
+        private final String threadName;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param logger 出力先の{@link Logger}
+         * @param level ログレベル
+         * @param message メッセージ
+         * @param error エラー情報
+         * @param options オプション情報
+         */
+        LogRequest(Logger logger, LogLevel level, String message, Throwable error, Object[] options) {
+            this.logger = logger;
+            this.level = level;
+            this.message = message;
+            this.error = error;
+            this.options = options != null ? options.clone() : null;
+            this.context = ThreadContext.capture();
+            this.time = System.currentTimeMillis();
+            this.threadName = Thread.currentThread().getName();
+        }
+
+        /**
+         * 出力要求の時点のスレッドコンテキスト、日時、スレッド名を設定して、ログを出力する。
+         */
+        void write() {
+            ThreadContext.runWith(context, new Runnable() {
+                @Override
+                public void run() {
+                    LogEvent.runAs(time, threadName, new Runnable() {
+                        @Override
+                        public void run() {
+                            writeTo(logger);
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * ログレベルに対応するメソッドでログを出力する。
+         *
+         * @param target 出力先の{@link Logger}
+         */
+        private void writeTo(Logger target) {
+            switch (level) {
+                case FATAL:
+                    target.logFatal(message, error, options);
+                    break;
+                case ERROR:
+                    target.logError(message, error, options);
+                    break;
+                case WARN:
+                    target.logWarn(message, error, options);
+                    break;
+                case INFO:
+                    target.logInfo(message, error, options);
+                    break;
+                case DEBUG:
+                    target.logDebug(message, error, options);
+                    break;
+                default:
+                    target.logTrace(message, error, options);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 出力要求をリングバッファに格納する{@link Logger}。
+     * <p/>
+     * ログレベルの判定は{@link LeveledLoggerSupport}で行い、出力対象外のログはリングバッファに格納しない。
+     */
+    private final class AsyncLogger extends LeveledLoggerSupport {
+
+        /** 委譲先の{@link Logger} */
+        private final Logger logger;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param name ロガー名
+         * @param logger 委譲先の{@link Logger}
+         */
+        AsyncLogger(String name, Logger logger) {
+            super(EffectiveLogLevel.of(delegate, name, logger));
+            this.logger = logger;
+        }
+
+        /**
+         * 委譲先が{@link LevelAwareLoggerFactory}を実装していない場合に、委譲先の{@link Logger}からログレベルを求め直す。
+         */
+        void refreshLevel() {
+            if (!(delegate instanceof LevelAwareLoggerFactory)) {
+                getEffectiveLevel().set(EffectiveLogLevel.enabledLevelOf(logger));
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * 出力要求をリングバッファに格納する。
+         */
+        @Override
+        protected void write(LogLevel logLevel, String message, Throwable error, Object[] options) {
+            enqueue(new LogRequest(logger, logLevel, message, error, options));
+        }
+    }
+}
@@ -1,45 +1,126 @@
 package nablarch.core.log;
 
 import java.text.DateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 import nablarch.core.util.annotation.Published;
 
 /**
  * 日時を取得する出力項目の実装をサポートするクラス。
+ * <p/>
+ * 日時のフォーマットは排他制御を行わずに行う。
+ * {@link DateFormat}を指定した場合はスレッドごとに複製したものを、
+ * {@link DateTimeFormatter}を指定した場合はそのまま使用する。
+ * また、直前にフォーマットした日時と結果を保持し、同一ミリ秒の日時はフォーマット済みの文字列を再利用する。
+ * <p/>
+ * スレッドプールのスレッドがアプリケーションのクラスローダを保持し続けないよう、
+ * スレッドごとに保持する値は複製した{@link DateFormat}のみとする。
  * @author Kiyohito Itoh
  * @param <CTX> ログ出力項目の取得に使用するコンテキストの型
  */
 @Published(tag = "architect")
-public abstract class DateItemSupport<CTX> implements LogItem<CTX> {
-    
-    /** 日時フォーマット */
-    private DateFormat dateFormat;
-    
+public abstract class DateItemSupport<CTX> implements AppendableLogItem<CTX> {
+
+    /** スレッドごとに複製した日時フォーマット({@link DateTimeFormatter}を指定した場合はnull) */
+    private final ThreadLocal<DateFormat> dateFormat;
+
+    /** 日時フォーマット({@link DateFormat}を指定した場合はnull) */
+    private final DateTimeFormatter dateTimeFormatter;
+
+    /** 直前にフォーマットした日時 */
+    private volatile FormattedDate lastFormatted = new FormattedDate(Long.MIN_VALUE, null);
+
     /**
      * コンストラクタ。
      * @param dateFormat 日時フォーマット
      */
-    protected DateItemSupport(DateFormat dateFormat) {
-        this.dateFormat = dateFormat;
+    protected DateItemSupport(final DateFormat dateFormat) {
+        this.dateFormat = new ThreadLocal<DateFormat>() {
+            @Override
+            protected DateFormat initialValue() {
+                return (DateFormat) dateFormat.clone();
+            }
+        };
+        this.dateTimeFormatter = null;
     }
-    
+
     /**
-     * 日時を取得する。<br>
-     * {@link DateFormat}を排他制御した上で日時をフォーマットする。
+     * コンストラクタ。
+     * <p/>
+     * 日時フォーマットにタイムゾーンが設定されていない場合は、システムデフォルトのタイムゾーンを使用する。
+     * @param dateTimeFormatter 日時フォーマット
+     */
+    protected DateItemSupport(DateTimeFormatter dateTimeFormatter) {
+        this.dateFormat = null;
+        this.dateTimeFormatter = dateTimeFormatter.getZone() != null
+                ? dateTimeFormatter : dateTimeFormatter.withZone(ZoneId.systemDefault());
+    }
+
+    /**
+     * 日時を取得する。
      * @param context ログ出力項目の取得に使用するコンテキスト
      * @return フォーマット済みの日時
      */
     public String get(CTX context) {
-        synchronized (dateFormat) {
-            return dateFormat.format(getDate(context));
-        }
+        return format(getDate(context));
+    }
+
+    /**
+     * フォーマット済みの日時をバッファに追加する。
+     * @param buffer 出力項目を追加するバッファ
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     */
+    public void appendTo(StringBuilder buffer, CTX context) {
+        buffer.append(format(getDate(context)));
     }
-    
+
     /**
      * 日時を取得する。
      * @param context ログ出力項目の取得に使用するコンテキスト
      * @return 日時
      */
     protected abstract Date getDate(CTX context);
+
+    /**
+     * 日時をフォーマットする。
+     * <p/>
+     * 直前にフォーマットした日時と同一ミリ秒の場合は、フォーマット済みの文字列を返す。
+     * @param date 日時
+     * @return フォーマット済みの日時
+     */
+    private String format(Date date) {
+        final long time = date.getTime();
+        final FormattedDate cached = lastFormatted;
+        if (cached.time == time) {
+            return cached.text;
+        }
+        final String text = dateFormat != null
+                ? dateFormat.get().format(date)
+                : dateTimeFormatter.format(Instant.ofEpochMilli(time));
+        lastFormatted = new FormattedDate(time, text);
+        return text;
+    }
+
+    /**
+     * フォーマット済みの日時。
+     */
+    private static final class FormattedDate {
+        /** 日時(ミリ秒) */
+        private final long time;
+        /** フォーマットした日時 */
+        private final String text;
+
+        /**
+         * コンストラクタ。
+         * @param time 日時(ミリ秒)
+         * @param text フォーマットした日時
+         */
+        FormattedDate(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+    }
 }
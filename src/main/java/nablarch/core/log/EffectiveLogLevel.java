@@ -0,0 +1,102 @@
+package nablarch.core.log;
+
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ロガーごとの有効なログレベルを保持するクラス。
+ * <p/>
+ * ログレベルは{@link LogLevel#getValue()}の値としてvolatileフィールドに保持する。
+ * ログレベルの判定はフィールドの読み込みと整数の比較のみで行い、ロックを取得しない。
+ * 設定の再読み込み等でログレベルを変更した場合は、{@link #set(LogLevel)}で更新する。
+ * 更新後の値は、全てのスレッドの以降の判定に反映される。
+ *
+ * @see LevelAwareLoggerFactory
+ * @see LeveledLoggerSupport
+ */
+@Published(tag = "architect")
+public final class EffectiveLogLevel {
+
+    /** 全てのログを出力しないことを表す値 */
+    public static final int OFF = -1;
+
+    /** ログレベルの値 */
+    private volatile int value;
+
+    /**
+     * コンストラクタ。
+     * @param level ログレベル(全てのログを出力しない場合はnull)
+     */
+    public EffectiveLogLevel(LogLevel level) {
+        set(level);
+    }
+
+    /**
+     * ログレベルを設定する。
+     * @param level ログレベル(全てのログを出力しない場合はnull)
+     */
+    public void set(LogLevel level) {
+        value = level == null ? OFF : level.getValue();
+    }
+
+    /**
+     * ログレベルの値を取得する。
+     * @return {@link LogLevel#getValue()}の値。全てのログを出力しない場合は{@link #OFF}
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * 指定されたログレベルのログを出力するか否かを判定する。
+     * @param levelValue 判定するログレベルの値({@link LogLevel#getValue()})
+     * @return 出力する場合は{@code true}
+     */
+    public boolean isEnabled(int levelValue) {
+        return levelValue <= value;
+    }
+
+    /**
+     * 委譲先の{@link LoggerFactory}が生成したロガーの有効なログレベルを取得する。
+     * <p/>
+     * 委譲先が{@link LevelAwareLoggerFactory}を実装している場合は、委譲先が公開するインスタンスを返す。
+     * それ以外の場合は、ロガーのisXxxEnabledメソッドから求めたログレベルを持つインスタンスを生成して返す。
+     * @param factory 委譲先の{@link LoggerFactory}
+     * @param name ロガー名
+     * @param logger 委譲先が生成したロガー
+     * @return 有効なログレベル
+     */
+    static EffectiveLogLevel of(LoggerFactory factory, String name, Logger logger) {
+        if (factory instanceof LevelAwareLoggerFactory) {
+            return ((LevelAwareLoggerFactory) factory).getEffectiveLevel(name);
+        }
+        return new EffectiveLogLevel(enabledLevelOf(logger));
+    }
+
+    /**
+     * ロガーのisXxxEnabledメソッドから、出力する最も詳細なログレベルを求める。
+     * @param logger ロガー
+     * @return ログレベル。全てのログを出力しない場合はnull
+     */
+    static LogLevel enabledLevelOf(Logger logger) {
+        if (logger.isTraceEnabled()) {
+            return LogLevel.TRACE;
+        }
+        if (logger.isDebugEnabled()) {
+            return LogLevel.DEBUG;
+        }
+        if (logger.isInfoEnabled()) {
+            return LogLevel.INFO;
+        }
+        if (logger.isWarnEnabled()) {
+            return LogLevel.WARN;
+        }
+        if (logger.isErrorEnabled()) {
+            return LogLevel.ERROR;
+        }
+        if (logger.isFatalEnabled()) {
+            return LogLevel.FATAL;
+        }
+        return null;
+    }
+}
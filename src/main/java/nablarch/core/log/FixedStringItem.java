@@ -5,7 +5,7 @@ package nablarch.core.log;
  * 固定文字列を取得するクラス。
  * @author Kiyohito Itoh
  */
-public class FixedStringItem implements LogItem<Object> {
+public class FixedStringItem implements AppendableLogItem<Object> {
     
     /** 固定文字列 */
     private String fixedString;
@@ -31,4 +31,13 @@ public class FixedStringItem implements LogItem<Object> {
     public String get(Object context) {
         return fixedString;
     }
+    
+    /**
+     * 固定文字列をバッファに追加する。
+     * @param buffer 出力項目を追加するバッファ
+     * @param context ログコンテキスト
+     */
+    public void appendTo(StringBuilder buffer, Object context) {
+        buffer.append(fixedString);
+    }
 }
@@ -0,0 +1,271 @@
+package nablarch.core.log;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.text.json.BasicJsonSerializationManager;
+import nablarch.core.text.json.JsonSerializationManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ログの出力項目をJSONのobjectとして出力するクラス。
+ * <p/>
+ * 出力項目の名前をmember name、{@link LogItem#get(Object)}の戻り値をvalueとして、
+ * 指定された出力項目の順に1件のログを1つのobjectとして出力する。
+ * valueは{@link JsonSerializationManager}で取得したシリアライザでシリアライズし、
+ * 中間の文字列を生成せずに直接{@link Writer}に書き込む。
+ * member nameはインスタンス生成時にシリアライズしておき、ログ出力ごとには処理しない。
+ * <p/>
+ * {@link LogEvent}をコンテキストとして使用する場合は、{@link #createDefaultFields()}で標準の出力項目を取得できる。
+ * <pre>
+ * Map&lt;String, LogItem&lt;LogEvent&gt;&gt; fields = JsonLogFormatter.createDefaultFields();
+ * fields.remove("error");
+ * JsonLogFormatter&lt;LogEvent&gt; formatter = new JsonLogFormatter&lt;LogEvent&gt;(fields);
+ * formatter.write(writer, new LogEvent("ROOT", LogLevel.INFO, "started."));
+ * // {"date":"2026-01-01 12:00:00.000","level":"INFO","logger":"ROOT",...,"message":"started."}
+ * </pre>
+ * 本クラスはスレッドセーフである。
+ * @param <CTX> ログ出力項目の取得に使用するコンテキストの型
+ */
+@Published(tag = "architect")
+public class JsonLogFormatter<CTX> {
+
+    /** 標準の日時フォーマット */
+    private static final DateTimeFormatter DEFAULT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /** objectの開始 */
+    private static final char BEGIN_OBJECT = '{';
+
+    /** objectの終了 */
+    private static final char END_OBJECT = '}';
+
+    /** シリアライザを管理するクラス */
+    private final JsonSerializationManager manager;
+
+    /** 出力項目 */
+    private final LogItem<CTX>[] items;
+
+    /** 出力項目ごとの、シリアライズ済みのmember nameと区切り文字 */
+    private final String[] memberPrefixes;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * デフォルト設定で初期化した{@link BasicJsonSerializationManager}を使用する。
+     * @param fields 出力項目の名前と出力項目
+     */
+    public JsonLogFormatter(Map<String, ? extends LogItem<CTX>> fields) {
+        this(fields, createDefaultManager());
+    }
+
+    /**
+     * コンストラクタ。
+     * @param fields 出力項目の名前と出力項目
+     * @param manager 初期化済みのシリアライザを管理するクラス
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public JsonLogFormatter(Map<String, ? extends LogItem<CTX>> fields, JsonSerializationManager manager) {
+        this.manager = manager;
+        this.items = new LogItem[fields.size()];
+        this.memberPrefixes = new String[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, ? extends LogItem<CTX>> field : fields.entrySet()) {
+            items[i] = field.getValue();
+            memberPrefixes[i] = serializeMemberName(field.getKey(), i == 0);
+            i++;
+        }
+    }
+
+    /**
+     * デフォルト設定で初期化した{@link BasicJsonSerializationManager}を生成する。
+     * @return シリアライザを管理するクラス
+     */
+    private static JsonSerializationManager createDefaultManager() {
+        JsonSerializationManager manager = new BasicJsonSerializationManager();
+        manager.initialize();
+        return manager;
+    }
+
+    /**
+     * member nameをシリアライズし、前の項目との区切り文字と名前の後の区切り文字を付与する。
+     * @param name member name
+     * @param first 先頭の項目の場合は<code>true</code>
+     * @return シリアライズ済みのmember name
+     */
+    private String serializeMemberName(String name, boolean first) {
+        StringWriter writer = new StringWriter();
+        if (!first) {
+            writer.write(',');
+        }
+        try {
+            manager.getMemberNameSerializer().serialize(writer, name);
+        } catch (IOException e) {
+            // StringWriterへの書き込みでは発生しない
+            throw new IllegalStateException(e);
+        }
+        writer.write(':');
+        return writer.toString();
+    }
+
+    /**
+     * ログをJSONのobjectとして書き込む。
+     * <p/>
+     * 書き込み先へは項目ごとに小さな単位で書き込むため、バッファリングされた{@link Writer}を指定すること。
+     * @param writer 書き込み先
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     * @throws IOException 書き込み先への書き込みに失敗した場合
+     */
+    public void write(Writer writer, CTX context) throws IOException {
+        writer.write(BEGIN_OBJECT);
+        for (int i = 0; i < items.length; i++) {
+            writer.write(memberPrefixes[i]);
+            String value = items[i].get(context);
+            manager.getSerializer(value).serialize(writer, value);
+        }
+        writer.write(END_OBJECT);
+    }
+
+    /**
+     * ログをJSONのobjectとしてフォーマットする。
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     * @return JSONのobject
+     */
+    public String format(CTX context) {
+        StringWriter writer = new StringWriter(256);
+        try {
+            write(writer, context);
+        } catch (IOException e) {
+            // StringWriterへの書き込みでは発生しない
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * {@link LogEvent}をコンテキストとする標準の出力項目を生成する。
+     * <p/>
+     * 出力項目は下記の通り。戻り値のマップに出力項目を追加、削除して使用してもよい。
+     * <pre>
+     * date          日時(yyyy-MM-dd HH:mm:ss.SSS)
+     * level         ログレベル
+     * logger        ロガー名
+     * executionId   実行時ID({@link LogEvent}の生成時の{@link ThreadContext#getExecutionId()})
+     * requestId     リクエストID({@link LogEvent}の生成時の{@link ThreadContext#getRequestId()})
+     * userId        ユーザID({@link LogEvent}の生成時の{@link ThreadContext#getUserId()})
+     * message       メッセージ
+     * error         エラー情報のスタックトレース
+     * </pre>
+     * @return 出力項目の名前と出力項目(出力順)
+     */
+    public static Map<String, LogItem<LogEvent>> createDefaultFields() {
+        Map<String, LogItem<LogEvent>> fields = new LinkedHashMap<String, LogItem<LogEvent>>();
+        fields.put("date", new DateItem());
+        fields.put("level", new LevelItem());
+        fields.put("logger", new LoggerNameItem());
+        fields.put("executionId", new ExecutionIdItem());
+        fields.put("requestId", new RequestIdItem());
+        fields.put("userId", new UserIdItem());
+        fields.put("message", new MessageItem());
+        fields.put("error", new ErrorItem());
+        return fields;
+    }
+
+    /**
+     * 日時を取得するクラス。
+     */
+    private static final class DateItem extends DateItemSupport<LogEvent> {
+        /**
+         * コンストラクタ。
+         */
+        DateItem() {
+            super(DEFAULT_DATE_FORMAT);
+        }
+        @Override
+        protected Date getDate(LogEvent context) {
+            return context.getDate();
+        }
+    }
+
+    /**
+     * ログレベルを取得するクラス。
+     */
+    private static final class LevelItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getLevel().name();
+        }
+    }
+
+    /**
+     * ロガー名を取得するクラス。
+     */
+    private static final class LoggerNameItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getLoggerName();
+        }
+    }
+
+    /**
+     * 実行時IDを取得するクラス。
+     */
+    private static final class ExecutionIdItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getExecutionId();
+        }
+    }
+
+    /**
+     * リクエストIDを取得するクラス。
+     */
+    private static final class RequestIdItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getRequestId();
+        }
+    }
+
+    /**
+     * ユーザIDを取得するクラス。
+     */
+    private static final class UserIdItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getUserId();
+        }
+    }
+
+    /**
+     * メッセージを取得するクラス。
+     */
+    private static final class MessageItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            return context.getMessage();
+        }
+    }
+
+    /**
+     * エラー情報のスタックトレースを取得するクラス。
+     */
+    private static final class ErrorItem implements LogItem<LogEvent> {
+        @Override
+        public String get(LogEvent context) {
+            Throwable error = context.getError();
+            if (error == null) {
+                return null;
+            }
+            StringWriter writer = new StringWriter(1024);
+            error.printStackTrace(new PrintWriter(writer));
+            return writer.toString();
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package nablarch.core.log;
+
+import java.util.Map;
+
+import nablarch.core.log.LogUtil.MapValueEditor;
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.StringUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ログレベルの判定後にメッセージを組み立てる、ログ出力のユーティリティ。
+ * <p/>
+ * {@link Logger}のメソッドにはメッセージを組み立てた後の文字列を渡す必要があるため、
+ * ログレベルが無効な場合でも文字列の連結やマップのダンプが行われる。
+ * 本クラスのメソッドは、ログレベルが有効な場合のみメッセージを組み立てて{@link Logger}に渡す。
+ * <p/>
+ * メッセージはテンプレート形式で指定する。テンプレート中の"{}"は、埋め込み値に先頭から順に置き換える。
+ * 埋め込み値が{@link LazyLogValue}の場合は、{@link LazyLogValue#get()}の戻り値に置き換える。
+ * 埋め込み値が"{}"の数より1つ多く、最後の埋め込み値が{@link Throwable}の場合は、エラー情報として{@link Logger}に渡す。
+ * <p/>
+ * 埋め込み値が2つまでのメソッドは、ログレベルが無効な場合に埋め込み値の配列を生成しない。
+ * <pre>
+ * LazyLog.debug(LOGGER, "request = {}, params = {}", requestId, LazyLog.dumpMap(params, " "));
+ * </pre>
+ */
+@Published(tag = "architect")
+public final class LazyLog {
+
+    /** テンプレートの埋め込み位置を表す文字列 */
+    private static final String PLACEHOLDER = "{}";
+
+    /** オプション情報を指定しない場合に使用する空の配列 */
+    private static final Object[] NO_OPTIONS = new Object[0];
+
+    /** デフォルトの{@link MapValueEditor} */
+    private static final MapValueEditor DEFAULT_MAP_VALUE_EDITOR = new LogUtil.BasicMapValueEditor();
+
+    /** 隠蔽コンストラクタ。 */
+    private LazyLog() {
+    }
+
+    /**
+     * マップをダンプした文字列を、ログの出力時に生成する値を返す。
+     * @param map マップ
+     * @param separator マップエントリのセパレータ
+     * @return ログの出力時にマップをダンプする値
+     * @see LogUtil#dumpMap(Map, String)
+     */
+    public static LazyLogValue dumpMap(final Map<String, ?> map, final String separator) {
+        return dumpMap(map, separator, DEFAULT_MAP_VALUE_EDITOR);
+    }
+
+    /**
+     * マップをダンプした文字列を、ログの出力時に生成する値を返す。
+     * @param map マップ
+     * @param separator マップエントリのセパレータ
+     * @param valueEditor {@link MapValueEditor}
+     * @return ログの出力時にマップをダンプする値
+     * @see LogUtil#dumpMap(Map, String, MapValueEditor)
+     */
+    public static LazyLogValue dumpMap(final Map<String, ?> map, final String separator,
+                                       final MapValueEditor valueEditor) {
+        return new LazyLogValue() {
+            @Override
+            public String get() {
+                final StringBuilder sb = new StringBuilder();
+                LogUtil.appendMap(sb, map, separator, valueEditor);
+                return sb.toString();
+            }
+        };
+    }
+
+    /**
+     * ログ出力項目の値を、ログの出力時に取得する値を返す。
+     * @param <T> ログ出力項目の取得に使用するコンテキストの型
+     * @param logItem ログ出力項目
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     * @return ログの出力時にログ出力項目の値を取得する値
+     */
+    public static <T> LazyLogValue of(final LogItem<T> logItem, final T context) {
+        return new LazyLogValue() {
+            @Override
+            public String get() {
+                return logItem.get(context);
+            }
+        };
+    }
+
+    /**
+     * FATALレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void fatal(Logger logger, LazyLogValue message) {
+        if (logger.isFatalEnabled()) {
+            write(logger, LogLevel.FATAL, message.get(), null);
+        }
+    }
+
+    /**
+     * FATALレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void fatal(Logger logger, String message) {
+        if (logger.isFatalEnabled()) {
+            write(logger, LogLevel.FATAL, message, null);
+        }
+    }
+
+    /**
+     * FATALレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void fatal(Logger logger, String template, Object arg) {
+        if (logger.isFatalEnabled()) {
+            log(logger, LogLevel.FATAL, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * FATALレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void fatal(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isFatalEnabled()) {
+            log(logger, LogLevel.FATAL, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * FATALレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void fatal(Logger logger, String template, Object... args) {
+        if (logger.isFatalEnabled()) {
+            log(logger, LogLevel.FATAL, template, args);
+        }
+    }
+
+    /**
+     * ERRORレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void error(Logger logger, LazyLogValue message) {
+        if (logger.isErrorEnabled()) {
+            write(logger, LogLevel.ERROR, message.get(), null);
+        }
+    }
+
+    /**
+     * ERRORレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void error(Logger logger, String message) {
+        if (logger.isErrorEnabled()) {
+            write(logger, LogLevel.ERROR, message, null);
+        }
+    }
+
+    /**
+     * ERRORレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void error(Logger logger, String template, Object arg) {
+        if (logger.isErrorEnabled()) {
+            log(logger, LogLevel.ERROR, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * ERRORレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void error(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isErrorEnabled()) {
+            log(logger, LogLevel.ERROR, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * ERRORレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void error(Logger logger, String template, Object... args) {
+        if (logger.isErrorEnabled()) {
+            log(logger, LogLevel.ERROR, template, args);
+        }
+    }
+
+    /**
+     * WARNレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void warn(Logger logger, LazyLogValue message) {
+        if (logger.isWarnEnabled()) {
+            write(logger, LogLevel.WARN, message.get(), null);
+        }
+    }
+
+    /**
+     * WARNレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void warn(Logger logger, String message) {
+        if (logger.isWarnEnabled()) {
+            write(logger, LogLevel.WARN, message, null);
+        }
+    }
+
+    /**
+     * WARNレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void warn(Logger logger, String template, Object arg) {
+        if (logger.isWarnEnabled()) {
+            log(logger, LogLevel.WARN, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * WARNレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void warn(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isWarnEnabled()) {
+            log(logger, LogLevel.WARN, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * WARNレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void warn(Logger logger, String template, Object... args) {
+        if (logger.isWarnEnabled()) {
+            log(logger, LogLevel.WARN, template, args);
+        }
+    }
+
+    /**
+     * INFOレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void info(Logger logger, LazyLogValue message) {
+        if (logger.isInfoEnabled()) {
+            write(logger, LogLevel.INFO, message.get(), null);
+        }
+    }
+
+    /**
+     * INFOレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void info(Logger logger, String message) {
+        if (logger.isInfoEnabled()) {
+            write(logger, LogLevel.INFO, message, null);
+        }
+    }
+
+    /**
+     * INFOレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void info(Logger logger, String template, Object arg) {
+        if (logger.isInfoEnabled()) {
+            log(logger, LogLevel.INFO, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * INFOレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void info(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isInfoEnabled()) {
+            log(logger, LogLevel.INFO, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * INFOレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void info(Logger logger, String template, Object... args) {
+        if (logger.isInfoEnabled()) {
+            log(logger, LogLevel.INFO, template, args);
+        }
+    }
+
+    /**
+     * DEBUGレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void debug(Logger logger, LazyLogValue message) {
+        if (logger.isDebugEnabled()) {
+            write(logger, LogLevel.DEBUG, message.get(), null);
+        }
+    }
+
+    /**
+     * DEBUGレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void debug(Logger logger, String message) {
+        if (logger.isDebugEnabled()) {
+            write(logger, LogLevel.DEBUG, message, null);
+        }
+    }
+
+    /**
+     * DEBUGレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void debug(Logger logger, String template, Object arg) {
+        if (logger.isDebugEnabled()) {
+            log(logger, LogLevel.DEBUG, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * DEBUGレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void debug(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isDebugEnabled()) {
+            log(logger, LogLevel.DEBUG, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * DEBUGレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void debug(Logger logger, String template, Object... args) {
+        if (logger.isDebugEnabled()) {
+            log(logger, LogLevel.DEBUG, template, args);
+        }
+    }
+
+    /**
+     * TRACEレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void trace(Logger logger, LazyLogValue message) {
+        if (logger.isTraceEnabled()) {
+            write(logger, LogLevel.TRACE, message.get(), null);
+        }
+    }
+
+    /**
+     * TRACEレベルでログを出力する。
+     * @param logger ロガー
+     * @param message メッセージ
+     */
+    public static void trace(Logger logger, String message) {
+        if (logger.isTraceEnabled()) {
+            write(logger, LogLevel.TRACE, message, null);
+        }
+    }
+
+    /**
+     * TRACEレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg 埋め込み値
+     */
+    public static void trace(Logger logger, String template, Object arg) {
+        if (logger.isTraceEnabled()) {
+            log(logger, LogLevel.TRACE, template, new Object[] {arg});
+        }
+    }
+
+    /**
+     * TRACEレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param arg1 1つ目の埋め込み値
+     * @param arg2 2つ目の埋め込み値
+     */
+    public static void trace(Logger logger, String template, Object arg1, Object arg2) {
+        if (logger.isTraceEnabled()) {
+            log(logger, LogLevel.TRACE, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * TRACEレベルでログを出力する。
+     * @param logger ロガー
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    public static void trace(Logger logger, String template, Object... args) {
+        if (logger.isTraceEnabled()) {
+            log(logger, LogLevel.TRACE, template, args);
+        }
+    }
+
+    /**
+     * テンプレートからメッセージを組み立てる。
+     * <p/>
+     * 埋め込み値が不足する場合、残りの"{}"はそのまま出力する。
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     * @return メッセージ
+     */
+    public static String format(String template, Object... args) {
+        return format(template, args, args == null ? 0 : args.length);
+    }
+
+    /**
+     * テンプレートからメッセージを組み立てる。
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     * @param argCount 使用する埋め込み値の数
+     * @return メッセージ
+     */
+    private static String format(String template, Object[] args, int argCount) {
+        if (template == null) {
+            return null;
+        }
+        int index = template.indexOf(PLACEHOLDER);
+        if (index < 0 || argCount == 0) {
+            return template;
+        }
+        final StringBuilder sb = new StringBuilder(template.length() + 16 * argCount);
+        int begin = 0;
+        int argIndex = 0;
+        while (index >= 0 && argIndex < argCount) {
+            sb.append(template, begin, index);
+            appendValue(sb, args[argIndex++]);
+            begin = index + PLACEHOLDER.length();
+            index = template.indexOf(PLACEHOLDER, begin);
+        }
+        return sb.append(template, begin, template.length()).toString();
+    }
+
+    /**
+     * 埋め込み値を追加する。
+     * @param sb 追加先
+     * @param value 埋め込み値
+     */
+    private static void appendValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof LazyLogValue) {
+            sb.append(((LazyLogValue) value).get());
+        } else {
+            sb.append(StringUtil.toString(value));
+        }
+    }
+
+    /**
+     * テンプレートからメッセージを組み立ててログを出力する。
+     * <p/>
+     * 最後の埋め込み値が"{}"の数を超える位置にある{@link Throwable}の場合は、エラー情報として扱う。
+     * @param logger ロガー
+     * @param level ログレベル
+     * @param template メッセージのテンプレート
+     * @param args 埋め込み値
+     */
+    private static void log(Logger logger, LogLevel level, String template, Object[] args) {
+        int argCount = args == null ? 0 : args.length;
+        Throwable error = null;
+        if (argCount > 0 && args[argCount - 1] instanceof Throwable
+                && countPlaceholders(template) < argCount) {
+            error = (Throwable) args[argCount - 1];
+            argCount--;
+        }
+        write(logger, level, format(template, args, argCount), error);
+    }
+
+    /**
+     * テンプレート中の"{}"の数を数える。
+     * @param template メッセージのテンプレート
+     * @return "{}"の数
+     */
+    private static int countPlaceholders(String template) {
+        if (template == null) {
+            return 0;
+        }
+        int count = 0;
+        int index = template.indexOf(PLACEHOLDER);
+        while (index >= 0) {
+            count++;
+            index = template.indexOf(PLACEHOLDER, index + PLACEHOLDER.length());
+        }
+        return count;
+    }
+
+    /**
+     * ログレベルに対応するメソッドでログを出力する。
+     * @param logger ロガー
+     * @param level ログレベル
+     * @param message メッセージ
+     * @param error エラー情報
+     */
+    private static void write(Logger logger, LogLevel level, String message, Throwable error) {
+        switch (level) {
+            case FATAL:
+                logger.logFatal(message, error, NO_OPTIONS);
+                break;
+            case ERROR:
+                logger.logError(message, error, NO_OPTIONS);
+                break;
+            case WARN:
+                logger.logWarn(message, error, NO_OPTIONS);
+                break;
+            case INFO:
+                logger.logInfo(message, error, NO_OPTIONS);
+                break;
+            case DEBUG:
+                logger.logDebug(message, error, NO_OPTIONS);
+                break;
+            default:
+                logger.logTrace(message, error, NO_OPTIONS);
+                break;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package nablarch.core.log;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ログの出力が必要になった時点で値を生成するインタフェース。
+ * <p/>
+ * {@link LazyLog}にメッセージもしくはメッセージの埋め込み値として指定すると、
+ * ログレベルの判定によりログを出力する場合のみ{@link #get()}が呼び出される。
+ * マップのダンプ等、生成のコストが高い値を出力する場合に使用する。
+ *
+ * @see LazyLog#dumpMap(java.util.Map, String)
+ * @see LazyLog#of(LogItem, Object)
+ */
+@Published(tag = "architect")
+public interface LazyLogValue {
+    /**
+     * 値を生成する。
+     * @return 値
+     */
+    String get();
+}
@@ -0,0 +1,27 @@
+package nablarch.core.log;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ロガーごとの有効なログレベルを公開する{@link LoggerFactory}。
+ * <p/>
+ * ロガーの実装は、{@link #getEffectiveLevel(String)}が返す{@link EffectiveLogLevel}を保持し、
+ * isXxxEnabledメソッドではその値とログレベルの値を比較する。
+ * {@link LeveledLoggerSupport}を継承すると、この判定を実装せずに利用できる。
+ * <p/>
+ * {@link AsyncLoggerFactory}等の委譲先に指定した場合、ラップした{@link Logger}は委譲先と同じ{@link EffectiveLogLevel}を共有する。
+ * このため、委譲先でのログレベルの変更は、ラップした{@link Logger}の判定にもそのまま反映される。
+ */
+@Published(tag = "architect")
+public interface LevelAwareLoggerFactory extends LoggerFactory {
+
+    /**
+     * ロガーの有効なログレベルを取得する。
+     * <p/>
+     * 同じロガー名に対しては同じインスタンスを返し、ログレベルの変更はそのインスタンスを更新して反映すること。
+     *
+     * @param name ロガー名
+     * @return 有効なログレベル
+     */
+    EffectiveLogLevel getEffectiveLevel(String name);
+}
@@ -0,0 +1,165 @@
+package nablarch.core.log;
+
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link EffectiveLogLevel}を使用してログレベルを判定する{@link Logger}の実装をサポートするクラス。
+ * <p/>
+ * isXxxEnabledメソッドは、{@link EffectiveLogLevel}のフィールドの読み込みと整数の比較のみで判定する。
+ * logXxxメソッドは、ログレベルが有効な場合のみ{@link #write(LogLevel, String, Throwable, Object[])}を呼び出す。
+ * サブクラスは{@link #write(LogLevel, String, Throwable, Object[])}でログの出力のみを実装すればよい。
+ */
+@Published(tag = "architect")
+public abstract class LeveledLoggerSupport implements Logger {
+
+    /** FATALレベルの値 */
+    private static final int FATAL = LogLevel.FATAL.getValue();
+
+    /** ERRORレベルの値 */
+    private static final int ERROR = LogLevel.ERROR.getValue();
+
+    /** WARNレベルの値 */
+    private static final int WARN = LogLevel.WARN.getValue();
+
+    /** INFOレベルの値 */
+    private static final int INFO = LogLevel.INFO.getValue();
+
+    /** DEBUGレベルの値 */
+    private static final int DEBUG = LogLevel.DEBUG.getValue();
+
+    /** TRACEレベルの値 */
+    private static final int TRACE = LogLevel.TRACE.getValue();
+
+    /** 有効なログレベル */
+    private final EffectiveLogLevel level;
+
+    /**
+     * コンストラクタ。
+     * @param level 有効なログレベル
+     */
+    protected LeveledLoggerSupport(EffectiveLogLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * 有効なログレベルを取得する。
+     * @return 有効なログレベル
+     */
+    protected EffectiveLogLevel getEffectiveLevel() {
+        return level;
+    }
+
+    /**
+     * ログを出力する。
+     * <p/>
+     * 本メソッドは、ログレベルが有効な場合のみ呼び出される。
+     * @param logLevel ログレベル
+     * @param message メッセージ
+     * @param error エラー情報(nullの場合あり)
+     * @param options オプション情報(nullの場合あり)
+     */
+    protected abstract void write(LogLevel logLevel, String message, Throwable error, Object[] options);
+
+    @Override
+    public boolean isFatalEnabled() {
+        return level.isEnabled(FATAL);
+    }
+
+    @Override
+    public void logFatal(String message, Object... options) {
+        logFatal(message, null, options);
+    }
+
+    @Override
+    public void logFatal(String message, Throwable error, Object... options) {
+        if (isFatalEnabled()) {
+            write(LogLevel.FATAL, message, error, options);
+        }
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return level.isEnabled(ERROR);
+    }
+
+    @Override
+    public void logError(String message, Object... options) {
+        logError(message, null, options);
+    }
+
+    @Override
+    public void logError(String message, Throwable error, Object... options) {
+        if (isErrorEnabled()) {
+            write(LogLevel.ERROR, message, error, options);
+        }
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return level.isEnabled(WARN);
+    }
+
+    @Override
+    public void logWarn(String message, Object... options) {
+        logWarn(message, null, options);
+    }
+
+    @Override
+    public void logWarn(String message, Throwable error, Object... options) {
+        if (isWarnEnabled()) {
+            write(LogLevel.WARN, message, error, options);
+        }
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return level.isEnabled(INFO);
+    }
+
+    @Override
+    public void logInfo(String message, Object... options) {
+        logInfo(message, null, options);
+    }
+
+    @Override
+    public void logInfo(String message, Throwable error, Object... options) {
+        if (isInfoEnabled()) {
+            write(LogLevel.INFO, message, error, options);
+        }
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return level.isEnabled(DEBUG);
+    }
+
+    @Override
+    public void logDebug(String message, Object... options) {
+        logDebug(message, null, options);
+    }
+
+    @Override
+    public void logDebug(String message, Throwable error, Object... options) {
+        if (isDebugEnabled()) {
+            write(LogLevel.DEBUG, message, error, options);
+        }
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return level.isEnabled(TRACE);
+    }
+
+    @Override
+    public void logTrace(String message, Object... options) {
+        logTrace(message, null, options);
+    }
+
+    @Override
+    public void logTrace(String message, Throwable error, Object... options) {
+        if (isTraceEnabled()) {
+            write(LogLevel.TRACE, message, error, options);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package nablarch.core.log;
+
+import java.util.Date;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 1件のログ出力の内容を保持するクラス。
+ * <p/>
+ * {@link JsonLogFormatter#createDefaultFields()}が提供する標準の出力項目は、本クラスをコンテキストとして使用する。
+ * 日時、及び実行時ID・リクエストID・ユーザIDは、インスタンスを生成した時点のものとなる。
+ * 実行時ID等は生成時に{@link ThreadContext}から取得して保持するため、
+ * 別のスレッドでフォーマットした場合も、ログの出力要求を行ったスレッドの値を出力する。
+ * <p/>
+ * {@link AsyncLoggerFactory}の出力スレッドで生成した場合、日時とスレッド名は、
+ * 出力スレッドのものではなく、ログの出力要求を行った時点のものとなる。
+ */
+@Published(tag = "architect")
+public final class LogEvent {
+
+    /** オプション情報が指定されていない場合に使用する空の配列 */
+    private static final Object[] NO_OPTIONS = new Object[0];
+
+    /**
+     * 出力要求を行った時点の日時({@link Long})とスレッド名({@link String})。
+     * <p/>
+     * 非同期に出力する間のみ設定する。クラスローダの参照を保持しないよう、JDKのクラスのみを格納する。
+     */
+    private static final ThreadLocal<Object[]> ORIGIN = new ThreadLocal<Object[]>();
+
+    /** ロガー名 */
+    private final String loggerName;
+
+    /** ログレベル */
+    private final LogLevel level;
+
+    /** メッセージ */
+    private final String message;
+
+    /** エラー情報 */
+    private final Throwable error;
+
+    /** オプション情報 */
+    private final Object[] options;
+
+    /** 日時 */
+    private final Date date;
+
+    /** スレッド名 */
+    private final String threadName;
+
+    /** 実行時ID */
+    private final String executionId;
+
+    /** リクエストID */
+    private final String requestId;
+
+    /** ユーザID */
+    private final String userId;
+
+    /**
+     * コンストラクタ。
+     * @param loggerName ロガー名
+     * @param level ログレベル
+     * @param message メッセージ
+     * @param error エラー情報(nullの場合あり)
+     * @param options オプション情報(nullの場合あり)
+     */
+    public LogEvent(String loggerName, LogLevel level, String message, Throwable error, Object... options) {
+        this.loggerName = loggerName;
+        this.level = level;
+        this.message = message;
+        this.error = error;
+        this.options = options != null ? options : NO_OPTIONS;
+        final Object[] origin = ORIGIN.get();
+        if (origin != null) {
+            this.date = new Date((Long) origin[0]);
+            this.threadName = (String) origin[1];
+        } else {
+            this.date = new Date();
+            this.threadName = Thread.currentThread().getName();
+        }
+        this.executionId = ThreadContext.getExecutionId();
+        this.requestId = ThreadContext.getRequestId();
+        this.userId = ThreadContext.getUserId();
+    }
+
+    /**
+     * ロガー名を取得する。
+     * @return ロガー名
+     */
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    /**
+     * ログレベルを取得する。
+     * @return ログレベル
+     */
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * メッセージを取得する。
+     * @return メッセージ
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * エラー情報を取得する。
+     * @return エラー情報。指定されていない場合は<code>null</code>
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * オプション情報を取得する。
+     * @return オプション情報。指定されていない場合は空の配列
+     */
+    public Object[] getOptions() {
+        return options;
+    }
+
+    /**
+     * 日時を取得する。
+     * @return 日時
+     */
+    public Date getDate() {
+        return date;
+    }
+
+    /**
+     * スレッド名を取得する。
+     * @return ログの出力要求を行ったスレッドの名前
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * 出力要求を行った時点の日時とスレッド名を設定して、処理を実行する。
+     * <p/>
+     * 処理の実行中に生成した{@link LogEvent}は、指定された日時とスレッド名を保持する。
+     * @param time 出力要求を行った時点の日時(エポックミリ秒)
+     * @param threadName 出力要求を行ったスレッドの名前
+     * @param task 処理
+     */
+    static void runAs(long time, String threadName, Runnable task) {
+        final Object[] previous = ORIGIN.get();
+        ORIGIN.set(new Object[] {time, threadName});
+        try {
+            task.run();
+        } finally {
+            if (previous != null) {
+                ORIGIN.set(previous);
+            } else {
+                ORIGIN.remove();
+            }
+        }
+    }
+
+    /**
+     * 実行時IDを取得する。
+     * @return インスタンスを生成した時点の実行時ID
+     */
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * リクエストIDを取得する。
+     * @return インスタンスを生成した時点のリクエストID
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * ユーザIDを取得する。
+     * @return インスタンスを生成した時点のユーザID
+     */
+    public String getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,136 @@
+package nablarch.core.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ロックを使用しない、容量固定のリングバッファ。
+ * <p/>
+ * 要素の追加は複数のスレッドから、取り出しは単一のスレッドから行うことを前提とする。
+ * 各スロットに書き込み可能な位置を表す連番を持たせ、追加する位置をCASで確保することで、
+ * 追加と取り出しを排他制御せずに行う。
+ *
+ * @param <E> 要素の型
+ */
+final class LogRingBuffer<E> {
+
+    /** 位置からスロットを求めるマスク */
+    private final int mask;
+
+    /** 要素 */
+    private final AtomicReferenceArray<E> elements;
+
+    /** スロットごとの、次に書き込み(もしくは読み込み)可能な位置 */
+    private final AtomicLongArray sequences;
+
+    /** 次に追加する位置 */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** 次に取り出す位置(取り出すスレッドのみが更新する) */
+    private volatile long head;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * 容量は指定された値以上の2のべき乗に切り上げる。
+     * 書き込み済みのスロットと次周の書き込み可能なスロットを区別するため、容量は2以上とする。
+     *
+     * @param capacity 容量
+     * @throws IllegalArgumentException 容量が0以下、もしくは大きすぎる場合
+     */
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30. capacity = " + capacity);
+        }
+        final int size = roundUp(Math.max(capacity, 2));
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<E>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 2のべき乗に切り上げる。
+     *
+     * @param value 値
+     * @return 値以上の最小の2のべき乗
+     */
+    private static int roundUp(int value) {
+        final int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * 容量を取得する。
+     *
+     * @return 容量
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 要素を追加する。
+     *
+     * @param element 要素(nullでないこと)
+     * @return 追加できた場合は{@code true}。空きがない場合は{@code false}
+     */
+    boolean offer(E element) {
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // 前周の要素がまだ取り出されていない。
+                return false;
+            }
+            // 他のスレッドが先に位置を確保したため、やり直す。
+        }
+    }
+
+    /**
+     * 要素を取り出してリストに追加する。
+     * <p/>
+     * 追加中(位置の確保後、書き込みの完了前)の要素に到達した場合は、そこで取り出しを終える。
+     *
+     * @param list 取り出した要素を追加するリスト
+     * @param maxCount 取り出す要素の最大数
+     * @return 取り出した要素の数
+     */
+    int drainTo(List<? super E> list, int maxCount) {
+        long position = head;
+        int count = 0;
+        while (count < maxCount) {
+            final int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            list.add(elements.get(index));
+            elements.lazySet(index, null);
+            sequences.set(index, position + mask + 1);
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    /**
+     * 取り出せる要素が存在しないか否か。
+     *
+     * @return 存在しない場合は{@code true}
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
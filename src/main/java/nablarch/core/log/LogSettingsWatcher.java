@@ -0,0 +1,220 @@
+package nablarch.core.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+
+import nablarch.core.util.FileUtil;
+
+/**
+ * ログ出力の設定ファイルの変更を監視し、{@link ReloadableLoggerFactory}に再読み込みさせるクラス。
+ * <p/>
+ * 設定ファイルを含むディレクトリを{@link WatchService}で監視するデーモンスレッドを開始する。
+ * 設定ファイルの変更を検知すると、エディタ等による連続した書き込みを待つために指定された時間だけ待機した後に、
+ * 設定ファイルから新しい{@link LogSettings}を生成して{@link ReloadableLoggerFactory#reload(LogSettings)}を呼び出す。
+ * 設定の内容が前回と同じ場合は呼び出さない。
+ * <p/>
+ * 設定ファイルの読み込みや再読み込みに失敗した場合は、標準エラー出力にスタックトレースを出力し、監視を継続する。
+ */
+final class LogSettingsWatcher implements Closeable {
+
+    /** 設定ファイルの変更を監視するか否かを指定するプロパティ名 */
+    static final String WATCH_SETTINGS_PROP_NAME = "logSettings.watch";
+
+    /** 設定ファイルのファイルパス */
+    private final String filePath;
+
+    /** 再読み込みを行う{@link LoggerFactory} */
+    private final ReloadableLoggerFactory loggerFactory;
+
+    /** 変更を検知してから再読み込みするまで待機する時間(ミリ秒) */
+    private final long delay;
+
+    /** 監視対象のファイル名 */
+    private final Path fileName;
+
+    /** 監視サービス */
+    private final WatchService watchService;
+
+    /** 監視スレッド */
+    private final Thread thread;
+
+    /** 前回読み込んだ設定内容(再読み込みは{@link #reload()}の排他制御下で行う) */
+    private Map<String, String> lastProps;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * 監視スレッドを開始する。
+     *
+     * @param settings 現在のログ出力の設定
+     * @param loggerFactory 再読み込みを行う{@link LoggerFactory}
+     * @param delay 変更を検知してから再読み込みするまで待機する時間(ミリ秒)
+     * @throws IllegalArgumentException 設定ファイルがファイルシステム上のファイルでない場合
+     */
+    LogSettingsWatcher(LogSettings settings, ReloadableLoggerFactory loggerFactory, long delay) {
+        this.filePath = settings.getFilePath();
+        this.loggerFactory = loggerFactory;
+        this.delay = delay;
+        this.lastProps = settings.getProps();
+        final Path path = toPath(filePath);
+        this.fileName = path.getFileName();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            path.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to watch the log settings. file path = [" + filePath + "]", e);
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "nablarch-log-settings-watcher");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        thread.start();
+    }
+
+    /**
+     * 設定ファイルの変更を監視するか否かを判定する。
+     *
+     * @param settings ログ出力の設定
+     * @return {@value #WATCH_SETTINGS_PROP_NAME}にtrueが指定された場合はtrue
+     */
+    static boolean isWatchEnabled(LogSettings settings) {
+        return Boolean.parseBoolean(settings.getProps().get(WATCH_SETTINGS_PROP_NAME));
+    }
+
+    /**
+     * 設定ファイルの変更を監視できることを検証する。
+     * <p/>
+     * {@link LoggerFactory}の初期化前に呼び出し、監視を開始できない設定で初期化してしまうことを防ぐ。
+     *
+     * @param settings ログ出力の設定
+     * @param loggerFactory 再読み込みを行う{@link LoggerFactory}
+     * @throws IllegalArgumentException {@link LoggerFactory}が{@link ReloadableLoggerFactory}を実装していない場合、
+     *                                  もしくは設定ファイルがファイルシステム上のファイルでない場合
+     */
+    static void validate(LogSettings settings, LoggerFactory loggerFactory) {
+        validateReloadable(settings, loggerFactory);
+        toPath(settings.getFilePath());
+    }
+
+    /**
+     * 設定ファイルの変更を監視する場合に、{@link LoggerFactory}が再読み込みできることを検証する。
+     * <p/>
+     * 他の{@link LoggerFactory}に委譲する{@link LoggerFactory}が、委譲先を検証するためにも使用する。
+     *
+     * @param settings ログ出力の設定
+     * @param loggerFactory 検証する{@link LoggerFactory}
+     * @throws IllegalArgumentException 監視する設定で、{@link LoggerFactory}が{@link ReloadableLoggerFactory}を実装していない場合
+     */
+    static void validateReloadable(LogSettings settings, LoggerFactory loggerFactory) {
+        if (isWatchEnabled(settings) && !(loggerFactory instanceof ReloadableLoggerFactory)) {
+            throw new IllegalArgumentException(
+                    "'" + WATCH_SETTINGS_PROP_NAME + "' requires a LoggerFactory that implements ReloadableLoggerFactory. "
+                    + "class name = [" + loggerFactory.getClass().getName() + "], file path = [" + settings.getFilePath() + "]");
+        }
+    }
+
+    /**
+     * 設定ファイルのファイルパスをファイルシステム上のパスに変換する。
+     *
+     * @param filePath 設定ファイルのファイルパス
+     * @return ファイルシステム上のパス
+     * @throws IllegalArgumentException 設定ファイルがファイルシステム上のファイルでない場合
+     */
+    private static Path toPath(String filePath) {
+        final URL url = FileUtil.getResourceURL(filePath);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            throw new IllegalArgumentException(
+                    "the log settings can not be watched because it is not a file. file path = [" + filePath + "]");
+        }
+        try {
+            return Paths.get(url.toURI()).toAbsolutePath();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("illegal file path was specified. file path = [" + filePath + "]", e);
+        }
+    }
+
+    /**
+     * 監視を終了する。
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // 終了処理のため無視する
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * 設定ファイルの変更を監視する。
+     */
+    private void watch() {
+        try {
+            while (true) {
+                if (isChanged(watchService.take())) {
+                    Thread.sleep(delay);
+                    WatchKey key;
+                    while ((key = watchService.poll()) != null) {
+                        isChanged(key);
+                    }
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // 監視の終了
+        } catch (InterruptedException e) {
+            // 監視の終了
+        }
+    }
+
+    /**
+     * 検知したイベントに設定ファイルの変更が含まれるか否かを判定する。
+     *
+     * @param key 検知したイベントのキー
+     * @return 設定ファイルの変更が含まれる場合は<code>true</code>
+     */
+    private boolean isChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * 設定ファイルを読み込み直し、内容が変更されていれば再読み込みさせる。
+     */
+    synchronized void reload() {
+        try {
+            final LogSettings settings = new LogSettings(filePath);
+            if (settings.getProps().equals(lastProps)) {
+                return;
+            }
+            loggerFactory.reload(settings);
+            lastProps = settings.getProps();
+        } catch (RuntimeException e) {
+            System.err.println("failed to reload the log settings. file path = [" + filePath + "]");
+            e.printStackTrace(System.err);
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package nablarch.core.log;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Array;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import nablarch.core.util.StringUtil;
 import nablarch.core.util.annotation.Published;
@@ -31,31 +37,149 @@ public final class LogUtil {
     /** システムプロパティから起動プロセスを識別する文字列を取得する際に使用するキー */
     private static final String SYSTEM_PROP_BOOT_PROCESS = "nablarch.bootProcess";
     
+    /** システムプロパティから実行時IDに含めるノードを識別する文字列を取得する際に使用するキー */
+    private static final String SYSTEM_PROP_EXECUTION_ID_NODE = "nablarch.executionIdNode";
+    
     /** 実行時IDの日時(ミリ秒)をフォーマットする際に使用するフォーマッタ */
-    private static final DateFormat EXECUTION_ID_DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmssSSS");
+    private static final DateTimeFormatter EXECUTION_ID_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    
+    /** 実行時IDの連番の最大値 */
+    private static final int EXECUTION_ID_SEQUENCE_MAX = 9999;
+    
+    /** 実行時IDの日時をフォーマットする際に使用するタイムゾーン(クラスの初期化時点のデフォルトのタイムゾーン) */
+    private static final ZoneId EXECUTION_ID_ZONE = ZoneId.systemDefault();
     
-    /** 実行時IDの連番(4桁)に使用する値 */
-    private static int executionIdSequence = 1;
+    /** 直前に採番した実行時IDの日時と連番 */
+    private static final AtomicReference<ExecutionIdState> EXECUTION_ID_STATE =
+            new AtomicReference<ExecutionIdState>(new ExecutionIdState(Long.MIN_VALUE, 0, 0));
+    
+    /** 最後にフォーマットした実行時IDの日時 */
+    private static volatile FormattedTime executionIdTime = new FormattedTime(Long.MIN_VALUE, null);
     
     /**
      * 実行時IDを生成する。
      * <pre>
      * 実行時IDは下記のフォーマットで生成する。
      * 
-     * 起動プロセス＋日時("yyyyMMddHHmmssSSS")＋連番(4桁)
+     * 起動プロセス＋ノード＋日時("yyyyMMddHHmmssSSS")＋連番(4桁)
      * 
      * 起動プロセスは{@link #getBootProcess()}から取得する。
+     * ノードはシステムプロパティ("nablarch.executionIdNode")から取得する。指定がない場合はブランクとなる。
+     * 連番は1から9999までを繰り返す。
      * </pre>
+     * 同一の日時で採番した連番が9999件に達した場合は、日時を1ミリ秒進めて採番するため、実行時IDは重複しない。
+     * また、システム時刻が戻った場合も、直前に採番した日時より前の日時は使用しない。
+     * <p/>
+     * 本メソッドはロックを取得しない。
+     * 日時は同一ミリ秒内ではフォーマット済みの文字列を再利用し、日時と連番はアトミックに採番する。
      * @return 実行時ID
      */
-    public static synchronized String generateExecutionId() {
-        String bootProcess = getBootProcess();
-        String date = EXECUTION_ID_DATE_FORMAT.format(new Date());
-        String sequence = StringUtil.lpad(String.valueOf(executionIdSequence++), 4, '0');
-        if (executionIdSequence == 10000) {
-            executionIdSequence = 1;
+    public static String generateExecutionId() {
+        final ExecutionIdState state = nextExecutionIdState(System.currentTimeMillis());
+        final int sequence = state.sequence;
+        final String bootProcess = getBootProcess();
+        final String node = System.getProperty(SYSTEM_PROP_EXECUTION_ID_NODE, "");
+        final String date = formatExecutionIdTime(state.millis);
+        final StringBuilder sb = new StringBuilder(bootProcess.length() + node.length() + date.length() + 4);
+        sb.append(bootProcess).append(node).append(date);
+        if (sequence < 1000) {
+            sb.append('0');
+            if (sequence < 100) {
+                sb.append('0');
+                if (sequence < 10) {
+                    sb.append('0');
+                }
+            }
+        }
+        return sb.append(sequence).toString();
+    }
+    
+    /**
+     * 実行時IDの日時と連番を採番する。
+     * <p/>
+     * 現在時刻が直前に採番した日時より後の場合は、現在時刻を使用する。
+     * それ以外の場合は直前に採番した日時を使用し、その日時で採番した連番が上限に達した場合は日時を1ミリ秒進める。
+     * @param now 現在時刻(ミリ秒)
+     * @return 採番した日時と連番
+     */
+    static ExecutionIdState nextExecutionIdState(long now) {
+        while (true) {
+            final ExecutionIdState current = EXECUTION_ID_STATE.get();
+            final int sequence = current.sequence % EXECUTION_ID_SEQUENCE_MAX + 1;
+            long millis = current.millis;
+            int count = current.count + 1;
+            if (now > millis) {
+                millis = now;
+                count = 1;
+            } else if (count > EXECUTION_ID_SEQUENCE_MAX) {
+                millis++;
+                count = 1;
+            }
+            final ExecutionIdState next = new ExecutionIdState(millis, sequence, count);
+            if (EXECUTION_ID_STATE.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * 採番した実行時IDの日時と連番。
+     */
+    static final class ExecutionIdState {
+        /** 日時(ミリ秒) */
+        final long millis;
+        /** 連番 */
+        final int sequence;
+        /** 同一の日時で採番した連番の件数 */
+        private final int count;
+        /**
+         * コンストラクタ。
+         * @param millis 日時(ミリ秒)
+         * @param sequence 連番
+         * @param count 同一の日時で採番した連番の件数
+         */
+        ExecutionIdState(long millis, int sequence, int count) {
+            this.millis = millis;
+            this.sequence = sequence;
+            this.count = count;
+        }
+    }
+    
+    /**
+     * 実行時IDの日時をフォーマットする。
+     * <p/>
+     * 直前にフォーマットした日時と同一ミリ秒の場合は、フォーマット済みの文字列を返す。
+     * @param millis 日時(ミリ秒)
+     * @return フォーマットした日時
+     */
+    private static String formatExecutionIdTime(long millis) {
+        final FormattedTime cached = executionIdTime;
+        if (cached.millis == millis) {
+            return cached.text;
+        }
+        final String text = EXECUTION_ID_DATE_FORMAT.format(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), EXECUTION_ID_ZONE));
+        executionIdTime = new FormattedTime(millis, text);
+        return text;
+    }
+    
+    /**
+     * フォーマット済みの日時。
+     */
+    private static final class FormattedTime {
+        /** 日時(ミリ秒) */
+        private final long millis;
+        /** フォーマットした日時 */
+        private final String text;
+        /**
+         * コンストラクタ。
+         * @param millis 日時(ミリ秒)
+         * @param text フォーマットした日時
+         */
+        FormattedTime(long millis, String text) {
+            this.millis = millis;
+            this.text = text;
         }
-        return bootProcess + date + sequence;
     }
     
     /**
@@ -132,19 +256,179 @@ public final class LogUtil {
         return logItemArray;
     }
     
+    /** スレッドごとに再利用するメッセージのバッファの容量の上限 */
+    private static final int MAX_REUSABLE_BUFFER_CAPACITY = 8192;
+    
+    /**
+     * スレッドごとに再利用するメッセージのバッファ。
+     * <pre>
+     * 要素{@value #BUILDER_SLOT}はメッセージを組み立てる{@link StringBuilder}、
+     * 要素{@value #CHARS_SLOT}は{@link Writer}への書き込みに使用する配列を格納し、使用中はnullとする。
+     * スレッドプールのスレッドがアプリケーションのクラスローダを保持し続けないよう、JDKのクラスのみを格納する。
+     * </pre>
+     */
+    private static final ThreadLocal<Object[]> MESSAGE_BUFFER = new ThreadLocal<Object[]>() {
+        @Override
+        protected Object[] initialValue() {
+            return new Object[2];
+        }
+    };
+    
+    /** メッセージのバッファのうち{@link StringBuilder}を格納する要素 */
+    private static final int BUILDER_SLOT = 0;
+    
+    /** メッセージのバッファのうち{@link Writer}への書き込みに使用する配列を格納する要素 */
+    private static final int CHARS_SLOT = 1;
+    
     /**
      * フォーマット済みのログ出力項目を使用してメッセージをフォーマットする。
+     * <pre>
+     * メッセージの組み立てには、スレッドごとに再利用するバッファを使用する。
+     * 出力項目の追加には{@link #appendMessage(StringBuilder, LogItem[], Object)}を使用する。
+     * </pre>
      * @param <T> ログ出力項目の取得に使用するコンテキストの型
      * @param logItems フォーマット済みのログ出力項目
      * @param context ログ出力項目の取得に使用するコンテキスト
      * @return フォーマット済みのメッセージ
      */
     public static <T> String formatMessage(LogItem<T>[] logItems, T context) {
-        StringBuilder sb = new StringBuilder();
+        final Object[] buffer = MESSAGE_BUFFER.get();
+        final StringBuilder builder = acquireBuilder(buffer);
+        try {
+            appendMessage(builder, logItems, context);
+            return builder.toString();
+        } finally {
+            releaseBuilder(buffer, builder);
+        }
+    }
+    
+    /**
+     * フォーマット済みのログ出力項目を使用してメッセージをフォーマットし、{@link Writer}に書き込む。
+     * <pre>
+     * メッセージの組み立てには、スレッドごとに再利用するバッファを使用し、
+     * フォーマット済みのメッセージの文字列を生成せずに書き込む。
+     * </pre>
+     * @param <T> ログ出力項目の取得に使用するコンテキストの型
+     * @param writer 書き込み先の{@link Writer}
+     * @param logItems フォーマット済みのログ出力項目
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static <T> void writeMessage(Writer writer, LogItem<T>[] logItems, T context) throws IOException {
+        final Object[] buffer = MESSAGE_BUFFER.get();
+        final StringBuilder builder = acquireBuilder(buffer);
+        char[] chars = null;
+        try {
+            appendMessage(builder, logItems, context);
+            final int length = builder.length();
+            chars = (char[]) buffer[CHARS_SLOT];
+            buffer[CHARS_SLOT] = null;
+            if (chars == null || chars.length < length) {
+                chars = new char[length];
+            }
+            builder.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+        } finally {
+            if (chars != null && chars.length <= MAX_REUSABLE_BUFFER_CAPACITY) {
+                buffer[CHARS_SLOT] = chars;
+            }
+            releaseBuilder(buffer, builder);
+        }
+    }
+    
+    /**
+     * フォーマット済みのログ出力項目を使用して、メッセージをバッファに追加する。
+     * <pre>
+     * {@link AppendableLogItem}を実装した出力項目は{@link AppendableLogItem#appendTo(StringBuilder, Object)}で、
+     * それ以外の出力項目は{@link LogItem#get(Object)}の戻り値を追加する。
+     * ただし、{@link AppendableLogItem#appendTo(StringBuilder, Object)}を実装したクラスのサブクラスが
+     * {@link LogItem#get(Object)}のみをオーバーライドしている場合は、オーバーライドした内容を出力するため
+     * {@link LogItem#get(Object)}の戻り値を追加する。
+     * </pre>
+     * @param <T> ログ出力項目の取得に使用するコンテキストの型
+     * @param buffer メッセージを追加するバッファ
+     * @param logItems フォーマット済みのログ出力項目
+     * @param context ログ出力項目の取得に使用するコンテキスト
+     */
+    public static <T> void appendMessage(StringBuilder buffer, LogItem<T>[] logItems, T context) {
         for (LogItem<T> logItem : logItems) {
-            sb.append(logItem.get(context));
+            if (logItem instanceof AppendableLogItem && APPENDABLE.get(logItem.getClass())) {
+                ((AppendableLogItem<T>) logItem).appendTo(buffer, context);
+            } else {
+                buffer.append(logItem.get(context));
+            }
+        }
+    }
+    
+    /**
+     * {@link AppendableLogItem}の実装クラスに対して、{@link AppendableLogItem#appendTo(StringBuilder, Object)}を使用できるか否か。
+     * <pre>
+     * {@link AppendableLogItem#appendTo(StringBuilder, Object)}を実装したクラスよりもサブクラス側で
+     * {@link LogItem#get(Object)}が宣言されている場合は使用できない。
+     * </pre>
+     */
+    private static final ClassValue<Boolean> APPENDABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (declares(c, "appendTo", 2)) {
+                    return Boolean.TRUE;
+                }
+                if (declares(c, "get", 1)) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+    
+    /**
+     * クラスが指定された名前と引数の数のメソッドを宣言しているか否かを判定する(ブリッジメソッドは除く)。
+     * @param type クラス
+     * @param name メソッド名
+     * @param parameterCount 引数の数
+     * @return 宣言している場合は{@code true}
+     */
+    private static boolean declares(Class<?> type, String name, int parameterCount) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (!method.isBridge() && method.getName().equals(name)
+                    && method.getParameterTypes().length == parameterCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * スレッドごとに再利用するメッセージのバッファから{@link StringBuilder}を取り出す。
+     * <pre>
+     * 出力項目の取得中に同じスレッドでメッセージをフォーマットした場合は、使用中のバッファを壊さないよう新たなバッファを使用する。
+     * </pre>
+     * @param buffer スレッドごとに再利用するメッセージのバッファ
+     * @return {@link StringBuilder}
+     */
+    private static StringBuilder acquireBuilder(Object[] buffer) {
+        final StringBuilder builder = (StringBuilder) buffer[BUILDER_SLOT];
+        if (builder == null) {
+            return new StringBuilder(256);
+        }
+        buffer[BUILDER_SLOT] = null;
+        return builder;
+    }
+    
+    /**
+     * {@link StringBuilder}をスレッドごとに再利用するメッセージのバッファに戻す。
+     * <pre>
+     * 容量が上限を超えたバッファは、メモリを保持し続けないよう再利用しない。
+     * </pre>
+     * @param buffer スレッドごとに再利用するメッセージのバッファ
+     * @param builder {@link StringBuilder}
+     */
+    private static void releaseBuilder(Object[] buffer, StringBuilder builder) {
+        if (builder.capacity() <= MAX_REUSABLE_BUFFER_CAPACITY) {
+            builder.setLength(0);
+            buffer[BUILDER_SLOT] = builder;
         }
-        return sb.toString();
     }
     
     /** デフォルトの{@link MapValueEditor} */
@@ -195,16 +479,51 @@ public final class LogUtil {
      * @return マップをダンプした文字列
      */
     private static <T> String dumpMap(Map<String, T> map, String separator, MapValueEditor valueEditor, Pattern excludeKeyPattern) {
+        StringBuilder sb = new StringBuilder();
+        appendMap(sb, map, separator, valueEditor, excludeKeyPattern);
+        return sb.toString();
+    }
+    
+    /**
+     * マップをダンプした文字列をバッファに追加する。
+     * @param buffer ダンプした文字列を追加するバッファ
+     * @param map マップ
+     * @param separator マップエントリのセパレータ
+     * @param valueEditor {@link MapValueEditor}
+     */
+    static void appendMap(StringBuilder buffer, Map<String, ?> map, String separator, MapValueEditor valueEditor) {
+        appendMap(buffer, map, separator, valueEditor, null);
+    }
+    
+    /**
+     * マップをダンプした文字列をバッファに追加する。
+     * @param buffer ダンプした文字列を追加するバッファ
+     * @param map マップ
+     * @param separator マップエントリのセパレータ
+     * @param valueEditor {@link MapValueEditor}
+     * @param excludeKeyPattern ダンプから除外するキーのパターン。指定しない場合はnull
+     */
+    private static void appendMap(StringBuilder buffer, Map<String, ?> map, String separator,
+                                  MapValueEditor valueEditor, Pattern excludeKeyPattern) {
         if (map == null) {
-            return "null";
+            buffer.append("null");
+            return;
         }
         if (map.isEmpty()) {
-            return "{}";
+            buffer.append("{}");
+            return;
         }
         
-        StringBuilder sb = new StringBuilder();
+        final int start = buffer.length();
+        final boolean multiLine = separator.contains(Logger.LS);
+        final boolean appendable = valueEditor instanceof BasicMapValueEditor
+                && !EDIT_OVERRIDDEN.get(valueEditor.getClass());
+        buffer.append('{');
+        if (multiLine) {
+            buffer.append(separator);
+        }
         boolean appendSeparator = false;
-        for (Map.Entry<String, T> param : map.entrySet()) {
+        for (Map.Entry<String, ?> param : map.entrySet()) {
             String key = param.getKey();
             if (key == null) {
                 key = "null";
@@ -215,19 +534,43 @@ public final class LogUtil {
             }
             
             if (appendSeparator) {
-                sb.append(",").append(separator);
+                buffer.append(',').append(separator);
             } else {
                 appendSeparator = true;
             }
-            sb.append(key).append(" = [").append(valueEditor.edit(key, param.getValue())).append("]");
+            buffer.append(key).append(" = [");
+            if (appendable) {
+                ((BasicMapValueEditor) valueEditor).appendTo(buffer, key, param.getValue());
+            } else {
+                buffer.append(valueEditor.edit(key, param.getValue()));
+            }
+            buffer.append(']');
         }
         
-        if (sb.length() == 0) {
-            return "{}";
+        if (!appendSeparator) {
+            buffer.setLength(start);
+            buffer.append("{}");
+            return;
         }
-        return "{" + (separator.contains(Logger.LS) ? separator : "") + sb.toString() + "}";
+        buffer.append('}');
     }
     
+    /**
+     * {@link BasicMapValueEditor}のサブクラスが{@link BasicMapValueEditor#edit(String, Object)}を
+     * オーバーライドしているか否か。
+     */
+    private static final ClassValue<Boolean> EDIT_OVERRIDDEN = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("edit", String.class, Object.class).getDeclaringClass()
+                        != BasicMapValueEditor.class;
+            } catch (NoSuchMethodException e) {
+                return Boolean.TRUE;
+            }
+        }
+    };
+    
     /**
      * マップの値を編集するインタフェース。<br>
      * マップをダンプする処理({@link LogUtil#dumpMap(Map, String, MapValueEditor)})で使用する。
@@ -261,42 +604,56 @@ public final class LogUtil {
          *
          * {@inheritDoc}
          */
-        @SuppressWarnings("unchecked")
         public String edit(String key, Object value) {
+            StringBuilder sb = new StringBuilder();
+            appendTo(sb, key, value);
+            return sb.toString();
+        }
+        
+        /**
+         * マップの値を編集し、バッファに追加する。
+         * <pre>
+         * 編集内容は{@link #edit(String, Object)}と同じであり、編集後の値の文字列を生成せずにバッファに追加する。
+         * {@link LogUtil#dumpMap(Map, String, MapValueEditor)}は、{@link #edit(String, Object)}を
+         * オーバーライドしていない場合に本メソッドを使用する。
+         * </pre>
+         * @param buffer 編集後の値を追加するバッファ
+         * @param key マップのキー
+         * @param value マップの値
+         */
+        @SuppressWarnings("unchecked")
+        public void appendTo(StringBuilder buffer, String key, Object value) {
             if (value == null) {
-                return getNullValue();
+                buffer.append(getNullValue());
             } else if (value.getClass().isArray()) {
-                StringBuilder sb = new StringBuilder();
                 if (value instanceof Object[]) {
                     Object[] values = (Object[]) value;
                     for (int i = 0; i < values.length; i++) {
                         if (i != 0) {
-                            sb.append(", ");
+                            buffer.append(", ");
                         }
-                        sb.append(editValue(key, values[i]));
+                        buffer.append(editValue(key, values[i]));
                     }
                 } else {
                     final int length = Array.getLength(value);
                     for (int i = 0; i < length; i++) {
                         if (i != 0) {
-                            sb.append(", ");
+                            buffer.append(", ");
                         }
-                        sb.append(editValue(key, Array.get(value, i)));
+                        buffer.append(editValue(key, Array.get(value, i)));
                     }
                 }
-                return sb.toString();
             } else if (value instanceof Collection) {
-                StringBuilder sb = new StringBuilder();
+                final int start = buffer.length();
                 Iterator<Object> itr = ((Collection<Object>) value).iterator();
                 while (itr.hasNext()) {
-                    if (sb.length() != 0) {
-                        sb.append(", ");
+                    if (buffer.length() != start) {
+                        buffer.append(", ");
                     }
-                    sb.append(editValue(key, itr.next()));
+                    buffer.append(editValue(key, itr.next()));
                 }
-                return sb.toString();
             } else {
-                return editValue(key, value);
+                buffer.append(editValue(key, value));
             }
         }
         /**
@@ -324,33 +681,69 @@ public final class LogUtil {
      */
     @Published(tag = "architect")
     public static class MaskingMapValueEditor extends BasicMapValueEditor {
+        /** 判定結果をキャッシュするキーの最大数 */
+        private static final int MAX_CACHED_KEYS = 1024;
+        /** 1つの正規表現に結合できないフラグ */
+        private static final int UNCOMBINABLE_FLAGS = Pattern.LITERAL | Pattern.CANON_EQ | Pattern.COMMENTS;
+        /** 後方参照を含むか否かを判定するパターン */
+        private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
         /** マスク文字 */
         private final String maskingString;
         /** マスク対象のパターン */
         private final Pattern[] maskingPatterns;
+        /** マスク対象のパターンを1つに結合したパターン(結合できない場合はnull) */
+        private final Pattern combinedPattern;
+        /** キーごとのマスキング対象か否かの判定結果 */
+        private final ConcurrentHashMap<String, Boolean> decisions = new ConcurrentHashMap<String, Boolean>();
         /**
          * コンストラクタ。
+         * <pre>
+         * マスク対象のパターンは、可能な場合は1つの正規表現に結合する。
+         * 結合したパターンでは、キーごとの判定を1回の検索で行う。
+         * </pre>
          * @param maskingChar マスク文字
          * @param maskingPatterns マスク対象のパターン
          */
         public MaskingMapValueEditor(char maskingChar, Pattern[] maskingPatterns) {
             this.maskingString = StringUtil.lpad("", 5, maskingChar);
             this.maskingPatterns = maskingPatterns;
+            this.combinedPattern = combine(maskingPatterns);
         }
         /**
          * キーがマスク対象のパターンにマッチする値のみマスキングを行う。
          * {@inheritDoc}
          */
         protected String editValue(String key, Object value) {
-            String editedValue = super.editValue(key, value);
-            return isMasking(key) ? maskingString : editedValue;
+            return isMasking(key) ? maskingString : super.editValue(key, value);
         }
         /**
          * パラメータ名がマスキング対象かを判定する。
+         * <pre>
+         * 判定結果はパラメータ名ごとに保持し、同じパラメータ名の判定では再利用する。
+         * 保持するパラメータ名の数には上限があり、上限を超えたパラメータ名は毎回判定する。
+         * </pre>
          * @param name パラメータ名
          * @return マスキング対象の場合はtrue
          */
         protected boolean isMasking(String name) {
+            Boolean decision = decisions.get(name);
+            if (decision == null) {
+                decision = matches(name);
+                if (decisions.size() < MAX_CACHED_KEYS) {
+                    decisions.put(name, decision);
+                }
+            }
+            return decision;
+        }
+        /**
+         * パラメータ名がマスク対象のパターンのいずれかにマッチするかを判定する。
+         * @param name パラメータ名
+         * @return マッチする場合はtrue
+         */
+        private boolean matches(String name) {
+            if (combinedPattern != null) {
+                return combinedPattern.matcher(name).find();
+            }
             for (Pattern p : maskingPatterns) {
                 if (p.matcher(name).find()) {
                     return true;
@@ -358,6 +751,45 @@ public final class LogUtil {
             }
             return false;
         }
+        /**
+         * マスク対象のパターンを1つの正規表現に結合する。
+         * <pre>
+         * 下記の場合は結合しない。
+         * ・パターンが2つ未満の場合
+         * ・パターンごとにフラグが異なる場合、もしくは結合できないフラグが指定されている場合
+         * ・後方参照を含む場合(結合によりグループの番号が変わるため)
+         * ・コメントを有効にするフラグを含む可能性がある場合(コメントが結合した括弧を無効にするため)
+         * ・結合したパターンをコンパイルできない場合
+         * </pre>
+         * @param patterns マスク対象のパターン
+         * @return 結合したパターン。結合しない場合はnull
+         */
+        private static Pattern combine(Pattern[] patterns) {
+            if (patterns == null || patterns.length < 2) {
+                return null;
+            }
+            final int flags = patterns[0].flags();
+            if ((flags & UNCOMBINABLE_FLAGS) != 0) {
+                return null;
+            }
+            final StringBuilder regex = new StringBuilder();
+            for (Pattern p : patterns) {
+                final String pattern = p.pattern();
+                if (p.flags() != flags || BACK_REFERENCE.matcher(pattern).find()
+                        || (pattern.indexOf('#') >= 0 && pattern.contains("(?"))) {
+                    return null;
+                }
+                if (regex.length() != 0) {
+                    regex.append('|');
+                }
+                regex.append("(?:").append(pattern).append(')');
+            }
+            try {
+                return Pattern.compile(regex.toString(), flags);
+            } catch (PatternSyntaxException e) {
+                return null;
+            }
+        }
     }
     
     /**
@@ -426,8 +858,11 @@ public final class LogUtil {
     public static <T> T getObjectBoundToClassLoader(ObjectCreator<T> creator) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         Map<ObjectCreator<Object>, Object> map = getMapBoundToClassLoader(classLoader);
-        if (map != null && map.containsKey(creator)) {
-            return (T) map.get(creator);
+        if (map != null) {
+            Object object = map.get(creator);
+            if (object != null || map.containsKey(creator)) {
+                return (T) object;
+            }
         }
         synchronized (mapBoundToClassLoader) {
             map = getMapBoundToClassLoader(classLoader);
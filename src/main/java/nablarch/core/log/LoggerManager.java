@@ -1,5 +1,11 @@
 package nablarch.core.log;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import nablarch.core.log.LogUtil.ObjectCreator;
 import nablarch.core.util.ObjectUtil;
 import nablarch.core.util.annotation.Published;
@@ -24,6 +30,18 @@ import nablarch.core.util.annotation.Published;
  * ログの出力要求を行うアプリケーション毎にアプリケーションの終了時に{@link #terminate()}メソッドを呼び出すこと。<br>
  * アプリケーションの終了時とは、例えばWebアプリケーションの場合であれば、
  * ServletContextListener#contextDestroyedメソッドが呼ばれるタイミングを想定している。
+ * <p/>
+ * 取得したロガーは、{@link LoggerFactory}とともにクラスローダに紐付けて保持し、2回目以降の取得では同じロガーを返す。
+ * 直前に使用したクラスローダの保持内容はフィールドに保持するため、
+ * 同じクラスローダからの取得はロガー名による1回の検索で完了する。
+ * 保持内容の生成と削除はクラスローダへの紐付けと同時に行うため、終了処理と並行してロガーを取得しても、
+ * 終了処理を行った{@link LoggerFactory}の保持内容が残ることはない。
+ * <p/>
+ * プロパティファイルで"logSettings.watch"にtrueを指定した場合は、プロパティファイルの変更を監視し、
+ * 変更を検知すると読み込み直した設定で{@link ReloadableLoggerFactory#reload(LogSettings)}を呼び出す。
+ * ロガーを生成し直さずに設定を反映するため、ログの出力と並行してログレベル等を変更できる。
+ * この場合、{@link LoggerFactory}は{@link ReloadableLoggerFactory}を実装している必要があり、
+ * プロパティファイルはファイルシステム上のファイルである必要がある。
  * 
  * @author Kiyohito Itoh
  * @see nablarch.core.log.LoggerFactory
@@ -35,17 +53,37 @@ public final class LoggerManager {
     private LoggerManager() {
     }
     
-    /** LoggerFactoryを生成する{@link ObjectCreator} */
-    private static final ObjectCreator<LoggerFactory> LOGGER_FACTORY_CREATOR = new ObjectCreator<LoggerFactory>() {
-        public LoggerFactory create() {
+    /** LoggerFactoryを生成し、ロガーの保持内容を生成する{@link ObjectCreator} */
+    private static final ObjectCreator<LoggerRegistry> LOGGER_REGISTRY_CREATOR = new ObjectCreator<LoggerRegistry>() {
+        public LoggerRegistry create() {
             String filePath = System.getProperty("nablarch.log.filePath", "classpath:log.properties");
             LogSettings settings = new LogSettings(filePath);
             LoggerFactory loggerFactory = ObjectUtil.createInstance(settings.getRequiredProp("loggerFactory.className"));
+            boolean watch = LogSettingsWatcher.isWatchEnabled(settings);
+            if (watch) {
+                // 監視を開始できない設定でLoggerFactoryを初期化しないように、初期化前に検証する
+                LogSettingsWatcher.validate(settings, loggerFactory);
+            }
             loggerFactory.initialize(settings);
-            return loggerFactory;
+            LogSettingsWatcher watcher = null;
+            if (watch) {
+                try {
+                    watcher = new LogSettingsWatcher(settings, (ReloadableLoggerFactory) loggerFactory, WATCH_DELAY);
+                } catch (RuntimeException e) {
+                    loggerFactory.terminate();
+                    throw e;
+                }
+            }
+            return new LoggerRegistry(loggerFactory, watcher);
         }
     };
     
+    /** 設定ファイルの変更を検知してから再読み込みするまで待機する時間(ミリ秒) */
+    private static final long WATCH_DELAY = 200L;
+    
+    /** 直前に使用したクラスローダとロガーの保持内容 */
+    private static volatile LastRegistry lastRegistry;
+    
     /**
      * ログ出力の終了処理を行う。<br>
      * <br>
@@ -55,13 +93,30 @@ public final class LoggerManager {
      */
     @Published(tag = "architect")
     public static void terminate() {
-        LoggerFactory loggerFactory = LogUtil.removeObjectBoundToContextClassLoader(LOGGER_FACTORY_CREATOR);
-        if (loggerFactory != null) {
-            loggerFactory.terminate();
+        LoggerRegistry registry = LogUtil.removeObjectBoundToContextClassLoader(LOGGER_REGISTRY_CREATOR);
+        if (registry != null) {
+            registry.terminate();
         }
+        lastRegistry = null;
         LogUtil.removeAllObjectsBoundToContextClassLoader();
     }
     
+    /**
+     * ログ出力の終了処理で終了させるオブジェクトを登録する。<br>
+     * <br>
+     * コンテキストクラスローダに紐付くロガーの保持内容に登録し、
+     * {@link #terminate()}で{@link LoggerFactory}の終了処理を行う前に終了させる。<br>
+     * 専用のスレッドでロガーに出力するオブジェクトが、出力し終えていない出力要求を出力するために使用する。<br>
+     * {@link Closeable#close()}が{@link IOException}を送出した場合は、専用のスレッドがロガーに出力中であるとみなし、
+     * 出力中のロガーを終了させないよう{@link LoggerFactory}の終了処理を行わない。
+     * 
+     * @param closeable 終了させるオブジェクト
+     */
+    @Published(tag = "architect")
+    public static void addCloseable(Closeable closeable) {
+        getRegistry().closeables.add(closeable);
+    }
+    
     /**
      * ロガーを取得する。<br>
      * <br>
@@ -79,6 +134,7 @@ public final class LoggerManager {
      * ロガーを取得する。<br>
      * <br>
      * クラスローダに紐付く{@link LoggerFactory}から取得したロガーを返す。<br>
+     * 同じクラスローダから同じロガー名で取得した場合は、前回取得したロガーを返す。<br>
      * <br>
      * ロガー名に対応するロガーが見つからない場合は、何も処理しないロガーを返す。
      * 
@@ -87,7 +143,122 @@ public final class LoggerManager {
      */
     @Published
     public static Logger get(String name) {
-        LoggerFactory loggerFactory = LogUtil.getObjectBoundToClassLoader(LOGGER_FACTORY_CREATOR);
-        return loggerFactory.get(name);
+        return getRegistry().get(name);
+    }
+    
+    /**
+     * コンテキストクラスローダに対応するロガーの保持内容を取得する。
+     * 
+     * @return ロガーの保持内容
+     */
+    private static LoggerRegistry getRegistry() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        LastRegistry last = lastRegistry;
+        if (last != null && last.classLoader == classLoader && !last.registry.terminated) {
+            return last.registry;
+        }
+        LoggerRegistry registry = LogUtil.getObjectBoundToClassLoader(LOGGER_REGISTRY_CREATOR);
+        // 終了処理と並行して保持した場合も、終了処理後は上の判定で使用されない。
+        lastRegistry = new LastRegistry(classLoader, registry);
+        return registry;
+    }
+    
+    /**
+     * 直前に使用したクラスローダと、そのクラスローダで取得したロガーの保持内容。
+     */
+    private static final class LastRegistry {
+        
+        /** クラスローダ */
+        private final ClassLoader classLoader;
+        
+        /** ロガーの保持内容 */
+        private final LoggerRegistry registry;
+        
+        /**
+         * コンストラクタ。
+         * 
+         * @param classLoader クラスローダ
+         * @param registry ロガーの保持内容
+         */
+        LastRegistry(ClassLoader classLoader, LoggerRegistry registry) {
+            this.classLoader = classLoader;
+            this.registry = registry;
+        }
+    }
+    
+    /**
+     * クラスローダに紐付けて、{@link LoggerFactory}とロガー名ごとのロガーを保持するクラス。
+     */
+    private static final class LoggerRegistry {
+        
+        /** ロガーを生成する{@link LoggerFactory} */
+        private final LoggerFactory loggerFactory;
+        
+        /** 設定ファイルの監視(監視しない場合はnull) */
+        private final LogSettingsWatcher watcher;
+        
+        /** ロガー名ごとのロガー */
+        private final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<String, Logger>();
+        
+        /** {@link LoggerFactory}の終了処理を行う前に終了させるオブジェクト */
+        private final List<Closeable> closeables = new CopyOnWriteArrayList<Closeable>();
+        
+        /** 終了処理を行ったか否か */
+        private volatile boolean terminated;
+        
+        /**
+         * コンストラクタ。
+         * 
+         * @param loggerFactory ロガーを生成する{@link LoggerFactory}
+         * @param watcher 設定ファイルの監視(監視しない場合はnull)
+         */
+        LoggerRegistry(LoggerFactory loggerFactory, LogSettingsWatcher watcher) {
+            this.loggerFactory = loggerFactory;
+            this.watcher = watcher;
+        }
+        
+        /**
+         * 登録されたオブジェクトと設定ファイルの監視を終了し、{@link LoggerFactory}の終了処理を行う。
+         * <br>
+         * 登録されたオブジェクトの終了に失敗した場合は、{@link LoggerFactory}の終了処理を行わない。
+         */
+        void terminate() {
+            boolean allClosed = true;
+            for (Closeable closeable : closeables) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // 出力中のロガーを終了させないよう、LoggerFactoryの終了処理を行わない。
+                    allClosed = false;
+                }
+            }
+            terminated = true;
+            if (watcher != null) {
+                watcher.close();
+            }
+            if (allClosed) {
+                loggerFactory.terminate();
+            }
+        }
+        
+        /**
+         * ロガーを取得する。
+         * <br>
+         * 保持していない場合は{@link LoggerFactory}から取得して保持する。
+         * 
+         * @param name ロガー名
+         * @return ロガー
+         */
+        Logger get(String name) {
+            Logger logger = loggers.get(name);
+            if (logger == null) {
+                Logger created = loggerFactory.get(name);
+                logger = loggers.putIfAbsent(name, created);
+                if (logger == null) {
+                    logger = created;
+                }
+            }
+            return logger;
+        }
     }
 }
@@ -11,7 +11,7 @@ import nablarch.core.log.LogUtil.MaskingMapValueEditor;
  * @author Kiyohito Itoh
  * @param <T>
  */
-public abstract class MaskingMapItemSupport<T> implements LogItem<T> {
+public abstract class MaskingMapItemSupport<T> implements AppendableLogItem<T> {
     /** マップの値を編集する{@link MapValueEditor} */
     private MapValueEditor mapValueEditor;
     /** マップの値間の区切り文字 */
@@ -35,6 +35,14 @@ public abstract class MaskingMapItemSupport<T> implements LogItem<T> {
     public String get(T context) {
         return LogUtil.dumpMap(getMap(context), separator, mapValueEditor);
     }
+    /**
+     * マスキング済みのマップのダンプをバッファに追加する。
+     * @param buffer 出力項目を追加するバッファ
+     * @param context ログの出力項目の取得に使用するコンテキスト
+     */
+    public void appendTo(StringBuilder buffer, T context) {
+        LogUtil.appendMap(buffer, getMap(context), separator, mapValueEditor);
+    }
     /**
      * コンテキストからマップを取得する。
      * @param context ログの出力項目の取得に使用するコンテキスト
@@ -0,0 +1,520 @@
+package nablarch.core.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.ObjectUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 同一のログの出力頻度を制限する{@link LoggerFactory}。
+ * <p/>
+ * 本クラスは、設定で指定された{@link LoggerFactory}(委譲先)が生成する{@link Logger}をラップする。
+ * ラップした{@link Logger}は、ロガー名とメッセージ(埋め込み前のテンプレート)の組み合わせごとにトークンバケットを持ち、
+ * トークンを取得できたログのみ委譲先で出力し、取得できなかったログは出力を抑止して件数のみ数える。
+ * 抑止した件数は、設定された間隔ごとに同じログレベルの要約メッセージとして出力する。
+ * これにより、障害発生時に同一の警告が大量に出力され、ディスクやリクエストスレッドを圧迫することを防ぐ。
+ * <p/>
+ * トークンバケットと件数は、ロックを使用せずにCAS操作のみで更新する。
+ * 要約メッセージは、対象のログの出力要求を契機に出力するため、出力要求が無くなった後の件数は
+ * {@link #terminate()}で出力する。
+ * <p/>
+ * 個別に制限するメッセージが最大数に達した場合は、トークンが満たされ抑止した件数も無い(しばらく出力されていない)
+ * メッセージのトークンバケットを削除し、新しいメッセージに個別のトークンバケットを割り当てる。
+ * 削除は、トークンバケットが空から満たされるまでの時間ごとに最大1回行う。
+ * <p/>
+ * ラップした{@link Logger}のログレベルの判定は、{@link LeveledLoggerSupport}を使用して{@link EffectiveLogLevel}で行う。
+ * 委譲先が{@link LevelAwareLoggerFactory}を実装している場合は委譲先の{@link EffectiveLogLevel}を共有し、
+ * それ以外の場合は委譲先の{@link Logger}から求めたログレベルを保持して{@link #reload(LogSettings)}の都度求め直す。
+ * <p/>
+ * {@link #reload(LogSettings)}では、委譲先のクラス名以外の設定を反映し、委譲先が{@link ReloadableLoggerFactory}を
+ * 実装している場合は委譲先にも再読み込みさせる。
+ * <p/>
+ * 設定は{@link LogSettings}から下記のプロパティを取得する。
+ * <pre>
+ * rateLimitLogger.loggerFactory.className
+ *     委譲先の{@link LoggerFactory}のクラス名。必須。
+ * rateLimitLogger.level
+ *     出力頻度を制限するログレベル。このレベル以下のログを制限する。デフォルトはWARN。
+ * rateLimitLogger.permitsPerSecond
+ *     同一のログを1秒あたりに出力できる件数。デフォルトは10。
+ * rateLimitLogger.burstSize
+ *     同一のログを連続して出力できる件数(トークンバケットの容量)。デフォルトは10。
+ * rateLimitLogger.summaryInterval
+ *     抑止した件数を出力する間隔(ミリ秒)。デフォルトは60000。
+ * rateLimitLogger.maxMessagesPerLogger
+ *     ロガーごとに個別に出力頻度を制限するメッセージの最大数。
+ *     これを超えたメッセージは、ロガーごとに1つのトークンバケットを共有する。デフォルトは1024。
+ * </pre>
+ */
+@Published(tag = "architect")
+public class RateLimitingLoggerFactory implements ReloadableLoggerFactory, LevelAwareLoggerFactory {
+
+    /** 設定のプロパティ名のプレフィックス */
+    private static final String PROPS_PREFIX = "rateLimitLogger.";
+
+    /** 1秒あたりに出力できる件数のデフォルト値 */
+    private static final int DEFAULT_PERMITS_PER_SECOND = 10;
+
+    /** 連続して出力できる件数のデフォルト値 */
+    private static final int DEFAULT_BURST_SIZE = 10;
+
+    /** 抑止した件数を出力する間隔(ミリ秒)のデフォルト値 */
+    private static final int DEFAULT_SUMMARY_INTERVAL = 60000;
+
+    /** ロガーごとに個別に制限するメッセージの最大数のデフォルト値 */
+    private static final int DEFAULT_MAX_MESSAGES_PER_LOGGER = 1024;
+
+    /** 最大数を超えたメッセージの要約メッセージに出力するメッセージ */
+    private static final String OTHER_MESSAGES = "(other messages)";
+
+    /** 要約メッセージのオプション情報 */
+    private static final Object[] NO_OPTIONS = new Object[0];
+
+    /** 委譲先の{@link LoggerFactory} */
+    private LoggerFactory delegate;
+
+    /** 出力頻度の制限内容 */
+    private volatile Limits limits;
+
+    /** 抑止したログの総数 */
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /** 生成した{@link Logger} */
+    private final ConcurrentHashMap<String, RateLimitedLogger> loggers
+            = new ConcurrentHashMap<String, RateLimitedLogger>();
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link LoggerFactory}を生成して初期化する。
+     */
+    public void initialize(LogSettings settings) {
+        limits = new Limits(settings.getProps());
+        delegate = ObjectUtil.createInstance(settings.getRequiredProp(PROPS_PREFIX + "loggerFactory.className"));
+        LogSettingsWatcher.validateReloadable(settings, delegate);
+        delegate.initialize(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 新しい設定から生成した制限内容に差し替える。トークンバケットと抑止した件数は引き継ぐ。
+     * 委譲先の{@link LoggerFactory}は変更しない。
+     */
+    public void reload(LogSettings settings) {
+        limits = new Limits(settings.getProps());
+        if (delegate instanceof ReloadableLoggerFactory) {
+            ((ReloadableLoggerFactory) delegate).reload(settings);
+            for (RateLimitedLogger logger : loggers.values()) {
+                logger.refreshLevel();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * まだ出力していない抑止した件数を出力した後に、委譲先の終了処理を行う。
+     */
+    public void terminate() {
+        for (RateLimitedLogger logger : loggers.values()) {
+            logger.writeAllSummaries();
+        }
+        if (delegate != null) {
+            delegate.terminate();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link LoggerFactory}から取得した{@link Logger}をラップして返す。
+     */
+    public Logger get(String name) {
+        return getRateLimitedLogger(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * ラップした{@link Logger}が判定に使用する{@link EffectiveLogLevel}を返す。
+     */
+    public EffectiveLogLevel getEffectiveLevel(String name) {
+        return getRateLimitedLogger(name).getEffectiveLevel();
+    }
+
+    /**
+     * 委譲先の{@link LoggerFactory}から取得した{@link Logger}をラップした{@link RateLimitedLogger}を取得する。
+     *
+     * @param name ロガー名
+     * @return {@link RateLimitedLogger}
+     */
+    private RateLimitedLogger getRateLimitedLogger(String name) {
+        RateLimitedLogger logger = loggers.get(name);
+        if (logger == null) {
+            final RateLimitedLogger created = new RateLimitedLogger(name, delegate.get(name));
+            logger = loggers.putIfAbsent(name, created);
+            if (logger == null) {
+                logger = created;
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * 出力を抑止したログの総数を取得する。
+     *
+     * @return 出力を抑止したログの総数
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * 現在の時刻を取得する。
+     * <p/>
+     * デフォルト実装では、{@link System#nanoTime()}を返す。
+     *
+     * @return 現在の時刻(ナノ秒)
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 設定から文字列を取得する。
+     *
+     * @param props 設定
+     * @param name プレフィックスを除いたプロパティ名
+     * @param defaultValue 設定されていない場合に返す値
+     * @return 設定値
+     */
+    private static String getString(Map<String, String> props, String name, String defaultValue) {
+        final String value = props.get(PROPS_PREFIX + name);
+        return value == null || value.length() == 0 ? defaultValue : value;
+    }
+
+    /**
+     * 設定から正の整数を取得する。
+     *
+     * @param props 設定
+     * @param name プレフィックスを除いたプロパティ名
+     * @param defaultValue 設定されていない場合に返す値
+     * @return 設定値
+     */
+    private static int getInt(Map<String, String> props, String name, int defaultValue) {
+        final String value = getString(props, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        final int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "'" + PROPS_PREFIX + name + "' must be an integer. value = [" + value + "]", e);
+        }
+        if (result <= 0) {
+            throw new IllegalArgumentException(
+                    "'" + PROPS_PREFIX + name + "' must be greater than 0. value = [" + value + "]");
+        }
+        return result;
+    }
+
+    /**
+     * 設定から生成した出力頻度の制限内容。
+     */
+    private static final class Limits {
+
+        /** 出力頻度を制限するログレベルの値 */
+        private final int limitedLevel;
+
+        /** トークンが1つ補充される間隔(ナノ秒) */
+        private final long emissionIntervalNanos;
+
+        /** トークンバケットが許容する前借りの時間(ナノ秒) */
+        private final long toleranceNanos;
+
+        /** 抑止した件数を出力する間隔(ナノ秒) */
+        private final long summaryIntervalNanos;
+
+        /** 空のトークンバケットが満たされるまでの時間(ナノ秒) */
+        private final long refillNanos;
+
+        /** ロガーごとに個別に制限するメッセージの最大数 */
+        private final int maxMessagesPerLogger;
+
+        /**
+         * コンストラクタ。
+         * @param props 設定
+         */
+        Limits(Map<String, String> props) {
+            limitedLevel = LogLevel.valueOf(getString(props, "level", LogLevel.WARN.name())).getValue();
+            final int permitsPerSecond = getInt(props, "permitsPerSecond", DEFAULT_PERMITS_PER_SECOND);
+            final int burstSize = getInt(props, "burstSize", DEFAULT_BURST_SIZE);
+            emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            toleranceNanos = emissionIntervalNanos * (burstSize - 1);
+            refillNanos = emissionIntervalNanos * burstSize;
+            summaryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                    getInt(props, "summaryInterval", DEFAULT_SUMMARY_INTERVAL));
+            maxMessagesPerLogger = getInt(props, "maxMessagesPerLogger", DEFAULT_MAX_MESSAGES_PER_LOGGER);
+        }
+    }
+
+    /**
+     * メッセージごとのトークンバケットと抑止した件数。
+     * <p/>
+     * トークンバケットは、次のトークンが補充される理論上の時刻のみで表現する(GCRA)。
+     * 全ての状態は{@link AtomicLong}で保持し、ロックを使用せずに更新する。
+     */
+    private static final class Bucket {
+
+        /** 要約メッセージに出力するメッセージ */
+        private final String message;
+
+        /** 出力したログのログレベル */
+        private volatile LogLevel level;
+
+        /** 次のトークンが補充される理論上の時刻(ナノ秒) */
+        private final AtomicLong theoreticalArrivalTime;
+
+        /** 抑止した件数 */
+        private final AtomicLong suppressed = new AtomicLong();
+
+        /** 最後に要約メッセージを出力した時刻(ナノ秒) */
+        private final AtomicLong lastSummaryTime;
+
+        /**
+         * コンストラクタ。
+         * @param message 要約メッセージに出力するメッセージ
+         * @param now 現在の時刻(ナノ秒)
+         */
+        Bucket(String message, long now) {
+            this.message = message;
+            this.theoreticalArrivalTime = new AtomicLong(now);
+            this.lastSummaryTime = new AtomicLong(now);
+        }
+
+        /**
+         * トークンを取得する。
+         * @param now 現在の時刻(ナノ秒)
+         * @param emissionInterval トークンが1つ補充される間隔(ナノ秒)
+         * @param tolerance 許容する前借りの時間(ナノ秒)
+         * @return 取得できた場合は<code>true</code>
+         */
+        boolean tryAcquire(long now, long emissionInterval, long tolerance) {
+            while (true) {
+                final long tat = theoreticalArrivalTime.get();
+                final long base = tat - now > 0 ? tat : now;
+                if (base - now > tolerance) {
+                    return false;
+                }
+                if (theoreticalArrivalTime.compareAndSet(tat, base + emissionInterval)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * トークンが満たされ、抑止した件数も無いか否かを判定する。
+         * @param now 現在の時刻(ナノ秒)
+         * @return トークンが満たされ、抑止した件数も無い場合は<code>true</code>
+         */
+        boolean isIdle(long now) {
+            return theoreticalArrivalTime.get() - now <= 0 && suppressed.get() == 0;
+        }
+
+        /**
+         * 要約メッセージを出力する時刻に達していれば、抑止した件数を取り出す。
+         * <p/>
+         * 複数のスレッドから同時に呼ばれた場合も、件数を取り出すのは1つのスレッドのみとなる。
+         * @param now 現在の時刻(ナノ秒)
+         * @param interval 要約メッセージを出力する間隔(ナノ秒)
+         * @return 抑止した件数。出力する時刻に達していない場合は0
+         */
+        long pollSummary(long now, long interval) {
+            if (suppressed.get() == 0) {
+                return 0;
+            }
+            final long last = lastSummaryTime.get();
+            if (now - last < interval || !lastSummaryTime.compareAndSet(last, now)) {
+                return 0;
+            }
+            return suppressed.getAndSet(0);
+        }
+    }
+
+    /**
+     * 出力頻度を制限する{@link Logger}。
+     * <p/>
+     * ログレベルの判定は{@link LeveledLoggerSupport}で行い、出力対象のログのみ出力頻度を判定する。
+     */
+    private final class RateLimitedLogger extends LeveledLoggerSupport {
+
+        /** 委譲先の{@link Logger} */
+        private final Logger logger;
+
+        /** メッセージごとのトークンバケット */
+        private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+        /** 最大数を超えたメッセージが共有するトークンバケット */
+        private final Bucket otherBucket;
+
+        /** 最後に使用されていないトークンバケットを削除した時刻(ナノ秒) */
+        private final AtomicLong lastEvictionTime;
+
+        /**
+         * コンストラクタ。
+         * @param name ロガー名
+         * @param logger 委譲先の{@link Logger}
+         */
+        RateLimitedLogger(String name, Logger logger) {
+            super(EffectiveLogLevel.of(delegate, name, logger));
+            this.logger = logger;
+            final long now = nanoTime();
+            this.otherBucket = new Bucket(OTHER_MESSAGES, now);
+            this.lastEvictionTime = new AtomicLong(now);
+        }
+
+        /**
+         * 委譲先が{@link LevelAwareLoggerFactory}を実装していない場合に、委譲先の{@link Logger}からログレベルを求め直す。
+         */
+        void refreshLevel() {
+            if (!(delegate instanceof LevelAwareLoggerFactory)) {
+                getEffectiveLevel().set(EffectiveLogLevel.enabledLevelOf(logger));
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * ログの出力頻度を判定し、出力可能な場合のみ委譲先で出力する。
+         */
+        @Override
+        protected void write(LogLevel level, String message, Throwable error, Object[] options) {
+            final Limits current = limits;
+            if (level.getValue() < current.limitedLevel) {
+                writeToDelegate(level, message, error, options);
+                return;
+            }
+            final long now = nanoTime();
+            final Bucket bucket = getBucket(message, now, current);
+            bucket.level = level;
+            if (bucket.tryAcquire(now, current.emissionIntervalNanos, current.toleranceNanos)) {
+                writeToDelegate(level, message, error, options);
+            } else {
+                bucket.suppressed.incrementAndGet();
+                suppressedCount.incrementAndGet();
+            }
+            writeSummary(bucket, bucket.pollSummary(now, current.summaryIntervalNanos));
+        }
+
+        /**
+         * メッセージに対応するトークンバケットを取得する。
+         * <p/>
+         * 個別に制限するメッセージが最大数に達している場合は、使用されていないトークンバケットの削除を試み、
+         * 削除できなければ最大数を超えたメッセージが共有するトークンバケットを返す。
+         * @param message メッセージ
+         * @param now 現在の時刻(ナノ秒)
+         * @param current 出力頻度の制限内容
+         * @return トークンバケット
+         */
+        private Bucket getBucket(String message, long now, Limits current) {
+            final String key = String.valueOf(message);
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= current.maxMessagesPerLogger
+                        && (!evictIdleBuckets(now, current.refillNanos)
+                            || buckets.size() >= current.maxMessagesPerLogger)) {
+                    return otherBucket;
+                }
+                final Bucket created = new Bucket(key, now);
+                bucket = buckets.putIfAbsent(key, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            return bucket;
+        }
+
+        /**
+         * トークンが満たされ、抑止した件数も無いトークンバケットを削除する。
+         * <p/>
+         * 削除は、指定された間隔ごとに1つのスレッドのみが行う。
+         * 削除した後に抑止した件数が加算された場合は、件数を失わないよう元に戻す。
+         * @param now 現在の時刻(ナノ秒)
+         * @param interval 削除を行う間隔(ナノ秒)
+         * @return 削除を行った場合は<code>true</code>
+         */
+        private boolean evictIdleBuckets(long now, long interval) {
+            final long last = lastEvictionTime.get();
+            if (now - last < interval || !lastEvictionTime.compareAndSet(last, now)) {
+                return false;
+            }
+            for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+                final Bucket bucket = entry.getValue();
+                if (bucket.isIdle(now) && buckets.remove(entry.getKey(), bucket)
+                        && bucket.suppressed.get() != 0) {
+                    buckets.putIfAbsent(entry.getKey(), bucket);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 全てのトークンバケットの抑止した件数を出力する。
+         */
+        void writeAllSummaries() {
+            for (Bucket bucket : buckets.values()) {
+                writeSummary(bucket, bucket.suppressed.getAndSet(0));
+            }
+            writeSummary(otherBucket, otherBucket.suppressed.getAndSet(0));
+        }
+
+        /**
+         * 抑止した件数を要約メッセージとして出力する。
+         * @param bucket トークンバケット
+         * @param count 抑止した件数
+         */
+        private void writeSummary(Bucket bucket, long count) {
+            if (count > 0) {
+                writeToDelegate(bucket.level, "similar log messages were suppressed. count = " + count
+                        + ", message = [" + bucket.message + "]", null, NO_OPTIONS);
+            }
+        }
+
+        /**
+         * 委譲先の{@link Logger}でログを出力する。
+         * @param level ログレベル
+         * @param message メッセージ
+         * @param error エラー情報
+         * @param options オプション情報
+         */
+        private void writeToDelegate(LogLevel level, String message, Throwable error, Object[] options) {
+            switch (level) {
+                case FATAL:
+                    logger.logFatal(message, error, options);
+                    break;
+                case ERROR:
+                    logger.logError(message, error, options);
+                    break;
+                case WARN:
+                    logger.logWarn(message, error, options);
+                    break;
+                case INFO:
+                    logger.logInfo(message, error, options);
+                    break;
+                case DEBUG:
+                    logger.logDebug(message, error, options);
+                    break;
+                default:
+                    logger.logTrace(message, error, options);
+                    break;
+            }
+        }
+    }
+}
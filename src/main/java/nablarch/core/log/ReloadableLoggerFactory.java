@@ -0,0 +1,28 @@
+package nablarch.core.log;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 設定の再読み込みに対応する{@link LoggerFactory}。
+ * <p/>
+ * ログ出力の設定ファイルで"logSettings.watch"にtrueを指定した場合、{@link LoggerManager}は設定ファイルの変更を監視し、
+ * 変更を検知すると設定ファイルを読み込み直して生成した{@link LogSettings}を引数に{@link #reload(LogSettings)}を呼び出す。
+ * <p/>
+ * {@link #reload(LogSettings)}は、監視を行うスレッドからログの出力と並行して呼び出される。
+ * 実装クラスは、ログの出力処理でロックを取得せずに変更を反映すること。
+ * 例えば、ログレベルの変更は、ロガーが保持する{@link EffectiveLogLevel}を{@link EffectiveLogLevel#set(nablarch.core.log.basic.LogLevel)}で
+ * 更新することで反映できる。その他の設定は、新しい設定から生成した不変のオブジェクトをvolatileフィールドに設定して差し替える。
+ * 再読み込みで変更できない設定が変更された場合は、その設定を無視してよい。
+ */
+@Published(tag = "architect")
+public interface ReloadableLoggerFactory extends LoggerFactory {
+
+    /**
+     * 設定を再読み込みする。
+     * <p/>
+     * 本メソッドが例外を送出した場合は、変更前の設定のままログの出力を継続する。
+     *
+     * @param settings 読み込み直したログ出力の設定
+     */
+    void reload(LogSettings settings);
+}
@@ -0,0 +1,540 @@
+package nablarch.core.log.operation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.Logger;
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.util.FileUtil;
+
+/**
+ * 運用担当者向けの通知ログを専用のスレッドで出力するクラス。
+ * <p/>
+ * 出力要求は容量に上限のあるキューに格納し、呼び出し元のスレッドはすぐに戻る。
+ * 出力スレッドはキューから出力要求を取り出し、出力要求の時点の{@link ThreadContext}を設定してロガーに出力する。
+ * <p/>
+ * キューに空きがない場合、出力要求は破棄せずに退避ファイルに追記する。
+ * 退避ファイルの内容は、キューが空になった時点、もしくは次回の起動時に出力スレッドが読み込んで出力する。
+ * 退避ファイルを経由した出力要求は、{@link ThreadContext}の内容とエラー情報のオブジェクトを保持しない。
+ * エラー情報はスタックトレースをメッセージに付与して出力する。
+ * また、キューを経由した出力要求との順序は保証しない。
+ * 退避ファイルが指定されていない場合や、退避ファイルへの書き込みに失敗した場合は、呼び出し元のスレッドで出力する。
+ * ロガーへの出力に失敗した出力要求は退避ファイルに退避し、後で再度出力する。
+ * <p/>
+ * 退避ファイルの出力中にプロセスが終了した場合は、次回の起動時に同じ内容を再度出力する。
+ * 退避ファイルの行のうち出力要求に復元できないものは、隔離ファイル(退避ファイルのパスに{@value #CORRUPT_SUFFIX}を付与したファイル)に
+ * 追記し、その件数を警告レベルで出力する。
+ */
+final class OperationLogChannel {
+
+    /** 退避ファイルの文字コード */
+    private static final Charset SPILL_FILE_CHARSET = Charset.forName("UTF-8");
+
+    /** 退避ファイルの出力中に使用するファイル名の接尾辞 */
+    private static final String REPLAYING_SUFFIX = ".replaying";
+
+    /** 出力要求に復元できない行を隔離するファイル名の接尾辞 */
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    /** 出力要求が無い場合に出力スレッドが待機する時間(ミリ秒) */
+    private static final long IDLE_WAIT_MILLIS = 100L;
+
+    /** 出力先のロガー */
+    private final Logger logger;
+
+    /** 出力要求のキュー */
+    private final BlockingQueue<Request> queue;
+
+    /** 退避ファイル(指定されていない場合はnull) */
+    private final File spillFile;
+
+    /** 出力中の退避ファイル(退避ファイルが指定されていない場合はnull) */
+    private final File replayingFile;
+
+    /** 出力要求に復元できない行を隔離するファイル(退避ファイルが指定されていない場合はnull) */
+    private final File corruptFile;
+
+    /** 退避ファイルの排他制御に使用するロック */
+    private final Object spillLock = new Object();
+
+    /** 出力していない退避ファイルが存在する可能性があるか否か */
+    private volatile boolean spilled;
+
+    /** 終了処理中か否か */
+    private volatile boolean closed;
+
+    /** 出力スレッド */
+    private final Thread writerThread;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * 出力スレッドを開始する。出力スレッドは、まず前回の起動時に退避した出力要求を出力する。
+     *
+     * @param logger 出力先のロガー
+     * @param queueSize キューの容量
+     * @param spillFile 退避ファイル(退避しない場合はnull)
+     */
+    OperationLogChannel(Logger logger, int queueSize, File spillFile) {
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize must be greater than 0. queueSize = " + queueSize);
+        }
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<Request>(queueSize);
+        this.spillFile = spillFile;
+        this.replayingFile = spillFile == null ? null : new File(spillFile.getPath() + REPLAYING_SUFFIX);
+        this.corruptFile = spillFile == null ? null : new File(spillFile.getPath() + CORRUPT_SUFFIX);
+        this.spilled = spillFile != null;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "nablarch-operation-logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 出力要求を行う。
+     *
+     * @param level ログレベル
+     * @param message メッセージ
+     * @param throwable 例外(nullの場合あり)
+     */
+    void write(LogLevel level, String message, Throwable throwable) {
+        final Request request = new Request(level, message, throwable, ThreadContext.capture());
+        if (closed || Thread.currentThread() == writerThread) {
+            writeToLogger(request);
+            return;
+        }
+        if (!queue.offer(request)) {
+            spill(request);
+            return;
+        }
+        if (closed) {
+            // 格納と並行して終了処理がキューを退避し終えた場合に備え、残った出力要求を退避する。
+            spillRest();
+        }
+    }
+
+    /**
+     * 出力先のロガーを取得する。
+     *
+     * @return 出力先のロガー
+     */
+    Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * 終了処理を開始したか否かを判定する。
+     *
+     * @return 終了処理を開始した場合はtrue
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 終了処理を行う。
+     * <p/>
+     * 出力スレッドがキューの出力要求を出力し終えるまで、指定された時間だけ待機する。
+     * 待機後もキューに残っている出力要求は退避ファイルに退避し、次回の起動時に出力する。
+     * 退避した後も出力スレッドがロガーへの出力から戻らない場合は、同じ時間だけ再度待機する。
+     *
+     * @param timeoutMillis 待機する最大時間(ミリ秒)
+     * @return 出力スレッドが終了した場合はtrue。ロガーへの出力から戻らずに終了していない場合はfalse
+     */
+    boolean close(long timeoutMillis) {
+        closed = true;
+        join(timeoutMillis);
+        spillRest();
+        if (writerThread.isAlive()) {
+            join(timeoutMillis);
+        }
+        return !writerThread.isAlive();
+    }
+
+    /**
+     * 出力スレッドが終了するまで、指定された時間だけ待機する。
+     *
+     * @param timeoutMillis 待機する最大時間(ミリ秒)
+     */
+    private void join(long timeoutMillis) {
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * キューに残っている出力要求を退避ファイルに退避する。
+     */
+    private void spillRest() {
+        final List<Request> rest = new ArrayList<Request>();
+        queue.drainTo(rest);
+        for (Request request : rest) {
+            spill(request);
+        }
+    }
+
+    /**
+     * 出力スレッドの処理を行う。
+     * <p/>
+     * 退避ファイルの出力中に実行時例外が発生した場合も、出力スレッドは終了せずに処理を継続する。
+     * 出力中の退避ファイルは削除せずに残すため、次回の出力で再度読み込む。
+     */
+    private void writeLoop() {
+        while (true) {
+            final Request request;
+            try {
+                request = queue.poll(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request != null) {
+                writeToLogger(request);
+            } else if (closed) {
+                return;
+            }
+            if (spilled && queue.isEmpty() && !closed) {
+                try {
+                    replay();
+                } catch (RuntimeException e) {
+                    spilled = true;
+                    System.err.println("failed to replay the operation log. file path = ["
+                            + replayingFile.getPath() + "]");
+                    e.printStackTrace(System.err);
+                }
+            }
+        }
+    }
+
+    /**
+     * 出力要求を退避ファイルに追記する。
+     * <p/>
+     * 退避できない場合は、呼び出し元のスレッドで出力する。
+     *
+     * @param request 出力要求
+     */
+    private void spill(Request request) {
+        if (!appendToSpillFile(request) && !writeToLoggerQuietly(request)) {
+            reportLost(request);
+        }
+    }
+
+    /**
+     * 出力要求を退避ファイルに追記する。
+     *
+     * @param request 出力要求
+     * @return 追記できた場合はtrue。退避ファイルが指定されていない場合や、追記に失敗した場合はfalse
+     */
+    private boolean appendToSpillFile(Request request) {
+        if (spillFile == null) {
+            return false;
+        }
+        synchronized (spillLock) {
+            Writer writer = null;
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(spillFile, true), SPILL_FILE_CHARSET));
+                writer.write(request.toRecord());
+                writer.write('\n');
+                writer.flush();
+                spilled = true;
+                return true;
+            } catch (IOException e) {
+                System.err.println("failed to spill the operation log. file path = [" + spillFile.getPath() + "]");
+                e.printStackTrace(System.err);
+                return false;
+            } finally {
+                FileUtil.closeQuietly(writer);
+            }
+        }
+    }
+
+    /**
+     * 退避ファイルの出力要求を出力する。
+     * <p/>
+     * 退避ファイルは出力中のファイル名に変更してから読み込み、出力し終えた後に削除する。
+     * 出力中のファイルが残っている場合は、前回の出力が中断されたものとしてそのファイルから出力する。
+     */
+    private void replay() {
+        synchronized (spillLock) {
+            spilled = false;
+            if (!replayingFile.exists()) {
+                if (!spillFile.exists()) {
+                    return;
+                }
+                if (!spillFile.renameTo(replayingFile)) {
+                    System.err.println("failed to rename the operation log spill file. file path = ["
+                            + spillFile.getPath() + "]");
+                    return;
+                }
+            } else {
+                spilled = spillFile.exists();
+            }
+        }
+        final List<String> corruptLines = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(replayingFile), SPILL_FILE_CHARSET));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0) {
+                    continue;
+                }
+                final Request request;
+                try {
+                    request = Request.fromRecord(line);
+                } catch (IllegalArgumentException e) {
+                    corruptLines.add(line);
+                    continue;
+                }
+                writeToLogger(request);
+            }
+        } catch (IOException e) {
+            System.err.println("failed to replay the operation log. file path = [" + replayingFile.getPath() + "]");
+            e.printStackTrace(System.err);
+            return;
+        } finally {
+            FileUtil.closeQuietly(reader);
+        }
+        if (!corruptLines.isEmpty()) {
+            quarantine(corruptLines);
+        }
+        if (!replayingFile.delete()) {
+            System.err.println("failed to delete the operation log spill file. file path = ["
+                    + replayingFile.getPath() + "]");
+        }
+    }
+
+    /**
+     * 出力要求に復元できない行を隔離ファイルに追記し、その件数を警告レベルで出力する。
+     *
+     * @param lines 出力要求に復元できない行
+     */
+    private void quarantine(List<String> lines) {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(corruptFile, true), SPILL_FILE_CHARSET));
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("failed to quarantine the operation log. file path = [" + corruptFile.getPath() + "]");
+            e.printStackTrace(System.err);
+        } finally {
+            FileUtil.closeQuietly(writer);
+        }
+        writeToLogger(new Request(LogLevel.WARN, "the operation log spill file contained invalid records."
+                + " count = [" + lines.size() + "], file path = [" + corruptFile.getPath() + "]", null, null));
+    }
+
+    /**
+     * 出力要求をロガーに出力する。
+     * <p/>
+     * 出力に失敗した場合は退避ファイルに退避し、後で再度出力する。
+     *
+     * @param request 出力要求
+     */
+    private void writeToLogger(Request request) {
+        if (!writeToLoggerQuietly(request) && !appendToSpillFile(request)) {
+            reportLost(request);
+        }
+    }
+
+    /**
+     * 出力要求をロガーに出力する。
+     *
+     * @param request 出力要求
+     * @return 出力できた場合はtrue。ロガーが実行時例外を送出した場合はfalse
+     */
+    private boolean writeToLoggerQuietly(final Request request) {
+        try {
+            if (request.snapshot == null) {
+                OperationLogger.writeTo(logger, request.level, request.message, request.throwable);
+                return true;
+            }
+            ThreadContext.runWith(request.snapshot, new Runnable() {
+                @Override
+                public void run() {
+                    OperationLogger.writeTo(logger, request.level, request.message, request.throwable);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * ロガーにも退避ファイルにも出力できなかった出力要求を標準エラー出力に出力する。
+     *
+     * @param request 出力要求
+     */
+    private static void reportLost(Request request) {
+        System.err.println("failed to write the operation log. record = [" + request.toRecord() + "]");
+    }
+
+    /**
+     * 運用ログの出力要求。
+     */
+    static final class Request {
+
+        /** 退避ファイルの項目の区切り文字 */
+        private static final char SEPARATOR = '\t';
+
+        /** ログレベル */
+        private final LogLevel level;
+
+        /** メッセージ */
+        private final String message;
+
+        /** 例外 */
+        private final Throwable throwable;
+
+        /** 出力要求の時点のスレッドコンテキスト */
+        private final ThreadContext.Snapshot snapshot;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param level ログレベル
+         * @param message メッセージ
+         * @param throwable 例外(nullの場合あり)
+         * @param snapshot スレッドコンテキスト(nullの場合あり)
+         */
+        Request(LogLevel level, String message, Throwable throwable, ThreadContext.Snapshot snapshot) {
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * 退避ファイルの1行に変換する。
+         * <p/>
+         * ログレベルとメッセージを区切り文字で連結する。例外はスタックトレースをメッセージに付与する。
+         *
+         * @return 退避ファイルの1行
+         */
+        String toRecord() {
+            String text = message;
+            if (throwable != null) {
+                final StringWriter trace = new StringWriter();
+                throwable.printStackTrace(new PrintWriter(trace));
+                text = message + System.getProperty("line.separator") + trace;
+            }
+            final StringBuilder record = new StringBuilder(level.name()).append(SEPARATOR);
+            escape(record, text);
+            return record.toString();
+        }
+
+        /**
+         * 退避ファイルの1行から出力要求を復元する。
+         *
+         * @param record 退避ファイルの1行
+         * @return 出力要求
+         * @throws IllegalArgumentException 区切り文字を含まない場合や、ログレベルが不正な場合
+         */
+        static Request fromRecord(String record) {
+            final int index = record.indexOf(SEPARATOR);
+            if (index < 0) {
+                throw new IllegalArgumentException("the record has no separator. record = [" + record + "]");
+            }
+            return new Request(LogLevel.valueOf(record.substring(0, index)),
+                    unescape(record.substring(index + 1)), null, null);
+        }
+
+        /**
+         * 改行文字等をエスケープしてバッファに追加する。
+         *
+         * @param buffer バッファ
+         * @param text 文字列(nullの場合あり)
+         */
+        private static void escape(StringBuilder buffer, String text) {
+            if (text == null) {
+                buffer.append("\\0");
+                return;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                switch (c) {
+                    case '\\':
+                        buffer.append("\\\\");
+                        break;
+                    case '\n':
+                        buffer.append("\\n");
+                        break;
+                    case '\r':
+                        buffer.append("\\r");
+                        break;
+                    case '\t':
+                        buffer.append("\\t");
+                        break;
+                    default:
+                        buffer.append(c);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * {@link #escape(StringBuilder, String)}でエスケープした文字列を元に戻す。
+         *
+         * @param text エスケープした文字列
+         * @return 元の文字列
+         */
+        private static String unescape(String text) {
+            if ("\\0".equals(text)) {
+                return null;
+            }
+            final StringBuilder buffer = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c != '\\' || i + 1 == text.length()) {
+                    buffer.append(c);
+                    continue;
+                }
+                final char next = text.charAt(++i);
+                switch (next) {
+                    case 'n':
+                        buffer.append('\n');
+                        break;
+                    case 'r':
+                        buffer.append('\r');
+                        break;
+                    case 't':
+                        buffer.append('\t');
+                        break;
+                    default:
+                        buffer.append(next);
+                        break;
+                }
+            }
+            return buffer.toString();
+        }
+    }
+}
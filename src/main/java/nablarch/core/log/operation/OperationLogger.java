@@ -1,5 +1,9 @@
 package nablarch.core.log.operation;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
 import nablarch.core.log.Logger;
 import nablarch.core.log.LoggerManager;
 import nablarch.core.log.basic.LogLevel;
@@ -7,6 +11,24 @@ import nablarch.core.util.annotation.Published;
 
 /**
  * 運用担当者向けの通知ログを出力するロガー
+ * <p/>
+ * デフォルトでは、呼び出し元のスレッドで"operator"ロガーに出力する。
+ * システムプロパティ"nablarch.operationLog.async"にtrueを指定した場合は、運用通知ログ専用のスレッドで出力し、
+ * アプリケーションのログ出力と競合したり、通知を行うスレッドを待たせたりしないようにする。
+ * この場合、下記のシステムプロパティを使用する。
+ * <pre>
+ * nablarch.operationLog.queueSize
+ *     出力要求のキューの容量。デフォルトは1024。
+ * nablarch.operationLog.spillFilePath
+ *     キューに空きがない場合に出力要求を退避するファイルのパス。
+ *     退避した出力要求は、キューが空になった時点、もしくは次回の起動時に出力する。
+ *     指定しない場合は、キューに空きがなければ呼び出し元のスレッドで出力する。
+ * </pre>
+ * いずれの場合も、出力要求を破棄することはない。
+ * {@link LoggerManager#terminate()}の呼び出し時には、ロガーの終了処理を行う前に出力スレッドを終了させる。
+ * 待機後も出力し終えていない出力要求は退避ファイルに退避し、終了処理中の出力要求は呼び出し元のスレッドで出力する。
+ * 出力スレッドがロガーへの出力から戻らない場合は、出力中のロガーを終了させないよう、ロガーの終了処理を行わせない。
+ * 終了処理の後にロガーが再度初期化された場合は、最初の出力要求の時点で出力スレッドを新たに開始する。
  *
  * @author Naoki Yamamoto
  */
@@ -19,6 +41,74 @@ public final class OperationLogger {
     /** ロガー */
     private static final Logger LOGGER = LoggerManager.get("operator");
 
+    /** 出力要求のキューの容量のデフォルト値 */
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /** 終了処理で出力要求を出力し終えるまで待機する最大時間(ミリ秒) */
+    private static final long SHUTDOWN_TIMEOUT = 5000L;
+
+    /** 運用通知ログを専用のスレッドで出力するか否か */
+    private static final boolean ASYNC = Boolean.getBoolean("nablarch.operationLog.async");
+
+    /** 運用通知ログ専用の出力チャネル(生成していない場合はnull) */
+    private static volatile OperationLogChannel channel;
+
+    /**
+     * 運用通知ログ専用の出力チャネルを取得する。
+     *
+     * @return 出力チャネル。専用のスレッドで出力しない場合はnull
+     */
+    private static OperationLogChannel getChannel() {
+        return ASYNC ? getOrCreateChannel() : null;
+    }
+
+    /**
+     * 運用通知ログ専用の出力チャネルを取得する。
+     * <p/>
+     * 出力チャネルを生成していない場合や、ロガーの終了処理で終了した後にロガーが再度初期化された場合は、
+     * その時点のロガーに出力する出力チャネルを生成し、ロガーの終了処理で終了させるよう登録する。
+     * ロガーの終了処理中は、終了した出力チャネルを返す(呼び出し元のスレッドで出力される)。
+     *
+     * @return 出力チャネル
+     */
+    static OperationLogChannel getOrCreateChannel() {
+        OperationLogChannel current = channel;
+        if (current != null && !current.isClosed()) {
+            return current;
+        }
+        final Logger logger = LoggerManager.get("operator");
+        synchronized (OperationLogger.class) {
+            current = channel;
+            if (current == null || (current.isClosed() && current.getLogger() != logger)) {
+                current = createChannel(logger);
+                channel = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * システムプロパティの設定に応じて、運用通知ログ専用の出力チャネルを生成する。
+     *
+     * @param logger 出力先のロガー
+     * @return 出力チャネル
+     */
+    private static OperationLogChannel createChannel(Logger logger) {
+        final String spillFilePath = System.getProperty("nablarch.operationLog.spillFilePath");
+        final OperationLogChannel created = new OperationLogChannel(logger,
+                Integer.getInteger("nablarch.operationLog.queueSize", DEFAULT_QUEUE_SIZE),
+                spillFilePath == null || spillFilePath.length() == 0 ? null : new File(spillFilePath));
+        LoggerManager.addCloseable(new Closeable() {
+            @Override
+            public void close() throws IOException {
+                if (!created.close(SHUTDOWN_TIMEOUT)) {
+                    throw new IOException("the operation log writer did not finish within the shutdown timeout.");
+                }
+            }
+        });
+        return created;
+    }
+
     /**
      * メッセージをログに出力する。
      *
@@ -26,53 +116,90 @@ public final class OperationLogger {
      * @param message メッセージ
      */
     public static void write(final LogLevel level, final String message) {
+        final OperationLogChannel current = getChannel();
+        if (current != null) {
+            current.write(level, message, null);
+        } else {
+            writeTo(LOGGER, level, message);
+        }
+    }
+
+    /**
+     * メッセージをログに出力する。
+     * @param level ログレベル
+     * @param message メッセージ
+     * @param throwable 例外
+     */
+    public static void write(final LogLevel level, final String message, final Throwable throwable) {
+        final OperationLogChannel current = getChannel();
+        if (current != null) {
+            current.write(level, message, throwable);
+        } else {
+            writeTo(LOGGER, level, message, throwable);
+        }
+    }
+
+    /**
+     * メッセージを指定されたロガーに出力する。
+     *
+     * @param logger ロガー
+     * @param level ログレベル
+     * @param message メッセージ
+     * @param throwable 例外(nullの場合は例外を指定せずに出力する)
+     */
+    static void writeTo(final Logger logger, final LogLevel level, final String message, final Throwable throwable) {
+        if (throwable == null) {
+            writeTo(logger, level, message);
+            return;
+        }
         switch (level) {
             case FATAL:
-                LOGGER.logFatal(message);
+                logger.logFatal(message, throwable);
                 break;
             case ERROR:
-                LOGGER.logError(message);
+                logger.logError(message, throwable);
                 break;
             case WARN:
-                LOGGER.logWarn(message);
+                logger.logWarn(message, throwable);
                 break;
             case INFO:
-                LOGGER.logInfo(message);
+                logger.logInfo(message, throwable);
                 break;
             case DEBUG:
-                LOGGER.logDebug(message);
+                logger.logDebug(message, throwable);
                 break;
             case TRACE:
-                LOGGER.logTrace(message);
+                logger.logTrace(message, throwable);
                 break;
         }
     }
 
     /**
-     * メッセージをログに出力する。
+     * メッセージを指定されたロガーに出力する。
+     *
+     * @param logger ロガー
      * @param level ログレベル
      * @param message メッセージ
-     * @param throwable 例外
      */
-    public static void write(final LogLevel level, final String message, final Throwable throwable) {
+    private static void writeTo(final Logger logger, final LogLevel level, final String message) {
         switch (level) {
             case FATAL:
-                LOGGER.logFatal(message, throwable);
+                logger.logFatal(message);
                 break;
             case ERROR:
-                LOGGER.logError(message, throwable);
+                logger.logError(message);
                 break;
             case WARN:
-                LOGGER.logWarn(message, throwable);
+                logger.logWarn(message);
                 break;
             case INFO:
-                LOGGER.logInfo(message, throwable);
+                logger.logInfo(message);
                 break;
             case DEBUG:
-                LOGGER.logDebug(message, throwable);
+                logger.logDebug(message);
                 break;
             case TRACE:
-                LOGGER.logTrace(message, throwable);
+                logger.logTrace(message);
                 break;
         }
     }
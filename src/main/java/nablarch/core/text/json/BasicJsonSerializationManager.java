@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@link JsonSerializationManager}の基本実装クラス。
@@ -26,9 +27,9 @@ public class BasicJsonSerializationManager implements JsonSerializationManager {
     /** objectのmember name用のシリアライザ */
     private JsonSerializer memberNameSerializer;
 
-    /** ClassごとのJsonSerializerのキャッシュ */
+    /** ClassごとのJsonSerializerのキャッシュ(複数スレッドから同時に使用されるためConcurrentHashMapとする) */
     private final Map<Class<?>, JsonSerializer> jsonSerializerCache
-            = new HashMap<Class<?>, JsonSerializer>();
+            = new ConcurrentHashMap<Class<?>, JsonSerializer>();
 
     /**
      * {@inheritDoc}
@@ -127,8 +128,9 @@ public class BasicJsonSerializationManager implements JsonSerializationManager {
             return nullSerializer;
         } else {
             Class<?> cls = value.getClass();
-            if (jsonSerializerCache.containsKey(cls)) {
-                return jsonSerializerCache.get(cls);
+            JsonSerializer cached = jsonSerializerCache.get(cls);
+            if (cached != null) {
+                return cached;
             }
             for (JsonSerializer serializer : serializers) {
                 if (serializer.isTarget(cls)) {
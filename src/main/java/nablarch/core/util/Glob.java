@@ -5,8 +5,11 @@ import java.util.regex.Pattern;
 
 /**
  * Glob書式を{@link Pattern}オブジェクトに変換するユーティリティクラス。
+ * <p/>
+ * 照合のみを行う場合は、正規表現を使用せずに同じ照合を行う{@link GlobMatcher}を使用することを推奨する。
  * @author Iwauo Tajima
  * @see Pattern
+ * @see GlobMatcher
  */
 public final class Glob {
     
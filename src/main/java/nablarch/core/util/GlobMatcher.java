@@ -0,0 +1,237 @@
+package nablarch.core.util;
+
+/**
+ * Glob書式による文字列の照合を、正規表現を使用せずに行うクラス。
+ * <p/>
+ * {@link Glob#compile(String)}が返す正規表現と同じ文字列に合致する。
+ * <pre>
+ *   '*' : '/'を除く任意の文字の0文字以上の列に合致する。
+ *   '?' : '/'を除く任意の1文字に合致する。
+ *   上記以外 : その文字自体に合致する。
+ *   空文字列もしくはnull : "*"と等価。
+ * </pre>
+ * グロブ式は、コンパイル時に'*'で区切った断片に分解しておく。
+ * 照合時は先頭の断片を前方一致、末尾の断片を後方一致で照合し、
+ * 残りの断片をその間から左端優先で検索する。
+ * バックトラックを行わないため、照合に要する時間は入力文字列の長さに対してほぼ線形であり、
+ * {@link java.util.regex.Matcher}のようなオブジェクトも生成しない。
+ * <p/>
+ * 本クラスのインスタンスは不変であり、スレッドセーフである。
+ *
+ * @see Glob
+ */
+public final class GlobMatcher {
+
+    /** 任意の1文字に合致するワイルドカード */
+    private static final char ANY_CHAR = '?';
+
+    /** 任意の文字列に合致するワイルドカード */
+    private static final char ANY_STRING = '*';
+
+    /** ワイルドカードに合致しない文字 */
+    private static final char SEPARATOR = '/';
+
+    /** グロブ式 */
+    private final String glob;
+
+    /** グロブ式を'*'で区切った断片 */
+    private final String[] fragments;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param glob グロブ式
+     * @param fragments グロブ式を'*'で区切った断片
+     */
+    private GlobMatcher(String glob, String[] fragments) {
+        this.glob = glob;
+        this.fragments = fragments;
+    }
+
+    /**
+     * グロブ式をコンパイルする。
+     *
+     * @param glob グロブ式
+     * @return コンパイル済みのグロブ式
+     */
+    public static GlobMatcher compile(String glob) {
+        if (StringUtil.isNullOrEmpty(glob)) {
+            return new GlobMatcher(glob, new String[] {"", ""});
+        }
+        int stars = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == ANY_STRING) {
+                stars++;
+            }
+        }
+        final String[] fragments = new String[stars + 1];
+        int head = 0;
+        int index = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == ANY_STRING) {
+                fragments[index++] = glob.substring(head, i);
+                head = i + 1;
+            }
+        }
+        fragments[index] = glob.substring(head);
+        return new GlobMatcher(glob, fragments);
+    }
+
+    /**
+     * 文字列全体がグロブ式に合致するか否かを判定する。
+     *
+     * @param input 判定対象の文字列
+     * @return 合致する場合は{@code true}
+     */
+    public boolean matches(CharSequence input) {
+        return matches(input, 0, input.length());
+    }
+
+    /**
+     * 文字列の指定された範囲全体がグロブ式に合致するか否かを判定する。
+     *
+     * @param input 判定対象の文字列
+     * @param start 判定範囲の開始位置
+     * @param end 判定範囲の終了位置(この位置の文字は含まない)
+     * @return 合致する場合は{@code true}
+     */
+    public boolean matches(CharSequence input, int start, int end) {
+        if (fragments.length == 1) {
+            return matchForward(input, start, end, fragments[0]) == end;
+        }
+        int pos = matchForward(input, start, end, fragments[0]);
+        if (pos < 0) {
+            return false;
+        }
+        final int last = fragments.length - 1;
+        final int suffixStart = matchBackward(input, pos, end, fragments[last]);
+        if (suffixStart < 0 || splitsSurrogatePair(input, suffixStart)) {
+            return false;
+        }
+        for (int i = 1; i < last; i++) {
+            // '*'は'/'に合致しないため、断片の開始位置は次の'/'を越えない。
+            final int limit = indexOfSeparator(input, pos, suffixStart);
+            int matchedEnd = -1;
+            for (int candidate = pos; candidate <= limit; candidate++) {
+                if (splitsSurrogatePair(input, candidate)) {
+                    continue;
+                }
+                matchedEnd = matchForward(input, candidate, suffixStart, fragments[i]);
+                if (matchedEnd >= 0) {
+                    break;
+                }
+            }
+            if (matchedEnd < 0) {
+                return false;
+            }
+            pos = matchedEnd;
+        }
+        return indexOfSeparator(input, pos, suffixStart) == suffixStart;
+    }
+
+    /**
+     * 断片を指定された位置から前方に向かって照合する。
+     *
+     * @param input 判定対象の文字列
+     * @param from 照合の開始位置
+     * @param to 照合範囲の終了位置
+     * @param fragment 断片
+     * @return 照合が成功した場合は断片に合致した範囲の終了位置。失敗した場合は-1
+     */
+    private static int matchForward(CharSequence input, int from, int to, String fragment) {
+        int pos = from;
+        for (int i = 0; i < fragment.length(); i++) {
+            if (pos >= to) {
+                return -1;
+            }
+            final char c = input.charAt(pos);
+            final char p = fragment.charAt(i);
+            if (p == ANY_CHAR) {
+                if (c == SEPARATOR) {
+                    return -1;
+                }
+                pos += (Character.isHighSurrogate(c) && pos + 1 < to
+                        && Character.isLowSurrogate(input.charAt(pos + 1))) ? 2 : 1;
+            } else if (c == p) {
+                pos++;
+            } else {
+                return -1;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 断片を指定された位置から後方に向かって照合する。
+     *
+     * @param input 判定対象の文字列
+     * @param from 照合範囲の開始位置
+     * @param to 照合の開始位置(この位置の直前の文字から照合する)
+     * @param fragment 断片
+     * @return 照合が成功した場合は断片に合致した範囲の開始位置。失敗した場合は-1
+     */
+    private static int matchBackward(CharSequence input, int from, int to, String fragment) {
+        int pos = to;
+        for (int i = fragment.length() - 1; i >= 0; i--) {
+            if (pos <= from) {
+                return -1;
+            }
+            final char c = input.charAt(pos - 1);
+            final char p = fragment.charAt(i);
+            if (p == ANY_CHAR) {
+                if (c == SEPARATOR) {
+                    return -1;
+                }
+                pos -= (Character.isLowSurrogate(c) && pos - 2 >= from
+                        && Character.isHighSurrogate(input.charAt(pos - 2))) ? 2 : 1;
+            } else if (c == p) {
+                pos--;
+            } else {
+                return -1;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 指定された範囲から最初の'/'の位置を検索する。
+     *
+     * @param input 検索対象の文字列
+     * @param from 検索範囲の開始位置
+     * @param to 検索範囲の終了位置
+     * @return 最初の'/'の位置。存在しない場合は{@code to}
+     */
+    private static int indexOfSeparator(CharSequence input, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) == SEPARATOR) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 指定された位置がサロゲートペアの途中であるか否か。
+     * <p/>
+     * '*'はコードポイント単位で文字に合致するため、サロゲートペアの途中で終わることはない。
+     *
+     * @param input 文字列
+     * @param index 位置
+     * @return サロゲートペアの途中である場合は{@code true}
+     */
+    private static boolean splitsSurrogatePair(CharSequence input, int index) {
+        return index > 0 && index < input.length()
+                && Character.isLowSurrogate(input.charAt(index))
+                && Character.isHighSurrogate(input.charAt(index - 1));
+    }
+
+    /**
+     * グロブ式を返す。
+     *
+     * @return グロブ式
+     */
+    @Override
+    public String toString() {
+        return glob;
+    }
+}
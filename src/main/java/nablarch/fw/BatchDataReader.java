@@ -0,0 +1,37 @@
+package nablarch.fw;
+
+import java.util.List;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 複数件の入力データをまとめて読み込むことができる{@link DataReader}。
+ * <p/>
+ * {@link ExecutionContext#readNextBatch(int)}は、データリーダが本インタフェースを実装している場合、
+ * {@link #read(ExecutionContext, List, int)}を呼び出して1回の呼び出しで複数件のデータを読み込む。
+ * 実装していない場合は、{@link #hasNext(ExecutionContext)}と{@link #read(ExecutionContext)}を
+ * 繰り返し呼び出して読み込む。
+ * <p/>
+ * まとめて読み込んだデータは、後続のハンドラでバルクインサート等の一括処理に使用することができる。
+ * <p/>
+ * {@link DataReader}と同様に、各メソッドはスレッドセーフに実装されなければならない。
+ * 複数のスレッドから並行して呼び出された場合でも、同じデータが複数のスレッドに返されてはならない。
+ *
+ * @param <TData> このクラスが読み込んだデータの型
+ */
+@Published(tag = "architect")
+public interface BatchDataReader<TData> extends DataReader<TData> {
+
+    /**
+     * 入力データを最大で指定された件数まで読み込み、呼び出し元が用意したリストの末尾に追加する。
+     * <p/>
+     * 入力データがこれ以上存在しない場合は、リストに何も追加せずに0を返すこと。
+     * 指定された件数に満たない件数を返した場合でも、次の呼び出しでデータを返してよい。
+     *
+     * @param ctx 実行コンテキスト
+     * @param buffer 読み込んだデータを追加するリスト
+     * @param maxCount 読み込む最大件数(1以上)
+     * @return 読み込んだ件数
+     */
+    int read(ExecutionContext ctx, List<? super TData> buffer, int maxCount);
+}
@@ -0,0 +1,277 @@
+package nablarch.fw;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 実行コンテキストのハンドラキューの処理を、入力データごとに別スレッドで並行して実行するクラス。
+ * <p/>
+ * 入力データごとに実行コンテキストを{@link ExecutionContext#copy()}で複製し、
+ * 複製した実行コンテキストの{@link ExecutionContext#handleNext(Object)}を別スレッドで呼び出す。
+ * <p/>
+ * 仮想スレッドを使用できるJDKで実行した場合は、処理ごとに仮想スレッドを生成する。
+ * データベースアクセスや外部システムとの通信等、I/O待ちが主となる処理を大量に並行して実行する場合に使用する。
+ * 仮想スレッドを使用できない場合、もしくは{@link #setUseVirtualThreads(boolean)}で無効にした場合は、
+ * 必要に応じてスレッドを生成するスレッドプールを使用する。
+ * <p/>
+ * {@link ThreadContext}の内容は、スレッドの継承ではなく{@link ThreadContext#capture()}により
+ * 処理の投入時に取得し、{@link ThreadContext#runWith(ThreadContext.Snapshot, Callable)}により処理の実行中のみ設定する。
+ * このため、仮想スレッドの生成時に{@link InheritableThreadLocal}の内容は複製されない。
+ * <p/>
+ * {@link #setMaxConcurrency(int)}を指定した場合、同時に実行する処理の数がその値を超える場合は、
+ * 処理を投入するスレッドが実行中の処理の終了を待機する。
+ * <p/>
+ * 本クラスはスレッドセーフである。使用を終えた場合は{@link #shutdown()}を呼び出すこと。
+ */
+@Published(tag = "architect")
+public class ConcurrentHandlerExecutor {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(ConcurrentHandlerExecutor.class);
+
+    /** 仮想スレッドを生成するスレッドファクトリ(使用できない場合はnull) */
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    /** 仮想スレッドを使用するか否か */
+    private boolean useVirtualThreads = true;
+
+    /** 同時に実行する処理の数の上限(0の場合は上限なし) */
+    private int maxConcurrency = 0;
+
+    /** 同時に実行する処理の数を制限するセマフォ(上限なしの場合はnull) */
+    private Semaphore permits;
+
+    /** 処理を実行するスレッドプール(最初に処理を投入する時点で生成する) */
+    private ExecutorService executor;
+
+    /**
+     * 仮想スレッドを使用するか否かを設定する。
+     * <p/>
+     * デフォルトは{@code true}である。仮想スレッドを使用できないJDKでは、本設定に関わらず使用しない。
+     * 最初に処理を投入する前に設定すること。
+     *
+     * @param useVirtualThreads 仮想スレッドを使用する場合は{@code true}
+     */
+    public synchronized void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * 同時に実行する処理の数の上限を設定する。
+     * <p/>
+     * デフォルトは0(上限なし)である。最初に処理を投入する前に設定すること。
+     *
+     * @param maxConcurrency 同時に実行する処理の数の上限(0の場合は上限なし)
+     * @throws IllegalArgumentException 負の値を指定した場合
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must not be negative. maxConcurrency = " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 実行しているJDKで仮想スレッドを使用できるか否か。
+     *
+     * @return 仮想スレッドを使用できる場合は{@code true}
+     */
+    public static boolean isVirtualThreadAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * 実行コンテキストを複製し、後続ハンドラの処理を別スレッドで実行する。
+     * <p/>
+     * 実行コンテキストの複製及び{@link ThreadContext}の内容の取得は、呼び出し元のスレッドで行う。
+     *
+     * @param <TData> 入力データの型
+     * @param <TResult> 処理結果の型
+     * @param context 実行コンテキスト
+     * @param data 入力データ
+     * @return 処理結果
+     */
+    public <TData, TResult> Future<TResult> dispatch(ExecutionContext context, final TData data) {
+        final ExecutionContext copy = context.copy();
+        final ThreadContext.Snapshot snapshot = ThreadContext.capture();
+        final ExecutorService executorService;
+        final Semaphore semaphore;
+        synchronized (this) {
+            executorService = getExecutorService();
+            semaphore = permits;
+        }
+        if (semaphore != null) {
+            semaphore.acquireUninterruptibly();
+        }
+        try {
+            return executorService.submit(new Callable<TResult>() {
+                @Override
+                public TResult call() throws Exception {
+                    try {
+                        return ThreadContext.runWith(snapshot, new Callable<TResult>() {
+                            @Override
+                            public TResult call() {
+                                return copy.handleNext(data);
+                            }
+                        });
+                    } finally {
+                        if (semaphore != null) {
+                            semaphore.release();
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (semaphore != null) {
+                semaphore.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 入力データごとに実行コンテキストを複製し、後続ハンドラの処理を並行して実行する。
+     * <p/>
+     * 全ての処理が終了するまで待機し、処理結果を入力データの順序で返す。
+     * いずれかの処理で例外が発生した場合は、全ての処理が終了した後に、
+     * 最も順序が前の入力データの処理で発生した例外を送出する。
+     * それ以外の処理で発生した例外は、送出する例外の抑制された例外として追加する。
+     *
+     * @param <TData> 入力データの型
+     * @param <TResult> 処理結果の型
+     * @param context 実行コンテキスト
+     * @param inputs 入力データ
+     * @return 処理結果
+     */
+    public <TData, TResult> List<TResult> dispatchAll(ExecutionContext context, Collection<? extends TData> inputs) {
+        final List<Future<TResult>> futures = new ArrayList<Future<TResult>>(inputs.size());
+        for (TData data : inputs) {
+            futures.add(this.<TData, TResult>dispatch(context, data));
+        }
+        return FutureResults.awaitAll(futures);
+    }
+
+    /**
+     * スレッドプールをシャットダウンする。
+     * <p/>
+     * 実行中の処理は中断しない。シャットダウン後に処理を投入した場合は、新たなスレッドプールを生成する。
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * 処理を実行するスレッドプールを生成する。
+     * <p/>
+     * デフォルト実装では、仮想スレッドを使用する場合は処理ごとに仮想スレッドを生成するスレッドプールを、
+     * それ以外の場合は必要に応じてデーモンスレッドを生成するスレッドプールを生成する。
+     *
+     * @param virtualThreads 仮想スレッドを使用する場合は{@code true}
+     * @return スレッドプール
+     */
+    protected ExecutorService createExecutorService(boolean virtualThreads) {
+        if (virtualThreads) {
+            final ExecutorService virtualThreadExecutor = newThreadPerTaskExecutor(VIRTUAL_THREAD_FACTORY);
+            if (virtualThreadExecutor != null) {
+                return virtualThreadExecutor;
+            }
+        }
+        final AtomicLong sequence = new AtomicLong();
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                final Thread thread = new Thread(task, "concurrent-handler-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * スレッドプールを取得する。
+     * <p/>
+     * 生成されていない場合は生成する。
+     *
+     * @return スレッドプール
+     */
+    private synchronized ExecutorService getExecutorService() {
+        if (executor == null) {
+            permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+            executor = createExecutorService(useVirtualThreads && isVirtualThreadAvailable());
+        }
+        return executor;
+    }
+
+    /**
+     * 仮想スレッドを生成するスレッドファクトリを生成する。
+     * <p/>
+     * 本モジュールは仮想スレッドを持たないJDKでもコンパイルできるよう、リフレクションを使用して生成する。
+     * 生成されるスレッドは{@link InheritableThreadLocal}の内容を引き継がない。
+     *
+     * @return スレッドファクトリ。仮想スレッドを使用できない場合はnull
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                                  .invoke(builder, "concurrent-handler-", 1L);
+            builder = builderClass.getMethod("inheritInheritableThreadLocals", boolean.class)
+                                  .invoke(builder, false);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return factory;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // プレビュー機能が無効なJDKでは、UnsupportedOperationExceptionが送出される。
+            LOGGER.logDebug("virtual threads are not available. cause = " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * 処理ごとにスレッドを生成するスレッドプールを生成する。
+     *
+     * @param factory スレッドファクトリ
+     * @return スレッドプール。生成できない場合はnull
+     */
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        if (factory == null) {
+            return null;
+        }
+        try {
+            final Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+    }
+}
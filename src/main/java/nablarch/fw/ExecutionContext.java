@@ -1,6 +1,7 @@
 package nablarch.fw;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,8 +36,7 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
 
     // ------------------------------------------------ Internal structure
     /** ハンドラキュー */
-    @SuppressWarnings("rawtypes")
-    private final ArrayList<Handler> handlerQueue;
+    private final HandlerQueue handlerQueue;
 
     /** データリーダ */
     private DataReader<?> reader = null;
@@ -44,15 +44,18 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
     /** データリーダファクトリ */
     private DataReaderFactory<?> readerFactory = null;
 
-    /** セッションスコープ上の変数を格納したMap */
+    /** セッションスコープ上の変数を格納したMap(最初に参照された時点で生成する) */
     private Map<String, Object> sessionScopeMap = null;
 
-    /** セッションストア上の変数を格納したMap */
+    /** セッションストア上の変数を格納したMap(最初に参照された時点で生成する) */
     private Map<String, Object> sessionStoreMap = null;
 
-    /** リクエストスコープ上の変数を格納するMap */
+    /** リクエストスコープ上の変数を格納するMap(最初に参照された時点で生成する) */
     private Map<String, Object> requestScopeMap = null;
 
+    /** リクエストスコープのMapをこの実行コンテキストが生成したか否か */
+    private boolean requestScopeMapOwned = false;
+
     /** この実行コンテキストによって最後に読み込まれたデータ */
     private Object lastReadData = null;
 
@@ -72,6 +75,23 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
         return handlerQueue;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * {@link HandlerPipeline}を指定した場合、その内部配列を複製せずに共有するため、
+     * ハンドラの数によらず一定時間で完了する。
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public ExecutionContext setHandlerQueue(Collection<? extends Handler> handlers) {
+        if (handlers instanceof HandlerPipeline && getHandlerQueue() == handlerQueue) {
+            handlerQueue.share(((HandlerPipeline) handlers).handlers());
+            clearCompiledHandlerQueue();
+            return this;
+        }
+        return super.setHandlerQueue(handlers);
+    }
+
     /**
      * ハンドラキュー上の次のハンドラに処理を委譲する。
      *
@@ -102,6 +122,9 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
 
     /**
      * ハンドラキュー上の次のハンドラを取得する。
+     * <p/>
+     * 取得したハンドラはハンドラキューから取り除かれる。
+     * この処理はハンドラキューのカーソルを進めるだけなので、後続ハンドラの数によらず一定時間で完了する。
      *
      * @param <TData>   処理対象データの型
      * @param <TResult> 処理結果データの型
@@ -194,14 +217,12 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
     // ---------------------------------------------- Constructors
     /**
      * デフォルトコンストラクタ
+     * <p/>
+     * 各スコープのMapは、最初に参照された時点で生成する。
      */
-    @SuppressWarnings("rawtypes")
     @Published(tag = "architect")
     public ExecutionContext() {
-        handlerQueue    = new ArrayList<Handler>();
-        requestScopeMap = new HashMap<String, Object>();
-        sessionStoreMap = new HashMap<String, Object>();
-        sessionScopeMap = new HashMap<String, Object>();
+        handlerQueue    = new HandlerQueue();
     }
 
     /**
@@ -209,19 +230,61 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      * <p/>
      * 作成される実行コンテキストの状態は以下の通り。
      * <ul>
-     *     <li>ハンドラキューには、元のオブジェクトからシャローコピーを作成して設定する。</li>
-     *     <li>リクエストスコープには、新規インスタンスを設定する(コピーされない)。</li>
+     *     <li>ハンドラキューには、元のオブジェクトからシャローコピーを作成して設定する。
+     *     (ハンドラキューの内部配列はいずれかの実行コンテキストでキューが変更されるまで共有される。)</li>
+     *     <li>リクエストスコープには、新規インスタンスを設定する(コピーされない)。
+     *     (インスタンスは最初に参照された時点で生成する。)</li>
      *     <li>それ以外のフィールドには、元のオブジェクトの参照を設定する。</li>
      * </ul>
      *
      * @param original 元となる実行コンテキスト
      */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     public ExecutionContext(ExecutionContext original) {
-        handlerQueue    = (ArrayList<Handler>) original.handlerQueue.clone();
-        requestScopeMap = new HashMap<String, Object>();
-        sessionStoreMap = original.sessionStoreMap;
-        sessionScopeMap = original.sessionScopeMap;
+        handlerQueue    = new HandlerQueue(original.handlerQueue);
+        copyFrom(original);
+    }
+
+    /**
+     * 元となる実行コンテキストの内容で、この実行コンテキストを再初期化する。
+     * <p/>
+     * 再初期化後の状態は、{@link #ExecutionContext(ExecutionContext)}で作成した実行コンテキストと同じである。
+     * ただし、この実行コンテキストが生成したリクエストスコープのMapは新規に作成せず、内容をクリアして再利用する。
+     * {@link #setRequestScopeMap(Map)}で設定されたMapはクリアせずに参照のみを破棄する。
+     * <p/>
+     * バッチ処理のループなどで、レコード毎に実行コンテキストを複製する代わりに
+     * スレッド毎に1つの実行コンテキストを再利用することで、オブジェクトの生成を削減できる。
+     * リクエストスコープのMapへの参照を処理の終了後も保持する場合は、本メソッドを使用してはならない。
+     * <p/>
+     * サブクラスで独自の状態を保持する場合は、本メソッドをオーバーライドしてその状態も再初期化すること。
+     *
+     * @param original 元となる実行コンテキスト
+     * @return このオブジェクト自体
+     */
+    public ExecutionContext reset(ExecutionContext original) {
+        handlerQueue.reset(original.handlerQueue);
+        clearCompiledHandlerQueue();
+        if (requestScopeMapOwned) {
+            requestScopeMap.clear();
+        } else {
+            requestScopeMap = null;
+        }
+        lastReadData = null;
+        lastRecordNumber = 0;
+        processSucceeded = true;
+        currentRequestObject = null;
+        copyFrom(original);
+        return this;
+    }
+
+    /**
+     * 元となる実行コンテキストから、共有する状態を引き継ぐ。
+     *
+     * @param original 元となる実行コンテキスト
+     */
+    private void copyFrom(ExecutionContext original) {
+        // セッションは元の実行コンテキストと共有するため、ここで生成しておく。
+        sessionStoreMap = original.getSessionStoreMapInternal();
+        sessionScopeMap = original.getSessionScopeMapInternal();
         reader          = original.reader;
         readerFactory   = original.readerFactory;
         setMethodBinder(original.<Object, Object>getMethodBinder());
@@ -273,6 +336,71 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
         return readData;
     }
 
+    /**
+     * この実行コンテキスト上のデータリーダを使用して、最大で指定された件数のデータを読み込む。
+     *
+     * @param <TData> データリーダが読み込むデータの型
+     * @param maxCount 読み込む最大件数(1以上)
+     * @return 読み込んだデータ。読み込むデータが存在しない場合は空のリスト
+     * @throws IllegalArgumentException 最大件数が1未満の場合
+     * @see #readNextBatch(List, int)
+     */
+    public <TData> List<TData> readNextBatch(int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("maxCount must be greater than 0. maxCount = " + maxCount);
+        }
+        final List<TData> buffer = new ArrayList<TData>(Math.min(maxCount, 1024));
+        readNextBatch(buffer, maxCount);
+        return buffer;
+    }
+
+    /**
+     * この実行コンテキスト上のデータリーダを使用して最大で指定された件数のデータを読み込み、
+     * 指定されたリストの末尾に追加する。
+     * <p/>
+     * データリーダが{@link BatchDataReader}を実装している場合は、
+     * {@link BatchDataReader#read(ExecutionContext, List, int)}によりまとめて読み込む。
+     * それ以外の場合は、データが存在する間{@link DataReader#read(ExecutionContext)}を繰り返し呼び出す。
+     * <p/>
+     * 1件以上読み込んだ場合は、最後に読み込んだデータを{@link #getLastReadData()}で参照できる。
+     * 読み込むデータが存在しなかった場合は、{@link #readNextData()}と同様に最後に読み込んだデータをクリアする。
+     * <p/>
+     * リストを再利用することで、読み込みごとのリストの生成を避けることができる。
+     *
+     * @param <TData> データリーダが読み込むデータの型
+     * @param buffer 読み込んだデータを追加するリスト
+     * @param maxCount 読み込む最大件数(1以上)
+     * @return 読み込んだ件数。データリーダが設定されていない場合は0
+     * @throws IllegalArgumentException 最大件数が1未満の場合
+     */
+    @SuppressWarnings("unchecked")
+    public <TData> int readNextBatch(List<? super TData> buffer, int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("maxCount must be greater than 0. maxCount = " + maxCount);
+        }
+        final DataReader<TData> reader = getDataReader();
+        if (reader == null) {
+            return 0;
+        }
+        final int offset = buffer.size();
+        int count;
+        if (reader instanceof BatchDataReader) {
+            count = ((BatchDataReader<TData>) reader).read(this, buffer, maxCount);
+        } else {
+            count = 0;
+            while (count < maxCount && reader.hasNext(this)) {
+                final TData data = reader.read(this);
+                if (data == null) {
+                    break;
+                }
+                buffer.add(data);
+                count++;
+            }
+        }
+        lastReadData = count == 0 ? null : buffer.get(offset + count - 1);
+        return count;
+    }
+
     /**
      * この実行コンテキストが最後に読み込んだデータオブジェクトを返す。
      *
@@ -310,11 +438,14 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      * @return 指定した例外を送出したスレッドが例外発生時に処理していた入力データ。存在しない場合はnull
      */
     public Object getDataProcessedWhenThrown(Throwable e) {
-        return getDataProcessedWhenThrownMap().get(e);
+        // 参照のみの場合はマップを生成しない。
+        final Map<Throwable, Object> map = getRequestScopedVar(DATA_PROCESSED_WHEN_THROWN_MAP_KEY);
+        return map == null ? null : map.get(e);
     }
 
     /** 例外を送出したスレッドが例外発生時に処理していた入力データをリクエストスコープに格納する際に使用するキー */
-    private static final String DATA_PROCESSED_WHEN_THROWN_MAP_KEY = FW_PREFIX + "dataProcessedWhenThrownMap";
+    private static final ScopeKey<Map<Throwable, Object>> DATA_PROCESSED_WHEN_THROWN_MAP_KEY =
+            ScopeKey.of(FW_PREFIX + "dataProcessedWhenThrownMap");
 
     /**
      * 例外を送出したスレッドが例外発生時に処理していた入力データを格納したマップをリクエストスコープから取得する。
@@ -323,12 +454,13 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      *
      * @return 例外を送出したスレッドが例外発生時に処理していた入力データを格納したマップ
      */
-    @SuppressWarnings("unchecked")
     private Map<Throwable, Object> getDataProcessedWhenThrownMap() {
-        if (!getRequestScopeMap().containsKey(DATA_PROCESSED_WHEN_THROWN_MAP_KEY)) {
-            getRequestScopeMap().put(DATA_PROCESSED_WHEN_THROWN_MAP_KEY, new HashMap<Throwable, Object>());
+        Map<Throwable, Object> map = getRequestScopedVar(DATA_PROCESSED_WHEN_THROWN_MAP_KEY);
+        if (map == null) {
+            map = new HashMap<Throwable, Object>();
+            setRequestScopedVar(DATA_PROCESSED_WHEN_THROWN_MAP_KEY, map);
         }
-        return (Map<Throwable, Object>) getRequestScopeMap().get(DATA_PROCESSED_WHEN_THROWN_MAP_KEY);
+        return map;
     }
 
     /**
@@ -389,6 +521,15 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
         return this;
     }
 
+    /**
+     * データリーダのファクトリを取得する。
+     *
+     * @return データリーダファクトリ。設定されていない場合はnull
+     */
+    DataReaderFactory<?> getDataReaderFactory() {
+        return readerFactory;
+    }
+
     /**
      * 現在使用しているデータリーダを閉じる。
      * <p/>
@@ -421,6 +562,16 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
     /** {@link ApplicationException}をリクエストスコープから取得する際に使用するキー */
     public static final String THROWN_APPLICATION_EXCEPTION_KEY = FW_PREFIX + "application_error";
 
+    /** 例外をリクエストスコープから取得する際に使用する{@link ScopeKey}({@link #THROWN_EXCEPTION_KEY}と同じ変数を指す) */
+    public static final ScopeKey<Throwable> THROWN_EXCEPTION = ScopeKey.of(THROWN_EXCEPTION_KEY);
+
+    /**
+     * {@link ApplicationException}をリクエストスコープから取得する際に使用する{@link ScopeKey}
+     * ({@link #THROWN_APPLICATION_EXCEPTION_KEY}と同じ変数を指す)
+     */
+    public static final ScopeKey<ApplicationException> THROWN_APPLICATION_EXCEPTION =
+            ScopeKey.of(THROWN_APPLICATION_EXCEPTION_KEY);
+
     /**
      * リクエストスコープから例外を取得する。
      * <p/>
@@ -429,7 +580,7 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      * @return 例外。リクエストスコープに例外が設定されていない場合はnull
      */
     public Throwable getException() {
-        return getRequestScopedVar(THROWN_EXCEPTION_KEY);
+        return getRequestScopedVar(THROWN_EXCEPTION);
     }
 
     /**
@@ -441,7 +592,7 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      *          リクエストスコープに{@link ApplicationException}が設定されていない場合はnull
      */
     public ApplicationException getApplicationException() {
-        return getRequestScopedVar(THROWN_APPLICATION_EXCEPTION_KEY);
+        return getRequestScopedVar(THROWN_APPLICATION_EXCEPTION);
     }
 
     /**
@@ -454,10 +605,10 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      * @param e 例外
      */
     public void setException(Throwable e) {
-        setRequestScopedVar(THROWN_EXCEPTION_KEY, e);
+        setRequestScopedVar(THROWN_EXCEPTION, e);
         setProcessSucceeded(false);
         if (e instanceof ApplicationException) {
-            setRequestScopedVar(THROWN_APPLICATION_EXCEPTION_KEY, e);
+            setRequestScopedVar(THROWN_APPLICATION_EXCEPTION, (ApplicationException) e);
         }
     }
 
@@ -507,6 +658,7 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      */
     public ExecutionContext setRequestScopeMap(Map<String, Object> m) {
         this.requestScopeMap = m;
+        this.requestScopeMapOwned = false;
         return this;
     }
 
@@ -519,6 +671,10 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      */
     @Published
     public Map<String, Object> getRequestScopeMap() {
+        if (requestScopeMap == null) {
+            requestScopeMap = new RequestScopeMap();
+            requestScopeMapOwned = true;
+        }
         return requestScopeMap;
     }
 
@@ -552,6 +708,49 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
         return this;
     }
 
+    /**
+     * リクエストスコープ上の変数の値を{@link ScopeKey}を使用して取得する。
+     * <p/>
+     * リクエストスコープが本クラスの既定のMapである場合は、
+     * 変数名のハッシュ値を計算せずにキーのスロット番号で値を参照する。
+     * {@link #setRequestScopeMap(Map)}等で他のMapが設定されている場合は、変数名で値を参照する。
+     *
+     * @param <T> 変数の型
+     * @param key キー
+     * @return 変数の値
+     */
+    @SuppressWarnings("unchecked")
+    @Published
+    public <T> T getRequestScopedVar(ScopeKey<T> key) {
+        final Map<String, Object> scope = getRequestScopeMap();
+        if (scope instanceof RequestScopeMap) {
+            return ((RequestScopeMap) scope).getValue(key);
+        }
+        return (T) scope.get(key.getName());
+    }
+
+    /**
+     * リクエストスコープ上の変数の値を{@link ScopeKey}を使用して設定する。
+     * <p/>
+     * 既に定義済みの変数は上書きされる。
+     *
+     * @param <T> 変数の型
+     * @param key キー
+     * @param varValue 変数の値
+     * @return このオブジェクト自体
+     * @see #getRequestScopedVar(ScopeKey)
+     */
+    @Published
+    public <T> ExecutionContext setRequestScopedVar(ScopeKey<T> key, T varValue) {
+        final Map<String, Object> scope = getRequestScopeMap();
+        if (scope instanceof RequestScopeMap) {
+            ((RequestScopeMap) scope).putValue(key, varValue);
+        } else {
+            scope.put(key.getName(), varValue);
+        }
+        return this;
+    }
+
     //------------------------------------------------------ SessionStore
     /**
      * セッションストア上の変数を格納したMapを設定する。
@@ -572,6 +771,20 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      * @return セッションストアへの参照
      */
     public Map<String, Object> getSessionStoreMap() {
+        return getSessionStoreMapInternal();
+    }
+
+    /**
+     * この実行コンテキストが保持するセッションストアのMapを返す。
+     * <p/>
+     * 未生成の場合は生成する。
+     *
+     * @return セッションストアのMap
+     */
+    private Map<String, Object> getSessionStoreMapInternal() {
+        if (sessionStoreMap == null) {
+            sessionStoreMap = new HashMap<String, Object>();
+        }
         return sessionStoreMap;
     }
 
@@ -624,6 +837,20 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      */
     @Published
     public Map<String, Object> getSessionScopeMap() {
+        return getSessionScopeMapInternal();
+    }
+
+    /**
+     * この実行コンテキストが保持するセッションスコープのMapを返す。
+     * <p/>
+     * 未生成の場合は生成する。
+     *
+     * @return セッションスコープのMap
+     */
+    private Map<String, Object> getSessionScopeMapInternal() {
+        if (sessionScopeMap == null) {
+            sessionScopeMap = new HashMap<String, Object>();
+        }
         return sessionScopeMap;
     }
 
@@ -664,7 +891,9 @@ public class ExecutionContext extends HandlerQueueManager<ExecutionContext> {
      */
     @Published
     public ExecutionContext invalidateSession() {
-        sessionScopeMap.clear();
+        if (sessionScopeMap != null) {
+            sessionScopeMap.clear();
+        }
         return this;
     }
 
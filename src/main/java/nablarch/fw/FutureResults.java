@@ -0,0 +1,65 @@
+package nablarch.fw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 並行して実行した処理の結果を、投入した順序で集約するクラス。
+ */
+final class FutureResults {
+
+    /** 隠蔽コンストラクタ。 */
+    private FutureResults() {
+    }
+
+    /**
+     * 全ての処理が終了するまで待機し、処理結果を投入した順序で返す。
+     * <p/>
+     * いずれかの処理で例外が発生した場合は、全ての処理が終了した後に、
+     * 最も順序が前の処理で発生した例外を送出する。
+     * それ以外の処理で発生した例外は、送出する例外の抑制された例外として追加する。
+     * <p/>
+     * 待機中に割り込まれた場合でも処理の終了を待ち合わせ、割り込み状態を復元する。
+     *
+     * @param <T> 処理結果の型
+     * @param futures 処理
+     * @return 処理結果
+     */
+    static <T> List<T> awaitAll(List<? extends Future<? extends T>> futures) {
+        final List<T> results = new ArrayList<T>(futures.size());
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<? extends T> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    } else if (failure != e.getCause()) {
+                        failure.addSuppressed(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return results;
+    }
+}
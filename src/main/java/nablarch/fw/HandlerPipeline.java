@@ -0,0 +1,83 @@
+package nablarch.fw;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * コンパイル済みのハンドラキュー。
+ * <p/>
+ * ハンドラキューの内容を、{@link Interceptor}によるラップを解決した状態で凍結したものである。
+ * 本クラスのインスタンスは変更できない。
+ * <p/>
+ * {@link HandlerQueueManager#setHandlerQueue(Collection)}に本クラスのインスタンスを渡した場合、
+ * 各ハンドラに対する{@link Interceptor.Factory#wrap(Handler)}は再実行されない。
+ * さらに{@link ExecutionContext}では、ハンドラキューの内部配列を複製せずにそのまま共有するため、
+ * リクエスト毎に実行コンテキストを生成してハンドラキューを設定する処理のコストが、
+ * ハンドラの数によらず一定となる。
+ * <p/>
+ * 実行中にハンドラキューが変更された場合、変更は実行コンテキスト側の複製に対して行われ、
+ * 本クラスのインスタンスには影響しない。
+ *
+ * @see HandlerQueueManager#getCompiledHandlerQueue()
+ */
+@SuppressWarnings("rawtypes")
+public final class HandlerPipeline extends AbstractList<Handler> implements RandomAccess {
+
+    /** ラップ済みのハンドラ */
+    private final Handler[] handlers;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param handlers ラップ済みのハンドラ
+     */
+    private HandlerPipeline(Handler[] handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * ハンドラキューの内容をコンパイルする。
+     * <p/>
+     * 各ハンドラは{@link Interceptor.Factory#wrap(Handler)}でラップした上で保持する。
+     *
+     * @param handlers ハンドラキューの内容
+     * @return コンパイル済みのハンドラキュー
+     * @throws IllegalArgumentException ハンドラキューに{@code null}が含まれる場合
+     */
+    public static HandlerPipeline compile(Collection<? extends Handler> handlers) {
+        if (handlers instanceof HandlerPipeline) {
+            return (HandlerPipeline) handlers;
+        }
+        Handler[] compiled = new Handler[handlers.size()];
+        int i = 0;
+        for (Handler<?, ?> handler : handlers) {
+            if (handler == null) {
+                throw new IllegalArgumentException("handler must not be null.");
+            }
+            compiled[i++] = Interceptor.Factory.wrap(handler);
+        }
+        return new HandlerPipeline(compiled);
+    }
+
+    @Override
+    public Handler get(int index) {
+        return handlers[index];
+    }
+
+    @Override
+    public int size() {
+        return handlers.length;
+    }
+
+    /**
+     * ラップ済みのハンドラを格納した配列を返す。
+     * <p/>
+     * 返却する配列は共有されるため、変更してはならない。
+     *
+     * @return ラップ済みのハンドラを格納した配列
+     */
+    Handler[] handlers() {
+        return handlers;
+    }
+}
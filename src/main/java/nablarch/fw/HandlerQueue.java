@@ -0,0 +1,213 @@
+package nablarch.fw;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * {@link ExecutionContext}が保持するハンドラキューの実装。
+ * <p/>
+ * ハンドラを格納した配列と、次に実行するハンドラの位置(カーソル)によってキューを表現する。
+ * 先頭ハンドラの取り出し({@code remove(0)})はカーソルを進めるだけなので、
+ * 後続ハンドラ数によらず一定時間で完了する。
+ * <p/>
+ * {@link #HandlerQueue(HandlerQueue)}で作成したキューは、元のキューと配列を共有する。
+ * 共有中の配列は、いずれかのキューに対して挿入・削除・置換が行われた時点で複製される(コピーオンライト)。
+ * このため、実行コンテキストの複製時にハンドラキュー全体をコピーする必要はない。
+ * <p/>
+ * 本クラスはスレッドアンセーフである。
+ */
+@SuppressWarnings("rawtypes")
+final class HandlerQueue extends AbstractList<Handler> implements RandomAccess {
+
+    /** 空の配列 */
+    private static final Handler[] EMPTY = new Handler[0];
+
+    /** 配列を新たに確保する際の最小サイズ */
+    private static final int MIN_CAPACITY = 10;
+
+    /** ハンドラを格納する配列 */
+    private Handler[] elements = EMPTY;
+
+    /** キューの先頭(次に実行するハンドラ)の位置 */
+    private int head = 0;
+
+    /** キューの末尾の次の位置 */
+    private int tail = 0;
+
+    /** 配列を他のキューと共有しているか否か */
+    private boolean shared = false;
+
+    /** 置換を含めてキューの内容が変更された回数 */
+    private int version = 0;
+
+    /**
+     * 空のハンドラキューを作成する。
+     */
+    HandlerQueue() {
+    }
+
+    /**
+     * 元となるハンドラキューと同じ内容のハンドラキューを作成する。
+     * <p/>
+     * 配列は元のキューと共有し、いずれかのキューが変更された時点で複製する。
+     *
+     * @param original 元となるハンドラキュー
+     */
+    HandlerQueue(HandlerQueue original) {
+        elements = original.elements;
+        head = original.head;
+        tail = original.tail;
+        shared = true;
+        original.shared = true;
+    }
+
+    /**
+     * キューの内容を、元となるハンドラキューと同じ内容に置き換える。
+     * <p/>
+     * {@link #HandlerQueue(HandlerQueue)}と同様に、配列は元のキューと共有する。
+     *
+     * @param original 元となるハンドラキュー
+     */
+    void reset(HandlerQueue original) {
+        modCount++;
+        version++;
+        elements = original.elements;
+        head = original.head;
+        tail = original.tail;
+        shared = true;
+        original.shared = true;
+    }
+
+    /**
+     * キューの内容を、指定された配列の内容で置き換える。
+     * <p/>
+     * 配列は複製せずに共有し、キューが変更された時点で複製する。
+     *
+     * @param handlers 共有する配列
+     */
+    void share(Handler[] handlers) {
+        modCount++;
+        version++;
+        elements = handlers;
+        head = 0;
+        tail = handlers.length;
+        shared = true;
+    }
+
+    /**
+     * キューの内容が変更された回数を返す。
+     * <p/>
+     * {@link #modCount}とは異なり、ハンドラの置換による変更も数える。
+     *
+     * @return キューの内容が変更された回数
+     */
+    int version() {
+        return version;
+    }
+
+    @Override
+    public Handler get(int index) {
+        rangeCheck(index);
+        return elements[head + index];
+    }
+
+    @Override
+    public int size() {
+        return tail - head;
+    }
+
+    @Override
+    public Handler set(int index, Handler handler) {
+        rangeCheck(index);
+        version++;
+        if (shared) {
+            detach();
+        }
+        Handler old = elements[head + index];
+        elements[head + index] = handler;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Handler handler) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        modCount++;
+        version++;
+        int size = size();
+        if (!shared && index == 0 && head > 0) {
+            elements[--head] = handler;
+            return;
+        }
+        if (shared || tail == elements.length) {
+            Handler[] grown = new Handler[Math.max(MIN_CAPACITY, size + (size >> 1) + 1)];
+            System.arraycopy(elements, head, grown, 0, index);
+            System.arraycopy(elements, head + index, grown, index + 1, size - index);
+            elements = grown;
+            head = 0;
+            tail = size;
+            shared = false;
+        } else {
+            System.arraycopy(elements, head + index, elements, head + index + 1, size - index);
+        }
+        elements[head + index] = handler;
+        tail++;
+    }
+
+    @Override
+    public Handler remove(int index) {
+        rangeCheck(index);
+        modCount++;
+        version++;
+        if (index == 0) {
+            // 先頭の取り出しはカーソルを進めるだけで良い。(共有中の配列も変更しない)
+            Handler removed = elements[head];
+            if (!shared) {
+                elements[head] = null;
+            }
+            head++;
+            return removed;
+        }
+        if (shared) {
+            detach();
+        }
+        Handler removed = elements[head + index];
+        System.arraycopy(elements, head + index + 1, elements, head + index, size() - index - 1);
+        elements[--tail] = null;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        version++;
+        elements = EMPTY;
+        head = 0;
+        tail = 0;
+        shared = false;
+    }
+
+    /**
+     * 共有中の配列から、このキューの内容だけを複製した配列に切り替える。
+     */
+    private void detach() {
+        elements = Arrays.copyOfRange(elements, head, tail);
+        tail -= head;
+        head = 0;
+        shared = false;
+    }
+
+    /**
+     * インデックスが範囲内であることを確認する。
+     *
+     * @param index インデックス
+     * @throws IndexOutOfBoundsException 範囲外の場合
+     */
+    private void rangeCheck(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
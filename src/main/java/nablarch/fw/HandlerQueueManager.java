@@ -24,18 +24,27 @@ public abstract class HandlerQueueManager<TSelf> {
     // ---------------------------------------------- HandlerQueue Management    
     /**
      * ハンドラキューの内容を入れ替える。
+     * <p/>
+     * {@link HandlerPipeline}を指定した場合、各ハンドラはラップ済みであるため、
+     * {@link Interceptor}によるラップは行わずにそのまま登録する。
+     *
      * @param handlers ハンドラキュー
      * @return このオブジェクト自体
      */
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public TSelf setHandlerQueue(Collection<? extends Handler> handlers) {
         getHandlerQueue().clear();
+        compiledHandlerQueue = null;
         addHandlers(handlers);
         return (TSelf) this;
     }
 
     /**
      * ハンドラキューにハンドラを登録する。
+     * <p/>
+     * {@link HandlerPipeline}を指定した場合、各ハンドラはラップ済みであるため、
+     * {@link Interceptor}によるラップは行わずにそのまま登録する。
+     *
      * @param handlers 登録するハンドラ
      * @return このオブジェクト自体
      */
@@ -44,6 +53,11 @@ public abstract class HandlerQueueManager<TSelf> {
         if (handlers == null) {
             return (TSelf) this;
         }
+        if (handlers instanceof HandlerPipeline) {
+            getHandlerQueue().addAll(handlers);
+            compiledHandlerQueue = null;
+            return (TSelf) this;
+        }
         for (Handler<?, ?> handler : handlers) {
             addHandler(handler);
         }
@@ -57,6 +71,7 @@ public abstract class HandlerQueueManager<TSelf> {
     @SuppressWarnings("unchecked")
     public TSelf clearHandlers() {
         getHandlerQueue().clear();
+        compiledHandlerQueue = null;
         return (TSelf) this;
     }
     
@@ -84,6 +99,7 @@ public abstract class HandlerQueueManager<TSelf> {
         }
         Handler<?, ?> wrapped = Interceptor.Factory.wrap(handler);
         getHandlerQueue().add(pos, wrapped);
+        compiledHandlerQueue = null;
         return (TSelf) this;
     }
     
@@ -141,6 +157,51 @@ public abstract class HandlerQueueManager<TSelf> {
         return null;
     }
 
+    //--------------------------------------------- Compiled HandlerQueue
+    /** コンパイル済みのハンドラキュー */
+    private HandlerPipeline compiledHandlerQueue = null;
+
+    /** コンパイルした時点のハンドラキューの変更回数 */
+    private int compiledVersion = 0;
+
+    /**
+     * 現在のハンドラキューの内容をコンパイルしたものを返す。
+     * <p/>
+     * コンパイル結果はキャッシュされ、ハンドラキューが変更されるまで再利用される。
+     * {@link ExecutionContext}では、ハンドラの取り出しを含むハンドラキューの変更をキューの変更回数で検知する。
+     * その他のサブクラスで{@link #getHandlerQueue()}が返すリストを直接変更した場合はキャッシュが破棄されないため、
+     * 変更後に{@link #clearCompiledHandlerQueue()}を呼び出すこと。
+     * <p/>
+     * 起動後にハンドラキューの構成が変わらない場合は、リクエスト毎に生成する実行コンテキストに対して
+     * 本メソッドの戻り値を{@link #setHandlerQueue(Collection)}で設定することで、
+     * ハンドラキューの設定に要するコストを削減できる。
+     *
+     * @return コンパイル済みのハンドラキュー
+     */
+    @SuppressWarnings("rawtypes")
+    public HandlerPipeline getCompiledHandlerQueue() {
+        final List<Handler> queue = getHandlerQueue();
+        final int version = queue instanceof HandlerQueue ? ((HandlerQueue) queue).version() : 0;
+        HandlerPipeline compiled = compiledHandlerQueue;
+        if (compiled == null || version != compiledVersion) {
+            compiled = HandlerPipeline.compile(queue);
+            compiledHandlerQueue = compiled;
+            compiledVersion = version;
+        }
+        return compiled;
+    }
+
+    /**
+     * コンパイル済みのハンドラキューのキャッシュを破棄する。
+     *
+     * @return このオブジェクト自体
+     */
+    @SuppressWarnings("unchecked")
+    public TSelf clearCompiledHandlerQueue() {
+        compiledHandlerQueue = null;
+        return (TSelf) this;
+    }
+
     //--------------------------------------------- Method Level Delegation
     /** メソッドレベルの処理委譲を行うコンポーネント */
     private MethodBinder<?, ?> methodBinder = null;
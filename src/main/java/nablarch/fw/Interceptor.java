@@ -6,6 +6,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -197,6 +198,13 @@ public @interface Interceptor {
             /* doesn't need any instances. */
         }
 
+        /**
+         * ハンドラのクラス毎に解決したインターセプタ情報のキャッシュ。
+         * <p/>
+         * 値はハンドラのクラスに紐付けて保持されるため、クラスローダのアンロードを妨げない。
+         */
+        private static volatile ClassValue<InterceptorMetadata> metadataCache = newMetadataCache();
+
         /**
          * {@link Interceptor}アノテーションによるリクエストハンドラの
          * ラッパーを作成する。
@@ -204,29 +212,38 @@ public @interface Interceptor {
          * 与えられたリクエストハンドラの{@link Handler#handle(Object, ExecutionContext)} メソッド上に付与された
          * {@link Interceptor}アノテーションを取得し、
          * その内容に準じた処理をリクエストハンドラに追加したラッパーで作成する。
+         * <p/>
+         * {@link Handler#handle(Object, ExecutionContext)}メソッドの検索結果、
+         * 及びインターセプタの実行順に従ったソート結果はハンドラのクラス毎にキャッシュされる。
+         * ソート結果は{@link SystemRepository}上の実行順定義が別のインスタンスに置き換わった時点で再作成される。
          *
          * @param <D> ハンドラの入力データ型
          * @param <R> ハンドラの処理結果データ型
          * @param handler ラップされるハンドラ
          * @return {@link Interceptor}の処理を追加したリクエストハンドラ
+         * @see #clearCache()
          */
         public static <D, R> Handler<D, R> wrap(Handler<D, R> handler) {
-            Method handleMethod = null;
-            for (Method method : handler.getClass().getMethods()) {
-                if (method.getName().equals("handle")
-                        && method.getParameterTypes().length == 2) {
-                    handleMethod = method;
-                    // 型変数がI/Fの引数に使用されているため、オーバーロード扱いになっており、
-                    // handleメソッドは2回出現する。
-                    // (I/F側はeraser動作後、handle(Object, ExecutionContext)になる。)
-                    if (!method.getParameterTypes()[0].equals(Object.class)) {
-                        break;
-                    }
-                }
+            final InterceptorMetadata metadata = metadataCache.get(handler.getClass());
+            if (metadata.interceptors.isEmpty()) {
+                return handler;
             }
-            // インターフェースで定義されているので必ず存在する。
-            assert (handleMethod != null);
-            return wrap(handler, handleMethod.getDeclaredAnnotations());
+            final SortedInterceptors sorted = metadata.getSorted(
+                    SystemRepository.<List<String>>get(INTERCEPTOR_ORDER_KEY));
+            for (int i = 0; i < sorted.annotations.length; i++) {
+                handler = wrap(handler, sorted.constructors[i], sorted.annotations[i]);
+            }
+            return handler;
+        }
+
+        /**
+         * {@link #wrap(Handler)}がキャッシュしているインターセプタ情報を破棄する。
+         * <p/>
+         * {@link SystemRepository}を再ロードした場合など、
+         * キャッシュ済みの情報を確実に再作成したい場合に使用する。
+         */
+        public static void clearCache() {
+            metadataCache = newMetadataCache();
         }
 
         /**
@@ -245,22 +262,71 @@ public @interface Interceptor {
         public static <D, R> Handler<D, R> wrap(Handler<D, R> handler,
                 Annotation[] annotations) {
 
-            final List<Annotation> interceptors = new ArrayList<Annotation>();
+            final List<Annotation> sortedInterceptors = sortInterceptors(
+                    collectInterceptors(annotations), SystemRepository.<List<String>>get(INTERCEPTOR_ORDER_KEY));
+
+            for (Annotation annotation : sortedInterceptors) {
+                handler = wrap(handler, getConstructor(getInterceptorOf(annotation)), annotation);
+            }
+
+            return handler;
+        }
+
+        /**
+         * インターセプタ情報のキャッシュを生成する。
+         *
+         * @return インターセプタ情報のキャッシュ
+         */
+        private static ClassValue<InterceptorMetadata> newMetadataCache() {
+            return new ClassValue<InterceptorMetadata>() {
+                @Override
+                protected InterceptorMetadata computeValue(Class<?> type) {
+                    return new InterceptorMetadata(
+                            collectInterceptors(findHandleMethod(type).getDeclaredAnnotations()));
+                }
+            };
+        }
+
+        /**
+         * ハンドラのクラスから{@link Handler#handle(Object, ExecutionContext)}メソッドを検索する。
+         *
+         * @param handlerClass ハンドラのクラス
+         * @return handleメソッド
+         */
+        private static Method findHandleMethod(Class<?> handlerClass) {
+            Method handleMethod = null;
+            for (Method method : handlerClass.getMethods()) {
+                if (method.getName().equals("handle")
+                        && method.getParameterTypes().length == 2) {
+                    handleMethod = method;
+                    // 型変数がI/Fの引数に使用されているため、オーバーロード扱いになっており、
+                    // handleメソッドは2回出現する。
+                    // (I/F側はeraser動作後、handle(Object, ExecutionContext)になる。)
+                    if (!method.getParameterTypes()[0].equals(Object.class)) {
+                        break;
+                    }
+                }
+            }
+            // インターフェースで定義されているので必ず存在する。
+            assert (handleMethod != null);
+            return handleMethod;
+        }
 
+        /**
+         * アノテーションのうち、{@link Interceptor}が付与されているものを抽出する。
+         *
+         * @param annotations アノテーション
+         * @return {@link Interceptor}が付与されているアノテーション
+         */
+        private static List<Annotation> collectInterceptors(Annotation[] annotations) {
+            final List<Annotation> interceptors = new ArrayList<Annotation>();
             for (Annotation annotation : annotations) {
                 final Interceptor interceptor = getInterceptorOf(annotation);
                 if (interceptor != null) {
                     interceptors.add(annotation);
                 }
             }
-
-            final List<Annotation> sortedInterceptors = sortInterceptors(interceptors);
-
-            for (Annotation annotation : sortedInterceptors) {
-                handler = wrap(handler, getInterceptorOf(annotation), annotation);
-            }
-
-            return handler;
+            return interceptors;
         }
 
         /**
@@ -283,11 +349,12 @@ public @interface Interceptor {
          * <p/>
          * {@link SystemRepository}に実行順の定義がない場合は、ソートは行わない。
          *
-         * @param interceptors ソート対象のインターセプタのリスト
+         * @param interceptors ソート対象のインターセプタのリスト(本メソッドにより変更される)
+         * @param order インターセプタの実行順定義。定義されていない場合は{@code null}
          * @return ソート後のインターセプタのリスト(実行順とは逆順)
          */
-        private static List<Annotation> sortInterceptors(final List<Annotation> interceptors) {
-            final List<String> order = SystemRepository.get(INTERCEPTOR_ORDER_KEY);
+        private static List<Annotation> sortInterceptors(final List<Annotation> interceptors,
+                final List<String> order) {
             if (order == null) {
                 // 実行順未定義の場合は、ソートを実施しない
                 return interceptors;
@@ -327,6 +394,25 @@ public @interface Interceptor {
             return result;
         }
 
+        /**
+         * インターセプト処理を実装するクラスのデフォルトコンストラクタを取得する。
+         *
+         * @param interceptor {@link Interceptor}アノテーション
+         * @return デフォルトコンストラクタ
+         */
+        @SuppressWarnings("rawtypes")
+        private static Constructor<? extends Interceptor.Impl> getConstructor(Interceptor interceptor) {
+            try {
+                return interceptor.value().getConstructor();
+            } catch (NoSuchMethodException e) {
+                // デフォルトコンストラクタが未定義。
+                throw new RuntimeException(
+                        "Default constructor is needed to handle interception.: "
+                                + interceptor.value().toString(), e
+                );
+            }
+        }
+
         /**
          * 与えられた{@link Interceptor}アノテーションでリクエストハンドラを
          * ラップする。
@@ -334,18 +420,18 @@ public @interface Interceptor {
          * @param <TData> ハンドラの入力データ型
          * @param <TResult> ハンドラの処理結果データ型
          * @param handler ハンドラ
-         * @param interceptor {@link Interceptor}アノテーション
+         * @param constructor インターセプト処理を実装するクラスのデフォルトコンストラクタ
          * @param annotation アノテーション
          * @return ラップされたリクエストハンドラ
          */
-        @SuppressWarnings("unchecked")
+        @SuppressWarnings({"unchecked", "rawtypes"})
         private static <TData, TResult>
         Handler<TData, TResult> wrap(Handler<TData, TResult> handler,
-                Interceptor interceptor,
+                Constructor<? extends Interceptor.Impl> constructor,
                 Annotation annotation) {
             Interceptor.Impl<TData, TResult, ? extends Annotation> wrapper = null;
             try {
-                wrapper = interceptor.value().getConstructor().newInstance();
+                wrapper = constructor.newInstance();
 
             } catch (InstantiationException e) {
                 throw new RuntimeException(e);
@@ -361,16 +447,81 @@ public @interface Interceptor {
                     throw (Error) cause;
                 }
                 throw new RuntimeException(cause);
-            } catch (NoSuchMethodException e) {
-                // デフォルトコンストラクタが未定義。
-                throw new RuntimeException(
-                        "Default constructor is needed to handle interception.: "
-                                + interceptor.value().toString(), e
-                );
             }
             wrapper.setOriginalHandler(handler);
             wrapper.setInterceptor(annotation);
             return wrapper;
         }
+
+        /**
+         * ハンドラのクラス毎に解決したインターセプタ情報。
+         */
+        private static final class InterceptorMetadata {
+
+            /** handleメソッドに付与された{@link Interceptor}アノテーション(宣言順) */
+            private final List<Annotation> interceptors;
+
+            /** 実行順定義に従ってソートしたインターセプタ */
+            private volatile SortedInterceptors sorted;
+
+            /**
+             * コンストラクタ。
+             *
+             * @param interceptors handleメソッドに付与された{@link Interceptor}アノテーション
+             */
+            private InterceptorMetadata(List<Annotation> interceptors) {
+                this.interceptors = interceptors;
+            }
+
+            /**
+             * 実行順定義に従ってソートしたインターセプタを取得する。
+             * <p/>
+             * 前回と同じ実行順定義が指定された場合は、前回のソート結果を返す。
+             *
+             * @param order インターセプタの実行順定義。定義されていない場合は{@code null}
+             * @return ソートしたインターセプタ
+             */
+            private SortedInterceptors getSorted(List<String> order) {
+                SortedInterceptors result = sorted;
+                if (result == null || result.order != order) {
+                    result = new SortedInterceptors(order,
+                            sortInterceptors(new ArrayList<Annotation>(interceptors), order));
+                    sorted = result;
+                }
+                return result;
+            }
+        }
+
+        /**
+         * 実行順定義に従ってソートしたインターセプタ。
+         */
+        private static final class SortedInterceptors {
+
+            /** ソートに使用した実行順定義 */
+            private final List<String> order;
+
+            /** ソート後のインターセプタ(実行順とは逆順) */
+            private final Annotation[] annotations;
+
+            /** 各インターセプタの処理を実装するクラスのデフォルトコンストラクタ */
+            @SuppressWarnings("rawtypes")
+            private final Constructor<? extends Interceptor.Impl>[] constructors;
+
+            /**
+             * コンストラクタ。
+             *
+             * @param order ソートに使用した実行順定義
+             * @param sortedInterceptors ソート後のインターセプタ
+             */
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            private SortedInterceptors(List<String> order, List<Annotation> sortedInterceptors) {
+                this.order = order;
+                this.annotations = sortedInterceptors.toArray(new Annotation[sortedInterceptors.size()]);
+                this.constructors = new Constructor[annotations.length];
+                for (int i = 0; i < annotations.length; i++) {
+                    constructors[i] = getConstructor(getInterceptorOf(annotations[i]));
+                }
+            }
+        }
     }
 }
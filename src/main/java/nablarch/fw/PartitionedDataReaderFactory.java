@@ -0,0 +1,34 @@
+package nablarch.fw;
+
+import java.util.List;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 入力データを複数のパーティションに分割して読み込むデータリーダを生成するファクトリ。
+ * <p/>
+ * {@link PartitionedExecutionHandler}は、実行コンテキストに設定されたデータリーダファクトリが
+ * 本インタフェースを実装している場合、{@link #createReaders(ExecutionContext, int)}が返す
+ * データリーダごとに実行コンテキストを複製し、それぞれを別スレッドで処理する。
+ * <p/>
+ * パーティションの分割方法(キーの範囲、ファイルのオフセット、ハッシュ値等)は実装クラスが決定する。
+ * 各パーティションのデータリーダが読み込むデータを合わせたものは、
+ * {@link #createReader(ExecutionContext)}が返すデータリーダが読み込むデータと一致しなければならない。
+ *
+ * @param <TData> データリーダが読み込むデータの型
+ */
+@Published(tag = "architect")
+public interface PartitionedDataReaderFactory<TData> extends DataReaderFactory<TData> {
+
+    /**
+     * パーティションごとのデータリーダを作成する。
+     * <p/>
+     * 返却するデータリーダは互いに独立しており、別々のスレッドから並行して使用できなければならない。
+     * 入力データの件数が少ない場合等は、指定された数より少ない数のデータリーダを返してもよい。
+     *
+     * @param context 実行コンテキスト
+     * @param partitionCount パーティション数の上限(1以上)
+     * @return パーティションごとのデータリーダ(パーティションの順序で並べたもの)
+     */
+    List<DataReader<TData>> createReaders(ExecutionContext context, int partitionCount);
+}
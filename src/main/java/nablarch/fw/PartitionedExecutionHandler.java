@@ -0,0 +1,128 @@
+package nablarch.fw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 入力データをパーティションに分割し、パーティションごとに後続ハンドラを並行して実行するハンドラ。
+ * <p/>
+ * 実行コンテキストに設定されたデータリーダファクトリが{@link PartitionedDataReaderFactory}を実装している場合、
+ * 最大で{@link #setPartitionCount(int)}で指定された数のデータリーダを作成する。
+ * 実装していない場合は、実行コンテキストのデータリーダを使用する1つのパーティションとして処理する。
+ * <p/>
+ * パーティションごとに実行コンテキストを{@link ExecutionContext#copy()}で複製してデータリーダを設定し、
+ * スレッドプール上で後続ハンドラを実行する。
+ * 後続ハンドラの処理が終了した時点で、各パーティションのデータリーダを閉じる。
+ * 各スレッドの{@link ThreadContext#getConcurrentNumber()}はパーティション数となる。
+ * <p/>
+ * 全てのパーティションの処理が終了するまで待機し、
+ * 各パーティションの処理結果をパーティションの順序で格納した{@link Result.MultiStatus}を返す。
+ * 後続ハンドラが{@link Result}以外の値を返した場合は、{@link Result.Success}を格納する。
+ * いずれかのパーティションで例外が発生した場合は、全てのパーティションの処理が終了した後に、
+ * 最も順序が前のパーティションで発生した例外を送出する。
+ * それ以外のパーティションで発生した例外は、送出する例外の抑制された例外として追加する。
+ *
+ * @see PartitionedDataReaderFactory
+ */
+@Published(tag = "architect")
+public class PartitionedExecutionHandler implements Handler<Object, Result.MultiStatus> {
+
+    /** パーティション数の上限 */
+    private int partitionCount = 1;
+
+    /**
+     * パーティション数の上限を設定する。
+     * <p/>
+     * デフォルトは1である。
+     *
+     * @param partitionCount パーティション数の上限(1以上)
+     * @throws IllegalArgumentException 1未満の値を指定した場合
+     */
+    public void setPartitionCount(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException(
+                    "partitionCount must be greater than 0. partitionCount = " + partitionCount);
+        }
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * パーティションごとに後続ハンドラを並行して実行し、その処理結果を返す。
+     */
+    @Override
+    public Result.MultiStatus handle(final Object data, ExecutionContext context) {
+        final List<ExecutionContext> partitions = createPartitions(context);
+        final Result.MultiStatus status = new Result.MultiStatus();
+        if (partitions.isEmpty()) {
+            return status;
+        }
+        final int concurrentNumber = partitions.size();
+        final ExecutorService executor = createExecutorService(concurrentNumber);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>(concurrentNumber);
+        try {
+            for (final ExecutionContext partition : partitions) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        ThreadContext.setConcurrentNumber(concurrentNumber);
+                        try {
+                            return partition.handleNext(data);
+                        } finally {
+                            partition.closeReader();
+                        }
+                    }
+                }));
+            }
+            for (Object result : FutureResults.awaitAll(futures)) {
+                status.addResults(result instanceof Result ? (Result) result : new Result.Success());
+            }
+            return status;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * パーティションを処理するスレッドプールを生成する。
+     * <p/>
+     * デフォルト実装では、パーティション数と同じ数のスレッドを持つ固定サイズのスレッドプールを生成する。
+     * 生成したスレッドプールは、全てのパーティションの処理が終了した時点でシャットダウンする。
+     *
+     * @param concurrentNumber パーティション数
+     * @return スレッドプール
+     */
+    protected ExecutorService createExecutorService(int concurrentNumber) {
+        return Executors.newFixedThreadPool(concurrentNumber);
+    }
+
+    /**
+     * パーティションごとの実行コンテキストを作成する。
+     *
+     * @param context 実行コンテキスト
+     * @return パーティションごとの実行コンテキスト
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<ExecutionContext> createPartitions(ExecutionContext context) {
+        final DataReaderFactory<?> factory = context.getDataReaderFactory();
+        if (!(factory instanceof PartitionedDataReaderFactory)) {
+            return Collections.singletonList(context.copy());
+        }
+        final List<DataReader> readers =
+                ((PartitionedDataReaderFactory) factory).createReaders(context, partitionCount);
+        final List<ExecutionContext> partitions = new ArrayList<ExecutionContext>(readers.size());
+        for (DataReader reader : readers) {
+            partitions.add(context.copy().setDataReader(reader));
+        }
+        return partitions;
+    }
+}
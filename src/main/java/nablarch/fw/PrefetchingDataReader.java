@@ -0,0 +1,308 @@
+package nablarch.fw;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 別スレッドで入力データを先読みする{@link DataReader}。
+ * <p/>
+ * 委譲先のデータリーダからの読み込みを先読みスレッドで行い、
+ * 読み込んだデータを指定された件数を上限とするキューに格納する。
+ * これにより、ファイルやデータベースからの読み込みにかかるI/O待ちと業務処理とを並行して行うことができる。
+ * <p/>
+ * キューが満杯の場合、先読みスレッドは空きができるまで待機する。
+ * このため、先読みされるデータの件数は最大でキューの上限件数に1件を加えたものとなる。
+ * <p/>
+ * 委譲先のデータリーダで発生した例外は、データを読み込む順序を保ったまま
+ * {@link #hasNext(ExecutionContext)}及び{@link #read(ExecutionContext)}から送出される。
+ * 例外が発生した後は先読みを停止し、以降の呼び出しでは同じ例外を送出する。
+ * <p/>
+ * {@link #close(ExecutionContext)}を呼び出すと、先読みスレッドの終了を待ち合わせた上で
+ * 委譲先のデータリーダを閉じる。このため、委譲先のデータリーダの読み込みと解放が並行して行われることはない。
+ * <p/>
+ * 委譲先のデータリーダには、最初に{@link #hasNext(ExecutionContext)}等を呼び出した際の
+ * 実行コンテキストが先読みスレッドから渡される。
+ * 先読みスレッドは呼び出し元のスレッドから{@link nablarch.core.ThreadContext}の内容を引き継ぐが、
+ * スレッドに紐付くリソース(データベース接続等)を読み込みの都度取得するデータリーダは本クラスで先読みできない。
+ *
+ * @param <TData> このクラスが読み込んだデータの型
+ */
+@Published(tag = "architect")
+public class PrefetchingDataReader<TData> implements BatchDataReader<TData> {
+
+    /** キューの上限件数のデフォルト値 */
+    public static final int DEFAULT_DEPTH = 64;
+
+    /** 委譲先のデータリーダが読み込みを終えたことを示すマーカ */
+    private static final Object END = new Object();
+
+    /** 委譲先のデータリーダがnullを返したことを示すマーカ */
+    private static final Object NULL_DATA = new Object();
+
+    /** 委譲先のデータリーダ */
+    private final DataReader<TData> reader;
+
+    /** 先読みしたデータを格納するキュー */
+    private final BlockingQueue<Object> queue;
+
+    /** キューから取り出した、まだ返却していない要素 */
+    private Object next;
+
+    /** 先読みスレッド(最初にデータを読み込む時点で生成する) */
+    private Thread prefetcher;
+
+    /** 閉じられたか否か */
+    private volatile boolean closed;
+
+    /**
+     * キューの上限件数を{@link #DEFAULT_DEPTH}としてオブジェクトを生成する。
+     *
+     * @param reader 委譲先のデータリーダ
+     */
+    public PrefetchingDataReader(DataReader<TData> reader) {
+        this(reader, DEFAULT_DEPTH);
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param reader 委譲先のデータリーダ
+     * @param depth キューの上限件数(1以上)
+     * @throws IllegalArgumentException 委譲先のデータリーダがnullの場合、もしくは上限件数が1未満の場合
+     */
+    public PrefetchingDataReader(DataReader<TData> reader, int depth) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader must not be null.");
+        }
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be greater than 0. depth = " + depth);
+        }
+        this.reader = reader;
+        this.queue = new ArrayBlockingQueue<Object>(depth);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 先読みしたデータが存在しない場合は、次のデータが読み込まれるまで待機する。
+     */
+    @Override
+    public synchronized TData read(ExecutionContext ctx) {
+        if (!hasNext(ctx)) {
+            return null;
+        }
+        return take();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 先読みしたデータが存在しない場合は、次のデータが読み込まれるか、
+     * 委譲先のデータリーダが読み込みを終えるまで待機する。
+     */
+    @Override
+    public synchronized boolean hasNext(ExecutionContext ctx) {
+        if (closed) {
+            return false;
+        }
+        if (next == null) {
+            start(ctx);
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for prefetched data.", e);
+            }
+        }
+        return peek();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 1件目のデータが読み込まれるまでは待機するが、
+     * 2件目以降は既に先読みされているデータのみを返し、待機しない。
+     * 2件目以降の読み込み中に委譲先のデータリーダで発生した例外は、次回の呼び出しで送出する。
+     */
+    @Override
+    public synchronized int read(ExecutionContext ctx, List<? super TData> buffer, int maxCount) {
+        if (!hasNext(ctx)) {
+            return 0;
+        }
+        int count = 0;
+        do {
+            buffer.add(take());
+            count++;
+        } while (count < maxCount && (next = queue.poll()) != null && next != END && !(next instanceof Failure));
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 先読みスレッドを停止し、その終了を待ち合わせた上で委譲先のデータリーダを閉じる。
+     */
+    @Override
+    public void close(ExecutionContext ctx) {
+        final Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            next = null;
+            thread = prefetcher;
+        }
+        if (thread != null) {
+            // 満杯のキューへの格納で待機している先読みスレッドを再開させる。
+            queue.clear();
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            queue.clear();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        reader.close(ctx);
+    }
+
+    /**
+     * 先読みスレッドを生成する。
+     * <p/>
+     * デフォルト実装では、委譲先のデータリーダのクラス名を名前に含むデーモンスレッドを生成する。
+     * スレッド名や優先度を変更する場合は、本メソッドをオーバーライドすること。
+     * 返却するスレッドは起動前の状態でなければならない。
+     *
+     * @param task 先読み処理
+     * @return 先読みスレッド
+     */
+    protected Thread createThread(Runnable task) {
+        final Thread thread = new Thread(task, "prefetch-" + reader.getClass().getSimpleName());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 先読みスレッドが起動されていない場合は起動する。
+     *
+     * @param ctx 委譲先のデータリーダに渡す実行コンテキスト
+     */
+    private void start(final ExecutionContext ctx) {
+        if (prefetcher != null) {
+            return;
+        }
+        prefetcher = createThread(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(ctx);
+            }
+        });
+        prefetcher.start();
+    }
+
+    /**
+     * 委譲先のデータリーダからデータを読み込み、キューに格納する。
+     * <p/>
+     * 読み込みを終えた場合は{@link #END}を、例外が発生した場合はその例外を格納して終了する。
+     *
+     * @param ctx 委譲先のデータリーダに渡す実行コンテキスト
+     */
+    private void prefetch(ExecutionContext ctx) {
+        Object element;
+        try {
+            while (!closed && reader.hasNext(ctx)) {
+                final TData data = reader.read(ctx);
+                if (!offer(data == null ? NULL_DATA : data)) {
+                    return;
+                }
+            }
+            element = END;
+        } catch (Throwable e) {
+            element = new Failure(e);
+        }
+        offer(element);
+    }
+
+    /**
+     * キューに要素を格納する。
+     * <p/>
+     * キューが満杯の場合は空きができるまで待機する。
+     *
+     * @param element 要素
+     * @return 格納した場合は{@code true}。閉じられたため格納しなかった場合は{@code false}
+     */
+    private boolean offer(Object element) {
+        while (!closed) {
+            try {
+                queue.put(element);
+                return true;
+            } catch (InterruptedException e) {
+                // 閉じられていなければ格納を再試行する。
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返却していない要素に次のデータが存在するか否かを判定する。
+     * <p/>
+     * 要素が例外の場合はその例外を送出する。
+     *
+     * @return 次のデータが存在する場合は{@code true}
+     */
+    private boolean peek() {
+        if (next == END) {
+            return false;
+        }
+        if (next instanceof Failure) {
+            final Throwable cause = ((Failure) next).cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return true;
+    }
+
+    /**
+     * 返却していない要素をデータとして取り出す。
+     *
+     * @return データ
+     */
+    @SuppressWarnings("unchecked")
+    private TData take() {
+        final Object element = next;
+        next = null;
+        return element == NULL_DATA ? null : (TData) element;
+    }
+
+    /**
+     * 委譲先のデータリーダで発生した例外を保持するクラス。
+     */
+    private static final class Failure {
+
+        /** 発生した例外 */
+        private final Throwable cause;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param cause 発生した例外
+         */
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
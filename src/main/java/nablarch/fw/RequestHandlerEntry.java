@@ -71,6 +71,9 @@ implements HandlerWrapper<TRequest, TResult> {
     
     /** URIとリクエストパターンのマッピングを行うクラス */
     private RequestPathMatchingHelper helper;
+
+    /** リクエストパスのパターン文字列 */
+    private String requestPattern;
     
     /**
      * このエントリ内のハンドラを実行するリクエストパスの
@@ -81,8 +84,18 @@ implements HandlerWrapper<TRequest, TResult> {
     public RequestHandlerEntry<TRequest, TResult>
     setRequestPattern(String requestPattern) {
         helper = new RequestPathMatchingHelper(false).setRequestPattern(requestPattern);
+        this.requestPattern = requestPattern;
         return this;
     }
+
+    /**
+     * このエントリ内のハンドラを実行するリクエストパスの
+     * パターン文字列を返す。
+     * @return リクエストパターン文字列
+     */
+    public String getRequestPattern() {
+        return requestPattern;
+    }
     
     /**
      * 渡されたリクエストに対して、ハンドラを実行する必要があるかどうかを判断する。
@@ -9,6 +9,7 @@ import nablarch.core.log.Logger;
 import nablarch.core.log.LoggerManager;
 import nablarch.core.util.Builder;
 import nablarch.core.util.Glob;
+import nablarch.core.util.GlobMatcher;
 import nablarch.core.util.StringUtil;
 
 /**
@@ -69,17 +70,19 @@ public class RequestPathMatchingHelper {
     /** リクエストパスのパターン中のディレクトリパス部分 */
     private String directoryPath;
     /** リクエストパスのパターン文字列をコンパイルしたオブジェクト */
-    private Pattern directoryPathPattern;
+    private GlobMatcher directoryPathMatcher;
     /** リクエストパスのパターン中のリソース名部分 */
     private String resourceName;
     /** リクエストパスのパターン中にリソース名部分が含まれるか？ */
     private boolean hasResourceNamePattern;
-    /** リソース名のパターン文字列をコンパイルしたオブジェクト */
-    private Pattern resourceNamePattern;
+    /** リソース名のパターン文字列をコンパイルしたオブジェクト(照合用) */
+    private GlobMatcher resourceNameMatcher;
     /** リクエストパスのパターンはサブノードにも適用されるか？ */
     private boolean affectsDescendantNodes;
     /** ドットをスラッシュに置換するかどうか */
     private boolean isReplaceDot;
+    /** サブクラスで{@link #matchesWith(String, String)}がオーバーライドされているか？ */
+    private final boolean overridesMatchesWith;
     
     /**
      *  コンストラクタ。
@@ -89,6 +92,27 @@ public class RequestPathMatchingHelper {
      */
     public RequestPathMatchingHelper(boolean isReplaceDot) {
         this.isReplaceDot = isReplaceDot;
+        this.overridesMatchesWith = overrides(getClass(), "matchesWith", String.class, String.class);
+    }
+
+    /**
+     * 指定されたクラスが、本クラスのメソッドをオーバーライドしているか否か。
+     *
+     * @param clazz 判定対象のクラス
+     * @param name メソッド名
+     * @param parameterTypes 引数の型
+     * @return オーバーライドしている場合は{@code true}
+     */
+    private static boolean overrides(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        for (Class<?> c = clazz; c != RequestPathMatchingHelper.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // 親クラスを確認する。
+            }
+        }
+        return false;
     }
     
     /**
@@ -112,10 +136,10 @@ public class RequestPathMatchingHelper {
             // 前方一致できるように最後の"/"を除去
             directoryPath = directoryPath.substring(0, directoryPath.length() - 1);
         }
-        directoryPathPattern = Glob.compile(directoryPath);
+        directoryPathMatcher = GlobMatcher.compile(directoryPath);
         hasResourceNamePattern = !StringUtil.isNullOrEmpty(resourceName);
         if (hasResourceNamePattern) {
-            resourceNamePattern = Glob.compile(resourceName);
+            resourceNameMatcher = GlobMatcher.compile(resourceName);
         }
         if (affectsDescendantNodes) {
             directoryPath = directoryPath.replaceAll("//$", "/");
@@ -143,6 +167,9 @@ public class RequestPathMatchingHelper {
     
     /**
      * 渡されたリクエストパスと、リクエストパスのパターン文字列との照合を行う。
+     * <p/>
+     * 正規化したリクエストパスを先頭から走査してディレクトリパスとリソース名の境界を求め、
+     * 部分文字列を生成せずに照合する。
      * 
      * @param req HTTPリクエストオブジェクト
      * @param context 実行コンテキスト
@@ -155,18 +182,43 @@ public class RequestPathMatchingHelper {
         }
 
         String normalizedRequestPath = normalizeRequestPath(req);
-        
-        Matcher m = REQUEST_PATH_SYNTAX.matcher(normalizedRequestPath);
-        if (!m.matches()) {
-            //normalizeRequestPathメソッドでリクエストパスの正規化が行われるため、ここには通常到達しない。
+
+        int directoryEnd = findDirectoryEnd(normalizedRequestPath);
+        if (directoryEnd < 0) {
+            //normalizeRequestPathメソッドでリクエストパスの正規化が行われるため、通常は制御文字を含む場合のみここに到達する。
             return false;
         }
-        String requestedDirectoryPath =  m.group(1);
-        String requestedResourceName  = (m.group(2) == null) ? "" : m.group(2);
-        
-        return matchesWith(requestedDirectoryPath, requestedResourceName);
+        if (overridesMatchesWith) {
+            return matchesWith(normalizedRequestPath.substring(0, directoryEnd + 1),
+                               normalizedRequestPath.substring(directoryEnd + 1));
+        }
+        return matchesWith(normalizedRequestPath, directoryEnd);
+    }
+
+    /**
+     * 正規化したリクエストパスを走査し、ディレクトリパスの末尾("/")の位置を返す。
+     * <p/>
+     * リクエストパスが"/"で開始しない場合や、制御文字を含む場合は書式不正とする。
+     *
+     * @param path 正規化したリクエストパス
+     * @return ディレクトリパスの末尾の位置。書式不正の場合は-1
+     */
+    static int findDirectoryEnd(CharSequence path) {
+        int length = path.length();
+        if (length == 0 || path.charAt(0) != '/') {
+            return -1;
+        }
+        int directoryEnd = 0;
+        for (int i = 1; i < length; i++) {
+            char c = path.charAt(i);
+            if (c == '/') {
+                directoryEnd = i;
+            } else if (c < 0x20 || c == 0x7F) {
+                return -1;
+            }
+        }
+        return directoryEnd;
     }
-    
 
     /**
      * リクエストパスを正規化する。
@@ -180,20 +232,54 @@ public class RequestPathMatchingHelper {
      * コンストラクタでreplaceDotフィールドにtrueが設定されている場合、リクエストパス中のドット(.)をスラッシュに置換するので、
      * クラスの完全修飾名がリクエストパスとして渡された場合でもディスパッチを行うことができる。<br/>
      * 例） abc.def.HogeAction/B00AA0000 -> abc/def/HogeAction/B00AA0000 <br/>
+     * <p/>
+     * 正規表現は使用せず、変換が不要な場合はリクエストパスの文字列をそのまま返す。
      *
      * @param req HTTPリクエストオブジェクト
      * @return 正規化したリクエストパス
      */
     protected String normalizeRequestPath(Request<?> req) {
-        String replacedRequestPath = req.getRequestPath()
-                                        .trim()
-                                        .replaceAll("^/?", "/");
+        String replacedRequestPath = req.getRequestPath().trim();
+        if (!replacedRequestPath.startsWith("/")) {
+            replacedRequestPath = '/' + replacedRequestPath;
+        }
         if (isReplaceDot) {
-            return replacedRequestPath.replaceAll("\\.", "/"); 
+            return replacedRequestPath.replace('.', '/');
         }
         return replacedRequestPath;
     }
 
+    /**
+     * リクエストパスのパターンが、正規化したリクエストパスに合致すればtrueを返す。
+     * <p/>
+     * {@link #matchesWith(String, String)}と同じ判定を、部分文字列を生成せずに行う。
+     *
+     * @param path 正規化したリクエストパス
+     * @param directoryEnd ディレクトリパスの末尾("/")の位置
+     * @return 合致すればtrue
+     */
+    private boolean matchesWith(String path, int directoryEnd) {
+        int resourceStart = directoryEnd + 1;
+        if (affectsDescendantNodes) {
+            // ディレクトリパスの前方一致
+            // (パターン側は"/"で終わるため、リクエストパス全体との前方一致はディレクトリパスとの前方一致と等価)
+            if (!path.startsWith(this.directoryPath)) {
+                return false;
+            }
+            if (StringUtil.isNullOrEmpty(this.resourceName)) {
+                return true;
+            }
+        } else if (!directoryPathMatcher.matches(path, 0, resourceStart)) {
+            return false;
+        }
+        if ("*".equals(this.resourceName)) {
+            return path.indexOf('.', resourceStart) < 0;
+        }
+        return hasResourceNamePattern
+                ? resourceNameMatcher.matches(path, resourceStart, path.length())
+                : resourceStart == path.length();
+    }
+
     /**
      * リクエストパスのパターンが、引数で指定されたディレクトリパスとリソース名に合致すればtrueを返す。
      *
@@ -217,28 +303,57 @@ public class RequestPathMatchingHelper {
                 if ("*".equals(this.resourceName)) {
                     return !resourceName.contains(".");
                 } else {
-                    return resourceNamePattern.matcher(resourceName).matches();
+                    return resourceNameMatcher.matches(resourceName);
                 }
             }
         } else if ("*".equals(this.resourceName)) {
             // リソース名のパターンが "*" だけの場合
 
             // ディレクトリパスがマッチしていて、かつリソース名に "." が含まれていない場合はマッチ
-            return directoryPathPattern.matcher(directoryPath).matches() && !resourceName.contains(".");
+            return directoryPathMatcher.matches(directoryPath) && !resourceName.contains(".");
         } else {
             // その他
             // ディレクトリパスはパターンマッチ
-            if (!directoryPathPattern.matcher(directoryPath).matches()) {
+            if (!directoryPathMatcher.matches(directoryPath)) {
                 return false;
             }
             // リソース名のパターンが指定された場合はパターンマッチ、
             // それ以外はリソース名がないことで判定
             return hasResourceNamePattern
-                    ? resourceNamePattern.matcher(resourceName).matches()
+                    ? resourceNameMatcher.matches(resourceName)
                     : StringUtil.isNullOrEmpty(resourceName);
         }
     }
     
+    /**
+     * リクエストパスのパターン中のディレクトリパス部分を返す。
+     * <p/>
+     * パターンがサブノードにも適用される場合は、前方一致に使用する文字列を返す。
+     *
+     * @return ディレクトリパス部分
+     */
+    String getDirectoryPath() {
+        return directoryPath;
+    }
+
+    /**
+     * リクエストパスのパターン中のリソース名部分を返す。
+     *
+     * @return リソース名部分。パターンに含まれない場合は{@code null}
+     */
+    String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * リクエストパスのパターンがサブノードにも適用されるか否かを返す。
+     *
+     * @return サブノードにも適用される場合は{@code true}
+     */
+    boolean affectsDescendantNodes() {
+        return affectsDescendantNodes;
+    }
+
     /** リクエストパスとして許容する文字 */
     private static final String ALLOWED_CHAR = "[^\\p{Cntrl}/]";
 
@@ -253,25 +368,16 @@ public class RequestPathMatchingHelper {
     , "$                       " //   最後の'/'以降の文字列全てを取得する。
     ), Pattern.COMMENTS);
 
-    /** リクエストパスの書式 */
-    private static final Pattern REQUEST_PATH_SYNTAX = Pattern.compile(
-    Builder.linesf(
-      "(              "         // キャプチャ#1: ディレクトリパス
-    , " ^/            "         //
-    , " (?: %s* / )*? ", ALLOWED_CHAR //
-    , ")              "         //
-    , "( %s+ )?       ", ALLOWED_CHAR // キャプチャ#2: リソース名
-    ), Pattern.COMMENTS);
-    
     /** {@inheritDoc} */
     public String toString() {
         String directoryPathStr = directoryPath
                                 + (affectsDescendantNodes ? "/" : "");
+        // 照合には正規表現を使用しないため、出力時にのみリソース名を正規表現に変換する。
         return Builder.linesf(
           "directoryPath         : %s", directoryPathStr
         , "resourceName          : %s", resourceName
         , "hasResourceNamePattern: %s", hasResourceNamePattern
-        , "resourceNamePattern   : %s", resourceNamePattern
+        , "resourceNamePattern   : %s", hasResourceNamePattern ? Glob.compile(resourceName) : null
         );
     }
 }
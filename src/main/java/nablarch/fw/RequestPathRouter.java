@@ -0,0 +1,340 @@
+package nablarch.fw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nablarch.core.util.Builder;
+import nablarch.core.util.GlobMatcher;
+import nablarch.core.util.StringUtil;
+
+/**
+ * リクエストパスに応じて、処理を委譲するハンドラを決定するハンドラ。
+ * <p/>
+ * {@link RequestHandlerEntry}をハンドラキュー上に並べた場合と同じ振る舞いをするが、
+ * 登録された全てのリクエストパスのパターンをディレクトリ階層単位の木構造(トライ)に変換して保持するため、
+ * 委譲先のハンドラはリクエストパスを1回走査するだけで決定できる。
+ * このため、登録するパターンの数が多い場合でも振り分けのコストがほとんど増加しない。
+ * <p/>
+ * パターンの書式は{@link RequestPathMatchingHelper}と同じである。
+ * 複数のパターンがリクエストパスに合致する場合は、先に登録したパターンのハンドラに処理を委譲する。
+ * いずれのパターンにも合致しない場合は、ハンドラキュー上の後続ハンドラに処理を委譲する。
+ * <p/>
+ * 本クラスへのハンドラの登録はスレッドセーフではない。
+ * ハンドラの登録は初期化時に行い、リクエストの処理を開始した後に登録内容を変更しないこと。
+ *
+ * @param <TRequest> リクエストデータの型
+ * @param <TResult> 処理結果のデータ型
+ * @see RequestPathMatchingHelper
+ * @see RequestHandlerEntry
+ */
+public class RequestPathRouter<TRequest extends Request<?>, TResult>
+implements HandlerWrapper<TRequest, TResult> {
+
+    /** トライの根 */
+    private final Node root = new Node(null);
+
+    /** 登録されたルート(登録順) */
+    private final List<Route> routes = new ArrayList<Route>();
+
+    /**
+     * {@inheritDoc}
+     * この実装では、リクエストパスに合致するパターンで登録されたハンドラを実行し、その結果を返す。
+     * 合致するパターンが存在しない場合は、ハンドラキュー上の後続ハンドラに処理を委譲し、その結果を返す。
+     */
+    @SuppressWarnings("unchecked")
+    public TResult handle(TRequest request, ExecutionContext context) {
+        final Route route = findRoute(request);
+        return route != null
+             ? (TResult) route.handler.handle(request, context)
+             : (TResult) context.handleNext(request);
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    public List<Object> getDelegates(TRequest request, ExecutionContext context) {
+        final Route route = findRoute(request);
+        return route != null ? Arrays.<Object>asList(route.handler)
+                             : Collections.EMPTY_LIST;
+    }
+
+    /**
+     * ハンドラを登録する。
+     *
+     * @param requestPattern このハンドラを実行するリクエストパスのパターン文字列
+     * @param handler リクエストハンドラ
+     * @return このオブジェクト自体
+     * @throws IllegalArgumentException パターン文字列の書式が不正な場合
+     */
+    public RequestPathRouter<TRequest, TResult>
+    addHandler(String requestPattern, Handler<TRequest, TResult> handler) {
+        if (StringUtil.isNullOrEmpty(requestPattern)) {
+            throw new IllegalArgumentException("requestPattern must not be null or blank.");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null.");
+        }
+        final RequestPathMatchingHelper helper =
+                new RequestPathMatchingHelper(false).setRequestPattern(requestPattern);
+        final Route route = new Route(routes.size(), requestPattern, helper,
+                Interceptor.Factory.wrap(handler));
+        routes.add(route);
+        root.insert(route, splitSegments(helper.getDirectoryPath()), 0, helper.affectsDescendantNodes());
+        return this;
+    }
+
+    /**
+     * {@link RequestHandlerEntry}の内容をハンドラとして登録する。
+     * <p/>
+     * 各エントリのリクエストパスのパターンとハンドラを、リストの順に{@link #addHandler(String, Handler)}で登録する。
+     * {@link RequestHandlerEntry#isAppliedTo(Request, ExecutionContext)}をオーバーライドしたエントリの判定処理は使用されない。
+     *
+     * @param entries 登録するエントリ
+     */
+    public void setHandlerEntries(List<RequestHandlerEntry<TRequest, TResult>> entries) {
+        for (RequestHandlerEntry<TRequest, TResult> entry : entries) {
+            addHandler(entry.getRequestPattern(), entry.getDelegate());
+        }
+    }
+
+    /**
+     * リクエストパスに合致するルートを検索する。
+     *
+     * @param request リクエスト
+     * @return 合致したルートのうち最初に登録されたもの。合致するルートが存在しない場合は{@code null}
+     */
+    private Route findRoute(TRequest request) {
+        final String path = normalizeRequestPath(request.getRequestPath());
+        final int directoryEnd = RequestPathMatchingHelper.findDirectoryEnd(path);
+        if (directoryEnd < 0) {
+            return null;
+        }
+        final String resourceName = path.substring(directoryEnd + 1);
+        return root.find(path, 1, directoryEnd, resourceName, null);
+    }
+
+    /**
+     * リクエストパスを正規化する。
+     * <p/>
+     * {@link RequestPathMatchingHelper#normalizeRequestPath(Request)}と同様に、
+     * 前後の空白文字を除去し、先頭が"/"でない場合は補完する。
+     *
+     * @param requestPath リクエストパス
+     * @return 正規化したリクエストパス
+     */
+    private static String normalizeRequestPath(String requestPath) {
+        final String trimmed = requestPath.trim();
+        return trimmed.startsWith("/") ? trimmed : '/' + trimmed;
+    }
+
+    /**
+     * ディレクトリパスをディレクトリ階層毎に分割する。
+     *
+     * @param directoryPath ディレクトリパス("/"で開始し、"/"で終わる文字列)
+     * @return ディレクトリ階層毎の文字列
+     */
+    private static String[] splitSegments(String directoryPath) {
+        final List<String> segments = new ArrayList<String>();
+        int start = 1;
+        int end;
+        while ((end = directoryPath.indexOf('/', start)) >= 0) {
+            segments.add(directoryPath.substring(start, end));
+            start = end + 1;
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * ディレクトリ階層の文字列がワイルドカードを含むか否か。
+     *
+     * @param segment ディレクトリ階層の文字列
+     * @return ワイルドカードを含む場合は{@code true}
+     */
+    private static boolean hasWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final List<String> lines = new ArrayList<String>();
+        for (Route route : routes) {
+            lines.add(route.requestPattern + " => " + route.handler);
+        }
+        return Builder.join(lines);
+    }
+
+    /**
+     * 登録されたハンドラとその適用条件。
+     */
+    private static final class Route {
+
+        /** 登録順 */
+        private final int index;
+
+        /** リクエストパスのパターン文字列 */
+        private final String requestPattern;
+
+        /** サブノードにも適用されるか否か */
+        private final boolean affectsDescendantNodes;
+
+        /** リソース名のパターン文字列 */
+        private final String resourceName;
+
+        /** リソース名のパターン */
+        private final GlobMatcher resourceNameMatcher;
+
+        /** リクエストハンドラ */
+        @SuppressWarnings("rawtypes")
+        private final Handler handler;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param index 登録順
+         * @param requestPattern リクエストパスのパターン文字列
+         * @param helper パターン文字列を解析した{@link RequestPathMatchingHelper}
+         * @param handler リクエストハンドラ
+         */
+        @SuppressWarnings("rawtypes")
+        private Route(int index, String requestPattern, RequestPathMatchingHelper helper, Handler handler) {
+            this.index = index;
+            this.requestPattern = requestPattern;
+            this.affectsDescendantNodes = helper.affectsDescendantNodes();
+            this.resourceName = StringUtil.isNullOrEmpty(helper.getResourceName()) ? null : helper.getResourceName();
+            this.resourceNameMatcher = resourceName == null ? null : GlobMatcher.compile(resourceName);
+            this.handler = handler;
+        }
+
+        /**
+         * リソース名がこのルートの条件に合致するか否か。
+         * <p/>
+         * {@link RequestPathMatchingHelper#matchesWith(String, String)}のリソース名の判定と同じ判定を行う。
+         *
+         * @param requestedResourceName リクエストパス中のリソース名
+         * @return 合致する場合は{@code true}
+         */
+        private boolean matchesResourceName(String requestedResourceName) {
+            if (resourceName == null) {
+                return affectsDescendantNodes || requestedResourceName.isEmpty();
+            }
+            if ("*".equals(resourceName)) {
+                return requestedResourceName.indexOf('.') < 0;
+            }
+            return resourceNameMatcher.matches(requestedResourceName);
+        }
+    }
+
+    /**
+     * トライのノード。1つのノードが1つのディレクトリ階層に対応する。
+     */
+    private static final class Node {
+
+        /** このノードに至るディレクトリ階層のパターン(ワイルドカードを含む場合のみ) */
+        private final GlobMatcher segmentMatcher;
+
+        /** ワイルドカードを含まない子ノード */
+        private final Map<String, Node> literalChildren = new HashMap<String, Node>();
+
+        /** ワイルドカードを含む子ノード */
+        private final Map<String, Node> wildcardChildren = new HashMap<String, Node>();
+
+        /** ディレクトリパスがこのノードで終わる場合に適用されるルート(登録順) */
+        private final List<Route> exactRoutes = new ArrayList<Route>();
+
+        /** ディレクトリパスがこのノードを経由する場合に適用されるルート(登録順) */
+        private final List<Route> descendantRoutes = new ArrayList<Route>();
+
+        /** このノード以下に登録されたルートの最小の登録順 */
+        private int minIndex = Integer.MAX_VALUE;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param segmentMatcher このノードに至るディレクトリ階層のパターン
+         */
+        private Node(GlobMatcher segmentMatcher) {
+            this.segmentMatcher = segmentMatcher;
+        }
+
+        /**
+         * ルートを登録する。
+         *
+         * @param route ルート
+         * @param segments ディレクトリ階層毎のパターン文字列
+         * @param depth このノードの深さ
+         * @param descendant サブノードにも適用されるか否か
+         */
+        private void insert(Route route, String[] segments, int depth, boolean descendant) {
+            minIndex = Math.min(minIndex, route.index);
+            if (depth == segments.length) {
+                (descendant ? descendantRoutes : exactRoutes).add(route);
+                return;
+            }
+            final String segment = segments[depth];
+            // 前方一致のパターンはワイルドカードを評価しない。(RequestPathMatchingHelperと同じ)
+            final boolean wildcard = !descendant && hasWildcard(segment);
+            final Map<String, Node> children = wildcard ? wildcardChildren : literalChildren;
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node(wildcard ? GlobMatcher.compile(segment) : null);
+                children.put(segment, child);
+            }
+            child.insert(route, segments, depth + 1, descendant);
+        }
+
+        /**
+         * リクエストパスに合致するルートを検索する。
+         *
+         * @param path 正規化したリクエストパス
+         * @param start このノードで評価するディレクトリ階層の開始位置
+         * @param directoryEnd ディレクトリパスの末尾("/")の位置
+         * @param resourceName リクエストパス中のリソース名
+         * @param found これまでに見つかったルート
+         * @return 合致したルートのうち最初に登録されたもの。合致するルートが存在しない場合は{@code null}
+         */
+        private Route find(String path, int start, int directoryEnd, String resourceName, Route found) {
+            if (found != null && minIndex >= found.index) {
+                return found;
+            }
+            found = select(descendantRoutes, resourceName, found);
+            if (start > directoryEnd) {
+                return select(exactRoutes, resourceName, found);
+            }
+            final int end = path.indexOf('/', start);
+            final Node literal = literalChildren.get(path.substring(start, end));
+            if (literal != null) {
+                found = literal.find(path, end + 1, directoryEnd, resourceName, found);
+            }
+            for (Node child : wildcardChildren.values()) {
+                if (child.segmentMatcher.matches(path, start, end)) {
+                    found = child.find(path, end + 1, directoryEnd, resourceName, found);
+                }
+            }
+            return found;
+        }
+
+        /**
+         * ルートの中から、リソース名が合致するものを選択する。
+         *
+         * @param candidates 候補となるルート(登録順)
+         * @param resourceName リクエストパス中のリソース名
+         * @param found これまでに見つかったルート
+         * @return 合致したルートとこれまでに見つかったルートのうち、最初に登録されたもの
+         */
+        private static Route select(List<Route> candidates, String resourceName, Route found) {
+            for (Route route : candidates) {
+                if (found != null && route.index >= found.index) {
+                    break;
+                }
+                if (route.matchesResourceName(resourceName)) {
+                    return route;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package nablarch.fw;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * リクエストスコープ上の変数を格納するMap。
+ * <p/>
+ * 全ての変数は変数名をキーとした{@link HashMap}に格納するため、
+ * 変数名を使用したアクセスは{@link HashMap}の1回の検索で完結する。
+ * <p/>
+ * {@link ScopeKey}を使用して変数に値を設定すると、その変数の値を保持する{@link Slot}を{@link HashMap}に格納し、
+ * 同じ{@link Slot}をスロット番号で添字付けた配列からも参照する。
+ * 以降の{@link ScopeKey}を使用したアクセスは配列の参照のみで完結し、変数名のハッシュ値を計算しない。
+ * 変数名を使用したアクセスで{@link Slot}が見つかった場合は、{@link Slot}の値を読み書きする。
+ * <p/>
+ * {@link Slot}は値が削除された後も{@link HashMap}に残し、値が存在しないことを示すマーカを設定する。
+ * <p/>
+ * 本クラスはスレッドアンセーフである。
+ */
+final class RequestScopeMap extends AbstractMap<String, Object> {
+
+    /** 値が存在しないことを示すマーカ */
+    private static final Object ABSENT = new Object();
+
+    /** 変数名をキーとした変数の値({@link ScopeKey}でアクセスした変数の値は{@link Slot}) */
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    /** スロット番号で添字付けた{@link Slot}({@link ScopeKey}でアクセスしていない変数はnull) */
+    private Slot[] slots;
+
+    /** {@link #values}に格納された{@link Slot}のうち、値が存在しないものの数 */
+    private int absentCount;
+
+    /** 値が存在するエントリの増減を伴う変更の回数(イテレータが並行した変更を検知するために使用する) */
+    private int modCount;
+
+    /** エントリのセット */
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    /**
+     * コンストラクタ。
+     */
+    RequestScopeMap() {
+        slots = new Slot[ScopeKey.count()];
+    }
+
+    /**
+     * {@link ScopeKey}に対応する変数の値を取得する。
+     * <p/>
+     * まだ{@link Slot}が無い場合は変数名で値を参照し、{@link Slot}は生成しない。
+     *
+     * @param <T> 変数の型
+     * @param key キー
+     * @return 変数の値
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getValue(ScopeKey<T> key) {
+        final int index = key.getIndex();
+        if (index < slots.length) {
+            final Slot slot = slots[index];
+            if (slot != null) {
+                final Object value = slot.value;
+                return value == ABSENT ? null : (T) value;
+            }
+        }
+        return (T) get(key.getName());
+    }
+
+    /**
+     * {@link ScopeKey}に対応する変数の値を設定する。
+     *
+     * @param <T> 変数の型
+     * @param key キー
+     * @param value 変数の値
+     * @return 設定前の変数の値
+     */
+    @SuppressWarnings("unchecked")
+    <T> T putValue(ScopeKey<T> key, T value) {
+        return (T) set(slot(key), value);
+    }
+
+    @Override
+    public Object get(Object key) {
+        final Object value = values.get(key);
+        if (value instanceof Slot) {
+            final Object slotValue = ((Slot) value).value;
+            return slotValue == ABSENT ? null : slotValue;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final Object value = values.get(key);
+        if (value instanceof Slot) {
+            return ((Slot) value).value != ABSENT;
+        }
+        return value != null || values.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        final Object old = values.put(key, value);
+        if (old instanceof Slot) {
+            // ScopeKeyでアクセスした変数は、Slotを戻して値のみを差し替える
+            values.put(key, old);
+            return set((Slot) old, value);
+        }
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        final Object value = values.get(key);
+        if (value instanceof Slot) {
+            return unset((Slot) value);
+        }
+        return values.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size() - absentCount;
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+        absentCount = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * {@link ScopeKey}に対応する{@link Slot}を取得する。
+     * <p/>
+     * まだ{@link Slot}が無い場合は、変数名で設定された値を引き継いだ{@link Slot}を生成して格納する。
+     *
+     * @param key キー
+     * @return {@link Slot}
+     */
+    private Slot slot(ScopeKey<?> key) {
+        final int index = key.getIndex();
+        if (index >= slots.length) {
+            final Slot[] newSlots = new Slot[Math.max(index + 1, ScopeKey.count())];
+            System.arraycopy(slots, 0, newSlots, 0, slots.length);
+            slots = newSlots;
+        }
+        Slot slot = slots[index];
+        if (slot == null) {
+            slot = new Slot();
+            final String name = key.getName();
+            if (values.containsKey(name)) {
+                slot.value = values.put(name, slot);
+            } else {
+                values.put(name, slot);
+                absentCount++;
+            }
+            slots[index] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * {@link Slot}に値を設定する。
+     *
+     * @param slot {@link Slot}
+     * @param value 値
+     * @return 設定前の値
+     */
+    private Object set(Slot slot, Object value) {
+        final Object old = slot.value;
+        slot.value = value;
+        if (old == ABSENT) {
+            absentCount--;
+            modCount++;
+            return null;
+        }
+        return old;
+    }
+
+    /**
+     * {@link Slot}の値を削除する。
+     *
+     * @param slot {@link Slot}
+     * @return 削除前の値
+     */
+    private Object unset(Slot slot) {
+        final Object old = slot.value;
+        if (old == ABSENT) {
+            return null;
+        }
+        slot.value = ABSENT;
+        absentCount++;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * {@link ScopeKey}でアクセスした変数の値を保持するクラス。
+     */
+    private static final class Slot {
+        /** 値(存在しない場合は{@link #ABSENT}) */
+        private Object value = ABSENT;
+    }
+
+    /**
+     * エントリのセット。
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return RequestScopeMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            RequestScopeMap.this.clear();
+        }
+    }
+
+    /**
+     * 値が存在しない{@link Slot}を除いてエントリを返すイテレータ。
+     * <p/>
+     * 次のエントリを先読みせずに{@link #values}のイテレータを進めるため、
+     * エントリの削除は{@link #values}のイテレータに委譲する。
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        /** {@link #values}のエントリのイテレータ */
+        private final Iterator<Map.Entry<String, Object>> iterator = values.entrySet().iterator();
+
+        /** まだ返していない、値が存在するエントリの数 */
+        private int remaining = size();
+
+        /** イテレータの生成時もしくは最後に削除した時点の変更回数 */
+        private int expectedModCount = modCount;
+
+        /** 最後に返したエントリ(未返却もしくは削除済みの場合はnull) */
+        private Map.Entry<String, Object> last;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            checkForComodification();
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                final Map.Entry<String, Object> entry = iterator.next();
+                final Object value = entry.getValue();
+                if (!(value instanceof Slot) || ((Slot) value).value != ABSENT) {
+                    remaining--;
+                    last = entry;
+                    return new ValueEntry(entry);
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            final Object value = last.getValue();
+            if (value instanceof Slot) {
+                unset((Slot) value);
+                expectedModCount = modCount;
+            } else {
+                iterator.remove();
+            }
+            last = null;
+        }
+
+        /**
+         * {@link Slot}の値の設定や削除が並行して行われていないことを確認する。
+         *
+         * @throws ConcurrentModificationException 並行して変更された場合
+         */
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * {@link #values}のエントリをラップし、{@link Slot}の値を読み書きするエントリ。
+     */
+    private final class ValueEntry implements Map.Entry<String, Object> {
+
+        /** ラップしたエントリ */
+        private final Map.Entry<String, Object> entry;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param entry ラップするエントリ
+         */
+        ValueEntry(Map.Entry<String, Object> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            final Object value = entry.getValue();
+            if (value instanceof Slot) {
+                final Object slotValue = ((Slot) value).value;
+                return slotValue == ABSENT ? null : slotValue;
+            }
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            final Object current = entry.getValue();
+            if (current instanceof Slot) {
+                return set((Slot) current, value);
+            }
+            return entry.setValue(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            final Object value = getValue();
+            return getKey().equals(e.getKey())
+                    && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + '=' + getValue();
+        }
+    }
+}
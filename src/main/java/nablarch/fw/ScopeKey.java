@@ -0,0 +1,112 @@
+package nablarch.fw;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import nablarch.core.util.StringUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * リクエストスコープ上の変数を型付きで読み書きする際に使用するキー。
+ * <p/>
+ * キーは変数名ごとに1つだけ生成され、生成時にスロット番号が採番される。
+ * {@link ExecutionContext#getRequestScopedVar(ScopeKey)}等で本クラスのキーを使用すると、
+ * 変数名のハッシュ値を計算せずにスロット番号によって変数を読み書きするため、
+ * フレームワークが頻繁に参照する変数へのアクセスを高速に行うことができる。
+ * <p/>
+ * 同じ変数名に対しては同じキーが返されるため、
+ * 本クラスのキーで設定した値は{@link ExecutionContext#getRequestScopeMap()}から変数名で参照でき、
+ * その逆も可能である。
+ * <p/>
+ * スロットはキーの生成ごとに確保され、解放されることはない。
+ * このため、本クラスのキーは定数として定義する変数名に対してのみ生成すること。
+ *
+ * @param <T> 変数の型
+ */
+@Published(tag = "architect")
+public final class ScopeKey<T> {
+
+    /** 変数名をキーとした生成済みのキー */
+    private static final ConcurrentMap<String, ScopeKey<?>> KEYS = new ConcurrentHashMap<String, ScopeKey<?>>();
+
+    /** 生成済みのキーの数 */
+    private static volatile int count;
+
+    /** 変数名 */
+    private final String name;
+
+    /** スロット番号 */
+    private final int index;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param name 変数名
+     * @param index スロット番号
+     */
+    private ScopeKey(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * 変数名に対応するキーを取得する。
+     * <p/>
+     * 変数名に対応するキーが生成されていない場合は、新たにスロット番号を採番してキーを生成する。
+     *
+     * @param <T> 変数の型
+     * @param name 変数名
+     * @return キー
+     * @throws IllegalArgumentException 変数名がnullまたは空文字列の場合
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ScopeKey<T> of(String name) {
+        if (StringUtil.isNullOrEmpty(name)) {
+            throw new IllegalArgumentException("name must not be null or empty.");
+        }
+        ScopeKey<?> key = KEYS.get(name);
+        if (key == null) {
+            synchronized (KEYS) {
+                key = KEYS.get(name);
+                if (key == null) {
+                    key = new ScopeKey<Object>(name, count);
+                    KEYS.put(name, key);
+                    count++;
+                }
+            }
+        }
+        return (ScopeKey<T>) key;
+    }
+
+    /**
+     * 生成済みのキーの数を取得する。
+     *
+     * @return 生成済みのキーの数
+     */
+    static int count() {
+        return count;
+    }
+
+    /**
+     * 変数名を取得する。
+     *
+     * @return 変数名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * スロット番号を取得する。
+     *
+     * @return スロット番号
+     */
+    int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -18,6 +18,9 @@ public interface TransactionEventCallback<TData> {
     /** リクエストデータを示すキー */
     String REQUEST_DATA_REQUEST_SCOPE_KEY = ExecutionContext.FW_PREFIX
                                           + "request-data";
+
+    /** リクエストデータを示す{@link ScopeKey}({@link #REQUEST_DATA_REQUEST_SCOPE_KEY}と同じ変数を指す) */
+    ScopeKey<Object> REQUEST_DATA_SCOPE_KEY = ScopeKey.of(REQUEST_DATA_REQUEST_SCOPE_KEY);
     
     /**
      * 入力データに対する処理が正常に処理された場合に呼ばれる。
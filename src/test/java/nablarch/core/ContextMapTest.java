@@ -0,0 +1,82 @@
+package nablarch.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link ContextMap}のテスト。
+ */
+public class ContextMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        ContextMap empty = ContextMap.EMPTY;
+        ContextMap one = empty.put("key", "value");
+        ContextMap two = one.put("key", "changed");
+
+        assertThat(empty.get("key"), is(nullValue()));
+        assertThat(one.get("key"), is((Object) "value"));
+        assertThat(two.get("key"), is((Object) "changed"));
+        assertThat(two.get("other"), is(nullValue()));
+
+        assertThat("値が変わらない場合は同じインスタンス", two.put("key", "changed"), sameInstance(two));
+        assertThat("存在しないキーの削除は同じインスタンス", two.put("other", null), sameInstance(two));
+        assertThat("全て削除した場合は空のMap", two.put("key", null), sameInstance(ContextMap.EMPTY));
+    }
+
+    /**
+     * ハッシュ値が同じキーを格納できること。
+     */
+    @Test
+    public void testHashCollision() {
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+        ContextMap map = ContextMap.EMPTY.put("Aa", 1).put("BB", 2).put("C#", 3);
+        assertThat(map.get("Aa"), is((Object) 1));
+        assertThat(map.get("BB"), is((Object) 2));
+        assertThat(map.get("C#"), is((Object) 3));
+
+        ContextMap removed = map.put("Aa", null);
+        assertThat(removed.get("Aa"), is(nullValue()));
+        assertThat(removed.get("BB"), is((Object) 2));
+        assertThat(map.get("Aa"), is((Object) 1));
+        assertThat(removed.put("BB", null).put("C#", null), sameInstance(ContextMap.EMPTY));
+    }
+
+    /**
+     * ランダムな操作の結果が{@link HashMap}と一致し、操作前のMapが変更されないこと。
+     */
+    @Test
+    public void testCompatibleWithHashMap() {
+        Random random = new Random(1016L);
+        Map<String, Object> expected = new HashMap<String, Object>();
+        ContextMap actual = ContextMap.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + random.nextInt(500);
+            Object value = random.nextInt(4) == 0 ? null : random.nextInt();
+
+            Object before = expected.get(key);
+            ContextMap previous = actual;
+            if (value == null) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+            actual = actual.put(key, value);
+
+            assertThat(actual.get(key), is(expected.get(key)));
+            assertThat(previous.get(key), is(before));
+        }
+        for (int i = 0; i < 500; i++) {
+            String key = "key" + i;
+            assertThat(actual.get(key), is(expected.get(key)));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package nablarch.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ThreadContextExecutors}のテスト。
+ */
+public class ThreadContextExecutorsTest {
+
+    private ExecutorService pool;
+
+    /** スレッドコンテキストのユーザIDと言語を返す処理 */
+    private static final Callable<String> USER_TASK = new Callable<String>() {
+        @Override
+        public String call() {
+            return ThreadContext.getUserId() + ":" + ThreadContext.getLanguage();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        // 事前にスレッドを生成し、スレッドに投入元とは異なるスレッドコンテキストを設定しておく。
+        pool = Executors.newSingleThreadExecutor();
+        pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                ThreadContext.setUserId("pool");
+            }
+        }).get();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        ThreadContext.clear();
+    }
+
+    /**
+     * 投入時点のスレッドコンテキストが処理に引き継がれ、処理の終了後は元に戻ること。
+     */
+    @Test
+    public void testExecutorService() throws Exception {
+        ExecutorService sut = ThreadContextExecutors.wrap(pool);
+
+        ThreadContext.setUserId("first");
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        Future<String> first = sut.submit(USER_TASK);
+        ThreadContext.setUserId("second");
+        ThreadContext.setLanguage(Locale.ENGLISH);
+        Future<String> second = sut.submit(USER_TASK);
+
+        assertThat(first.get(), is("first:ja"));
+        assertThat(second.get(), is("second:en"));
+        assertThat(pool.submit(USER_TASK).get(), is("pool:null"));
+    }
+
+    @Test
+    public void testExecutorServiceRunnable() throws Exception {
+        ExecutorService sut = ThreadContextExecutors.wrap(pool);
+        final List<String> results = new ArrayList<String>();
+        ThreadContext.setUserId("caller");
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                results.add(ThreadContext.getUserId());
+                ThreadContext.setUserId("changed");
+            }
+        };
+        sut.submit(task).get();
+        assertThat(sut.submit(task, "result").get(), is("result"));
+        sut.execute(task);
+        sut.submit(task).get();
+
+        assertThat(results, contains("caller", "caller", "caller", "caller"));
+        assertThat(ThreadContext.getUserId(), is("caller"));
+        assertThat(pool.submit(USER_TASK).get(), is("pool:null"));
+    }
+
+    @Test
+    public void testInvokeAllAndInvokeAny() throws Exception {
+        ExecutorService sut = ThreadContextExecutors.wrap(pool);
+        ThreadContext.setUserId("caller");
+
+        List<Future<String>> futures = sut.invokeAll(Arrays.asList(USER_TASK, USER_TASK));
+        assertThat(futures.get(0).get(), is("caller:null"));
+        assertThat(futures.get(1).get(), is("caller:null"));
+        assertThat(sut.invokeAny(Arrays.asList(USER_TASK)), is("caller:null"));
+        assertThat(pool.submit(USER_TASK).get(), is("pool:null"));
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        final List<Runnable> queue = new ArrayList<Runnable>();
+        Executor sut = ThreadContextExecutors.wrap(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queue.add(command);
+            }
+        });
+        final List<String> results = new ArrayList<String>();
+        ThreadContext.setUserId("caller");
+        sut.execute(new Runnable() {
+            @Override
+            public void run() {
+                results.add(ThreadContext.getUserId());
+            }
+        });
+        ThreadContext.setUserId("other");
+        queue.get(0).run();
+
+        assertThat(results, contains("caller"));
+        assertThat(ThreadContext.getUserId(), is("other"));
+    }
+
+    @Test
+    public void testCompletableFuture() throws Exception {
+        ThreadContext.setUserId("caller");
+        CompletableFuture<String> supplied = ThreadContextExecutors.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return ThreadContext.getUserId();
+            }
+        }, pool);
+        final List<String> results = new ArrayList<String>();
+        CompletableFuture<Void> ran = ThreadContextExecutors.runAsync(new Runnable() {
+            @Override
+            public void run() {
+                results.add(ThreadContext.getUserId());
+            }
+        }, pool);
+
+        assertThat(supplied.get(), is("caller"));
+        ran.get();
+        assertThat(results, contains("caller"));
+        assertThat(ThreadContextExecutors.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return ThreadContext.getUserId();
+            }
+        }).get(), is("caller"));
+        assertThat(pool.submit(USER_TASK).get(), is("pool:null"));
+    }
+
+    /**
+     * ラップ済みのインスタンスは再度ラップしないこと。
+     */
+    @Test
+    public void testWrapTwice() {
+        ExecutorService wrapped = ThreadContextExecutors.wrap(pool);
+        assertThat(ThreadContextExecutors.wrap(wrapped), sameInstance(wrapped));
+        assertThat(ThreadContextExecutors.wrap((Executor) wrapped), sameInstance((Executor) wrapped));
+    }
+}
@@ -130,5 +130,78 @@ public class ThreadContextTest {
         ThreadContext.setUserId("userId");
         assertThat(ThreadContext.getUserId(), is("userId"));
     }
-}
 
+    /** スレッドコンテキストの内容を取得し、別の内容で処理を実行するテスト。 */
+    @Test
+    public void testCaptureAndRunWith() throws Exception {
+        ThreadContext.clear();
+        ThreadContext.setUserId("captured");
+        final ThreadContext.Snapshot snapshot = ThreadContext.capture();
+        // 取得後の変更は反映されない。
+        ThreadContext.setUserId("current");
+
+        String result = ThreadContext.runWith(snapshot, new Callable<String>() {
+            @Override
+            public String call() {
+                String userId = ThreadContext.getUserId();
+                ThreadContext.setUserId("changed");
+                return userId;
+            }
+        });
+        assertThat(result, is("captured"));
+        assertThat(ThreadContext.getUserId(), is("current"));
+
+        final String[] holder = new String[1];
+        ThreadContext.runWith(snapshot, new Runnable() {
+            @Override
+            public void run() {
+                holder[0] = ThreadContext.getUserId();
+            }
+        });
+        assertThat("処理中の変更はスナップショットに影響しない", holder[0], is("captured"));
+        assertThat(ThreadContext.getUserId(), is("current"));
+        ThreadContext.clear();
+    }
+
+    /** 組み込みのキーをsetObject/getObjectで読み書きできるテスト。 */
+    @Test
+    public void testBuiltInKeyViaObject() {
+        ThreadContext.clear();
+        Locale language = new Locale("en");
+        ThreadContext.setObject(ThreadContext.LANG_KEY, language);
+        assertThat(ThreadContext.getLanguage(), is(language));
+
+        ThreadContext.setUserId("user");
+        assertThat(ThreadContext.getObject(ThreadContext.USER_ID_KEY), is((Object) "user"));
+
+        ThreadContext.setObject(ThreadContext.CONCURRENT_NUMBER_KEY, 3);
+        assertThat(ThreadContext.getConcurrentNumber(), is(3));
+
+        ThreadContext.setObject(null, "null key");
+        assertThat(ThreadContext.getObject(null), is((Object) "null key"));
+        ThreadContext.clear();
+    }
+
+    /** 取得した内容が、取得後の変更の影響を受けないテスト。 */
+    @Test
+    public void testSnapshotIsImmutable() throws Exception {
+        ThreadContext.clear();
+        ThreadContext.setUserId("before");
+        ThreadContext.setObject("custom", "before");
+        ThreadContext.Snapshot snapshot = ThreadContext.capture();
+
+        ThreadContext.setUserId("after");
+        ThreadContext.setObject("custom", "after");
+
+        String[] values = ThreadContext.runWith(snapshot, new Callable<String[]>() {
+            @Override
+            public String[] call() {
+                return new String[] {ThreadContext.getUserId(), (String) ThreadContext.getObject("custom")};
+            }
+        });
+        assertThat(values[0], is("before"));
+        assertThat(values[1], is("before"));
+        assertThat(ThreadContext.getObject("custom"), is((Object) "after"));
+        ThreadContext.clear();
+    }
+}
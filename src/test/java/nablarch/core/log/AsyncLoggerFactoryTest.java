@@ -0,0 +1,574 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.basic.LogLevel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link AsyncLoggerFactory}のテスト。
+ */
+public class AsyncLoggerFactoryTest {
+
+    /** 出力されたログ */
+    private static final List<String> LOGS = Collections.synchronizedList(new ArrayList<String>());
+
+    /** 出力時に委譲先で生成した{@link LogEvent} */
+    private static final List<LogEvent> EVENTS = Collections.synchronizedList(new ArrayList<LogEvent>());
+
+    /** 書き出しの回数 */
+    private static final AtomicInteger FLUSH_COUNT = new AtomicInteger();
+
+    /** 委譲先の終了処理の回数 */
+    private static final AtomicInteger TERMINATE_COUNT = new AtomicInteger();
+
+    /** ログの出力を待機させるラッチ(待機させない場合はnull) */
+    private static volatile CountDownLatch blocker;
+
+    /** ログの出力を開始したことを通知するラッチ */
+    private static volatile CountDownLatch started;
+
+    private final Map<String, String> props = new HashMap<String, String>();
+
+    private AsyncLoggerFactory sut;
+
+    /** 出力スレッド */
+    private Thread writerThread;
+
+    @Before
+    public void setUp() {
+        LOGS.clear();
+        EVENTS.clear();
+        FLUSH_COUNT.set(0);
+        TERMINATE_COUNT.set(0);
+        blocker = null;
+        started = new CountDownLatch(1);
+        props.put("asyncLogger.loggerFactory.className", RecordingLoggerFactory.class.getName());
+    }
+
+    @After
+    public void tearDown() {
+        if (blocker != null) {
+            blocker.countDown();
+        }
+        if (sut != null) {
+            sut.terminate();
+        }
+        ThreadContext.clear();
+    }
+
+    private AsyncLoggerFactory createFactory() {
+        AsyncLoggerFactory factory = new AsyncLoggerFactory() {
+            @Override
+            protected Thread createWriterThread(Runnable task) {
+                writerThread = super.createWriterThread(task);
+                return writerThread;
+            }
+        };
+        factory.initialize(new LogSettings("classpath:nablarch/core/log/log-settings.properties") {
+            @Override
+            public Map<String, String> getProps() {
+                return props;
+            }
+        });
+        return factory;
+    }
+
+    /**
+     * 設定ファイルの変更を監視する場合に、委譲先が{@link ReloadableLoggerFactory}を実装していなければ例外を送出すること。
+     */
+    @Test
+    public void testWatchSettingsWithoutReloadableDelegate() {
+        props.put("logSettings.watch", "true");
+        try {
+            createFactory();
+            fail("must be thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("'logSettings.watch' requires a LoggerFactory"), is(true));
+            assertThat(e.getMessage().contains(RecordingLoggerFactory.class.getName()), is(true));
+        }
+        assertThat(writerThread == null, is(true));
+    }
+
+    /**
+     * 出力要求の順にログが出力され、出力要求の時点のスレッドコンテキストが使用されること。
+     */
+    @Test
+    public void testAsyncLogging() {
+        sut = createFactory();
+        Logger logger = sut.get("test");
+        assertThat(sut.get("test") == logger, is(true));
+
+        ThreadContext.setUserId("user1");
+        logger.logInfo("info");
+        ThreadContext.setUserId("user2");
+        logger.logWarn("warn", new IllegalStateException("error"));
+        logger.logError("error");
+        logger.logFatal("fatal");
+        logger.logDebug("debug is disabled");
+        assertThat(logger.isDebugEnabled(), is(false));
+        assertThat(logger.isInfoEnabled(), is(true));
+
+        sut.terminate();
+        sut = null;
+
+        assertThat(LOGS, contains(
+                "test:INFO:info:user1:null",
+                "test:WARN:warn:user2:error",
+                "test:ERROR:error:user2:null",
+                "test:FATAL:fatal:user2:null"));
+        assertThat(FLUSH_COUNT.get() >= 1, is(true));
+        assertThat(TERMINATE_COUNT.get(), is(1));
+    }
+
+    /**
+     * 複数スレッドからの出力要求が全て出力されること。
+     */
+    @Test
+    public void testConcurrentLogging() throws Exception {
+        props.put("asyncLogger.bufferSize", "16");
+        props.put("asyncLogger.batchSize", "4");
+        sut = createFactory();
+        final Logger logger = sut.get("test");
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int threadNo = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        logger.logInfo(threadNo + "-" + j);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sut.terminate();
+        sut = null;
+
+        assertThat(LOGS.size(), is(2000));
+        // スレッドごとの出力順序は維持されること。
+        Map<String, Integer> last = new HashMap<String, Integer>();
+        for (String log : LOGS) {
+            String[] values = log.split(":")[2].split("-");
+            Integer previous = last.put(values[0], Integer.valueOf(values[1]));
+            assertThat(previous == null || previous < Integer.parseInt(values[1]), is(true));
+        }
+    }
+
+    /**
+     * DROPを指定した場合、空きがない場合の出力要求は破棄されること。
+     */
+    @Test
+    public void testDropPolicy() throws Exception {
+        props.put("asyncLogger.bufferSize", "2");
+        props.put("asyncLogger.overflowPolicy", "DROP");
+        sut = createFactory();
+        Logger logger = sut.get("test");
+
+        blocker = new CountDownLatch(1);
+        logger.logInfo("first");
+        started.await();
+        for (int i = 0; i < 5; i++) {
+            logger.logError("message" + i);
+        }
+        assertThat(sut.getDroppedCount(), is(3L));
+        blocker.countDown();
+        sut.terminate();
+        sut = null;
+
+        // 破棄した件数は、破棄を検知した後の書き出しの前に出力される。
+        assertThat(LOGS, contains(
+                "test:INFO:first:null:null",
+                AsyncLoggerFactory.class.getName()
+                        + ":WARN:log events were dropped because the buffer was full. count = 3:null:null",
+                "test:ERROR:message0:null:null",
+                "test:ERROR:message1:null:null"));
+    }
+
+    /**
+     * DEGRADEを指定した場合、指定したレベルより低いログのみ破棄されること。
+     */
+    @Test
+    public void testDegradePolicy() throws Exception {
+        props.put("asyncLogger.bufferSize", "2");
+        props.put("asyncLogger.overflowPolicy", "DEGRADE");
+        props.put("asyncLogger.degradeLevel", "ERROR");
+        sut = createFactory();
+        final Logger logger = sut.get("test");
+
+        blocker = new CountDownLatch(1);
+        logger.logInfo("first");
+        started.await();
+        logger.logInfo("second");
+        logger.logInfo("third");
+        logger.logInfo("dropped");
+        assertThat(sut.getDroppedCount(), is(1L));
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                logger.logError("wait");
+                done.countDown();
+            }
+        });
+        thread.start();
+        Thread.sleep(50);
+        assertThat("空きができるまで待機すること", done.getCount(), is(1L));
+        blocker.countDown();
+        thread.join();
+        sut.terminate();
+        sut = null;
+
+        assertThat(LOGS, contains(
+                "test:INFO:first:null:null",
+                AsyncLoggerFactory.class.getName()
+                        + ":WARN:log events were dropped because the buffer was full. count = 1:null:null",
+                "test:INFO:second:null:null",
+                "test:INFO:third:null:null",
+                "test:ERROR:wait:null:null"));
+    }
+
+    /**
+     * 終了処理の開始後の出力要求は、同期的に出力されること。
+     */
+    @Test
+    public void testLoggingAfterTerminate() {
+        sut = createFactory();
+        Logger logger = sut.get("test");
+        sut.terminate();
+        sut = null;
+        logger.logInfo("after");
+        assertThat(LOGS, contains("test:INFO:after:null:null"));
+    }
+
+    /**
+     * 終了処理で待機する時間を超えた場合、残りの出力要求は破棄した数に含めること。
+     * 出力スレッドが出力中のログから戻らない場合は、委譲先の終了処理が行われないこと。
+     */
+    @Test
+    public void testTerminateTimeout() throws Exception {
+        props.put("asyncLogger.shutdownTimeout", "50");
+        sut = createFactory();
+        Logger logger = sut.get("test");
+
+        blocker = new CountDownLatch(1);
+        logger.logInfo("first");
+        started.await();
+        logger.logInfo("second");
+        logger.logInfo("third");
+        sut.terminate();
+
+        assertThat(sut.getDroppedCount(), is(2L));
+        assertThat(TERMINATE_COUNT.get(), is(0));
+        assertThat(LOGS, contains(
+                AsyncLoggerFactory.class.getName()
+                        + ":WARN:log events were dropped because the writer did not finish within the shutdown timeout. count = 2:null:null",
+                AsyncLoggerFactory.class.getName()
+                        + ":WARN:the delegate logger factory was not terminated because the writer is still writing.:null:null"));
+
+        // 出力スレッドの処理を打ち切った後の出力要求は、同期的に出力される。
+        CountDownLatch writerBlocker = blocker;
+        blocker = null;
+        logger.logInfo("after");
+        assertThat(LOGS.get(2), is("test:INFO:after:null:null"));
+        sut = null;
+
+        // 出力スレッドは、出力中のログを出力し終えた後に終了する。
+        writerBlocker.countDown();
+        writerThread.join();
+        assertThat(LOGS.size(), is(4));
+        assertThat(LOGS.get(3), is("test:INFO:first:null:null"));
+    }
+
+    /**
+     * 処理を打ち切った出力スレッドが待機中に出力を終えた場合、委譲先の終了処理が行われること。
+     */
+    @Test
+    public void testTerminateAfterWriterReturns() throws Exception {
+        props.put("asyncLogger.shutdownTimeout", "1000");
+        sut = createFactory();
+        Logger logger = sut.get("test");
+
+        final CountDownLatch writerBlocker = new CountDownLatch(1);
+        blocker = writerBlocker;
+        logger.logInfo("first");
+        started.await();
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(1500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writerBlocker.countDown();
+            }
+        });
+        releaser.start();
+        sut.terminate();
+        sut = null;
+        releaser.join();
+
+        assertThat(writerThread.isAlive(), is(false));
+        assertThat(TERMINATE_COUNT.get(), is(1));
+        assertThat(LOGS, contains(
+                AsyncLoggerFactory.class.getName()
+                        + ":WARN:log events were dropped because the writer did not finish within the shutdown timeout. count = 0:null:null",
+                "test:INFO:first:null:null"));
+    }
+
+    /**
+     * 委譲先で生成した{@link LogEvent}が、出力要求の時点の日時、スレッド名、オプション情報を保持すること。
+     */
+    @Test
+    public void testLogEventCapturedAtRequest() throws Exception {
+        sut = createFactory();
+        Logger logger = sut.get("test");
+
+        blocker = new CountDownLatch(1);
+        Object[] options = new Object[] {"before"};
+        long before = System.currentTimeMillis();
+        logger.logInfo("first", options);
+        long after = System.currentTimeMillis();
+        options[0] = "after";
+        started.await();
+        Thread.sleep(50);
+        blocker.countDown();
+        blocker = null;
+        sut.terminate();
+        sut = null;
+
+        assertThat(EVENTS.size(), is(1));
+        LogEvent event = EVENTS.get(0);
+        assertThat(event.getThreadName(), is(Thread.currentThread().getName()));
+        assertThat(event.getDate().getTime() >= before && event.getDate().getTime() <= after, is(true));
+        assertThat(event.getOptions().length, is(1));
+        assertThat(event.getOptions()[0], is((Object) "before"));
+
+        // 出力スレッド以外で生成した場合は、生成したスレッドのものとなる。
+        assertThat(new LogEvent("test", LogLevel.INFO, "sync", null).getThreadName(),
+                is(Thread.currentThread().getName()));
+    }
+
+    /**
+     * 委譲先での出力に失敗した場合、失敗した数が警告ログとして出力され、以降の出力要求は出力されること。
+     */
+    @Test
+    public void testWriteFailure() {
+        sut = createFactory();
+        Logger logger = sut.get("test");
+        logger.logError("fail");
+        logger.logError("next");
+        sut.terminate();
+
+        assertThat(sut.getFailureCount(), is(1L));
+        assertThat(LOGS, containsInAnyOrder(
+                "test:ERROR:next:null:null",
+                AsyncLoggerFactory.class.getName() + ":WARN:failed to write log events. count = 1:null:null"));
+        sut = null;
+    }
+
+    /**
+     * 委譲先が{@link LevelAwareLoggerFactory}を実装している場合、委譲先と同じ{@link EffectiveLogLevel}で判定すること。
+     */
+    @Test
+    public void testLevelAwareDelegate() {
+        props.put("asyncLogger.loggerFactory.className", LevelAwareRecordingLoggerFactory.class.getName());
+        sut = createFactory();
+        Logger logger = sut.get("test");
+        assertThat(sut.getEffectiveLevel("test"), sameInstance(LevelAwareRecordingLoggerFactory.LEVEL));
+        assertThat(logger.isInfoEnabled(), is(true));
+        assertThat(logger.isDebugEnabled(), is(false));
+
+        LevelAwareRecordingLoggerFactory.LEVEL.set(LogLevel.DEBUG);
+        assertThat(logger.isDebugEnabled(), is(true));
+        logger.logDebug("debug");
+        sut.terminate();
+        sut = null;
+        assertThat(LOGS, contains("test:DEBUG:debug:null:null"));
+
+        LevelAwareRecordingLoggerFactory.LEVEL.set(LogLevel.INFO);
+        assertThat(logger.isDebugEnabled(), is(false));
+    }
+
+    /**
+     * 委譲先が{@link LevelAwareLoggerFactory}を実装していない場合、委譲先の{@link Logger}から求めたログレベルで判定すること。
+     */
+    @Test
+    public void testEffectiveLevelFromDelegateLogger() {
+        sut = createFactory();
+        Logger logger = sut.get("test");
+        assertThat(sut.getEffectiveLevel("test").getValue(), is(LogLevel.INFO.getValue()));
+        assertThat(logger.isInfoEnabled(), is(true));
+        assertThat(logger.isDebugEnabled(), is(false));
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        props.put("asyncLogger.bufferSize", "0");
+        try {
+            createFactory();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("'asyncLogger.bufferSize' must be greater than 0. value = [0]"));
+        }
+        props.put("asyncLogger.bufferSize", "abc");
+        try {
+            createFactory();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("'asyncLogger.bufferSize' must be an integer. value = [abc]"));
+        }
+        props.remove("asyncLogger.bufferSize");
+        props.remove("asyncLogger.loggerFactory.className");
+        try {
+            createFactory();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("'asyncLogger.loggerFactory.className' was not specified."), is(true));
+        }
+    }
+
+    /**
+     * 全てのロガーで同じ{@link EffectiveLogLevel}を公開し、出力したログを記録する{@link LoggerFactory}。
+     */
+    public static class LevelAwareRecordingLoggerFactory implements LevelAwareLoggerFactory {
+
+        /** 有効なログレベル */
+        static final EffectiveLogLevel LEVEL = new EffectiveLogLevel(LogLevel.INFO);
+
+        @Override
+        public void initialize(LogSettings settings) {
+            LEVEL.set(LogLevel.INFO);
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public EffectiveLogLevel getEffectiveLevel(String name) {
+            return LEVEL;
+        }
+
+        @Override
+        public Logger get(final String name) {
+            return new LeveledLoggerSupport(LEVEL) {
+                @Override
+                protected void write(LogLevel logLevel, String message, Throwable error, Object[] options) {
+                    LOGS.add(name + ":" + logLevel + ":" + message + ":" + ThreadContext.getUserId() + ":"
+                            + (error == null ? null : error.getMessage()));
+                }
+            };
+        }
+    }
+
+    /**
+     * 出力したログを記録する{@link LoggerFactory}。
+     */
+    public static class RecordingLoggerFactory implements LoggerFactory, Flushable {
+
+        @Override
+        public void initialize(LogSettings settings) {
+        }
+
+        @Override
+        public void terminate() {
+            TERMINATE_COUNT.incrementAndGet();
+        }
+
+        @Override
+        public Logger get(final String name) {
+            return new MockLogger(name) {
+                @Override
+                public boolean isFatalEnabled() {
+                    return true;
+                }
+                @Override
+                public boolean isErrorEnabled() {
+                    return true;
+                }
+                @Override
+                public boolean isWarnEnabled() {
+                    return true;
+                }
+                @Override
+                public boolean isInfoEnabled() {
+                    return true;
+                }
+                @Override
+                public void logFatal(String message, Throwable error, Object... options) {
+                    record("FATAL", message, error, options);
+                }
+                @Override
+                public void logError(String message, Throwable error, Object... options) {
+                    record("ERROR", message, error, options);
+                }
+                @Override
+                public void logWarn(String message, Object... options) {
+                    record("WARN", message, null, options);
+                }
+                @Override
+                public void logWarn(String message, Throwable error, Object... options) {
+                    record("WARN", message, error, options);
+                }
+                @Override
+                public void logInfo(String message, Throwable error, Object... options) {
+                    record("INFO", message, error, options);
+                }
+                @Override
+                public void logDebug(String message, Throwable error, Object... options) {
+                    record("DEBUG", message, error, options);
+                }
+                private void record(String level, String message, Throwable error, Object[] options) {
+                    if ("fail".equals(message)) {
+                        throw new IllegalStateException(message);
+                    }
+                    started.countDown();
+                    CountDownLatch latch = blocker;
+                    if (latch != null && !name.equals(AsyncLoggerFactory.class.getName())) {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    if (!name.equals(AsyncLoggerFactory.class.getName())) {
+                        EVENTS.add(new LogEvent(name, LogLevel.valueOf(level), message, error, options));
+                    }
+                    LOGS.add(name + ":" + level + ":" + message + ":" + ThreadContext.getUserId() + ":"
+                            + (error == null ? null : error.getMessage()));
+                }
+            };
+        }
+
+        @Override
+        public void flush() {
+            FLUSH_COUNT.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * {@link DateItemSupport}のテスト。
+ */
+public class DateItemSupportTest {
+
+    /** コンテキストの日時をそのまま返す出力項目 */
+    private static class DateItem extends DateItemSupport<Date> {
+        DateItem(SimpleDateFormat dateFormat) {
+            super(dateFormat);
+        }
+        DateItem(DateTimeFormatter formatter) {
+            super(formatter);
+        }
+        @Override
+        protected Date getDate(Date context) {
+            return context;
+        }
+    }
+
+    @Test
+    public void testDateFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        DateItem sut = new DateItem(dateFormat);
+
+        Date date = new Date(1311926595390L);
+        assertThat(sut.get(date), is("2011-07-29 17:03:15.390"));
+        assertThat("同一ミリ秒の日時", sut.get(new Date(1311926595390L)), is("2011-07-29 17:03:15.390"));
+        assertThat(sut.get(new Date(1311926595391L)), is("2011-07-29 17:03:15.391"));
+
+        StringBuilder buffer = new StringBuilder("[");
+        sut.appendTo(buffer, date);
+        assertThat(buffer.toString(), is("[2011-07-29 17:03:15.390"));
+    }
+
+    @Test
+    public void testDateTimeFormatter() {
+        DateItem sut = new DateItem(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+                                                     .withZone(ZoneId.of("Asia/Tokyo")));
+        assertThat(sut.get(new Date(1311926595390L)), is("2011-07-29 17:03:15.390"));
+
+        StringBuilder buffer = new StringBuilder("[");
+        sut.appendTo(buffer, new Date(1311926595391L));
+        sut.appendTo(buffer.append(']'), new Date(1311926595391L));
+        assertThat(buffer.toString(), is("[2011-07-29 17:03:15.391]2011-07-29 17:03:15.391"));
+        assertThat("追加後に取得しても同じ結果となること",
+                sut.get(new Date(1311926595391L)), is("2011-07-29 17:03:15.391"));
+
+        // タイムゾーンを指定しない場合はシステムデフォルトのタイムゾーンを使用する。
+        DateItem defaultZone = new DateItem(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
+        Date date = new Date();
+        assertThat(defaultZone.get(date), is(new SimpleDateFormat("yyyyMMddHHmmssSSS").format(date)));
+    }
+
+    /**
+     * 複数スレッドから同時にフォーマットした場合も、{@link SimpleDateFormat}と同じ結果となること。
+     */
+    @Test
+    public void testConcurrentFormat() throws Exception {
+        final String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+        final DateItem sut = new DateItem(new SimpleDateFormat(pattern));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 4; i++) {
+                final long seed = i;
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        SimpleDateFormat expected = new SimpleDateFormat(pattern);
+                        Random random = new Random(seed);
+                        for (int j = 0; j < 5000; j++) {
+                            Date date = new Date(1300000000000L + random.nextInt(1000000000) * 10L);
+                            if (!expected.format(date).equals(sut.get(date))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
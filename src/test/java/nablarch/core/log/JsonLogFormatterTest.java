@@ -0,0 +1,116 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.basic.LogLevel;
+import nablarch.core.text.json.BasicJsonSerializationManager;
+import nablarch.core.text.json.JsonSerializationManager;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * {@link JsonLogFormatter}のテスト。
+ */
+public class JsonLogFormatterTest {
+
+    @After
+    public void tearDown() {
+        ThreadContext.clear();
+    }
+
+    @Test
+    public void testDefaultFields() throws Exception {
+        ThreadContext.setExecutionId("EXE001");
+        ThreadContext.setRequestId("REQ001");
+        ThreadContext.setUserId("user\"01");
+
+        JsonLogFormatter<LogEvent> sut = new JsonLogFormatter<LogEvent>(JsonLogFormatter.createDefaultFields());
+        LogEvent event = new LogEvent("ROOT", LogLevel.INFO, "line1\nline2", null);
+        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(event.getDate());
+
+        assertThat(sut.format(event), is("{\"date\":\"" + date + "\""
+                + ",\"level\":\"INFO\""
+                + ",\"logger\":\"ROOT\""
+                + ",\"executionId\":\"EXE001\""
+                + ",\"requestId\":\"REQ001\""
+                + ",\"userId\":\"user\\\"01\""
+                + ",\"message\":\"line1\\nline2\""
+                + ",\"error\":null}"));
+    }
+
+    /**
+     * 実行時ID等は、フォーマット時ではなく{@link LogEvent}の生成時のスレッドコンテキストの値を出力すること。
+     */
+    @Test
+    public void testThreadContextCapturedAtEventCreation() throws Exception {
+        ThreadContext.setExecutionId("EXE001");
+        ThreadContext.setRequestId("REQ001");
+        ThreadContext.setUserId("user01");
+        final LogEvent event = new LogEvent("ROOT", LogLevel.INFO, "message", null);
+        ThreadContext.clear();
+
+        Map<String, LogItem<LogEvent>> fields = JsonLogFormatter.createDefaultFields();
+        fields.keySet().retainAll(Arrays.asList("executionId", "requestId", "userId"));
+        final JsonLogFormatter<LogEvent> sut = new JsonLogFormatter<LogEvent>(fields);
+        final String[] json = new String[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                json[0] = sut.format(event);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(json[0], is("{\"executionId\":\"EXE001\",\"requestId\":\"REQ001\",\"userId\":\"user01\"}"));
+    }
+
+    @Test
+    public void testError() {
+        Map<String, LogItem<LogEvent>> fields = JsonLogFormatter.createDefaultFields();
+        fields.keySet().retainAll(Arrays.asList("requestId", "error"));
+        JsonLogFormatter<LogEvent> sut = new JsonLogFormatter<LogEvent>(fields);
+
+        String json = sut.format(new LogEvent("ROOT", LogLevel.ERROR, "failed.",
+                new IllegalStateException("error")));
+        assertThat(json, startsWith("{\"requestId\":null,\"error\":\"java.lang.IllegalStateException: error\\n"));
+        assertThat(json, containsString("\\tat nablarch.core.log.JsonLogFormatterTest.testError("));
+    }
+
+    /**
+     * 任意のコンテキストと出力項目を使用できること。
+     */
+    @Test
+    public void testCustomItems() throws Exception {
+        Map<String, LogItem<Object>> fields = new LinkedHashMap<String, LogItem<Object>>();
+        fields.put("fixed", new FixedStringItem("value"));
+        fields.put("name\t", new LogItem<Object>() {
+            @Override
+            public String get(Object context) {
+                return context.toString();
+            }
+        });
+        JsonSerializationManager manager = new BasicJsonSerializationManager();
+        manager.initialize();
+        JsonLogFormatter<Object> sut = new JsonLogFormatter<Object>(fields, manager);
+
+        StringWriter writer = new StringWriter();
+        sut.write(writer, "a");
+        writer.write('\n');
+        sut.write(writer, "b");
+        assertThat(writer.toString(), is("{\"fixed\":\"value\",\"name\\t\":\"a\"}\n{\"fixed\":\"value\",\"name\\t\":\"b\"}"));
+
+        assertThat(new JsonLogFormatter<Object>(new LinkedHashMap<String, LogItem<Object>>()).format("a"), is("{}"));
+    }
+}
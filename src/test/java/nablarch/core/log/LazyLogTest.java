@@ -0,0 +1,188 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import nablarch.core.log.LogUtil.MaskingMapValueEditor;
+
+import org.junit.Test;
+
+/**
+ * {@link LazyLog}のテスト。
+ */
+public class LazyLogTest {
+
+    /** INFOレベル以上のみ有効な、出力したログを記録するロガー */
+    private static class RecordingLogger extends MockLogger {
+        private final List<String> logs = new ArrayList<String>();
+        private final List<Throwable> errors = new ArrayList<Throwable>();
+        private final List<Object[]> options = new ArrayList<Object[]>();
+
+        RecordingLogger() {
+            super("test");
+        }
+        @Override
+        public boolean isFatalEnabled() {
+            return true;
+        }
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+        @Override
+        public void logFatal(String message, Throwable error, Object... options) {
+            record("FATAL", message, error, options);
+        }
+        @Override
+        public void logError(String message, Throwable error, Object... options) {
+            record("ERROR", message, error, options);
+        }
+        @Override
+        public void logWarn(String message, Throwable error, Object... options) {
+            record("WARN", message, error, options);
+        }
+        @Override
+        public void logInfo(String message, Throwable error, Object... options) {
+            record("INFO", message, error, options);
+        }
+        @Override
+        public void logDebug(String message, Throwable error, Object... options) {
+            record("DEBUG", message, error, options);
+        }
+        @Override
+        public void logTrace(String message, Throwable error, Object... options) {
+            record("TRACE", message, error, options);
+        }
+        private void record(String level, String message, Throwable error, Object[] opts) {
+            logs.add(level + ":" + message);
+            errors.add(error);
+            options.add(opts);
+        }
+    }
+
+    /** 値の生成回数を数える{@link LazyLogValue} */
+    private static class CountingValue implements LazyLogValue {
+        private int count;
+        @Override
+        public String get() {
+            count++;
+            return "lazy";
+        }
+    }
+
+    @Test
+    public void testEnabledLevels() {
+        RecordingLogger logger = new RecordingLogger();
+        LazyLog.fatal(logger, "fatal {}", 1);
+        LazyLog.error(logger, "error {} {}", 1, 2);
+        LazyLog.warn(logger, "warn {} {} {}", 1, 2, 3);
+        LazyLog.info(logger, "info {}");
+        LazyLog.info(logger, new CountingValue());
+
+        assertThat(logger.logs, contains(
+                "FATAL:fatal 1",
+                "ERROR:error 1 2",
+                "WARN:warn 1 2 3",
+                "INFO:info {}",
+                "INFO:lazy"));
+        assertThat("オプション情報には空の配列を共有すること",
+                logger.options.get(0), sameInstance(logger.options.get(1)));
+        assertThat(logger.options.get(0).length, is(0));
+    }
+
+    /**
+     * ログレベルが無効な場合は、値を生成しないこと。
+     */
+    @Test
+    public void testDisabledLevels() {
+        RecordingLogger logger = new RecordingLogger();
+        CountingValue value = new CountingValue();
+        LazyLog.debug(logger, value);
+        LazyLog.debug(logger, "debug {}", value);
+        LazyLog.debug(logger, "debug {} {}", value, value);
+        LazyLog.debug(logger, "debug {} {} {}", value, value, value);
+        LazyLog.debug(logger, "debug");
+        LazyLog.trace(logger, value);
+        LazyLog.trace(logger, "trace {}", value);
+        LazyLog.trace(logger, "trace {} {}", value, value);
+        LazyLog.trace(logger, "trace {} {} {}", value, value, value);
+        LazyLog.trace(logger, "trace");
+        assertThat(value.count, is(0));
+        assertThat(logger.logs.isEmpty(), is(true));
+
+        LazyLog.info(logger, "info {} {}", value, value);
+        assertThat(value.count, is(2));
+        assertThat(logger.logs, contains("INFO:info lazy lazy"));
+    }
+
+    /**
+     * 埋め込み値に対応しない最後の{@link Throwable}は、エラー情報として扱うこと。
+     */
+    @Test
+    public void testError() {
+        RecordingLogger logger = new RecordingLogger();
+        Exception error = new IllegalStateException("error");
+        LazyLog.error(logger, "failed. id = {}", "A01", error);
+        LazyLog.error(logger, "failed. error = {}", error);
+        LazyLog.error(logger, "failed.", error);
+
+        assertThat(logger.logs, contains(
+                "ERROR:failed. id = A01",
+                "ERROR:failed. error = java.lang.IllegalStateException: error",
+                "ERROR:failed."));
+        assertThat(logger.errors.get(0), is((Throwable) error));
+        assertThat(logger.errors.get(1), is(nullValue()));
+        assertThat(logger.errors.get(2), is((Throwable) error));
+    }
+
+    @Test
+    public void testFormat() {
+        assertThat(LazyLog.format("{} + {} = {}", 1, new BigDecimal("1E+1"), null), is("1 + 10 = null"));
+        assertThat("埋め込み値が不足する場合", LazyLog.format("{}, {}", "a"), is("a, {}"));
+        assertThat("埋め込み値が多い場合", LazyLog.format("{}", "a", "b"), is("a"));
+        assertThat(LazyLog.format("no placeholder", "a"), is("no placeholder"));
+        assertThat(LazyLog.format(null, "a"), is(nullValue()));
+    }
+
+    @Test
+    public void testDumpMap() {
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("password", "secret");
+        map.put("user", "nablarch");
+
+        assertThat(LazyLog.dumpMap(map, ", ").get(), is(LogUtil.dumpMap(map, ", ")));
+        MaskingMapValueEditor editor = new MaskingMapValueEditor('*', new Pattern[] {Pattern.compile("password")});
+        assertThat(LazyLog.dumpMap(map, " ", editor).get(), is("{password = [*****], user = [nablarch]}"));
+    }
+
+    @Test
+    public void testLogItem() {
+        LogItem<String> item = new LogItem<String>() {
+            @Override
+            public String get(String context) {
+                return "[" + context + "]";
+            }
+        };
+        RecordingLogger logger = new RecordingLogger();
+        LazyLog.warn(logger, "value = {}", LazyLog.of(item, "ctx"));
+        assertThat(logger.logs, contains("WARN:value = [ctx]"));
+    }
+}
@@ -0,0 +1,81 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nablarch.core.log.basic.LogLevel;
+
+import org.junit.Test;
+
+/**
+ * {@link LeveledLoggerSupport}のテスト。
+ */
+public class LeveledLoggerSupportTest {
+
+    /** 出力したログを記録するロガー */
+    private static class RecordingLogger extends LeveledLoggerSupport {
+        private final List<String> logs = new ArrayList<String>();
+        RecordingLogger(EffectiveLogLevel level) {
+            super(level);
+        }
+        @Override
+        protected void write(LogLevel logLevel, String message, Throwable error, Object[] options) {
+            logs.add(logLevel + ":" + message + ":" + (error == null ? null : error.getMessage())
+                    + ":" + options.length);
+        }
+    }
+
+    private static void logAll(Logger logger) {
+        logger.logFatal("fatal");
+        logger.logError("error", new IllegalStateException("cause"));
+        logger.logWarn("warn", "option");
+        logger.logInfo("info");
+        logger.logDebug("debug");
+        logger.logTrace("trace", null, "option1", "option2");
+    }
+
+    @Test
+    public void testLevel() {
+        EffectiveLogLevel level = new EffectiveLogLevel(LogLevel.WARN);
+        RecordingLogger sut = new RecordingLogger(level);
+        assertThat(sut.getEffectiveLevel() == level, is(true));
+
+        assertThat(sut.isFatalEnabled(), is(true));
+        assertThat(sut.isErrorEnabled(), is(true));
+        assertThat(sut.isWarnEnabled(), is(true));
+        assertThat(sut.isInfoEnabled(), is(false));
+        assertThat(sut.isDebugEnabled(), is(false));
+        assertThat(sut.isTraceEnabled(), is(false));
+        logAll(sut);
+        assertThat(sut.logs, contains("FATAL:fatal:null:0", "ERROR:error:cause:0", "WARN:warn:null:1"));
+    }
+
+    /**
+     * ログレベルの変更が、変更後の判定に反映されること。
+     */
+    @Test
+    public void testChangeLevel() {
+        EffectiveLogLevel level = new EffectiveLogLevel(LogLevel.TRACE);
+        RecordingLogger sut = new RecordingLogger(level);
+        logAll(sut);
+        assertThat(sut.logs.size(), is(6));
+        assertThat(sut.logs.get(5), is("TRACE:trace:null:2"));
+
+        level.set(null);
+        assertThat(level.getValue(), is(EffectiveLogLevel.OFF));
+        assertThat(sut.isFatalEnabled(), is(false));
+        logAll(sut);
+        assertThat(sut.logs.size(), is(6));
+
+        level.set(LogLevel.INFO);
+        assertThat(level.getValue(), is(LogLevel.INFO.getValue()));
+        assertThat(level.isEnabled(LogLevel.INFO.getValue()), is(true));
+        assertThat(level.isEnabled(LogLevel.DEBUG.getValue()), is(false));
+        logAll(sut);
+        assertThat(sut.logs.size(), is(10));
+    }
+}
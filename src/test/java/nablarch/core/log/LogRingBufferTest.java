@@ -0,0 +1,89 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link LogRingBuffer}のテスト。
+ */
+public class LogRingBufferTest {
+
+    @Test
+    public void testOfferAndDrain() {
+        LogRingBuffer<String> sut = new LogRingBuffer<String>(3);
+        assertThat(sut.capacity(), is(4));
+        assertThat(sut.isEmpty(), is(true));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(sut.offer("value" + i), is(true));
+        }
+        assertThat("空きがない場合は追加できないこと", sut.offer("value4"), is(false));
+
+        List<String> drained = new ArrayList<String>();
+        assertThat(sut.drainTo(drained, 3), is(3));
+        assertThat(drained, contains("value0", "value1", "value2"));
+
+        assertThat(sut.offer("value4"), is(true));
+        drained.clear();
+        assertThat(sut.drainTo(drained, 10), is(2));
+        assertThat(drained, contains("value3", "value4"));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    /**
+     * 容量は2以上となること。
+     */
+    @Test
+    public void testMinimumCapacity() {
+        LogRingBuffer<String> sut = new LogRingBuffer<String>(1);
+        assertThat(sut.capacity(), is(2));
+        assertThat(sut.offer("a"), is(true));
+        assertThat(sut.offer("b"), is(true));
+        assertThat(sut.offer("c"), is(false));
+    }
+
+    /**
+     * 複数スレッドから追加した要素が、欠けることなく取り出せること。
+     */
+    @Test
+    public void testConcurrentOffer() throws Exception {
+        final LogRingBuffer<Integer> sut = new LogRingBuffer<Integer>(64);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int base = i * 10000;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        while (!sut.offer(base + j)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        boolean[] received = new boolean[40000];
+        int count = 0;
+        List<Integer> drained = new ArrayList<Integer>();
+        while (count < 40000) {
+            drained.clear();
+            count += sut.drainTo(drained, 16);
+            for (Integer value : drained) {
+                assertThat(received[value], is(false));
+                received[value] = true;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(sut.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,167 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link LogSettingsWatcher}のテスト。
+ */
+public class LogSettingsWatcherTest {
+
+    /** 再読み込みした設定 */
+    private static final BlockingQueue<LogSettings> RELOADED = new LinkedBlockingQueue<LogSettings>();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    private LogSettingsWatcher sut;
+
+    @Before
+    public void setUp() throws Exception {
+        RELOADED.clear();
+        file = temporaryFolder.newFile("log.properties");
+        write(file, "level=INFO\n");
+    }
+
+    @After
+    public void tearDown() {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
+    static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 設定ファイルの変更を検知して再読み込みさせること。
+     */
+    @Test
+    public void testReload() throws Exception {
+        LogSettings settings = new LogSettings(file.toURI().toString());
+        sut = new LogSettingsWatcher(settings, new ReloadRecordingLoggerFactory(), 50L);
+
+        write(file, "level=DEBUG\n");
+        LogSettings reloaded = RELOADED.poll(30, TimeUnit.SECONDS);
+        assertThat(reloaded, is(notNullValue()));
+        assertThat(reloaded.getProps().get("level"), is("DEBUG"));
+        assertThat(reloaded.getFilePath(), is(settings.getFilePath()));
+
+        write(file, "level=WARN\n");
+        reloaded = RELOADED.poll(30, TimeUnit.SECONDS);
+        assertThat(reloaded, is(notNullValue()));
+        assertThat(reloaded.getProps().get("level"), is("WARN"));
+    }
+
+    /**
+     * 設定の内容が前回と同じ場合は再読み込みさせないこと。
+     */
+    @Test
+    public void testUnchanged() throws Exception {
+        sut = new LogSettingsWatcher(new LogSettings(file.toURI().toString()), new ReloadRecordingLoggerFactory(), 50L);
+        sut.reload();
+        assertThat(RELOADED.poll(), is(nullValue()));
+
+        write(file, "level=DEBUG\n");
+        sut.reload();
+        sut.reload();
+        assertThat(RELOADED.poll().getProps().get("level"), is("DEBUG"));
+        assertThat(RELOADED.poll(), is(nullValue()));
+    }
+
+    /**
+     * 再読み込みに失敗しても、監視を継続すること。
+     */
+    @Test
+    public void testReloadFailure() throws Exception {
+        sut = new LogSettingsWatcher(new LogSettings(file.toURI().toString()), new ReloadRecordingLoggerFactory(), 50L);
+        write(file, "level=FAIL\n");
+        sut.reload();
+        assertThat(RELOADED.poll(), is(nullValue()));
+
+        write(file, "level=DEBUG\n");
+        sut.reload();
+        assertThat(RELOADED.poll().getProps().get("level"), is("DEBUG"));
+    }
+
+    /**
+     * ファイルシステム上のファイルでない場合は例外を送出すること。
+     */
+    @Test
+    public void testNotFile() {
+        LogSettings settings = new LogSettings("classpath:nablarch/core/log/log-mock.properties") {
+            @Override
+            public String getFilePath() {
+                return "http://localhost/log.properties";
+            }
+        };
+        try {
+            new LogSettingsWatcher(settings, new ReloadRecordingLoggerFactory(), 50L);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("the log settings can not be watched because it is not a file."));
+        }
+    }
+
+    /**
+     * 再読み込みした設定を記録する{@link ReloadableLoggerFactory}。
+     */
+    public static class ReloadRecordingLoggerFactory implements ReloadableLoggerFactory {
+
+        @Override
+        public void initialize(LogSettings settings) {
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public Logger get(String name) {
+            return new MockLogger(name);
+        }
+
+        @Override
+        public void reload(LogSettings settings) {
+            if ("FAIL".equals(settings.getProps().get("level"))) {
+                throw new IllegalArgumentException("invalid level.");
+            }
+            RELOADED.add(settings);
+        }
+
+        /**
+         * 再読み込みした設定を取得する。
+         * @return 再読み込みした設定
+         * @throws InterruptedException 割り込みが発生した場合
+         */
+        static LogSettings poll() throws InterruptedException {
+            return RELOADED.poll(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -3,12 +3,18 @@ package nablarch.core.log;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.StringWriter;
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.regex.Pattern;
 
 import nablarch.core.ThreadContext;
@@ -53,6 +59,74 @@ public class LogUtilTest extends LogTestSupport {
         }
     }
 
+    /**
+     * ノードを指定した場合、起動プロセスの後にノードが付与されること。
+     */
+    @Test
+    public void testGenerateExecutionIdWithNode() {
+        System.setProperty("nablarch.bootProcess", "APP001");
+        System.setProperty("nablarch.executionIdNode", "N1");
+        try {
+            String id = LogUtil.generateExecutionId();
+            assertThat(id.length(), is(29));
+            assertThat(id.substring(0, 8), is("APP001N1"));
+            assertThat(id.substring(8, 25).matches("[0-9]{17}"), is(true));
+        } finally {
+            System.clearProperty("nablarch.executionIdNode");
+            System.clearProperty("nablarch.bootProcess");
+        }
+    }
+
+    /**
+     * 同一の日時で連番が上限に達した場合は日時を進め、システム時刻が戻っても日時と連番が重複しないこと。
+     */
+    @Test
+    public void testNextExecutionIdStateOverflow() {
+        Set<String> states = new HashSet<String>();
+        long previous = LogUtil.nextExecutionIdState(0L).millis;
+        for (int i = 0; i < 9999 * 2; i++) {
+            LogUtil.ExecutionIdState state = LogUtil.nextExecutionIdState(0L);
+            assertThat(state.millis >= previous, is(true));
+            assertThat(states.add(state.millis + ":" + state.sequence), is(true));
+            previous = state.millis;
+        }
+        assertThat(states.size(), is(9999 * 2));
+    }
+
+    /**
+     * 複数スレッドから同時に生成した場合に、実行時IDが重複しないこと。
+     */
+    @Test
+    public void testGenerateExecutionIdConcurrently() throws Exception {
+        final int threadCount = 4;
+        final int idCount = 2000;
+        final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < idCount; j++) {
+                        ids.add(LogUtil.generateExecutionId());
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ids.size(), is(threadCount * idCount));
+    }
+
     /**
      * フォーマットのプレースホルダに基づき、ログ出力項目を正しく生成できること。
      */
@@ -87,6 +161,160 @@ public class LogUtilTest extends LogTestSupport {
         assertThat(formattedLogItems[index++].get(context), is(" end"));
     }
 
+    /**
+     * {@link AppendableLogItem}とそれ以外の出力項目を混在させてメッセージをフォーマットできること。
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFormatMessage() throws Exception {
+        final LogItem<String>[] formattedLogItems = new LogItem[] {
+                new FixedStringItem("["),
+                new LogItem<String>() {
+                    public String get(String context) {
+                        return context.toUpperCase();
+                    }
+                },
+                new AppendableLogItem<String>() {
+                    public String get(String context) {
+                        return context;
+                    }
+                    public void appendTo(StringBuilder buffer, String context) {
+                        buffer.append(context);
+                    }
+                },
+                new FixedStringItem("]")
+        };
+
+        assertThat(LogUtil.formatMessage(formattedLogItems, "abc"), is("[ABCabc]"));
+        assertThat("バッファを再利用しても前回の内容が残らないこと",
+                LogUtil.formatMessage(formattedLogItems, "x"), is("[Xx]"));
+
+        StringWriter writer = new StringWriter();
+        LogUtil.writeMessage(writer, formattedLogItems, "abc");
+        LogUtil.writeMessage(writer, formattedLogItems, "d");
+        assertThat(writer.toString(), is("[ABCabc][Dd]"));
+
+        StringBuilder buffer = new StringBuilder("prefix:");
+        LogUtil.appendMessage(buffer, formattedLogItems, "e");
+        assertThat(buffer.toString(), is("prefix:[Ee]"));
+    }
+
+    /**
+     * 出力項目の取得中に同じスレッドでメッセージをフォーマットしても、互いの内容が混ざらないこと。
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFormatMessageReentrant() {
+        final LogItem<String>[] inner = new LogItem[] {new FixedStringItem("inner")};
+        final LogItem<String>[] outer = new LogItem[] {
+                new FixedStringItem("<"),
+                new LogItem<String>() {
+                    public String get(String context) {
+                        return LogUtil.formatMessage(inner, context);
+                    }
+                },
+                new FixedStringItem(">")
+        };
+        assertThat(LogUtil.formatMessage(outer, "ctx"), is("<inner>"));
+    }
+
+    /**
+     * スレッドごとに再利用するバッファには、JDKのクラスのみを保持すること。
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMessageBufferHoldsOnlyJdkClasses() throws Exception {
+        final LogItem<String>[] formattedLogItems = new LogItem[] {new FixedStringItem("abc")};
+        LogUtil.formatMessage(formattedLogItems, null);
+        LogUtil.writeMessage(new StringWriter(), formattedLogItems, null);
+
+        Field field = LogUtil.class.getDeclaredField("MESSAGE_BUFFER");
+        field.setAccessible(true);
+        Object[] buffer = ((ThreadLocal<Object[]>) field.get(null)).get();
+        assertThat(buffer.getClass().getClassLoader() == null, is(true));
+        for (Object element : buffer) {
+            assertThat(element != null, is(true));
+            assertThat(element.getClass().getClassLoader() == null, is(true));
+        }
+    }
+
+    /**
+     * 上限を超える長さのメッセージをフォーマットした後も、正しくフォーマットできること。
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFormatLongMessage() throws Exception {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longText.append(i % 10);
+        }
+        final LogItem<String>[] formattedLogItems = new LogItem[] {new FixedStringItem(longText.toString())};
+        assertThat(LogUtil.formatMessage(formattedLogItems, null), is(longText.toString()));
+        StringWriter writer = new StringWriter();
+        LogUtil.writeMessage(writer, formattedLogItems, null);
+        assertThat(writer.toString(), is(longText.toString()));
+
+        final LogItem<String>[] shortItems = new LogItem[] {new FixedStringItem("short")};
+        assertThat(LogUtil.formatMessage(shortItems, null), is("short"));
+    }
+
+    /**
+     * {@link AppendableLogItem}の実装クラスを継承して{@link LogItem#get(Object)}のみをオーバーライドした場合は、
+     * オーバーライドした内容が出力されること。
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFormatMessageWithGetOverridden() {
+        final LogItem<Map<String, Object>>[] formattedLogItems = new LogItem[] {
+                new FixedStringItem("fixed") {
+                    @Override
+                    public String get(Object context) {
+                        return "overridden";
+                    }
+                },
+                new FixedStringItem(":"),
+                new MaskingMapItemSupport<Map<String, Object>>('*', new Pattern[0], ", ") {
+                    @Override
+                    public String get(Map<String, Object> context) {
+                        return "map" + super.get(context);
+                    }
+                    @Override
+                    protected Map<String, ?> getMap(Map<String, Object> context) {
+                        return context;
+                    }
+                }
+        };
+        final Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("name", "nablarch");
+        assertThat(LogUtil.formatMessage(formattedLogItems, map), is("overridden:map{name = [nablarch]}"));
+    }
+
+    /**
+     * {@link MaskingMapItemSupport}のバッファへの追加結果が、取得した文字列と一致すること。
+     */
+    @Test
+    public void testMaskingMapItemSupportAppendTo() {
+        final Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("password", "secret");
+        map.put("name", "nablarch");
+        for (String separator : new String[] {", ", Logger.LS + "\t"}) {
+            MaskingMapItemSupport<Map<String, Object>> item = new MaskingMapItemSupport<Map<String, Object>>(
+                    '*', new Pattern[] {Pattern.compile("password")}, separator) {
+                @Override
+                protected Map<String, ?> getMap(Map<String, Object> context) {
+                    return context;
+                }
+            };
+            StringBuilder buffer = new StringBuilder();
+            item.appendTo(buffer, map);
+            assertThat(buffer.toString(), is(item.get(map)));
+
+            buffer.setLength(0);
+            item.appendTo(buffer, new HashMap<String, Object>());
+            assertThat(buffer.toString(), is("{}"));
+        }
+    }
+
     /**
      * マップを正しくダンプできること。
      */
@@ -223,6 +451,73 @@ public class LogUtilTest extends LogTestSupport {
                 + "mask_ = [*****]}"));
     }
 
+    /**
+     * 複数のパターンを指定した場合も、いずれかのパターンにマッチするキーがマスキングされること。
+     * パターンを結合できない場合も、同じ結果となること。
+     */
+    @Test
+    public void testMaskingWithMultiplePatterns() {
+        final Map<String, Object> input = new TreeMap<String, Object>();
+        input.put("password", "a");
+        input.put("PIN_CODE", "b");
+        input.put("cardNo", new String[] {"c", "d"});
+        input.put("userName", "e");
+        input.put("aa", "f");
+        final String expected = "{PIN_CODE = [*****], aa = [*****], cardNo = [*****, *****], "
+                + "password = [*****], userName = [e]}";
+
+        Pattern[][] patternSets = {
+                {Pattern.compile("pass"), Pattern.compile("^PIN"), Pattern.compile("card"), Pattern.compile("^aa$")},
+                // フラグが異なるパターン
+                {Pattern.compile("PASS", Pattern.CASE_INSENSITIVE), Pattern.compile("^PIN"),
+                        Pattern.compile("card"), Pattern.compile("^aa$")},
+                // 後方参照を含むパターン
+                {Pattern.compile("(p)ass"), Pattern.compile("^PIN"), Pattern.compile("card"), Pattern.compile("(a)\\1")},
+                // LITERALを指定したパターン
+                {Pattern.compile("pass", Pattern.LITERAL), Pattern.compile("PIN", Pattern.LITERAL),
+                        Pattern.compile("card", Pattern.LITERAL), Pattern.compile("aa", Pattern.LITERAL)},
+        };
+        for (Pattern[] patterns : patternSets) {
+            LogUtil.MaskingMapValueEditor editor = new LogUtil.MaskingMapValueEditor('*', patterns);
+            assertThat(LogUtil.dumpMap(input, " ", editor), is(expected));
+            // 判定結果を再利用した場合も同じ結果となること。
+            assertThat(LogUtil.dumpMap(input, " ", editor), is(expected));
+        }
+        assertThat(LogUtil.dumpMap(input, " ", new LogUtil.MaskingMapValueEditor('*', new Pattern[0])),
+                is("{PIN_CODE = [b], aa = [f], cardNo = [c, d], password = [a], userName = [e]}"));
+    }
+
+    /**
+     * 判定結果を保持するキーの数の上限を超えても、正しく判定できること。
+     */
+    @Test
+    public void testMaskingManyKeys() {
+        LogUtil.MaskingMapValueEditor editor = new LogUtil.MaskingMapValueEditor('#',
+                new Pattern[] {Pattern.compile("secret"), Pattern.compile("5$")});
+        for (int i = 0; i < 3000; i++) {
+            String key = (i % 2 == 0 ? "secret" : "plain") + i;
+            boolean masked = i % 2 == 0 || i % 10 == 5;
+            assertThat(editor.edit(key, "v"), is(masked ? "#####" : "v"));
+        }
+    }
+
+    /**
+     * {@link LogUtil.BasicMapValueEditor#edit(String, Object)}をオーバーライドした場合は、
+     * オーバーライドしたメソッドでダンプされること。
+     */
+    @Test
+    public void testDumpMapWithOverriddenEdit() {
+        final Map<String, Object> input = new TreeMap<String, Object>();
+        input.put("key", "value");
+        String result = LogUtil.dumpMap(input, " ", new LogUtil.BasicMapValueEditor() {
+            @Override
+            public String edit(String key, Object value) {
+                return "edited:" + super.edit(key, value);
+            }
+        });
+        assertThat(result, is("{key = [edited:value]}"));
+    }
+
     /**
      * プリミティブの配列を持つMapをダンプできること
      */
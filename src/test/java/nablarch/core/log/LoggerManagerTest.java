@@ -1,16 +1,28 @@
 package nablarch.core.log;
 
 import static org.hamcrest.core.Is.is;
-import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import nablarch.core.log.LogUtil.ObjectCreator;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * {@link LoggerManager}のテスト。
@@ -18,6 +30,9 @@ import org.junit.Test;
  */
 public class LoggerManagerTest extends LogTestSupport {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void clear() throws Exception {
         System.getProperties().remove("nablarch.log.filePath");
@@ -97,8 +112,10 @@ public class LoggerManagerTest extends LogTestSupport {
         MockLogger mockLogger2 = (MockLogger) LoggerManager.get(LoggerManagerTest.class);
         assertThat(MockLoggerFactory.getCount(), is(1));
         
-        // 同じロガー名でも新しいロガーが生成されること。
-        assertThat(mockLogger, not(sameInstance(mockLogger2)));
+        // 同じロガー名の場合は保持しているロガーが返されること。
+        assertThat(mockLogger, sameInstance(mockLogger2));
+        assertThat((MockLogger) LoggerManager.get(LoggerManagerTest.class.getName()), sameInstance(mockLogger));
+        assertThat(((MockLogger) LoggerManager.get("other")).getName(), is("other"));
         
         // 同じクラスローダに別のオブジェクトを作成する。
         LogUtil.getObjectBoundToClassLoader(TEST_CREATOR);
@@ -113,10 +130,216 @@ public class LoggerManagerTest extends LogTestSupport {
         // 2回目の生成なのでcountは2。
         assertThat(TestCreator.getCount(), is(2));
         
+        // 終了処理の後は、新たなロガーファクトリから取得したロガーが返されること。
+        MockLogger mockLogger3 = (MockLogger) LoggerManager.get(LoggerManagerTest.class);
+        assertThat(MockLoggerFactory.getCount(), is(2));
+        assertThat(mockLogger3 == mockLogger, is(false));
+        
         // 2回終了処理が呼ばれてもエラーにならないこと。
         LoggerManager.terminate();
         
         Thread.currentThread().setContextClassLoader(defaultCL);
     }
-}
 
+    /**
+     * 子のクラスローダは親のクラスローダのロガーファクトリを使用し、
+     * 親のクラスローダで終了処理を行った後は、終了したロガーファクトリを使用しないこと。
+     */
+    @Test
+    public void testTerminateParentClassLoader() {
+        MockLoggerFactory.resetCount();
+        System.setProperty("nablarch.log.filePath", "classpath:nablarch/core/log/log-mock.properties");
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        ClassLoader parentCL = new CustomClassLoader(defaultCL);
+        ClassLoader childCL = new ClassLoader(parentCL) {
+        };
+        try {
+            Thread.currentThread().setContextClassLoader(parentCL);
+            MockLogger parentLogger = (MockLogger) LoggerManager.get("test");
+            Thread.currentThread().setContextClassLoader(childCL);
+            assertThat((MockLogger) LoggerManager.get("test"), sameInstance(parentLogger));
+            assertThat(MockLoggerFactory.getCount(), is(1));
+
+            Thread.currentThread().setContextClassLoader(parentCL);
+            LoggerManager.terminate();
+
+            Thread.currentThread().setContextClassLoader(childCL);
+            MockLogger childLogger = (MockLogger) LoggerManager.get("test");
+            assertThat(childLogger == parentLogger, is(false));
+            assertThat(MockLoggerFactory.getCount(), is(2));
+            LoggerManager.terminate();
+        } finally {
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 設定ファイルの変更を監視し、{@link ReloadableLoggerFactory}に再読み込みさせること。
+     */
+    @Test
+    public void testWatchSettings() throws Exception {
+        File file = temporaryFolder.newFile("log.properties");
+        LogSettingsWatcherTest.write(file, "loggerFactory.className = "
+                + LogSettingsWatcherTest.ReloadRecordingLoggerFactory.class.getName() + "\n"
+                + "logSettings.watch = true\n");
+        System.setProperty("nablarch.log.filePath", file.toURI().toString());
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new CustomClassLoader(defaultCL));
+        try {
+            LoggerManager.get("test");
+            LogSettingsWatcherTest.write(file, "loggerFactory.className = "
+                    + LogSettingsWatcherTest.ReloadRecordingLoggerFactory.class.getName() + "\n"
+                    + "logSettings.watch = true\n"
+                    + "level = DEBUG\n");
+            LogSettings reloaded = LogSettingsWatcherTest.ReloadRecordingLoggerFactory.poll();
+            assertThat(reloaded.getProps().get("level"), is("DEBUG"));
+        } finally {
+            LoggerManager.terminate();
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 設定ファイルの変更を監視する場合に、{@link ReloadableLoggerFactory}を実装していなければ例外を送出すること。
+     */
+    @Test
+    public void testWatchSettingsWithoutReloadableLoggerFactory() throws Exception {
+        File file = temporaryFolder.newFile("log.properties");
+        LogSettingsWatcherTest.write(file, "loggerFactory.className = " + MockLoggerFactory.class.getName() + "\n"
+                + "logSettings.watch = true\n");
+        System.setProperty("nablarch.log.filePath", file.toURI().toString());
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new CustomClassLoader(defaultCL));
+        try {
+            LoggerManager.get("test");
+            fail("must be thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("'logSettings.watch' requires a LoggerFactory"), is(true));
+        } finally {
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 設定ファイルの変更を監視できない場合は、{@link LoggerFactory}を初期化する前に例外を送出すること。
+     */
+    @Test
+    public void testWatchSettingsNotFile() throws Exception {
+        File jar = temporaryFolder.newFile("log.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new ZipEntry("log.properties"));
+            out.write(("loggerFactory.className = " + InitializeCountingLoggerFactory.class.getName() + "\n"
+                    + "logSettings.watch = true\n").getBytes("UTF-8"));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        System.setProperty("nablarch.log.filePath", "jar:" + jar.toURI() + "!/log.properties");
+        InitializeCountingLoggerFactory.initializeCount = 0;
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new CustomClassLoader(defaultCL));
+        try {
+            LoggerManager.get("test");
+            fail("must be thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("the log settings can not be watched because it is not a file."), is(true));
+            assertThat(InitializeCountingLoggerFactory.initializeCount, is(0));
+        } finally {
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 初期化した回数を記録する{@link ReloadableLoggerFactory}。
+     */
+    public static class InitializeCountingLoggerFactory extends LogSettingsWatcherTest.ReloadRecordingLoggerFactory {
+
+        /** 初期化した回数 */
+        static volatile int initializeCount;
+
+        @Override
+        public void initialize(LogSettings settings) {
+            initializeCount++;
+        }
+    }
+
+    /**
+     * 登録したオブジェクトを、{@link LoggerFactory}の終了処理を行う前に終了させること。
+     */
+    @Test
+    public void testAddCloseable() throws Exception {
+        File file = temporaryFolder.newFile("log.properties");
+        LogSettingsWatcherTest.write(file, "loggerFactory.className = "
+                + TerminateRecordingLoggerFactory.class.getName() + "\n");
+        System.setProperty("nablarch.log.filePath", file.toURI().toString());
+        TerminateRecordingLoggerFactory.EVENTS.clear();
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new CustomClassLoader(defaultCL));
+        try {
+            LoggerManager.addCloseable(new Closeable() {
+                @Override
+                public void close() {
+                    TerminateRecordingLoggerFactory.EVENTS.add("close");
+                }
+            });
+            LoggerManager.terminate();
+            assertThat(TerminateRecordingLoggerFactory.EVENTS, contains("close", "terminate"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 登録したオブジェクトの終了に失敗した場合は、{@link LoggerFactory}の終了処理を行わないこと。
+     */
+    @Test
+    public void testAddCloseableFailure() throws Exception {
+        File file = temporaryFolder.newFile("log.properties");
+        LogSettingsWatcherTest.write(file, "loggerFactory.className = "
+                + TerminateRecordingLoggerFactory.class.getName() + "\n");
+        System.setProperty("nablarch.log.filePath", file.toURI().toString());
+        TerminateRecordingLoggerFactory.EVENTS.clear();
+
+        ClassLoader defaultCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new CustomClassLoader(defaultCL));
+        try {
+            LoggerManager.addCloseable(new Closeable() {
+                @Override
+                public void close() throws IOException {
+                    TerminateRecordingLoggerFactory.EVENTS.add("close");
+                    throw new IOException("still writing.");
+                }
+            });
+            LoggerManager.addCloseable(new Closeable() {
+                @Override
+                public void close() {
+                    TerminateRecordingLoggerFactory.EVENTS.add("close2");
+                }
+            });
+            LoggerManager.terminate();
+            assertThat(TerminateRecordingLoggerFactory.EVENTS, contains("close", "close2"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(defaultCL);
+        }
+    }
+
+    /**
+     * 終了処理を記録する{@link LoggerFactory}。
+     */
+    public static class TerminateRecordingLoggerFactory extends MockLoggerFactory {
+
+        /** 発生した処理 */
+        static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void terminate() {
+            EVENTS.add("terminate");
+        }
+    }
+}
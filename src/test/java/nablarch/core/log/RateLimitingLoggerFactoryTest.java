@@ -0,0 +1,336 @@
+package nablarch.core.log;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.log.basic.LogLevel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link RateLimitingLoggerFactory}のテスト。
+ */
+public class RateLimitingLoggerFactoryTest {
+
+    /** 出力したログ */
+    private static final List<String> LOGS = Collections.synchronizedList(new ArrayList<String>());
+
+    private final Map<String, String> props = new HashMap<String, String>();
+
+    /** テストで使用する現在の時刻(ナノ秒) */
+    private volatile long now;
+
+    @Before
+    public void setUp() {
+        LOGS.clear();
+        now = 0L;
+        props.put("rateLimitLogger.loggerFactory.className", RecordingLoggerFactory.class.getName());
+    }
+
+    private RateLimitingLoggerFactory createFactory() {
+        RateLimitingLoggerFactory factory = new RateLimitingLoggerFactory() {
+            @Override
+            protected long nanoTime() {
+                return now;
+            }
+        };
+        factory.initialize(new LogSettings("classpath:nablarch/core/log/log-settings.properties") {
+            @Override
+            public Map<String, String> getProps() {
+                return props;
+            }
+        });
+        return factory;
+    }
+
+    private void advance(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * 設定ファイルの変更を監視する場合に、委譲先が{@link ReloadableLoggerFactory}を実装していなければ例外を送出すること。
+     */
+    @Test
+    public void testWatchSettingsWithoutReloadableDelegate() {
+        props.put("logSettings.watch", "true");
+        try {
+            createFactory();
+            fail("must be thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("'logSettings.watch' requires a LoggerFactory"), is(true));
+            assertThat(e.getMessage().contains(RecordingLoggerFactory.class.getName()), is(true));
+        }
+    }
+
+    /**
+     * ロガーとメッセージの組み合わせごとに出力頻度を制限すること。
+     */
+    @Test
+    public void testRateLimit() {
+        props.put("rateLimitLogger.permitsPerSecond", "2");
+        props.put("rateLimitLogger.burstSize", "3");
+        props.put("rateLimitLogger.summaryInterval", "10000");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+        assertThat(sut.get("test") == logger, is(true));
+
+        for (int i = 0; i < 5; i++) {
+            logger.logWarn("closing failed.");
+        }
+        logger.logWarn("other warn");
+        sut.get("other").logWarn("closing failed.");
+        assertThat(LOGS, contains(
+                "test:WARN:closing failed.",
+                "test:WARN:closing failed.",
+                "test:WARN:closing failed.",
+                "test:WARN:other warn",
+                "other:WARN:closing failed."));
+        assertThat(sut.getSuppressedCount(), is(2L));
+
+        LOGS.clear();
+        advance(500);
+        logger.logWarn("closing failed.");
+        logger.logWarn("closing failed.");
+        assertThat("トークンが1つ補充されること", LOGS, contains("test:WARN:closing failed."));
+        assertThat(sut.getSuppressedCount(), is(3L));
+    }
+
+    /**
+     * 制限対象のレベルより重要なログは制限しないこと。
+     */
+    @Test
+    public void testLevel() {
+        props.put("rateLimitLogger.burstSize", "1");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+        for (int i = 0; i < 3; i++) {
+            logger.logError("error", new IllegalStateException());
+            logger.logFatal("fatal");
+            logger.logInfo("info");
+            logger.logDebug("debug is disabled");
+        }
+        assertThat(LOGS, contains(
+                "test:ERROR:error", "test:FATAL:fatal", "test:INFO:info",
+                "test:ERROR:error", "test:FATAL:fatal",
+                "test:ERROR:error", "test:FATAL:fatal"));
+        assertThat("無効なレベルのログは数えないこと", sut.getSuppressedCount(), is(2L));
+        assertThat(logger.isDebugEnabled(), is(false));
+        assertThat(logger.isWarnEnabled(), is(true));
+    }
+
+    /**
+     * 抑止した件数を、設定された間隔ごとと終了処理で出力すること。
+     */
+    @Test
+    public void testSummary() {
+        props.put("rateLimitLogger.burstSize", "1");
+        props.put("rateLimitLogger.permitsPerSecond", "1");
+        props.put("rateLimitLogger.summaryInterval", "1000");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+
+        logger.logWarn("warn");
+        logger.logWarn("warn");
+        logger.logWarn("warn");
+        advance(999);
+        logger.logWarn("warn");
+        assertThat(LOGS, contains("test:WARN:warn"));
+
+        advance(1);
+        logger.logWarn("warn");
+        assertThat(LOGS, contains(
+                "test:WARN:warn",
+                "test:WARN:warn",
+                "test:WARN:similar log messages were suppressed. count = 3, message = [warn]"));
+
+        LOGS.clear();
+        logger.logWarn("warn");
+        logger.logInfo("info");
+        logger.logInfo("info");
+        sut.terminate();
+        assertThat(LOGS, contains(
+                "test:INFO:info",
+                "test:WARN:similar log messages were suppressed. count = 1, message = [warn]",
+                "test:INFO:similar log messages were suppressed. count = 1, message = [info]"));
+    }
+
+    /**
+     * 個別に制限するメッセージの最大数を超えた場合は、トークンバケットを共有すること。
+     */
+    @Test
+    public void testMaxMessages() {
+        props.put("rateLimitLogger.burstSize", "2");
+        props.put("rateLimitLogger.maxMessagesPerLogger", "1");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+        logger.logWarn("first");
+        logger.logWarn("msg1");
+        logger.logWarn("msg2");
+        logger.logWarn("msg3");
+        logger.logWarn("first");
+        sut.terminate();
+        assertThat(LOGS, contains(
+                "test:WARN:first",
+                "test:WARN:msg1",
+                "test:WARN:msg2",
+                "test:WARN:first",
+                "test:WARN:similar log messages were suppressed. count = 1, message = [(other messages)]"));
+    }
+
+    /**
+     * 最大数に達した場合は、トークンが満たされ抑止した件数も無いトークンバケットを削除して、新しいメッセージに割り当てること。
+     */
+    @Test
+    public void testEvictIdleBuckets() {
+        props.put("rateLimitLogger.burstSize", "2");
+        props.put("rateLimitLogger.permitsPerSecond", "10");
+        props.put("rateLimitLogger.maxMessagesPerLogger", "2");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+        logger.logWarn("idle");
+        logger.logWarn("busy");
+        logger.logWarn("busy");
+        logger.logWarn("busy");
+
+        // トークンが満たされるまでの間は削除しない。
+        advance(100);
+        logger.logWarn("new");
+        logger.logWarn("new");
+        logger.logWarn("new");
+
+        // idleはトークンが満たされたため削除し、busyは抑止した件数があるため削除しない。
+        advance(100);
+        logger.logWarn("new");
+        logger.logWarn("new");
+        logger.logWarn("new");
+        sut.terminate();
+        assertThat(LOGS.subList(0, 7), contains(
+                "test:WARN:idle",
+                "test:WARN:busy",
+                "test:WARN:busy",
+                "test:WARN:new",
+                "test:WARN:new",
+                "test:WARN:new",
+                "test:WARN:new"));
+        assertThat(LOGS.subList(7, LOGS.size()), containsInAnyOrder(
+                "test:WARN:similar log messages were suppressed. count = 1, message = [busy]",
+                "test:WARN:similar log messages were suppressed. count = 1, message = [new]",
+                "test:WARN:similar log messages were suppressed. count = 1, message = [(other messages)]"));
+    }
+
+    /**
+     * 複数スレッドから同時に出力しても、許可された件数のみ出力されること。
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        props.put("rateLimitLogger.burstSize", "100");
+        final RateLimitingLoggerFactory sut = createFactory();
+        final Logger logger = sut.get("test");
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++) {
+                        logger.logWarn("warn");
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(LOGS.size(), is(100));
+        assertThat(sut.getSuppressedCount(), is(7900L));
+    }
+
+    /**
+     * 再読み込みした設定で出力頻度を制限すること。
+     */
+    @Test
+    public void testReload() {
+        props.put("rateLimitLogger.burstSize", "1");
+        RateLimitingLoggerFactory sut = createFactory();
+        Logger logger = sut.get("test");
+        logger.logInfo("info");
+        logger.logInfo("info");
+        assertThat(LOGS, contains("test:INFO:info"));
+
+        final Map<String, String> reloaded = new HashMap<String, String>(props);
+        reloaded.put("rateLimitLogger.level", "WARN");
+        reloaded.put("rateLimitLogger.permitsPerSecond", "1");
+        reloaded.put("rateLimitLogger.burstSize", "2");
+        sut.reload(new LogSettings("classpath:nablarch/core/log/log-settings.properties") {
+            @Override
+            public Map<String, String> getProps() {
+                return reloaded;
+            }
+        });
+        LOGS.clear();
+        advance(1000);
+        logger.logInfo("info");
+        logger.logInfo("info");
+        logger.logWarn("warn");
+        logger.logWarn("warn");
+        logger.logWarn("warn");
+        assertThat(LOGS, contains("test:INFO:info", "test:INFO:info", "test:WARN:warn", "test:WARN:warn"));
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        props.put("rateLimitLogger.permitsPerSecond", "0");
+        try {
+            createFactory();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("'rateLimitLogger.permitsPerSecond' must be greater than 0."));
+        }
+    }
+
+    /**
+     * 出力したログを記録する{@link LoggerFactory}。
+     */
+    public static class RecordingLoggerFactory implements LoggerFactory {
+
+        @Override
+        public void initialize(LogSettings settings) {
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public Logger get(final String name) {
+            return new LeveledLoggerSupport(new EffectiveLogLevel(LogLevel.INFO)) {
+                @Override
+                protected void write(LogLevel level, String message,
+                        Throwable error, Object[] options) {
+                    LOGS.add(name + ":" + level + ":" + message);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package nablarch.core.log.operation;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.log.EffectiveLogLevel;
+import nablarch.core.log.LeveledLoggerSupport;
+import nablarch.core.log.basic.LogLevel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link OperationLogChannel}のテスト。
+ */
+public class OperationLogChannelTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File spillFile;
+
+    private RecordingLogger logger;
+
+    private OperationLogChannel sut;
+
+    @Before
+    public void setUp() throws Exception {
+        spillFile = new File(temporaryFolder.getRoot(), "operation.spill");
+        logger = new RecordingLogger();
+    }
+
+    @After
+    public void tearDown() {
+        logger.release();
+        if (sut != null) {
+            sut.close(1000L);
+        }
+        ThreadContext.clear();
+    }
+
+    /**
+     * 専用のスレッドで、出力要求の時点のスレッドコンテキストを使用して出力すること。
+     */
+    @Test
+    public void testWrite() throws Exception {
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        ThreadContext.setUserId("user1");
+        sut.write(LogLevel.ERROR, "error", null);
+        ThreadContext.setUserId("user2");
+        sut.write(LogLevel.FATAL, "fatal", new IllegalStateException("cause"));
+        logger.await(2);
+
+        assertThat(logger.logs, contains(
+                "nablarch-operation-logger:ERROR:error:user1:null",
+                "nablarch-operation-logger:FATAL:fatal:user2:cause"));
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    /**
+     * キューに空きがない場合は退避ファイルに退避し、キューが空になった後に出力すること。
+     */
+    @Test
+    public void testSpill() throws Exception {
+        logger.block();
+        sut = new OperationLogChannel(logger, 1, spillFile);
+        sut.write(LogLevel.ERROR, "msg1", null);
+        logger.awaitBlocked();
+        sut.write(LogLevel.ERROR, "msg2", null);
+        sut.write(LogLevel.WARN, "msg3\nline2", null);
+        sut.write(LogLevel.FATAL, "msg4", new IllegalStateException("cause"));
+
+        List<String> lines = Files.readAllLines(spillFile.toPath());
+        assertThat(lines.size(), is(2));
+        assertThat(lines.get(0), is("WARN\tmsg3\\nline2"));
+        assertThat(lines.get(1), startsWith("FATAL\tmsg4" + escapedLineSeparator()
+                + "java.lang.IllegalStateException: cause"));
+
+        logger.release();
+        logger.await(4);
+        assertThat(logger.logs.size(), is(4));
+        assertThat(logger.logs.subList(0, 3), contains(
+                "nablarch-operation-logger:ERROR:msg1:null:null",
+                "nablarch-operation-logger:ERROR:msg2:null:null",
+                "nablarch-operation-logger:WARN:msg3\nline2:null:null"));
+        assertThat(logger.logs.get(3), startsWith("nablarch-operation-logger:FATAL:msg4"
+                + System.getProperty("line.separator") + "java.lang.IllegalStateException: cause"));
+        waitForDeletion(new File(spillFile.getPath() + ".replaying"));
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    /**
+     * 前回の起動時に退避した出力要求を出力すること。
+     */
+    @Test
+    public void testReplayOnStart() throws Exception {
+        write(new File(spillFile.getPath() + ".replaying"), "ERROR\tinterrupted\n");
+        write(spillFile, "WARN\ttab\\tback\\\\slash\nINFO\t\\0\n");
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        logger.await(3);
+
+        assertThat(logger.logs, contains(
+                "nablarch-operation-logger:ERROR:interrupted:null:null",
+                "nablarch-operation-logger:WARN:tab\tback\\slash:null:null",
+                "nablarch-operation-logger:INFO:null:null:null"));
+        waitForDeletion(new File(spillFile.getPath() + ".replaying"));
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    /**
+     * 出力要求に復元できない行は隔離ファイルに追記し、その件数を警告レベルで出力すること。
+     */
+    @Test
+    public void testReplayCorruptSpillFile() throws Exception {
+        write(spillFile, "ERROR\tbefore\nno separator\nUNKNOWN\tlevel\nINFO\tafter\n");
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        logger.await(3);
+
+        File corruptFile = new File(spillFile.getPath() + ".corrupt");
+        assertThat(logger.logs, contains(
+                "nablarch-operation-logger:ERROR:before:null:null",
+                "nablarch-operation-logger:INFO:after:null:null",
+                "nablarch-operation-logger:WARN:the operation log spill file contained invalid records."
+                        + " count = [2], file path = [" + corruptFile.getPath() + "]:null:null"));
+        assertThat(Files.readAllLines(corruptFile.toPath()), contains("no separator", "UNKNOWN\tlevel"));
+        waitForDeletion(new File(spillFile.getPath() + ".replaying"));
+        assertThat(spillFile.exists(), is(false));
+
+        sut.write(LogLevel.ERROR, "alive", null);
+        logger.await(4);
+    }
+
+    /**
+     * ロガーへの出力に失敗した出力要求は退避ファイルに退避し、後で再度出力すること。
+     */
+    @Test
+    public void testWriteFailure() throws Exception {
+        logger.failures = 1;
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        sut.write(LogLevel.ERROR, "fail", null);
+        sut.write(LogLevel.ERROR, "msg", null);
+        logger.await(2);
+
+        assertThat(logger.logs, containsInAnyOrder(
+                "nablarch-operation-logger:ERROR:msg:null:null",
+                "nablarch-operation-logger:ERROR:fail:null:null"));
+        waitForDeletion(new File(spillFile.getPath() + ".replaying"));
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    /**
+     * 退避ファイルが指定されていない場合は、キューに空きがなければ呼び出し元のスレッドで出力すること。
+     */
+    @Test
+    public void testWithoutSpillFile() throws Exception {
+        logger.block();
+        sut = new OperationLogChannel(logger, 1, null);
+        sut.write(LogLevel.ERROR, "msg1", null);
+        logger.awaitBlocked();
+        sut.write(LogLevel.ERROR, "msg2", null);
+        sut.write(LogLevel.ERROR, "msg3", null);
+        logger.release();
+        logger.await(3);
+
+        assertThat(logger.logs, containsInAnyOrder(
+                "nablarch-operation-logger:ERROR:msg1:null:null",
+                "nablarch-operation-logger:ERROR:msg2:null:null",
+                Thread.currentThread().getName() + ":ERROR:msg3:null:null"));
+    }
+
+    /**
+     * 終了処理で出力し終えていない出力要求を退避し、終了後の出力要求は呼び出し元のスレッドで出力すること。
+     */
+    @Test
+    public void testClose() throws Exception {
+        logger.block();
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        sut.write(LogLevel.ERROR, "msg1", null);
+        logger.awaitBlocked();
+        sut.write(LogLevel.ERROR, "msg2", null);
+        sut.write(LogLevel.ERROR, "msg3", null);
+        assertThat(sut.close(50L), is(false));
+
+        assertThat(Files.readAllLines(spillFile.toPath()), contains("ERROR\tmsg2", "ERROR\tmsg3"));
+        sut.write(LogLevel.INFO, "closed", null);
+        assertThat(logger.logs, contains(Thread.currentThread().getName() + ":INFO:closed:null:null"));
+        sut = null;
+    }
+
+    /**
+     * 出力スレッドが出力中のログから戻って終了した場合、終了処理がtrueを返すこと。
+     */
+    @Test
+    public void testCloseAfterWriterReturns() throws Exception {
+        logger.block();
+        sut = new OperationLogChannel(logger, 10, spillFile);
+        sut.write(LogLevel.ERROR, "msg1", null);
+        logger.awaitBlocked();
+        sut.write(LogLevel.ERROR, "msg2", null);
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // 終了処理がキューの出力要求を退避した後に、出力中のログから戻らせる。
+                try {
+                    while (!spillFile.exists()) {
+                        Thread.sleep(10L);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.release();
+            }
+        });
+        releaser.start();
+        assertThat(sut.close(1000L), is(true));
+        releaser.join();
+
+        assertThat(logger.logs, contains("nablarch-operation-logger:ERROR:msg1:null:null"));
+        assertThat(Files.readAllLines(spillFile.toPath()), contains("ERROR\tmsg2"));
+        sut = null;
+    }
+
+    /**
+     * 終了処理と並行して出力要求を行った場合も、全ての出力要求を出力もしくは退避すること。
+     */
+    @Test
+    public void testWriteWhileClosing() throws Exception {
+        final int threadCount = 4;
+        final int writeCount = 500;
+        sut = new OperationLogChannel(logger, 16, spillFile);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < writeCount; j++) {
+                        sut.write(LogLevel.INFO, "msg", null);
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        sut.close(1000L);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        int spilled = spillFile.exists() ? Files.readAllLines(spillFile.toPath()).size() : 0;
+        assertThat(logger.logs.size() + spilled, is(threadCount * writeCount));
+        sut = null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQueueSize() {
+        new OperationLogChannel(logger, 0, spillFile);
+    }
+
+    private static String escapedLineSeparator() {
+        return System.getProperty("line.separator").replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void waitForDeletion(File file) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(file.exists(), is(false));
+    }
+
+    /**
+     * 出力したログを記録するロガー。
+     */
+    private static class RecordingLogger extends LeveledLoggerSupport {
+
+        private final List<String> logs = Collections.synchronizedList(new ArrayList<String>());
+
+        private volatile CountDownLatch blocker;
+
+        /** "fail"というメッセージの出力で例外を送出する残りの回数 */
+        private volatile int failures;
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+
+        RecordingLogger() {
+            super(new EffectiveLogLevel(LogLevel.TRACE));
+        }
+
+        void block() {
+            blocker = new CountDownLatch(1);
+        }
+
+        void release() {
+            if (blocker != null) {
+                blocker.countDown();
+            }
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000L;
+            while (logs.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertThat(logs.size(), is(count));
+        }
+
+        @Override
+        protected void write(LogLevel logLevel, String message, Throwable error, Object[] options) {
+            if ("fail".equals(message) && failures > 0) {
+                failures--;
+                throw new IllegalStateException("failed.");
+            }
+            CountDownLatch latch = blocker;
+            if (latch != null && Thread.currentThread().getName().equals("nablarch-operation-logger")) {
+                blocked.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            logs.add(Thread.currentThread().getName() + ":" + logLevel + ":" + message + ":"
+                    + ThreadContext.getUserId() + ":" + (error == null ? null : error.getMessage()));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package nablarch.core.log.operation;
 
 import nablarch.core.log.LogTestSupport;
+import nablarch.core.log.LoggerManager;
 import nablarch.core.log.MockLogger;
 import nablarch.core.log.basic.LogLevel;
 import org.junit.After;
@@ -11,6 +12,10 @@ import org.junit.Test;
 import org.mockito.MockedConstruction;
 import org.mockito.Mockito;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 
@@ -186,4 +191,30 @@ public class OperationLoggerTest extends LogTestSupport {
 
         verify(mockLogger).logTrace("テストメッセージ", exception);
     }
+
+    /**
+     * ロガーの終了処理で出力チャネルが終了した後、ロガーが再度初期化された場合は新たな出力チャネルを生成すること。
+     */
+    @Test
+    public void testChannelRestartsAfterTerminate() throws Exception {
+        // 他のテストで検証に使用するロガーを、ロガーの再初期化後に復元する。
+        final MockLogger operatorLogger = mockLogger;
+        try {
+            final OperationLogChannel first = OperationLogger.getOrCreateChannel();
+            assertThat(OperationLogger.getOrCreateChannel(), sameInstance(first));
+
+            LoggerManager.terminate();
+            assertThat(first.isClosed(), is(true));
+
+            final OperationLogChannel second = OperationLogger.getOrCreateChannel();
+            assertThat(second, not(sameInstance(first)));
+            assertThat(second.isClosed(), is(false));
+            assertThat(second.getLogger(), sameInstance(LoggerManager.get("operator")));
+
+            LoggerManager.terminate();
+            assertThat(second.isClosed(), is(true));
+        } finally {
+            mockLogger = operatorLogger;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package nablarch.core.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link GlobMatcher}のテスト。
+ */
+public class GlobMatcherTest {
+
+    @Test
+    public void testEmptyPattern() {
+        for (String glob : new String[] {"", null}) {
+            GlobMatcher sut = GlobMatcher.compile(glob);
+            assertThat(sut.matches("yth115yea;yu"), is(true));
+            assertThat(sut.matches(""), is(true));
+            assertThat(sut.matches("test.txt"), is(true));
+            assertThat(sut.matches("test/hoge"), is(false));
+        }
+    }
+
+    @Test
+    public void testPatternExpressionIncludingWildCardForString() {
+        GlobMatcher sut = GlobMatcher.compile("*.txt");
+        assertThat(sut.matches("hoge.txt"), is(true));
+        assertThat(sut.matches(".txt"), is(true));
+        assertThat(sut.matches("hog ee.txt"), is(true));
+        assertThat(sut.matches("hoge.text"), is(false));
+        assertThat(sut.matches("hoge.bak.txt"), is(true));
+        assertThat(sut.matches("/fuga/hoge.txt"), is(false));
+        assertThat(sut.matches(""), is(false));
+
+        sut = GlobMatcher.compile("/aba/G*");
+        assertThat(sut.matches("/aba/G7777"), is(true));
+        assertThat(sut.matches("/aba/G7777.jsp"), is(true));
+        assertThat(sut.matches("/aba/F7777"), is(false));
+    }
+
+    @Test
+    public void testPatternExpressionIncludingWildCardForOneCharacter() {
+        GlobMatcher sut = GlobMatcher.compile("*.t?t");
+        assertThat(sut.matches("hoge.txt"), is(true));
+        assertThat(sut.matches("hoge.tyt"), is(true));
+        assertThat(sut.matches("hoge.t0t"), is(true));
+        assertThat(sut.matches("hoge.tt"), is(false));
+
+        sut = GlobMatcher.compile("/aba?/*/*");
+        assertThat(sut.matches("/aba1/hoge/test.txt"), is(true));
+        assertThat(sut.matches("/aba2/hoge/test.txt"), is(true));
+        assertThat(sut.matches("/aba/hoge/test.txt"), is(false));
+        assertThat(sut.matches("/aba3/test.txt"), is(false));
+        assertThat(sut.matches("/aba//hoge/test.txt"), is(false));
+    }
+
+    @Test
+    public void testRegion() {
+        GlobMatcher sut = GlobMatcher.compile("*.jsp");
+        assertThat(sut.matches("/app/index.jsp", 5, 14), is(true));
+        assertThat(sut.matches("/app/index.jsp", 4, 14), is(false));
+        assertThat(sut.matches("/app/index.jspx", 5, 14), is(true));
+    }
+
+    @Test
+    public void testSurrogatePair() {
+        String emoji = new String(Character.toChars(0x1F600));
+        assertThat(GlobMatcher.compile("a?b").matches("a" + emoji + "b"), is(true));
+        assertThat(GlobMatcher.compile("a??b").matches("a" + emoji + "b"), is(false));
+        assertThat(GlobMatcher.compile("*?").matches(emoji), is(true));
+        assertThat(GlobMatcher.compile("?*").matches(emoji + emoji), is(true));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(GlobMatcher.compile("/app/*.jsp").toString(), is("/app/*.jsp"));
+    }
+
+    /**
+     * ランダムに生成したグロブ式と文字列について、{@link Glob#compile(String)}と同じ結果となること。
+     */
+    @Test
+    public void testCompatibleWithGlob() {
+        Random random = new Random(20161016L);
+        char[] globChars = {'a', 'b', '.', '/', '*', '?'};
+        char[] inputChars = {'a', 'b', '.', '/'};
+        for (int i = 0; i < 20000; i++) {
+            String glob = randomString(random, globChars, 6);
+            String input = randomString(random, inputChars, 8);
+            boolean expected = Glob.compile(glob).matcher(input).matches();
+            assertThat("glob=" + glob + " input=" + input, GlobMatcher.compile(glob).matches(input), is(expected));
+        }
+    }
+
+    /**
+     * バックトラックが多発する入力でも短時間で照合できること。
+     */
+    @Test(timeout = 5000)
+    public void testPathologicalInput() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            input.append('a');
+        }
+        GlobMatcher sut = GlobMatcher.compile("*a*a*a*a*a*a*b");
+        assertThat(sut.matches(input), is(false));
+        input.append('b');
+        assertThat(sut.matches(input), is(true));
+    }
+
+    private static String randomString(Random random, char[] chars, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(chars[random.nextInt(chars.length)]);
+        }
+        return sb.toString();
+    }
+}
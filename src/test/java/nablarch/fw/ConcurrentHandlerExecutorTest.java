@@ -0,0 +1,197 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nablarch.core.ThreadContext;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link ConcurrentHandlerExecutor}のテスト。
+ */
+public class ConcurrentHandlerExecutorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private final ConcurrentHandlerExecutor sut = new ConcurrentHandlerExecutor();
+
+    @After
+    public void tearDown() {
+        sut.shutdown();
+        ThreadContext.clear();
+    }
+
+    /** 入力データとユーザIDを連結して返すハンドラ */
+    private static final Handler<String, String> USER_HANDLER = new Handler<String, String>() {
+        @Override
+        public String handle(String data, ExecutionContext context) {
+            String result = data + ":" + ThreadContext.getUserId() + ":" + context.getRequestScopedVar("var");
+            // 処理中の変更は呼び出し元に影響しない。
+            ThreadContext.setUserId("changed");
+            context.setRequestScopedVar("var", "changed");
+            return result;
+        }
+    };
+
+    @Test
+    public void testDispatchAll() {
+        ThreadContext.setUserId("user");
+        ExecutionContext context = new ExecutionContext().addHandler(USER_HANDLER);
+        context.setRequestScopedVar("var", "original");
+
+        List<String> results = sut.dispatchAll(context, Arrays.asList("a", "b", "c"));
+        assertThat(results, contains("a:user:null", "b:user:null", "c:user:null"));
+
+        assertThat(ThreadContext.getUserId(), is("user"));
+        assertThat(context.<String>getRequestScopedVar("var"), is("original"));
+        assertThat(context.getHandlerQueue().size(), is(1));
+    }
+
+    /**
+     * 投入時点のスレッドコンテキストが処理に引き継がれること。
+     */
+    @Test
+    public void testThreadContextCapturedAtDispatch() throws Exception {
+        sut.setMaxConcurrency(1);
+        ExecutionContext context = new ExecutionContext().addHandler(USER_HANDLER);
+        ThreadContext.setUserId("first");
+        Future<String> first = sut.dispatch(context, "a");
+        ThreadContext.setUserId("second");
+        Future<String> second = sut.dispatch(context, "b");
+        assertThat(first.get(), is("a:first:null"));
+        assertThat(second.get(), is("b:second:null"));
+    }
+
+    /**
+     * スレッドの継承に依存せずにスレッドコンテキストが引き継がれること。
+     */
+    @Test
+    public void testThreadContextWithoutInheritance() {
+        // 事前にスレッドを生成した、スレッドコンテキストを継承しないスレッドプールを使用する。
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadContext.setUserId("pool");
+                }
+            }).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        ConcurrentHandlerExecutor executor = new ConcurrentHandlerExecutor() {
+            @Override
+            protected ExecutorService createExecutorService(boolean virtualThreads) {
+                return pool;
+            }
+        };
+        try {
+            ThreadContext.setUserId("caller");
+            List<String> results = executor.dispatchAll(
+                    new ExecutionContext().addHandler(USER_HANDLER), Arrays.asList("a", "b"));
+            assertThat(results, contains("a:caller:null", "b:caller:null"));
+
+            // 処理の終了後は、スレッドプールのスレッドのスレッドコンテキストが元に戻ること。
+            assertThat(pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return ThreadContext.getUserId();
+                }
+            }).get(), is("pool"));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMaxConcurrency() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        sut.setMaxConcurrency(2);
+        ExecutionContext context = new ExecutionContext().addHandler(new Handler<Integer, Integer>() {
+            @Override
+            public Integer handle(Integer data, ExecutionContext context) {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return data * 2;
+            }
+        });
+        List<Integer> inputs = new ArrayList<Integer>();
+        for (int i = 0; i < 20; i++) {
+            inputs.add(i);
+        }
+        List<Integer> results = sut.dispatchAll(context, inputs);
+        for (int i = 0; i < 20; i++) {
+            assertThat(results.get(i), is(i * 2));
+        }
+        assertThat(maxRunning.get() <= 2, is(true));
+    }
+
+    @Test
+    public void testFailure() {
+        ExecutionContext context = new ExecutionContext().addHandler(new Handler<Integer, Integer>() {
+            @Override
+            public Integer handle(Integer data, ExecutionContext context) {
+                if (data % 2 == 1) {
+                    throw new IllegalArgumentException("error " + data);
+                }
+                return data;
+            }
+        });
+        try {
+            sut.dispatchAll(context, Arrays.asList(0, 1, 2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("error 1"));
+            assertThat(e.getSuppressed().length, is(1));
+            assertThat(e.getSuppressed()[0].getMessage(), is("error 3"));
+        }
+    }
+
+    @Test
+    public void testUsePlatformThreads() throws Exception {
+        sut.setUseVirtualThreads(false);
+        Future<String> result = sut.dispatch(new ExecutionContext().addHandler(new Handler<Object, String>() {
+            @Override
+            public String handle(Object data, ExecutionContext context) {
+                return Thread.currentThread().getName();
+            }
+        }), null);
+        assertThat(result.get().startsWith("concurrent-handler-"), is(true));
+        assertThat(ThreadContext.getUserId(), is(nullValue()));
+    }
+
+    @Test
+    public void testInvalidMaxConcurrency() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("maxConcurrency must not be negative. maxConcurrency = -1");
+        sut.setMaxConcurrency(-1);
+    }
+}
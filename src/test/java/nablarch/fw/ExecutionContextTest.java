@@ -6,8 +6,11 @@ import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.hamcrest.CoreMatchers;
@@ -279,6 +282,78 @@ public class ExecutionContextTest {
         context.closeReader();
     }
 
+    /** リストの内容を返すデータリーダ */
+    private static class ListReader implements DataReader<String> {
+        private final Iterator<String> iterator;
+        ListReader(String... data) {
+            iterator = Arrays.asList(data).iterator();
+        }
+        @Override
+        public String read(ExecutionContext ctx) {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+        @Override
+        public boolean hasNext(ExecutionContext ctx) {
+            return iterator.hasNext();
+        }
+        @Override
+        public void close(ExecutionContext ctx) {
+        }
+    }
+
+    /** まとめて読み込むデータリーダ(読み込み件数を記録する) */
+    private static class ListBatchReader extends ListReader implements BatchDataReader<String> {
+        private final List<Integer> requested = new ArrayList<Integer>();
+        ListBatchReader(String... data) {
+            super(data);
+        }
+        @Override
+        public int read(ExecutionContext ctx, List<? super String> buffer, int maxCount) {
+            requested.add(maxCount);
+            int count = 0;
+            while (count < maxCount && hasNext(ctx)) {
+                buffer.add(read(ctx));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Test
+    public void testReadNextBatch() {
+        ExecutionContext context = new ExecutionContext();
+        assertThat("リーダが設定されていないので空", context.<String>readNextBatch(2), hasSize(0));
+
+        context.setDataReader(new ListReader("1", "2", "3"));
+        assertThat(context.<String>readNextBatch(2), contains("1", "2"));
+        assertThat(context.<String>getLastReadData(), is("2"));
+        assertThat(context.<String>readNextBatch(2), contains("3"));
+        assertThat(context.<String>getLastReadData(), is("3"));
+        assertThat(context.<String>readNextBatch(2), hasSize(0));
+        assertThat(context.getLastReadData(), is(nullValue()));
+    }
+
+    @Test
+    public void testReadNextBatchWithBatchDataReader() {
+        ListBatchReader reader = new ListBatchReader("1", "2", "3");
+        ExecutionContext context = new ExecutionContext().setDataReader(reader);
+
+        List<String> buffer = new ArrayList<String>();
+        buffer.add("0");
+        assertThat(context.readNextBatch(buffer, 5), is(3));
+        assertThat(buffer, contains("0", "1", "2", "3"));
+        assertThat(context.<String>getLastReadData(), is("3"));
+        assertThat(context.readNextBatch(buffer, 5), is(0));
+        assertThat(reader.requested, contains(5, 5));
+    }
+
+    @Test
+    public void testReadNextBatchWithInvalidCount() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("maxCount must be greater than 0. maxCount = 0");
+        new ExecutionContext().setDataReader(new ListReader("1")).readNextBatch(0);
+    }
+
     @Test
     public void testRequestScopeMap() {
         ExecutionContext context = new ExecutionContext();
@@ -368,6 +443,146 @@ public class ExecutionContextTest {
         assertThat(newCtx.getDataReader(), is(orgCtx.getDataReader()));
     }
 
+    /**
+     * コピー元とコピー先のハンドラキューが互いに影響しないことを確認する。
+     */
+    @Test
+    public void testCopiedHandlerQueueIsIndependent() {
+        class Handler1 implements Handler<Object, Object> {
+            @Override
+            public Object handle(final Object o, final ExecutionContext context) {
+                return "handler1";
+            }
+        }
+        class Handler2 implements Handler<Object, Object> {
+            @Override
+            public Object handle(final Object o, final ExecutionContext context) {
+                return context.handleNext(o);
+            }
+        }
+
+        ExecutionContext orgCtx = new ExecutionContext();
+        orgCtx.addHandler(new Handler2());
+        orgCtx.addHandler(new Handler1());
+
+        ExecutionContext newCtx = orgCtx.copy();
+        assertThat(newCtx.<Object, Object>handleNext("data"), CoreMatchers.<Object>is("handler1"));
+        assertThat(newCtx.getHandlerQueue(), hasSize(0));
+        assertThat(orgCtx.getHandlerQueue(), contains(
+                instanceOf(Handler2.class),
+                instanceOf(Handler1.class)
+        ));
+
+        newCtx = orgCtx.copy();
+        newCtx.getHandlerQueue().remove(1);
+        assertThat(orgCtx.getHandlerQueue(), hasSize(2));
+        assertThat(orgCtx.<Object, Object>handleNext("data"), CoreMatchers.<Object>is("handler1"));
+
+        expectedException.expect(NoMoreHandlerException.class);
+        newCtx.handleNext("data");
+    }
+
+    /**
+     * 例外発生時のデータを参照しただけではリクエストスコープが変更されないことを確認する。
+     */
+    @Test
+    public void testDataProcessedWhenThrown() {
+        ExecutionContext context = new ExecutionContext();
+        RuntimeException e = new RuntimeException();
+        assertThat(context.getDataProcessedWhenThrown(e), nullValue());
+        assertThat(context.getRequestScopeMap().isEmpty(), is(true));
+
+        context.putDataOnException(e, "data");
+        assertThat(context.getDataProcessedWhenThrown(e), CoreMatchers.<Object>is("data"));
+        assertThat(context.getDataProcessedWhenThrown(new RuntimeException()), nullValue());
+    }
+
+    /**
+     * 参照される前に複製した場合も、セッションが共有されることを確認する。
+     */
+    @Test
+    public void testCopyBeforeSessionIsCreated() {
+        ExecutionContext orgCtx = new ExecutionContext();
+        ExecutionContext newCtx = orgCtx.copy();
+        newCtx.setSessionScopedVar("scope", "1");
+        newCtx.setSessionStoredVar("store", "2");
+        assertThat(orgCtx.getSessionScopedVar("scope"), CoreMatchers.<Object>is("1"));
+        assertThat(orgCtx.getSessionStoredVar("store"), CoreMatchers.<Object>is("2"));
+    }
+
+    /**
+     * 実行コンテキストを再初期化できることを確認する。
+     */
+    @Test
+    public void testReset() {
+        class Handler1 implements Handler<Object, Object> {
+            @Override
+            public Object handle(final Object o, final ExecutionContext context) {
+                return "handler1:" + o;
+            }
+        }
+        final DataReader<Object> dataReader = new DataReader<Object>() {
+            @Override
+            public Object read(ExecutionContext ctx) {
+                return "read";
+            }
+
+            @Override
+            public boolean hasNext(ExecutionContext ctx) {
+                return true;
+            }
+
+            @Override
+            public void close(ExecutionContext ctx) {
+            }
+        };
+
+        ExecutionContext orgCtx = new ExecutionContext();
+        orgCtx.addHandler(new Handler1());
+        orgCtx.setDataReader(dataReader);
+        orgCtx.setSessionScopedVar("session", "value");
+
+        ExecutionContext sut = orgCtx.copy();
+        Map<String, Object> requestScope = sut.getRequestScopeMap();
+        for (int i = 0; i < 3; i++) {
+            assertThat(sut.reset(orgCtx), sameInstance(sut));
+            assertThat(sut.getHandlerQueue(), hasSize(1));
+            assertThat(sut.getRequestScopeMap(), sameInstance(requestScope));
+            assertThat(sut.getRequestScopeMap().isEmpty(), is(true));
+            assertThat(sut.getLastReadData(), nullValue());
+            assertThat(sut.isProcessSucceeded(), is(true));
+            assertThat(sut.getSessionScopedVar("session"), CoreMatchers.<Object>is("value"));
+            assertThat(sut.getDataReader(), sameInstance((DataReader<Object>) dataReader));
+
+            sut.readNextData();
+            sut.setRequestScopedVar("request", i);
+            sut.setException(new RuntimeException());
+            sut.setLastRecordNumber(i + 1);
+            assertThat(sut.<Object, Object>handleNext(i), CoreMatchers.<Object>is("handler1:" + i));
+            assertThat(sut.getHandlerQueue(), hasSize(0));
+        }
+        assertThat(orgCtx.getHandlerQueue(), hasSize(1));
+        assertThat(orgCtx.getRequestScopeMap().isEmpty(), is(true));
+    }
+
+    /**
+     * 外部から設定されたリクエストスコープのMapは、再初期化でクリアせずに参照のみを破棄すること。
+     */
+    @Test
+    public void testResetWithSuppliedRequestScopeMap() {
+        ExecutionContext orgCtx = new ExecutionContext();
+        Map<String, Object> supplied = new HashMap<String, Object>();
+        supplied.put("attr", "value");
+
+        ExecutionContext sut = orgCtx.copy();
+        sut.setRequestScopeMap(supplied);
+        sut.reset(orgCtx);
+
+        assertThat(supplied.get("attr"), CoreMatchers.<Object>is("value"));
+        assertThat(sut.getRequestScopeMap(), not(sameInstance(supplied)));
+        assertThat(sut.getRequestScopeMap().isEmpty(), is(true));
+    }
+
     /**
      * copyInternalがでたらめな実装だと、コピー時に例外が送出されることを確認する。
      */
@@ -0,0 +1,142 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * {@link HandlerPipeline}のテスト。
+ */
+@SuppressWarnings("rawtypes")
+public class HandlerPipelineTest {
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Interceptor(Decorate.Impl.class)
+    public @interface Decorate {
+        class Impl extends Interceptor.Impl<Object, Object, Decorate> {
+            @Override
+            public Object handle(Object data, ExecutionContext context) {
+                return "[" + getOriginalHandler().handle(data, context) + "]";
+            }
+        }
+    }
+
+    public static class DecoratedHandler implements Handler<Object, Object> {
+        @Decorate
+        @Override
+        public Object handle(Object data, ExecutionContext context) {
+            return "decorated:" + context.handleNext(data);
+        }
+    }
+
+    public static class LastHandler implements Handler<Object, Object> {
+        @Override
+        public Object handle(Object data, ExecutionContext context) {
+            return "last:" + data;
+        }
+    }
+
+    @Test
+    public void testCompile() {
+        HandlerPipeline sut = HandlerPipeline.compile(
+                Arrays.<Handler>asList(new DecoratedHandler(), new LastHandler()));
+
+        assertThat(sut, hasSize(2));
+        assertThat(sut.get(0), instanceOf(Decorate.Impl.class));
+        assertThat(sut.get(1), instanceOf(LastHandler.class));
+        assertThat(HandlerPipeline.compile(sut), sameInstance(sut));
+
+        ExecutionContext context = new ExecutionContext().setHandlerQueue(sut);
+        assertThat(context.<Object, Object>handleNext("data"), is((Object) "[decorated:last:data]"));
+        assertThat(context.getHandlerQueue(), hasSize(0));
+
+        // コンパイル済みのハンドラキューは実行によって変化しない。
+        assertThat(sut, hasSize(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        HandlerPipeline sut = HandlerPipeline.compile(Arrays.<Handler>asList(new LastHandler()));
+        sut.add(new LastHandler());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullHandler() {
+        HandlerPipeline.compile(Arrays.<Handler>asList(new LastHandler(), null));
+    }
+
+    @Test
+    public void testModificationOnContextDoesNotAffectPipeline() {
+        HandlerPipeline sut = HandlerPipeline.compile(
+                Arrays.<Handler>asList(new DecoratedHandler(), new LastHandler()));
+        ExecutionContext context = new ExecutionContext().setHandlerQueue(sut);
+
+        context.addHandler(0, new LastHandler());
+        context.getHandlerQueue().remove(2);
+        assertThat(context.getHandlerQueue(), hasSize(2));
+        assertThat(context.<Object, Object>handleNext("data"), is((Object) "last:data"));
+
+        assertThat(sut, hasSize(2));
+        assertThat(sut.get(0), instanceOf(Decorate.Impl.class));
+        assertThat(sut.get(1), instanceOf(LastHandler.class));
+    }
+
+    @Test
+    public void testCompiledHandlerQueueOfManager() {
+        ExecutionContext manager = new ExecutionContext();
+        manager.addHandler(new DecoratedHandler());
+        manager.addHandler(new LastHandler());
+
+        HandlerPipeline compiled = manager.getCompiledHandlerQueue();
+        assertThat(compiled, is(manager.getHandlerQueue()));
+        assertThat("キャッシュされること", manager.getCompiledHandlerQueue(), sameInstance(compiled));
+
+        manager.addHandler(new LastHandler());
+        HandlerPipeline recompiled = manager.getCompiledHandlerQueue();
+        assertThat("ハンドラの追加でキャッシュが破棄されること", recompiled, not(sameInstance(compiled)));
+        assertThat(recompiled, hasSize(3));
+
+        manager.getHandlerQueue().remove(2);
+        assertThat("キューを直接変更した場合もキャッシュが破棄されること", manager.getCompiledHandlerQueue(), hasSize(2));
+
+        manager.getHandlerQueue().set(1, new DecoratedHandler());
+        assertThat(manager.getCompiledHandlerQueue().get(1), instanceOf(Decorate.Impl.class));
+
+        manager.clearHandlers();
+        assertThat(manager.getCompiledHandlerQueue(), hasSize(0));
+    }
+
+    @Test
+    public void testCompiledHandlerQueueAfterDispatch() {
+        ExecutionContext context = new ExecutionContext();
+        context.addHandler(new DecoratedHandler());
+        context.addHandler(new LastHandler());
+        assertThat(context.getCompiledHandlerQueue(), hasSize(2));
+
+        assertThat(context.<Object, Object>handleNext("data"), is((Object) "[decorated:last:data]"));
+        assertThat("実行で取り出したハンドラを含まないこと", context.getCompiledHandlerQueue(), hasSize(0));
+    }
+
+    @Test
+    public void testAddHandlersWithPipeline() {
+        HandlerPipeline sut = HandlerPipeline.compile(
+                Arrays.<Handler>asList(new DecoratedHandler(), new LastHandler()));
+        ExecutionContext context = new ExecutionContext();
+        context.addHandler(new LastHandler());
+        context.addHandlers(sut);
+        assertThat(context.getHandlerQueue(), hasSize(3));
+        assertThat(context.getHandlerQueue().get(1), sameInstance(sut.get(0)));
+    }
+}
@@ -0,0 +1,158 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link HandlerQueue}のテスト。
+ */
+@SuppressWarnings("rawtypes")
+public class HandlerQueueTest {
+
+    private static class NamedHandler implements Handler<Object, Object> {
+        private final String name;
+
+        NamedHandler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object handle(Object o, ExecutionContext context) {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Handler h1 = new NamedHandler("h1");
+    private final Handler h2 = new NamedHandler("h2");
+    private final Handler h3 = new NamedHandler("h3");
+    private final Handler h4 = new NamedHandler("h4");
+
+    @Test
+    public void testAddAndRemoveHead() {
+        HandlerQueue sut = new HandlerQueue();
+        assertThat(sut.isEmpty(), is(true));
+        sut.addAll(Arrays.asList(h1, h2, h3));
+        assertThat(sut, contains(h1, h2, h3));
+
+        assertThat(sut.remove(0), sameInstance(h1));
+        assertThat(sut.remove(0), sameInstance(h2));
+        assertThat(sut, contains(h3));
+        assertThat(sut.get(0), sameInstance(h3));
+
+        // 先頭への挿入は取り出し済みの領域を再利用する。
+        sut.add(0, h2);
+        sut.add(0, h1);
+        assertThat(sut, contains(h1, h2, h3));
+
+        sut.add(0, h4);
+        assertThat(sut, contains(h4, h1, h2, h3));
+    }
+
+    @Test
+    public void testInsertRemoveAndSetInMiddle() {
+        HandlerQueue sut = new HandlerQueue();
+        sut.addAll(Arrays.asList(h1, h2, h3));
+        sut.remove(0);
+
+        sut.add(1, h4);
+        assertThat(sut, contains(h2, h4, h3));
+
+        assertThat(sut.remove(1), sameInstance(h4));
+        assertThat(sut, contains(h2, h3));
+
+        assertThat(sut.set(1, h1), sameInstance(h3));
+        assertThat(sut, contains(h2, h1));
+
+        sut.clear();
+        assertThat(sut, hasSize(0));
+        sut.add(h3);
+        assertThat(sut, contains(h3));
+    }
+
+    @Test
+    public void testGrow() {
+        HandlerQueue sut = new HandlerQueue();
+        List<Handler> expected = new ArrayList<Handler>();
+        for (int i = 0; i < 100; i++) {
+            Handler handler = new NamedHandler("h" + i);
+            sut.add(handler);
+            expected.add(handler);
+        }
+        assertThat(sut, is((List<Handler>) expected));
+        for (int i = 0; i < 50; i++) {
+            sut.remove(0);
+            expected.remove(0);
+        }
+        sut.add(25, h1);
+        expected.add(25, h1);
+        assertThat(sut, is((List<Handler>) expected));
+    }
+
+    @Test
+    public void testCopyDoesNotAffectOriginal() {
+        HandlerQueue original = new HandlerQueue();
+        original.addAll(Arrays.asList(h1, h2, h3));
+        original.remove(0);
+
+        HandlerQueue copied = new HandlerQueue(original);
+        assertThat(copied, contains(h2, h3));
+
+        // 先頭の取り出しは互いに影響しない。
+        assertThat(copied.remove(0), sameInstance(h2));
+        assertThat(original, contains(h2, h3));
+        assertThat(original.remove(0), sameInstance(h2));
+        assertThat(copied, contains(h3));
+
+        // 挿入・置換・削除も互いに影響しない。
+        copied.add(h4);
+        assertThat(original, contains(h3));
+        original.add(0, h1);
+        assertThat(copied, contains(h3, h4));
+        assertThat(original, contains(h1, h3));
+
+        HandlerQueue copied2 = new HandlerQueue(original);
+        copied2.set(0, h2);
+        copied2.remove(1);
+        assertThat(copied2, contains(h2));
+        assertThat(original, contains(h1, h3));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorFailFast() {
+        HandlerQueue sut = new HandlerQueue();
+        sut.addAll(Arrays.asList(h1, h2));
+        Iterator<Handler> iterator = sut.iterator();
+        iterator.next();
+        sut.remove(0);
+        iterator.next();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        HandlerQueue sut = new HandlerQueue();
+        sut.add(h1);
+        sut.remove(0);
+        sut.get(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddOutOfRange() {
+        new HandlerQueue().add(1, h1);
+    }
+}
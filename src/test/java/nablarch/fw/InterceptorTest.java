@@ -0,0 +1,159 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link Interceptor.Factory}のテスト。
+ */
+public class InterceptorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Interceptor(First.Impl.class)
+    public @interface First {
+        class Impl extends Interceptor.Impl<Object, Object, First> {
+            @Override
+            public Object handle(Object data, ExecutionContext context) {
+                return "first(" + getOriginalHandler().handle(data, context) + ")";
+            }
+        }
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Interceptor(Second.Impl.class)
+    public @interface Second {
+        class Impl extends Interceptor.Impl<Object, Object, Second> {
+            @Override
+            public Object handle(Object data, ExecutionContext context) {
+                return "second(" + getOriginalHandler().handle(data, context) + ")";
+            }
+        }
+    }
+
+    public static class InterceptedHandler implements Handler<Object, Object> {
+        @First
+        @Second
+        @Override
+        public Object handle(Object data, ExecutionContext context) {
+            return data;
+        }
+    }
+
+    public static class PlainHandler implements Handler<Object, Object> {
+        @Override
+        public Object handle(Object data, ExecutionContext context) {
+            return data;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SystemRepository.clear();
+        Interceptor.Factory.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        SystemRepository.clear();
+        Interceptor.Factory.clearCache();
+    }
+
+    private static void loadOrder(final String... order) {
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return Collections.<String, Object>singletonMap("interceptorsOrder", Arrays.asList(order));
+            }
+        });
+    }
+
+    @Test
+    public void testWrapWithoutInterceptor() {
+        PlainHandler handler = new PlainHandler();
+        assertThat(Interceptor.Factory.wrap(handler), sameInstance((Handler<Object, Object>) handler));
+    }
+
+    @Test
+    public void testWrapWithOrder() {
+        loadOrder(Second.class.getName(), First.class.getName());
+        Handler<Object, Object> wrapped = Interceptor.Factory.wrap(new InterceptedHandler());
+        assertThat(wrapped, instanceOf(Second.Impl.class));
+        assertThat(wrapped.handle("data", new ExecutionContext()), is((Object) "second(first(data))"));
+
+        // 2回目以降も新しいラッパーが生成されること。
+        Handler<Object, Object> wrapped2 = Interceptor.Factory.wrap(new InterceptedHandler());
+        assertThat(wrapped2 == wrapped, is(false));
+        assertThat(wrapped2.handle("data", new ExecutionContext()), is((Object) "second(first(data))"));
+    }
+
+    @Test
+    public void testOrderChangedByRepositoryReload() {
+        loadOrder(Second.class.getName(), First.class.getName());
+        Handler<Object, Object> wrapped = Interceptor.Factory.wrap(new InterceptedHandler());
+        assertThat(wrapped.handle("data", new ExecutionContext()), is((Object) "second(first(data))"));
+
+        loadOrder(First.class.getName(), Second.class.getName());
+        wrapped = Interceptor.Factory.wrap(new InterceptedHandler());
+        assertThat(wrapped.handle("data", new ExecutionContext()), is((Object) "first(second(data))"));
+    }
+
+    @Test
+    public void testOrderChangedInPlaceRequiresClearCache() {
+        final List<String> order = Arrays.asList(Second.class.getName(), First.class.getName());
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return Collections.<String, Object>singletonMap("interceptorsOrder", order);
+            }
+        });
+        Interceptor.Factory.wrap(new InterceptedHandler());
+
+        Collections.reverse(order);
+        Interceptor.Factory.clearCache();
+        Handler<Object, Object> wrapped = Interceptor.Factory.wrap(new InterceptedHandler());
+        assertThat(wrapped.handle("data", new ExecutionContext()), is((Object) "first(second(data))"));
+    }
+
+    @Test
+    public void testUndefinedInterceptor() {
+        loadOrder(First.class.getName());
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("interceptor is undefined in the interceptorsOrder.");
+        Interceptor.Factory.wrap(new InterceptedHandler());
+    }
+
+    @Test
+    public void testWrapWithAnnotations() throws Exception {
+        loadOrder(First.class.getName(), Second.class.getName());
+        Handler<Object, Object> wrapped = Interceptor.Factory.wrap(new PlainHandler(),
+                InterceptedHandler.class.getMethod("handle", Object.class, ExecutionContext.class)
+                                        .getDeclaredAnnotations());
+        assertThat(wrapped.handle("data", new ExecutionContext()), is((Object) "first(second(data))"));
+    }
+}
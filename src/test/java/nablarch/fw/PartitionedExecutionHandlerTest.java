@@ -0,0 +1,285 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nablarch.core.ThreadContext;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link PartitionedExecutionHandler}のテスト。
+ */
+public class PartitionedExecutionHandlerTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** 指定された範囲の整数を返すデータリーダ */
+    private static class RangeReader implements DataReader<Integer> {
+        private final AtomicInteger closeCount;
+        private int next;
+        private final int end;
+        private final int step;
+
+        RangeReader(int start, int end, int step, AtomicInteger closeCount) {
+            this.next = start;
+            this.end = end;
+            this.step = step;
+            this.closeCount = closeCount;
+        }
+
+        @Override
+        public synchronized Integer read(ExecutionContext ctx) {
+            if (next >= end) {
+                return null;
+            }
+            int value = next;
+            next += step;
+            return value;
+        }
+
+        @Override
+        public synchronized boolean hasNext(ExecutionContext ctx) {
+            return next < end;
+        }
+
+        @Override
+        public void close(ExecutionContext ctx) {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    /** 0から指定された件数の整数を、余りによってパーティションに分割するファクトリ */
+    private static class ModuloReaderFactory implements PartitionedDataReaderFactory<Integer> {
+        private final int size;
+        private final AtomicInteger closeCount = new AtomicInteger();
+
+        ModuloReaderFactory(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public DataReader<Integer> createReader(ExecutionContext context) {
+            return new RangeReader(0, size, 1, closeCount);
+        }
+
+        @Override
+        public List<DataReader<Integer>> createReaders(ExecutionContext context, int partitionCount) {
+            List<DataReader<Integer>> readers = new ArrayList<DataReader<Integer>>();
+            for (int i = 0; i < Math.min(partitionCount, size); i++) {
+                readers.add(new RangeReader(i, size, partitionCount, closeCount));
+            }
+            return readers;
+        }
+    }
+
+    /** 読み込んだデータの合計をメッセージとする結果を返すハンドラ */
+    private static class SumHandler implements Handler<Object, Object> {
+        private final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        private final Set<Integer> concurrentNumbers = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        private final Set<Integer> processed = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+        @Override
+        public Object handle(Object data, ExecutionContext context) {
+            threads.add(Thread.currentThread());
+            concurrentNumbers.add(ThreadContext.getConcurrentNumber());
+            int sum = 0;
+            while (context.hasNextData()) {
+                Integer value = context.readNextData();
+                processed.add(value);
+                sum += value;
+            }
+            return new Result.Success(String.valueOf(sum));
+        }
+    }
+
+    @Test
+    public void testPartitionedExecution() {
+        ModuloReaderFactory factory = new ModuloReaderFactory(100);
+        SumHandler sumHandler = new SumHandler();
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        sut.setPartitionCount(4);
+
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(factory)
+                .addHandler(sut)
+                .addHandler(sumHandler);
+        Result.MultiStatus result = context.handleNext("input");
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getResults(), hasSize(4));
+        // 結果はパーティションの順序で格納される。
+        String[] expected = {"1200", "1225", "1250", "1275"};
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(result.getResults().get(i).getMessage(), is(expected[i]));
+        }
+        assertThat(sumHandler.processed, hasSize(100));
+        assertThat(sumHandler.threads, hasSize(4));
+        assertThat(sumHandler.threads.contains(Thread.currentThread()), is(false));
+        assertThat(sumHandler.concurrentNumbers, is(Collections.singleton(4)));
+        assertThat(factory.closeCount.get(), is(4));
+    }
+
+    @Test
+    public void testFewerPartitions() {
+        ModuloReaderFactory factory = new ModuloReaderFactory(2);
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        sut.setPartitionCount(8);
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(factory)
+                .addHandler(sut)
+                .addHandler(new SumHandler());
+        Result.MultiStatus result = context.handleNext("input");
+        assertThat(result.getResults(), hasSize(2));
+        assertThat(factory.closeCount.get(), is(2));
+    }
+
+    /**
+     * 分割に対応していないファクトリの場合は、1つのパーティションとして処理されること。
+     */
+    @Test
+    public void testNotPartitionedFactory() {
+        final ModuloReaderFactory partitioned = new ModuloReaderFactory(10);
+        SumHandler sumHandler = new SumHandler();
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        sut.setPartitionCount(4);
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(new DataReaderFactory<Integer>() {
+                    @Override
+                    public DataReader<Integer> createReader(ExecutionContext context) {
+                        return partitioned.createReader(context);
+                    }
+                })
+                .addHandler(sut)
+                .addHandler(sumHandler);
+        Result.MultiStatus result = context.handleNext("input");
+        assertThat(result.getResults(), hasSize(1));
+        assertThat(result.getResults().get(0).getMessage(), is("45"));
+        assertThat(partitioned.closeCount.get(), is(1));
+    }
+
+    /**
+     * 後続ハンドラがResult以外を返した場合は、Successが格納されること。
+     */
+    @Test
+    public void testNonResultValue() {
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        sut.setPartitionCount(2);
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(new ModuloReaderFactory(4))
+                .addHandler(sut)
+                .addHandler(new Handler<Object, Object>() {
+                    @Override
+                    public Object handle(Object data, ExecutionContext context) {
+                        return "done";
+                    }
+                });
+        Result.MultiStatus result = context.handleNext("input");
+        assertThat(result.getResults(), hasSize(2));
+        assertThat(result.getResults().get(0), instanceOf(Result.Success.class));
+    }
+
+    /**
+     * 例外が発生した場合は、全てのパーティションの処理が終了した後に、
+     * 最も前のパーティションの例外が送出されること。
+     */
+    @Test
+    public void testFailure() {
+        final ModuloReaderFactory factory = new ModuloReaderFactory(4);
+        final AtomicInteger completed = new AtomicInteger();
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        sut.setPartitionCount(4);
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(factory)
+                .addHandler(sut)
+                .addHandler(new Handler<Object, Object>() {
+                    @Override
+                    public Object handle(Object data, ExecutionContext context) {
+                        Integer value = context.readNextData();
+                        if (value == 1 || value == 3) {
+                            throw new IllegalStateException("partition " + value);
+                        }
+                        completed.incrementAndGet();
+                        return new Result.Success();
+                    }
+                });
+        try {
+            context.handleNext("input");
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("partition 1"));
+            assertThat(e.getSuppressed().length, is(1));
+            assertThat(e.getSuppressed()[0].getMessage(), is("partition 3"));
+        }
+        assertThat(completed.get(), is(2));
+        assertThat(factory.closeCount.get(), is(4));
+    }
+
+    @Test
+    public void testCreateExecutorService() {
+        final List<ExecutorService> created = new ArrayList<ExecutorService>();
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler() {
+            @Override
+            protected ExecutorService createExecutorService(int concurrentNumber) {
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                created.add(executor);
+                return executor;
+            }
+        };
+        sut.setPartitionCount(3);
+        SumHandler sumHandler = new SumHandler();
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(new ModuloReaderFactory(9))
+                .addHandler(sut)
+                .addHandler(sumHandler);
+        Result.MultiStatus result = context.handleNext("input");
+        assertThat(result.getResults(), hasSize(3));
+        assertThat(sumHandler.threads, hasSize(1));
+        assertThat(created, hasSize(1));
+        assertThat(created.get(0).isShutdown(), is(true));
+    }
+
+    @Test
+    public void testErrorIsRethrown() {
+        final Error error = new AssertionError("fatal");
+        PartitionedExecutionHandler sut = new PartitionedExecutionHandler();
+        ExecutionContext context = new ExecutionContext()
+                .setDataReaderFactory(new ModuloReaderFactory(1))
+                .addHandler(sut)
+                .addHandler(new Handler<Object, Object>() {
+                    @Override
+                    public Object handle(Object data, ExecutionContext context) {
+                        throw error;
+                    }
+                });
+        try {
+            context.handleNext("input");
+            fail();
+        } catch (AssertionError e) {
+            assertThat(e, sameInstance(error));
+        }
+    }
+
+    @Test
+    public void testInvalidPartitionCount() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("partitionCount must be greater than 0. partitionCount = 0");
+        new PartitionedExecutionHandler().setPartitionCount(0);
+    }
+}
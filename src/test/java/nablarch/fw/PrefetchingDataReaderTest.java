@@ -0,0 +1,206 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link PrefetchingDataReader}のテスト。
+ */
+public class PrefetchingDataReaderTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** 指定された件数の連番を返すデータリーダ */
+    private static class CountingReader implements DataReader<Integer> {
+        private final int size;
+        private final AtomicInteger readCount = new AtomicInteger();
+        private final AtomicInteger closeCount = new AtomicInteger();
+        private volatile Thread readThread;
+        private volatile ExecutionContext readContext;
+        private RuntimeException failure;
+        private int failAt = -1;
+
+        CountingReader(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer read(ExecutionContext ctx) {
+            readThread = Thread.currentThread();
+            readContext = ctx;
+            int value = readCount.getAndIncrement();
+            if (value == failAt) {
+                throw failure;
+            }
+            return value;
+        }
+
+        @Override
+        public boolean hasNext(ExecutionContext ctx) {
+            return readCount.get() < size;
+        }
+
+        @Override
+        public void close(ExecutionContext ctx) {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testRead() {
+        CountingReader delegate = new CountingReader(100);
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(delegate, 3);
+        ExecutionContext context = new ExecutionContext();
+        for (int i = 0; i < 100; i++) {
+            assertThat(sut.hasNext(context), is(true));
+            assertThat(sut.read(context), is(i));
+        }
+        assertThat(sut.hasNext(context), is(false));
+        assertThat(sut.read(context), is(nullValue()));
+
+        assertThat(delegate.readThread == Thread.currentThread(), is(false));
+        assertThat(delegate.readContext, sameInstance(context));
+        sut.close(context);
+        assertThat(delegate.closeCount.get(), is(1));
+    }
+
+    @Test
+    public void testReadNextBatch() {
+        CountingReader delegate = new CountingReader(10);
+        ExecutionContext context = new ExecutionContext()
+                .setDataReader(new PrefetchingDataReader<Integer>(delegate, 4));
+        List<Integer> actual = new ArrayList<Integer>();
+        while (context.readNextBatch(actual, 3) > 0) {
+            assertThat(actual.size() <= 10, is(true));
+        }
+        assertThat(actual, contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    /**
+     * 先読みの件数がキューの上限件数に1件を加えたものを超えないこと。
+     */
+    @Test(timeout = 10000)
+    public void testBackPressure() throws Exception {
+        CountingReader delegate = new CountingReader(1000);
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(delegate, 5);
+        ExecutionContext context = new ExecutionContext();
+        assertThat(sut.read(context), is(0));
+
+        // 先読みスレッドがキューを満たすまで待つ。
+        while (delegate.readCount.get() < 7) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertThat(delegate.readCount.get(), is(7));
+
+        sut.close(context);
+        assertThat(delegate.closeCount.get(), is(1));
+        assertThat(delegate.readCount.get(), is(7));
+        assertThat(sut.hasNext(context), is(false));
+
+        // 2回目以降のcloseは何もしない。
+        sut.close(context);
+        assertThat(delegate.closeCount.get(), is(1));
+    }
+
+    @Test
+    public void testCloseBeforeRead() {
+        CountingReader delegate = new CountingReader(10);
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(delegate);
+        sut.close(new ExecutionContext());
+        assertThat(delegate.closeCount.get(), is(1));
+        assertThat(delegate.readCount.get(), is(0));
+    }
+
+    /**
+     * 委譲先で発生した例外が、それまでに読み込んだデータの後に送出されること。
+     */
+    @Test
+    public void testFailure() {
+        CountingReader delegate = new CountingReader(10);
+        delegate.failAt = 2;
+        delegate.failure = new IllegalStateException("read error");
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(delegate, 10);
+        ExecutionContext context = new ExecutionContext();
+
+        List<Integer> buffer = new ArrayList<Integer>();
+        assertThat(sut.read(context, buffer, 10) > 0, is(true));
+        while (buffer.size() < 2) {
+            sut.read(context, buffer, 10);
+        }
+        assertThat(buffer, contains(0, 1));
+        for (int i = 0; i < 2; i++) {
+            try {
+                sut.hasNext(context);
+                fail();
+            } catch (IllegalStateException e) {
+                assertThat(e, sameInstance((Object) delegate.failure));
+            }
+        }
+        sut.close(context);
+        assertThat(delegate.closeCount.get(), is(1));
+    }
+
+    @Test
+    public void testError() {
+        final Error error = new AssertionError("fatal");
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(new CountingReader(1) {
+            @Override
+            public Integer read(ExecutionContext ctx) {
+                throw error;
+            }
+        });
+        try {
+            sut.read(new ExecutionContext());
+            fail();
+        } catch (AssertionError e) {
+            assertThat(e, sameInstance(error));
+        }
+    }
+
+    /**
+     * 先読みスレッドを生成するメソッドをオーバーライドできること。
+     */
+    @Test
+    public void testCreateThread() throws Exception {
+        final CountDownLatch created = new CountDownLatch(1);
+        PrefetchingDataReader<Integer> sut = new PrefetchingDataReader<Integer>(new CountingReader(1)) {
+            @Override
+            protected Thread createThread(Runnable task) {
+                created.countDown();
+                return super.createThread(task);
+            }
+        };
+        assertThat(sut.read(new ExecutionContext()), is(0));
+        assertThat(created.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void testNullReader() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("reader must not be null.");
+        new PrefetchingDataReader<Integer>(null);
+    }
+
+    @Test
+    public void testInvalidDepth() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("depth must be greater than 0. depth = 0");
+        new PrefetchingDataReader<Integer>(new CountingReader(1), 0);
+    }
+}
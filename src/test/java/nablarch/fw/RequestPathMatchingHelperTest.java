@@ -95,4 +95,40 @@ public class RequestPathMatchingHelperTest {
 
         assertThat(result, is("/foo.bar.TestAction/FizzBuzz"));
     }
+
+    @Test
+    public void testIsAppliedTo_controlCharacter() {
+        RequestPathMatchingHelper helper = new RequestPathMatchingHelper(false);
+        helper.setRequestPattern("//");
+
+        assertThat(helper.isAppliedTo(new MockRequest("/app/\u007Findex"), null), is(false));
+        assertThat(helper.isAppliedTo(new MockRequest("/app\t/index"), null), is(false));
+        assertThat(helper.isAppliedTo(new MockRequest(" \tapp/index \t"), null), is(true));
+    }
+
+    @Test
+    public void testIsAppliedTo_isReplaceDotIsTrue() {
+        RequestPathMatchingHelper helper = new RequestPathMatchingHelper(true);
+        helper.setRequestPattern("/foo/bar//*Action");
+
+        assertThat(helper.isAppliedTo(new MockRequest("foo.bar.TestAction"), null), is(true));
+        assertThat(helper.isAppliedTo(new MockRequest("foo.bar.baz.TestAction"), null), is(true));
+        assertThat(helper.isAppliedTo(new MockRequest("foo.TestAction"), null), is(false));
+    }
+
+    @Test
+    public void testIsAppliedTo_overriddenMatchesWith() {
+        final StringBuilder called = new StringBuilder();
+        RequestPathMatchingHelper helper = new RequestPathMatchingHelper(false) {
+            @Override
+            protected boolean matchesWith(String directoryPath, String resourceName) {
+                called.append(directoryPath).append('|').append(resourceName);
+                return super.matchesWith(directoryPath, resourceName);
+            }
+        };
+        helper.setRequestPattern("/app/*.jsp");
+
+        assertThat(helper.isAppliedTo(new MockRequest("/app/index.jsp"), null), is(true));
+        assertThat(called.toString(), is("/app/|index.jsp"));
+    }
 }
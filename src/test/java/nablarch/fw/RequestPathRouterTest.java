@@ -0,0 +1,150 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link RequestPathRouter}のテスト。
+ */
+public class RequestPathRouterTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** 呼び出されたパターンを返すハンドラ */
+    private static class PatternHandler implements Handler<MockRequest, String> {
+        private final String pattern;
+
+        PatternHandler(String pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public String handle(MockRequest request, ExecutionContext context) {
+            return pattern;
+        }
+    }
+
+    /** 後続ハンドラ */
+    private static final Handler<MockRequest, String> NEXT = new Handler<MockRequest, String>() {
+        @Override
+        public String handle(MockRequest request, ExecutionContext context) {
+            return "next";
+        }
+    };
+
+    /**
+     * {@link RequestPathMatchingHelperParameterizedTest}の全てのケースについて、
+     * パターンを1つだけ登録した場合の結果が{@link RequestPathMatchingHelper}と一致すること。
+     */
+    @Test
+    public void testSinglePatternCompatibleWithHelper() {
+        for (Object[] parameter : RequestPathMatchingHelperParameterizedTest.parameters()) {
+            String pattern = (String) parameter[0];
+            String requestPath = (String) parameter[1];
+            boolean expected = (Boolean) parameter[2];
+
+            RequestPathRouter<MockRequest, String> sut = new RequestPathRouter<MockRequest, String>()
+                    .addHandler(pattern, new PatternHandler(pattern));
+            ExecutionContext context = new ExecutionContext().addHandler(sut).addHandler(NEXT);
+            String actual = context.handleNext(new MockRequest(requestPath));
+            assertThat(pattern + " : " + requestPath, actual, is(expected ? pattern : "next"));
+        }
+    }
+
+    /**
+     * 全てのパターンを登録した場合に、{@link RequestHandlerEntry}を登録順に並べた場合と同じハンドラが選択されること。
+     */
+    @Test
+    public void testFirstMatchCompatibleWithHandlerEntries() {
+        Set<String> patterns = new LinkedHashSet<String>();
+        Set<String> requestPaths = new LinkedHashSet<String>();
+        for (Object[] parameter : RequestPathMatchingHelperParameterizedTest.parameters()) {
+            patterns.add((String) parameter[0]);
+            requestPaths.add((String) parameter[1]);
+        }
+        requestPaths.addAll(Arrays.asList("app/index.jsp", " /app/xyz/ ", "//app/", "/app//xyz/", "/app/\tx"));
+
+        List<String> orderedPatterns = new ArrayList<String>(patterns);
+        for (int rotation = 0; rotation < orderedPatterns.size(); rotation += 7) {
+            List<String> rotated = new ArrayList<String>(orderedPatterns.subList(rotation, orderedPatterns.size()));
+            rotated.addAll(orderedPatterns.subList(0, rotation));
+
+            RequestPathRouter<MockRequest, String> sut = new RequestPathRouter<MockRequest, String>();
+            List<RequestHandlerEntry<MockRequest, String>> entries = new ArrayList<RequestHandlerEntry<MockRequest, String>>();
+            for (String pattern : rotated) {
+                sut.addHandler(pattern, new PatternHandler(pattern));
+                entries.add(new RequestHandlerEntry<MockRequest, String>()
+                        .setRequestPattern(pattern)
+                        .setHandler(new PatternHandler(pattern)));
+            }
+
+            for (String requestPath : requestPaths) {
+                ExecutionContext expectedContext = new ExecutionContext();
+                for (RequestHandlerEntry<MockRequest, String> entry : entries) {
+                    expectedContext.addHandler(entry);
+                }
+                expectedContext.addHandler(NEXT);
+                String expected = expectedContext.handleNext(new MockRequest(requestPath));
+
+                ExecutionContext context = new ExecutionContext().addHandler(sut).addHandler(NEXT);
+                String actual = context.handleNext(new MockRequest(requestPath));
+                assertThat("rotation=" + rotation + " requestPath=" + requestPath, actual, is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testSetHandlerEntries() {
+        RequestPathRouter<MockRequest, String> sut = new RequestPathRouter<MockRequest, String>();
+        List<RequestHandlerEntry<MockRequest, String>> entries = new ArrayList<RequestHandlerEntry<MockRequest, String>>();
+        entries.add(new RequestHandlerEntry<MockRequest, String>()
+                .setRequestPattern("/app/admin//")
+                .setHandler(new PatternHandler("admin")));
+        entries.add(new RequestHandlerEntry<MockRequest, String>()
+                .setRequestPattern("/app//")
+                .setHandler(new PatternHandler("app")));
+        sut.setHandlerEntries(entries);
+
+        ExecutionContext context = new ExecutionContext();
+        assertThat(sut.handle(new MockRequest("/app/admin/index.jsp"), context), is("admin"));
+        assertThat(sut.handle(new MockRequest("/app/index.jsp"), context), is("app"));
+
+        assertThat(sut.getDelegates(new MockRequest("/app/index.jsp"), context), hasSize(1));
+        assertThat(sut.getDelegates(new MockRequest("/other/index.jsp"), context), hasSize(0));
+        assertThat(context.findHandler(new MockRequest("/other"), PatternHandler.class, Object.class), is(nullValue()));
+    }
+
+    @Test
+    public void testInvalidPattern() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid pattern format: hogehoge");
+        new RequestPathRouter<MockRequest, String>().addHandler("hogehoge", NEXT);
+    }
+
+    @Test
+    public void testEmptyPattern() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("requestPattern must not be null or blank.");
+        new RequestPathRouter<MockRequest, String>().addHandler("", NEXT);
+    }
+
+    @Test
+    public void testNullHandler() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("handler must not be null.");
+        new RequestPathRouter<MockRequest, String>().addHandler("/", null);
+    }
+}
@@ -0,0 +1,237 @@
+package nablarch.fw;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link RequestScopeMap}及び{@link ScopeKey}のテスト。
+ */
+public class RequestScopeMapTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private static final ScopeKey<String> KEY = ScopeKey.of("RequestScopeMapTest.key");
+
+    @Test
+    public void testScopeKeyIsInterned() {
+        assertThat(ScopeKey.<String>of("RequestScopeMapTest.key"), sameInstance(KEY));
+        assertThat(ScopeKey.of(ExecutionContext.THROWN_EXCEPTION_KEY),
+                   sameInstance((Object) ExecutionContext.THROWN_EXCEPTION));
+        assertThat(KEY.getName(), is("RequestScopeMapTest.key"));
+        assertThat(KEY.toString(), is("RequestScopeMapTest.key"));
+    }
+
+    @Test
+    public void testScopeKeyWithEmptyName() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("name must not be null or empty.");
+        ScopeKey.of("");
+    }
+
+    @Test
+    public void testKeyAndNameShareValue() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, "typed");
+        assertThat(sut.get("RequestScopeMapTest.key"), is((Object) "typed"));
+        assertThat(sut.containsKey("RequestScopeMapTest.key"), is(true));
+
+        sut.put("RequestScopeMapTest.key", "named");
+        assertThat(sut.getValue(KEY), is("named"));
+        assertThat(sut.size(), is(1));
+
+        sut.put("other", "value");
+        assertThat(sut.size(), is(2));
+        assertThat(sut.get("other"), is((Object) "value"));
+        assertThat(sut.get(null), is(nullValue()));
+        assertThat(sut.get(1), is(nullValue()));
+
+        assertThat(sut.remove("RequestScopeMapTest.key"), is((Object) "named"));
+        assertThat(sut.getValue(KEY), is(nullValue()));
+        assertThat(sut.containsKey("RequestScopeMapTest.key"), is(false));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void testNullValue() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, null);
+        assertThat(sut.containsKey("RequestScopeMapTest.key"), is(true));
+        assertThat(sut.getValue(KEY), is(nullValue()));
+        assertThat(sut.size(), is(1));
+        assertThat(sut.remove("RequestScopeMapTest.key"), is(nullValue()));
+        assertThat(sut.size(), is(0));
+    }
+
+    /**
+     * Mapの生成後に作成されたキーについても値を設定できること。
+     */
+    @Test
+    public void testKeyCreatedAfterMap() {
+        RequestScopeMap sut = new RequestScopeMap();
+        ScopeKey<Integer> late = ScopeKey.of("RequestScopeMapTest.late." + System.nanoTime());
+        assertThat(sut.getValue(late), is(nullValue()));
+        sut.putValue(late, 1);
+        assertThat(sut.getValue(late), is(1));
+        assertThat(sut.get(late.getName()), is((Object) 1));
+    }
+
+    @Test
+    public void testValuePutByNameBeforeKeyAccess() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.put(KEY.getName(), null);
+        sut.put("other", "value");
+        assertThat(sut.size(), is(2));
+
+        assertThat(sut.getValue(KEY), is(nullValue()));
+        assertThat(sut.containsKey(KEY.getName()), is(true));
+        assertThat(sut.size(), is(2));
+
+        sut.remove(KEY.getName());
+        assertThat(sut.containsKey(KEY.getName()), is(false));
+        assertThat(sut.size(), is(1));
+        assertThat(sut.put(KEY.getName(), "named"), is(nullValue()));
+        assertThat(sut.getValue(KEY), is("named"));
+        assertThat(sut.size(), is(2));
+    }
+
+    @Test
+    public void testEqualsAndIteration() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, "typed");
+        sut.put("other", "value");
+
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("RequestScopeMapTest.key", "typed");
+        expected.put("other", "value");
+        assertThat(sut.equals(expected), is(true));
+        assertThat(expected.equals(sut), is(true));
+        assertThat(sut.hashCode(), is(expected.hashCode()));
+        assertThat(new HashMap<String, Object>(sut), is(expected));
+
+        for (Map.Entry<String, Object> entry : sut.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        assertThat(sut.getValue(KEY), is("typed!"));
+        assertThat(sut.get("other"), is((Object) "value!"));
+
+        Iterator<Map.Entry<String, Object>> iterator = sut.entrySet().iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertThat(sut.isEmpty(), is(true));
+        assertThat(sut.getValue(KEY), is(nullValue()));
+    }
+
+    /**
+     * イテレータを使用して、反復中にエントリを削除できること。
+     */
+    @Test
+    public void testRemoveWhileIterating() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, "typed");
+        sut.putValue(ScopeKey.<String>of("RequestScopeMapTest.absent"), "absent");
+        sut.remove("RequestScopeMapTest.absent");
+        for (int i = 0; i < 10; i++) {
+            sut.put("name" + i, i);
+        }
+
+        Iterator<Map.Entry<String, Object>> iterator = sut.entrySet().iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            count++;
+            if (!entry.getKey().equals("name0")) {
+                iterator.remove();
+            }
+        }
+        assertThat(count, is(11));
+        assertThat(sut.size(), is(1));
+        assertThat(sut.get("name0"), is((Object) 0));
+
+        for (int i = 1; i < 10; i++) {
+            sut.put("name" + i, i);
+        }
+        sut.putValue(KEY, "typed");
+        sut.keySet().removeIf(name -> !name.equals("name9"));
+        assertThat(sut.keySet(), is((Object) Collections.singleton("name9")));
+        assertThat(sut.getValue(KEY), is(nullValue()));
+    }
+
+    /**
+     * イテレータの反復中に{@link ScopeKey}で値を削除した場合は、例外を送出すること。
+     */
+    @Test
+    public void testConcurrentModification() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, "typed");
+        sut.put("other", "value");
+        Iterator<Map.Entry<String, Object>> iterator = sut.entrySet().iterator();
+        iterator.next();
+        sut.putValue(KEY, null);
+        sut.remove(KEY.getName());
+
+        expectedException.expect(ConcurrentModificationException.class);
+        iterator.next();
+    }
+
+    /**
+     * {@link ScopeKey}で値を参照するだけの場合は、エントリを追加しないこと。
+     */
+    @Test
+    public void testGetValueDoesNotAddEntry() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.put("other", "value");
+        assertThat(sut.getValue(KEY), is(nullValue()));
+
+        Iterator<Map.Entry<String, Object>> iterator = sut.entrySet().iterator();
+        iterator.next();
+        sut.getValue(KEY);
+        iterator.remove();
+        assertThat(sut.isEmpty(), is(true));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void testClear() {
+        RequestScopeMap sut = new RequestScopeMap();
+        sut.putValue(KEY, "typed");
+        sut.put("other", "value");
+        sut.clear();
+        assertThat(sut.isEmpty(), is(true));
+        assertThat(sut.getValue(KEY), is(nullValue()));
+        assertThat(sut.get("other"), is(nullValue()));
+    }
+
+    /**
+     * {@link ExecutionContext}に他のMapが設定されている場合でも、変数名で値を読み書きできること。
+     */
+    @Test
+    public void testExecutionContextWithOtherMap() {
+        ExecutionContext context = new ExecutionContext();
+        context.setRequestScopedVar(KEY, "typed");
+        assertThat(context.<String>getRequestScopedVar("RequestScopeMapTest.key"), is("typed"));
+
+        Map<String, Object> other = new HashMap<String, Object>();
+        context.setRequestScopeMap(other);
+        context.setRequestScopedVar(KEY, "other");
+        assertThat(other.get("RequestScopeMapTest.key"), is((Object) "other"));
+        assertThat(context.getRequestScopedVar(KEY), is("other"));
+
+        context.setException(new IllegalStateException());
+        assertThat(other.get(ExecutionContext.THROWN_EXCEPTION_KEY), is((Object) context.getException()));
+    }
+}